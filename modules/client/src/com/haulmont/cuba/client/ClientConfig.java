@@ -382,4 +382,19 @@ public interface ClientConfig extends Config {
     @Property("cuba.gui.validationNotificationType")
     @Default("TRAY")
     String getValidationNotificationType();
+
+    /**
+     * @return true if {@code ExcelAction} should export to XLSX using {@code StreamingExcelExporter}, which writes
+     * rows to disk incrementally and loads all rows of a paged datasource from the database
+     */
+    @Property("cuba.gui.excelExport.streaming")
+    @DefaultBoolean(false)
+    boolean getExcelExportStreaming();
+
+    /**
+     * @return number of rows loaded from the database at once by {@code StreamingExcelExporter}
+     */
+    @Property("cuba.gui.excelExport.pageSize")
+    @DefaultInt(1000)
+    int getExcelExportPageSize();
 }
\ No newline at end of file
@@ -34,17 +34,22 @@ import java.util.concurrent.ConcurrentHashMap;
 @Component(Configuration.NAME)
 public class ConfigurationClientImpl implements ClientConfiguration {
     protected Map<Class, ConfigHandler> handlersCache = new ConcurrentHashMap<>();
+    protected Map<Class, Object> proxiesCache = new ConcurrentHashMap<>();
     protected ConfigStorageService configStorageCache = new ConfigStorageCache();
 
     @Override
     public <T extends Config> T getConfig(Class<T> configInterface) {
-        ConfigHandler handler = handlersCache.get(configInterface);
-        if (handler == null) {
-            handler = new ConfigHandler(createConfigPersister(false), configInterface);
-            handlersCache.put(configInterface, handler);
+        Object proxy = proxiesCache.get(configInterface);
+        if (proxy == null) {
+            ConfigHandler handler = handlersCache.get(configInterface);
+            if (handler == null) {
+                handler = new ConfigHandler(createConfigPersister(false), configInterface);
+                handlersCache.put(configInterface, handler);
+            }
+            ClassLoader classLoader = configInterface.getClassLoader();
+            proxy = Proxy.newProxyInstance(classLoader, new Class[]{configInterface}, handler);
+            proxiesCache.put(configInterface, proxy);
         }
-        ClassLoader classLoader = configInterface.getClassLoader();
-        Object proxy = Proxy.newProxyInstance(classLoader, new Class[]{configInterface}, handler);
         return configInterface.cast(proxy);
     }
 
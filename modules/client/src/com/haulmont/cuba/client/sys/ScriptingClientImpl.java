@@ -18,6 +18,7 @@
 package com.haulmont.cuba.client.sys;
 
 import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.Events;
 import com.haulmont.cuba.core.global.GlobalConfig;
 import com.haulmont.cuba.core.global.Scripting;
 import com.haulmont.cuba.core.sys.AbstractScripting;
@@ -33,8 +34,9 @@ public class ScriptingClientImpl extends AbstractScripting {
     private String[] scriptEngineRoots;
 
     @Inject
-    public ScriptingClientImpl(JavaClassLoader javaClassLoader, Configuration configuration, SpringBeanLoader springBeanLoader) {
-        super(javaClassLoader, configuration, springBeanLoader);
+    public ScriptingClientImpl(JavaClassLoader javaClassLoader, Configuration configuration, SpringBeanLoader springBeanLoader,
+                               Events events) {
+        super(javaClassLoader, configuration, springBeanLoader, events);
         scriptEngineRoots = new String[] {
                 configuration.getConfig(GlobalConfig.class).getConfDir()
         };
@@ -18,12 +18,19 @@
 package com.haulmont.cuba.client.sys;
 
 import com.haulmont.cuba.core.global.UuidSource;
+import com.haulmont.cuba.core.sys.ConditionalOnAppProperty;
+import com.haulmont.cuba.core.sys.TimeOrderedUuidSource;
 
 import org.springframework.stereotype.Component;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Creates random UUIDs. Replaced by {@link TimeOrderedUuidSource} if the {@code cuba.uuidSource.timeOrdered}
+ * application property is {@code true}.
+ */
 @Component(UuidSource.NAME)
+@ConditionalOnAppProperty(property = "cuba.uuidSource.timeOrdered", value = "false", defaultValue = "false")
 public class UuidSourceClientImpl implements UuidSource {
 
     @Override
@@ -17,6 +17,7 @@
 package com.haulmont.cuba.client.sys.config;
 
 import com.haulmont.cuba.core.app.ConfigStorageService;
+import com.haulmont.cuba.core.config.ConfigChanges;
 import com.haulmont.cuba.core.config.ConfigPersister;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.sys.AppContext;
@@ -104,6 +105,13 @@ public class ConfigPersisterClientImpl implements ConfigPersister {
             default:
                 throw new UnsupportedOperationException("Unsupported config source type: " + sourceType);
         }
+        ConfigChanges.propertiesChanged();
+    }
+
+    @Override
+    public boolean isCachingAllowed(SourceType sourceType) {
+        // DB-stored properties are refreshed from the middleware in background
+        return sourceType != SourceType.DATABASE;
     }
 
     protected ConfigStorageService getConfigStorage() {
@@ -20,6 +20,7 @@ package com.haulmont.cuba.client.testsupport;
 import com.haulmont.cuba.core.global.ExtendedEntities;
 import com.haulmont.cuba.core.global.Metadata;
 import com.haulmont.cuba.core.global.UserSessionSource;
+import com.haulmont.cuba.core.sys.ConstraintStatistics;
 import com.haulmont.cuba.core.sys.SecurityImpl;
 
 public class TestSecurity extends SecurityImpl {
@@ -29,5 +30,6 @@ public class TestSecurity extends SecurityImpl {
         this.metadata = metadata;
         this.metadataTools = metadata.getTools();
         this.extendedEntities = extendedEntities;
+        this.constraintStatistics = new ConstraintStatistics();
     }
 }
\ No newline at end of file
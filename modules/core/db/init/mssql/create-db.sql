@@ -117,6 +117,7 @@ create table SYS_SCHEDULED_TASK (
     LOG_FINISH tinyint,
     LAST_START_TIME datetime,
     LAST_START_SERVER varchar(512),
+    LAST_FINISH_TIME datetime,
     DESCRIPTION varchar(1000),
     CRON varchar(100),
     SCHEDULING_TYPE varchar(1) default 'P',
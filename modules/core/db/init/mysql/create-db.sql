@@ -114,6 +114,7 @@ create table SYS_SCHEDULED_TASK (
     LOG_FINISH boolean,
     LAST_START_TIME datetime(3),
     LAST_START_SERVER varchar(512),
+    LAST_FINISH_TIME datetime(3),
     DESCRIPTION varchar(1000),
     CRON varchar(100),
     SCHEDULING_TYPE varchar(1) default 'P',
@@ -300,6 +300,7 @@ create table SYS_SCHEDULED_TASK (
     LOG_FINISH char(1),
     LAST_START_TIME timestamp,
     LAST_START_SERVER varchar2(512),
+    LAST_FINISH_TIME timestamp,
     DESCRIPTION varchar2(1000),
     CRON varchar2(100),
     SCHEDULING_TYPE varchar2(1) default 'P',
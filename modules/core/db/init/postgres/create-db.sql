@@ -116,6 +116,7 @@ create table SYS_SCHEDULED_TASK (
     LOG_FINISH boolean,
     LAST_START_TIME timestamp with time zone,
     LAST_START_SERVER varchar(512),
+    LAST_FINISH_TIME timestamp with time zone,
     DESCRIPTION varchar(1000),
     CRON varchar(100),
     SCHEDULING_TYPE varchar(1) default 'P',
@@ -0,0 +1,2 @@
+alter table SYS_SCHEDULED_TASK add LAST_FINISH_TIME datetime(3)^
+update SYS_SCHEDULED_TASK set LAST_FINISH_TIME = LAST_START_TIME^
\ No newline at end of file
@@ -66,4 +66,43 @@ public interface ClusterConfig extends Config {
     @Property("cuba.cluster.messageSendingQueueCapacity")
     @DefaultInt(Integer.MAX_VALUE)
     int getClusterMessageSendingQueueCapacity();
+
+    /**
+     * @return whether messages are sent in the compact format of {@link ClusterMessageCodecs}. Otherwise messages
+     * are serialized as a whole, as before codecs were introduced. Nodes receive messages in both formats, so the
+     * property should be turned on only after all nodes of the cluster have been upgraded.
+     */
+    @Property("cuba.cluster.messageCodecsEnabled")
+    @DefaultBoolean(false)
+    boolean getMessageCodecsEnabled();
+
+    /**
+     * @return whether asynchronously sent messages are collected into batches, each sent to the cluster as one
+     * message. All nodes of the cluster must have the same value.
+     */
+    @Property("cuba.cluster.messageBatchingEnabled")
+    @DefaultBoolean(false)
+    boolean getMessageBatchingEnabled();
+
+    /**
+     * @return time in milliseconds during which messages are collected into one batch
+     */
+    @Property("cuba.cluster.messageBatchWindowMs")
+    @DefaultInt(20)
+    int getMessageBatchWindowMs();
+
+    /**
+     * @return maximum number of messages in one batch
+     */
+    @Property("cuba.cluster.messageBatchMaxSize")
+    @DefaultInt(500)
+    int getMessageBatchMaxSize();
+
+    /**
+     * @return maximum number of messages waiting to be batched. When it is reached, sending threads are blocked
+     * until the queue has free space.
+     */
+    @Property("cuba.cluster.messageBatchQueueCapacity")
+    @DefaultInt(10000)
+    int getMessageBatchQueueCapacity();
 }
@@ -43,9 +43,7 @@ import javax.inject.Inject;
 import javax.management.MBeanServer;
 import java.io.*;
 import java.lang.management.ManagementFactory;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.LongAdder;
 
@@ -65,6 +63,10 @@ public class ClusterManager implements ClusterManagerAPI {
 
     protected ThreadPoolExecutor executor;
 
+    protected BlockingQueue<QueuedMessage> batchQueue;
+
+    protected Thread batchSender;
+
     @Inject
     protected Resources resources;
 
@@ -78,6 +80,8 @@ public class ClusterManager implements ClusterManagerAPI {
 
     protected Map<String, MessageStat> messagesStat = new ConcurrentHashMap<>();
 
+    protected ClusterMessageCodecs codecs = new ClusterMessageCodecs();
+
     protected static final String STATE_MAGIC = "CUBA_STATE";
 
     public JChannel getChannel() {
@@ -97,6 +101,13 @@ public class ClusterManager implements ClusterManagerAPI {
                         log.info("Queue capacity is exceeded. Message: {}: {}", sendMessageRunnable.message.getClass(), sendMessageRunnable.message);
                     }
                 });
+
+        if (clusterConfig.getMessageBatchingEnabled()) {
+            batchQueue = new LinkedBlockingQueue<>(clusterConfig.getMessageBatchQueueCapacity());
+            batchSender = new Thread(this::sendBatches, "ClusterManagerBatchSender");
+            batchSender.setDaemon(true);
+            batchSender.start();
+        }
     }
 
     @EventListener(AppContextInitializedEvent.class)
@@ -110,6 +121,14 @@ public class ClusterManager implements ClusterManagerAPI {
     @EventListener(AppContextStoppedEvent.class)
     protected void applicationStopped() {
         executor.shutdown();
+        if (batchSender != null) {
+            batchSender.interrupt();
+            try {
+                batchSender.join(clusterConfig.getMessageBatchWindowMs() * 10L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         stop();
     }
 
@@ -121,6 +140,16 @@ public class ClusterManager implements ClusterManagerAPI {
         Boolean sync = forceSyncSending.get();
         if (sync != null && sync) {
             internalSend(message, true);
+        } else if (batchQueue != null) {
+            log.trace("Queueing message: {}: {} to send in batch", message.getClass(), message);
+            try {
+                // blocks if the sender cannot keep up, instead of dropping the message
+                batchQueue.put(new QueuedMessage(message));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.debug("Interrupted while queueing message, sending it immediately");
+                internalSend(message, false);
+            }
         } else {
             log.trace("Submitting message: {}: {} to send asynchronously", message.getClass(), message);
             executor.execute(new SendMessageRunnable(message));
@@ -138,21 +167,111 @@ public class ClusterManager implements ClusterManagerAPI {
     protected void internalSend(Serializable message, boolean sync) {
         StopWatch sw = new Slf4JStopWatch(String.format("sendClusterMessage(%s)", message.getClass().getSimpleName()));
         try {
-            byte[] bytes = SerializationSupport.serialize(message);
+            byte[] bytes = encode(Collections.singletonList(message));
             log.debug("Sending message: {}: {} ({} bytes)", message.getClass(), message, bytes.length);
-            MessageStat stat = messagesStat.get(message.getClass().getName());
-            if (stat != null) {
-                stat.updateSent(bytes.length);
-            }
-            Message msg = new Message(null, null, bytes);
-            if (sync) {
-                msg.setFlag(Message.Flag.RSVP);
-            }
+            sendBytes(bytes, sync);
+        } finally {
+            sw.stop();
+        }
+    }
+
+    protected byte[] encode(List<Serializable> messages) {
+        if (clusterConfig.getMessageCodecsEnabled()) {
+            return codecs.encode(messages, this::messageEncoded);
+        }
+        long start = System.nanoTime();
+        Serializable data = messages.size() == 1 ? messages.get(0) : new MessageBatch(messages);
+        byte[] bytes = SerializationSupport.serialize(data);
+        long time = System.nanoTime() - start;
+        for (Serializable message : messages) {
+            messageEncoded(message, bytes.length / messages.size(), time / messages.size());
+        }
+        return bytes;
+    }
+
+    protected void messageEncoded(Serializable message, int bytes, long time) {
+        MessageStat stat = messagesStat.get(message.getClass().getName());
+        if (stat != null) {
+            stat.updateSent(bytes, time);
+        }
+    }
+
+    protected void sendBytes(byte[] bytes, boolean sync) {
+        JChannel channel = this.channel;
+        if (channel == null)
+            return;
+
+        Message msg = new Message(null, null, bytes);
+        if (sync) {
+            msg.setFlag(Message.Flag.RSVP);
+        }
+        try {
+            channel.send(msg);
+        } catch (Exception e) {
+            log.error("Error sending message", e);
+        }
+    }
+
+    protected void sendBatches() {
+        int windowMs = clusterConfig.getMessageBatchWindowMs();
+        int maxSize = clusterConfig.getMessageBatchMaxSize();
+        List<QueuedMessage> batch = new ArrayList<>();
+        while (true) {
             try {
-                channel.send(msg);
+                QueuedMessage first = batchQueue.take();
+                batch.add(first);
+                long deadline = first.queuedAt + TimeUnit.MILLISECONDS.toNanos(windowMs);
+                while (batch.size() < maxSize) {
+                    QueuedMessage next = batchQueue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+                sendBatch(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                batchQueue.drainTo(batch);
+                sendBatch(batch);
+                return;
             } catch (Exception e) {
-                log.error("Error sending message", e);
+                log.error("Error sending batch of messages", e);
+                batch.clear();
+            }
+        }
+    }
+
+    protected void sendBatch(List<QueuedMessage> queuedMessages) {
+        if (queuedMessages.isEmpty() || channel == null)
+            return;
+
+        long now = System.nanoTime();
+        List<Serializable> messages = new ArrayList<>(queuedMessages.size());
+        Set<Serializable> idempotentMessages = new HashSet<>();
+        Map<String, BatchStat> batchStats = new HashMap<>();
+        for (QueuedMessage queuedMessage : queuedMessages) {
+            Serializable message = queuedMessage.message;
+            BatchStat batchStat = batchStats.computeIfAbsent(message.getClass().getName(), name -> new BatchStat());
+            batchStat.latency += now - queuedMessage.queuedAt;
+            if (message instanceof IdempotentClusterMessage && !idempotentMessages.add(message)) {
+                batchStat.coalesced++;
+                continue;
+            }
+            batchStat.count++;
+            messages.add(message);
+        }
+
+        StopWatch sw = new Slf4JStopWatch(String.format("sendClusterMessageBatch(%s)", messages.size()));
+        try {
+            byte[] bytes = encode(messages);
+            log.debug("Sending batch of {} messages ({} bytes)", messages.size(), bytes.length);
+            for (Map.Entry<String, BatchStat> entry : batchStats.entrySet()) {
+                MessageStat stat = messagesStat.get(entry.getKey());
+                if (stat != null) {
+                    BatchStat batchStat = entry.getValue();
+                    stat.updateBatched(batchStat.count, batchStat.coalesced, batchStat.latency);
+                }
             }
+            sendBytes(bytes, false);
         } finally {
             sw.stop();
         }
@@ -176,7 +295,7 @@ public class ClusterManager implements ClusterManagerAPI {
     public synchronized void addListener(Class messageClass, ClusterListener listener) {
         String className = messageClass.getName();
         listeners.put(className, listener);
-        messagesStat.put(className, new MessageStat());
+        messagesStat.put(className, new MessageStat(messageClass));
     }
 
     @Override
@@ -186,6 +305,11 @@ public class ClusterManager implements ClusterManagerAPI {
         messagesStat.remove(className);
     }
 
+    @Override
+    public void registerCodec(ClusterMessageCodec<?> codec) {
+        codecs.register(codec);
+    }
+
     @Override
     public void start() {
         log.info("Starting cluster");
@@ -269,7 +393,7 @@ public class ClusterManager implements ClusterManagerAPI {
 
     @Override
     public int getMessagesCount() {
-        return executor.getQueue().size();
+        return executor.getQueue().size() + (batchQueue != null ? batchQueue.size() : 0);
     }
 
     @Override
@@ -336,9 +460,21 @@ public class ClusterManager implements ClusterManagerAPI {
             MessageStat stat = entry.getValue();
             if (stat != null) {
                 messagesStats
-                        .append(String.format("Class: %s; received: %s, %s bytes; sent: %s, %s bytes\n",
+                        .append(String.format("Class: %s; received: %s, %s bytes; sent: %s, %s bytes",
                                 entry.getKey(), stat.getReceivedMessages(), stat.getReceivedBytes(),
                                 stat.getSentMessages(), stat.getSentBytes()));
+                messagesStats
+                        .append(String.format("; encoding: %s, avg encode: %.1f us, avg decode: %.1f us",
+                                clusterConfig.getMessageCodecsEnabled() && codecs.getCodec(stat.messageClass) != null
+                                        ? "codec" : "serialization",
+                                stat.getAverageEncodeTimeUs(), stat.getAverageDecodeTimeUs()));
+                if (stat.getBatches() > 0) {
+                    messagesStats
+                            .append(String.format("; batches: %s, avg per batch: %.1f, coalesced: %s, avg latency: %.1f ms",
+                                    stat.getBatches(), stat.getAverageBatchSize(), stat.getCoalescedMessages(),
+                                    stat.getAverageLatencyMs()));
+                }
+                messagesStats.append("\n");
             }
         }
         return messagesStats.toString();
@@ -396,23 +532,55 @@ public class ClusterManager implements ClusterManagerAPI {
             StopWatch sw = new Slf4JStopWatch();
             String simpleClassName = null;
             try {
-                Serializable data = (Serializable) SerializationSupport.deserialize(bytes);
-                String className = data.getClass().getName();
-                simpleClassName = data.getClass().getSimpleName();
-                log.debug("Received message: {}: {} ({} bytes)", data.getClass(), data, bytes.length);
-                MessageStat stat = messagesStat.get(className);
-                if (stat != null) {
-                    stat.updateReceived(bytes.length);
+                log.debug("Received {} bytes", bytes.length);
+                List<Serializable> messages = new ArrayList<>(1);
+                ClusterMessageCodecs.MessageCallback callback = (message, size, time) -> {
+                    messages.add(message);
+                    MessageStat stat = messagesStat.get(message.getClass().getName());
+                    if (stat != null) {
+                        stat.updateReceived(size, time);
+                    }
+                };
+                if (codecs.isPacket(bytes)) {
+                    codecs.decode(bytes, callback);
+                } else {
+                    deserialize(bytes, callback);
                 }
-                ClusterListener listener = listeners.get(className);
-                if (listener != null) {
-                    listener.receive(data);
+                if (messages.size() == 1) {
+                    simpleClassName = messages.get(0).getClass().getSimpleName();
+                }
+                for (Serializable message : messages) {
+                    receiveMessage(message);
                 }
             } finally {
                 sw.stop(String.format("receiveClusterMessage(%s)", simpleClassName));
             }
         }
 
+        /**
+         * Reads a message or a batch serialized as a whole by a node with codecs disabled.
+         */
+        protected void deserialize(byte[] bytes, ClusterMessageCodecs.MessageCallback callback) {
+            long start = System.nanoTime();
+            Serializable data = (Serializable) SerializationSupport.deserialize(bytes);
+            List<Serializable> messages = data instanceof MessageBatch ?
+                    ((MessageBatch) data).messages : Collections.singletonList(data);
+            long time = System.nanoTime() - start;
+            for (Serializable message : messages) {
+                callback.accept(message, bytes.length / messages.size(), time / messages.size());
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        protected void receiveMessage(Serializable data) {
+            String className = data.getClass().getName();
+            log.debug("Received message: {}: {}", data.getClass(), data);
+            ClusterListener listener = listeners.get(className);
+            if (listener != null) {
+                listener.receive(data);
+            }
+        }
+
         @Override
         public void viewAccepted(View new_view) {
             log.info("New cluster view: {}", new_view);
@@ -519,20 +687,105 @@ public class ClusterManager implements ClusterManagerAPI {
         }
     }
 
+    protected static class QueuedMessage {
+        protected final Serializable message;
+        protected final long queuedAt = System.nanoTime();
+
+        protected QueuedMessage(Serializable message) {
+            this.message = message;
+        }
+    }
+
+    /**
+     * Several messages sent to the cluster as one message when codecs are disabled.
+     */
+    public static class MessageBatch implements Serializable {
+        private static final long serialVersionUID = 2185496404624394528L;
+
+        protected final List<Serializable> messages;
+
+        public MessageBatch(List<Serializable> messages) {
+            this.messages = messages;
+        }
+
+        public List<Serializable> getMessages() {
+            return messages;
+        }
+
+        @Override
+        public String toString() {
+            return "MessageBatch{size=" + messages.size() + "}";
+        }
+    }
+
+    protected static class BatchStat {
+        protected int count;
+        protected int coalesced;
+        protected long latency;
+    }
+
     protected class MessageStat {
+        protected final Class messageClass;
         protected LongAdder sentBytes = new LongAdder();
         protected LongAdder receivedBytes = new LongAdder();
         protected LongAdder receivedMessages = new LongAdder();
         protected LongAdder sentMessages = new LongAdder();
+        protected LongAdder batches = new LongAdder();
+        protected LongAdder batchedMessages = new LongAdder();
+        protected LongAdder coalescedMessages = new LongAdder();
+        protected LongAdder batchLatencyNanos = new LongAdder();
+        protected LongAdder encodeTimeNanos = new LongAdder();
+        protected LongAdder decodeTimeNanos = new LongAdder();
+
+        public MessageStat(Class messageClass) {
+            this.messageClass = messageClass;
+        }
 
-        public void updateReceived(int bytes) {
+        public void updateReceived(int bytes, long decodeTimeNanos) {
             receivedMessages.increment();
             receivedBytes.add(bytes);
+            this.decodeTimeNanos.add(decodeTimeNanos);
         }
 
-        public void updateSent(int bytes) {
+        public void updateSent(int bytes, long encodeTimeNanos) {
             sentMessages.increment();
             sentBytes.add(bytes);
+            this.encodeTimeNanos.add(encodeTimeNanos);
+        }
+
+        public void updateBatched(int messages, int coalesced, long latencyNanos) {
+            batches.increment();
+            batchedMessages.add(messages);
+            coalescedMessages.add(coalesced);
+            batchLatencyNanos.add(latencyNanos);
+        }
+
+        public long getBatches() {
+            return batches.longValue();
+        }
+
+        public double getAverageBatchSize() {
+            long count = batches.longValue();
+            return count == 0 ? 0 : (double) batchedMessages.longValue() / count;
+        }
+
+        public long getCoalescedMessages() {
+            return coalescedMessages.longValue();
+        }
+
+        public double getAverageLatencyMs() {
+            long count = batchedMessages.longValue() + coalescedMessages.longValue();
+            return count == 0 ? 0 : (double) batchLatencyNanos.longValue() / count / 1_000_000;
+        }
+
+        public double getAverageEncodeTimeUs() {
+            long count = sentMessages.longValue();
+            return count == 0 ? 0 : (double) encodeTimeNanos.longValue() / count / 1000;
+        }
+
+        public double getAverageDecodeTimeUs() {
+            long count = receivedMessages.longValue();
+            return count == 0 ? 0 : (double) decodeTimeNanos.longValue() / count / 1000;
         }
 
         public long getSentBytes() {
@@ -69,6 +69,14 @@ public interface ClusterManagerAPI {
      */
     void removeListener(Class messageClass, ClusterListener listener);
 
+    /**
+     * Register a compact binary codec for messages of a particular class. Messages of classes without a codec
+     * are transferred using standard serialization.
+     *
+     * @param codec codec instance
+     */
+    void registerCodec(ClusterMessageCodec<?> codec);
+
     /**
      * Inform whether the current node is currently the master node in the cluster. A middleware cluster always
      * elects one of its members as master, ususally it is the oldest one.
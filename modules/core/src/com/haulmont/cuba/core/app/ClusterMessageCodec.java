@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Compact binary encoder of cluster messages of a particular class, registered by
+ * {@link ClusterManagerAPI#registerCodec(ClusterMessageCodec)}.
+ * <p>
+ * Messages without a codec are transferred using {@link com.haulmont.cuba.core.sys.serialization.SerializationSupport}.
+ * Type identifiers from 1 to 99 are reserved for the platform, identifiers of platform codecs are declared
+ * in this interface.
+ *
+ * @param <T> class of messages
+ */
+public interface ClusterMessageCodec<T extends Serializable> {
+
+    int LOCK_INFO_TYPE_ID = 1;
+    int INVALIDATE_QUERY_CACHE_TYPE_ID = 2;
+    int RELOAD_DYNAMIC_ATTRIBUTES_TYPE_ID = 3;
+    int CANCEL_EXECUTION_TYPE_ID = 4;
+
+    /**
+     * @return positive identifier of the message type, the same on all cluster nodes
+     */
+    int getTypeId();
+
+    Class<T> getMessageClass();
+
+    /**
+     * @return false if the message should be transferred using standard serialization
+     */
+    default boolean canEncode(T message) {
+        return true;
+    }
+
+    void encode(T message, DataOutput out) throws IOException;
+
+    T decode(DataInput in) throws IOException;
+}
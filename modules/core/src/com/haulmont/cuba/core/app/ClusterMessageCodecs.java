@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of {@link ClusterMessageCodec}s which converts cluster messages to bytes and back.
+ * <p>
+ * A packet consists of a magic number, the format version, the number of messages and the messages. Each message
+ * is preceded by the type identifier of its codec, or 0 if it is serialized, and by its length, so messages
+ * of unknown types are skipped. The magic number differs from the header of Java serialization streams, which
+ * allows receiving nodes to distinguish packets from messages sent by nodes with codecs disabled.
+ */
+public class ClusterMessageCodecs {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterMessageCodecs.class);
+
+    protected static final int PACKET_MAGIC = 0xCB1C;
+
+    protected static final int FORMAT_VERSION = 1;
+
+    protected static final int SERIALIZED_TYPE_ID = 0;
+
+    /**
+     * Receives each message encoded to or decoded from a packet.
+     */
+    public interface MessageCallback {
+        /**
+         * @param message message
+         * @param bytes   size of the message in the packet
+         * @param time    encoding or decoding time in nanoseconds
+         */
+        void accept(Serializable message, int bytes, long time);
+    }
+
+    protected final Map<Class, ClusterMessageCodec> codecsByClass = new ConcurrentHashMap<>();
+    protected final Map<Integer, ClusterMessageCodec> codecsByTypeId = new ConcurrentHashMap<>();
+
+    public synchronized void register(ClusterMessageCodec<?> codec) {
+        Preconditions.checkNotNullArgument(codec, "codec is null");
+        if (codec.getTypeId() <= 0) {
+            throw new IllegalArgumentException("Invalid type id of " + codec + ": " + codec.getTypeId());
+        }
+        ClusterMessageCodec existing = codecsByTypeId.get(codec.getTypeId());
+        if (existing != null && existing.getMessageClass() != codec.getMessageClass()) {
+            throw new IllegalStateException(String.format("Type id %s of %s is already used by %s",
+                    codec.getTypeId(), codec.getMessageClass().getName(), existing.getMessageClass().getName()));
+        }
+        codecsByTypeId.put(codec.getTypeId(), codec);
+        codecsByClass.put(codec.getMessageClass(), codec);
+    }
+
+    @Nullable
+    public ClusterMessageCodec getCodec(Class messageClass) {
+        return codecsByClass.get(messageClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    public byte[] encode(List<? extends Serializable> messages, MessageCallback callback) {
+        ByteArrayOutputStream packet = new ByteArrayOutputStream();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream bufferOut = new DataOutputStream(buffer);
+        try {
+            DataOutputStream out = new DataOutputStream(packet);
+            out.writeShort(PACKET_MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            writeVarInt(out, messages.size());
+            for (Serializable message : messages) {
+                long start = System.nanoTime();
+                int typeId;
+                ClusterMessageCodec codec = codecsByClass.get(message.getClass());
+                buffer.reset();
+                if (codec != null && codec.canEncode(message)) {
+                    typeId = codec.getTypeId();
+                    codec.encode(message, bufferOut);
+                } else {
+                    typeId = SERIALIZED_TYPE_ID;
+                    buffer.write(SerializationSupport.serialize(message));
+                }
+                int offset = out.size();
+                writeVarInt(out, typeId);
+                writeVarInt(out, buffer.size());
+                buffer.writeTo(out);
+                callback.accept(message, out.size() - offset, System.nanoTime() - start);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error encoding cluster messages", e);
+        }
+        return packet.toByteArray();
+    }
+
+    /**
+     * @return true if the bytes are a packet created by {@link #encode(List, MessageCallback)}
+     */
+    public boolean isPacket(byte[] bytes) {
+        return bytes.length > 2 && ((bytes[0] & 0xFF) << 8 | bytes[1] & 0xFF) == PACKET_MAGIC;
+    }
+
+    public void decode(byte[] bytes, MessageCallback callback) {
+        if (!isPacket(bytes)) {
+            throw new IllegalArgumentException("Bytes are not a packet of cluster messages");
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 2, bytes.length - 2));
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                log.warn("Unsupported format of cluster messages: {}", version);
+                return;
+            }
+            int count = readVarInt(in);
+            for (int i = 0; i < count; i++) {
+                long start = System.nanoTime();
+                int typeId = readVarInt(in);
+                int length = readVarInt(in);
+                byte[] data = new byte[length];
+                in.readFully(data);
+
+                Serializable message;
+                if (typeId == SERIALIZED_TYPE_ID) {
+                    message = (Serializable) SerializationSupport.deserialize(data);
+                } else {
+                    ClusterMessageCodec codec = codecsByTypeId.get(typeId);
+                    if (codec == null) {
+                        log.warn("Unknown type of cluster message: {}", typeId);
+                        continue;
+                    }
+                    message = codec.decode(new DataInputStream(new ByteArrayInputStream(data)));
+                }
+                int size = getVarIntSize(typeId) + getVarIntSize(length) + length;
+                callback.accept(message, size, System.nanoTime() - start);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error decoding cluster messages", e);
+        }
+    }
+
+    protected static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    protected static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    protected static int getVarIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    /**
+     * Writes a string which may be null. Helper method for codecs.
+     */
+    public static void writeNullableString(DataOutput out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    @Nullable
+    public static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public static void writeUuid(DataOutput out, UUID value) throws IOException {
+        out.writeLong(value.getMostSignificantBits());
+        out.writeLong(value.getLeastSignificantBits());
+    }
+
+    public static UUID readUuid(DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+}
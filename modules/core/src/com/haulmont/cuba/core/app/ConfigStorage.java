@@ -20,6 +20,7 @@ import com.haulmont.bali.db.QueryRunner;
 import com.haulmont.bali.db.ResultSetHandler;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.cuba.core.*;
+import com.haulmont.cuba.core.config.ConfigChanges;
 import com.haulmont.cuba.core.entity.Config;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.Metadata;
@@ -28,7 +29,6 @@ import org.slf4j.LoggerFactory;
 
 import org.springframework.stereotype.Component;
 import javax.inject.Inject;
-import java.io.Serializable;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
@@ -58,8 +58,18 @@ public class ConfigStorage implements ConfigStorageAPI {
 
     private Logger log = LoggerFactory.getLogger(ConfigStorage.class);
 
-    private static class InvalidateCacheMsg implements Serializable {
+    private static class InvalidateCacheMsg implements IdempotentClusterMessage {
         private static final long serialVersionUID = -3116358584797500962L;
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof InvalidateCacheMsg;
+        }
+
+        @Override
+        public int hashCode() {
+            return InvalidateCacheMsg.class.hashCode();
+        }
     }
     
     @Inject
@@ -86,6 +96,7 @@ public class ConfigStorage implements ConfigStorageAPI {
         } finally {
             writeLock.unlock();
         }
+        ConfigChanges.propertiesChanged();
     }
 
     @Override
@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.core.app;
 
+import com.google.common.collect.Lists;
 import com.haulmont.bali.util.StringHelper;
 import com.haulmont.chile.core.datatypes.impl.EnumClass;
 import com.haulmont.chile.core.model.MetaClass;
@@ -24,6 +25,7 @@ import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.PersistenceSecurity;
 import com.haulmont.cuba.core.Query;
+import com.haulmont.cuba.core.app.queryresults.QueryResultsManagerAPI;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.QueryMacroHandler;
@@ -45,6 +47,8 @@ public class DataServiceQueryBuilder {
 
     public static final String NAME = "cuba_DataServiceQueryBuilder";
 
+    protected static final int IN_LIST_MAX_SIZE = 1000;
+
     private final Logger log = LoggerFactory.getLogger(DataServiceQueryBuilder.class);
 
     protected String queryString;
@@ -58,6 +62,9 @@ public class DataServiceQueryBuilder {
     @Inject
     private PersistenceSecurity security;
 
+    @Inject
+    protected QueryResultsManagerAPI queryResultsManager;
+
     public void init(String queryString, Map<String, Object> queryParams,
                      Object id, String entityName)
     {
@@ -86,6 +93,27 @@ public class DataServiceQueryBuilder {
         MetaProperty primaryKey = metadata.getTools().getPrimaryKeyProperty(metaClass);
         if (primaryKey == null)
             throw new IllegalStateException(String.format("Entity %s has no primary key", entityName));
+
+        List resultIds = queryResultsManager.getResultIds(sessionId, queryKey);
+        if (resultIds != null) {
+            if (resultIds.isEmpty()) {
+                transformer.addWhere(String.format("{E}.%s is null", primaryKey.getName()));
+            } else {
+                // some databases limit the number of IN list elements, so the list is split into chunks
+                List<List> chunks = Lists.partition(resultIds, IN_LIST_MAX_SIZE);
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < chunks.size(); i++) {
+                    if (i > 0)
+                        sb.append(" or ");
+                    sb.append(String.format("{E}.%s in :_qr_ids%d", primaryKey.getName(), i));
+                    this.queryParams.put("_qr_ids" + i, chunks.get(i));
+                }
+                transformer.addWhere(chunks.size() > 1 ? "(" + sb + ")" : sb.toString());
+            }
+            queryString = transformer.getResult();
+            return;
+        }
+
         Class type = primaryKey.getJavaType();
         String entityIdField;
         if (UUID.class.equals(type)) {
@@ -19,10 +19,12 @@ package com.haulmont.cuba.core.app;
 
 import com.haulmont.cuba.core.entity.SendingAttachment;
 import com.haulmont.cuba.core.entity.SendingMessage;
+import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.core.global.EmailHeader;
 import com.haulmont.cuba.core.global.FileTypesHelper;
 import com.haulmont.cuba.core.global.TimeSource;
 import com.haulmont.cuba.core.sys.CubaMailSender;
+import com.haulmont.cuba.core.sys.SmtpConnectionPool;
 import org.apache.commons.codec.EncoderException;
 import org.apache.commons.codec.net.QCodec;
 import org.apache.commons.lang.StringUtils;
@@ -40,9 +42,13 @@ import javax.inject.Inject;
 import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.Part;
+import javax.mail.SendFailedException;
 import javax.mail.internet.*;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Component(EmailSenderAPI.NAME)
 public class EmailSender implements EmailSenderAPI {
@@ -54,6 +60,16 @@ public class EmailSender implements EmailSenderAPI {
     @Inject
     protected TimeSource timeSource;
 
+    @Inject
+    protected SmtpConnectionPool connectionPool;
+
+    protected EmailerConfig config;
+
+    @Inject
+    public void setConfiguration(Configuration configuration) {
+        config = configuration.getConfig(EmailerConfig.class);
+    }
+
     @Resource(name = CubaMailSender.NAME)
     public void setMailSender(JavaMailSender mailSender) {
         this.mailSender = mailSender;
@@ -70,6 +86,67 @@ public class EmailSender implements EmailSenderAPI {
         log.info("Email '{}' to '{}' has been sent successfully", msg.getSubject(), sendingMessage.getAddress());
     }
 
+    @Override
+    public Map<SendingMessage, Exception> sendEmails(List<SendingMessage> sendingMessages) {
+        Map<SendingMessage, Exception> failedMessages = new LinkedHashMap<>();
+        if (!config.getSmtpConnectionPoolEnabled()) {
+            for (SendingMessage sendingMessage : sendingMessages) {
+                try {
+                    sendEmail(sendingMessage);
+                } catch (Exception e) {
+                    failedMessages.put(sendingMessage, e);
+                }
+            }
+            return failedMessages;
+        }
+
+        SmtpConnectionPool.Connection connection = null;
+        try {
+            for (int i = 0; i < sendingMessages.size(); i++) {
+                SendingMessage sendingMessage = sendingMessages.get(i);
+                MimeMessage msg;
+                try {
+                    msg = createMimeMessage(sendingMessage);
+                } catch (Exception e) {
+                    failedMessages.put(sendingMessage, e);
+                    continue;
+                }
+
+                if (connection == null) {
+                    try {
+                        connection = connectionPool.borrow();
+                    } catch (Exception e) {
+                        // the server is not available, do not try to connect for the rest of the messages
+                        for (SendingMessage notSentMessage : sendingMessages.subList(i, sendingMessages.size())) {
+                            failedMessages.put(notSentMessage, e);
+                        }
+                        break;
+                    }
+                }
+
+                StopWatch sw = new Slf4JStopWatch("EmailSender.send");
+                try {
+                    connection.send(msg);
+                    log.info("Email '{}' to '{}' has been sent successfully", msg.getSubject(), sendingMessage.getAddress());
+                } catch (SendFailedException e) {
+                    // the server has rejected the message, the connection can still be used
+                    failedMessages.put(sendingMessage, e);
+                } catch (Exception e) {
+                    failedMessages.put(sendingMessage, e);
+                    connectionPool.release(connection, false);
+                    connection = null;
+                } finally {
+                    sw.stop();
+                }
+            }
+        } finally {
+            if (connection != null) {
+                connectionPool.release(connection, true);
+            }
+        }
+        return failedMessages;
+    }
+
     protected MimeMessage createMimeMessage(SendingMessage sendingMessage) throws MessagingException {
         MimeMessage msg = mailSender.createMimeMessage();
         assignRecipient(sendingMessage, msg);
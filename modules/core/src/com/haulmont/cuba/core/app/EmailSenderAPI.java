@@ -20,6 +20,8 @@ package com.haulmont.cuba.core.app;
 import com.haulmont.cuba.core.entity.SendingMessage;
 
 import javax.mail.MessagingException;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Adapter to javax.mail email sending API.
@@ -38,4 +40,13 @@ public interface EmailSenderAPI {
      * @throws MessagingException if delivery fails
      */
     void sendEmail(SendingMessage sendingMessage) throws MessagingException;
+
+    /**
+     * Sends several emails. If {@link EmailerConfig#getSmtpConnectionPoolEnabled()} is true, the emails are sent
+     * over one pooled SMTP connection, otherwise each email is sent by {@link #sendEmail(SendingMessage)}.
+     * Message bodies and attachments' content must be loaded from file storage.
+     *
+     * @return exceptions of the emails which have not been sent
+     */
+    Map<SendingMessage, Exception> sendEmails(List<SendingMessage> sendingMessages);
 }
\ No newline at end of file
@@ -16,15 +16,22 @@
  */
 package com.haulmont.cuba.core.app;
 
+import com.google.common.collect.Lists;
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.bali.db.ResultSetHandler;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
+import com.haulmont.cuba.core.entity.BaseUuidEntity;
 import com.haulmont.cuba.core.entity.FileDescriptor;
 import com.haulmont.cuba.core.entity.SendingAttachment;
 import com.haulmont.cuba.core.entity.SendingMessage;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.persistence.DbTypeConverter;
+import com.haulmont.cuba.core.sys.persistence.DbmsType;
 import com.haulmont.cuba.security.app.Authentication;
 import com.sun.mail.smtp.SMTPAddressFailedException;
 import org.apache.commons.io.FilenameUtils;
@@ -39,17 +46,28 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nullable;
 import javax.annotation.Resource;
 import javax.inject.Inject;
+import javax.mail.Address;
+import javax.mail.SendFailedException;
 import javax.mail.internet.AddressException;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.*;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 
 @Component(EmailerAPI.NAME)
 public class Emailer implements EmailerAPI {
 
     protected static final String BODY_FILE_EXTENSION = "txt";
 
+    /**
+     * Max number of messages which statuses are updated by one statement.
+     */
+    protected static final int STATUS_UPDATE_BATCH_SIZE = 500;
+
     private Logger log = LoggerFactory.getLogger(Emailer.class);
 
     protected EmailerConfig config;
@@ -182,6 +200,28 @@ public class Emailer implements EmailerAPI {
         }
     }
 
+    protected void sendSendingMessages(List<SendingMessage> sendingMessages) {
+        Map<SendingMessage, Exception> failedMessages = emailSender.sendEmails(sendingMessages);
+
+        List<SendingMessage> sent = new ArrayList<>();
+        List<SendingMessage> notSent = new ArrayList<>();
+        List<SendingMessage> toRetry = new ArrayList<>();
+        for (SendingMessage sendingMessage : sendingMessages) {
+            Exception e = failedMessages.get(sendingMessage);
+            if (e == null) {
+                sent.add(sendingMessage);
+            } else {
+                log.warn("Unable to send email to '" + sendingMessage.getAddress() + "'", e);
+                if (isNeedToRetry(e)) {
+                    toRetry.add(sendingMessage);
+                } else {
+                    notSent.add(sendingMessage);
+                }
+            }
+        }
+        updateStatuses(sent, notSent, toRetry);
+    }
+
     protected void persistAndSendEmail(EmailInfo emailInfo) throws EmailException {
         Objects.requireNonNull(emailInfo.getAddresses(), "addresses are null");
         Objects.requireNonNull(emailInfo.getCaption(), "caption is null");
@@ -281,8 +321,14 @@ public class Emailer implements EmailerAPI {
     protected String sendQueuedEmails() {
         List<SendingMessage> messagesToSend = loadEmailsToSend();
 
-        for (SendingMessage msg : messagesToSend) {
-            submitExecutorTask(msg);
+        if (config.getSmtpConnectionPoolEnabled()) {
+            for (List<SendingMessage> batch : Lists.partition(messagesToSend, Math.max(1, config.getSendingBatchSize()))) {
+                submitExecutorTask(new ArrayList<>(batch));
+            }
+        } else {
+            for (SendingMessage msg : messagesToSend) {
+                submitExecutorTask(msg);
+            }
         }
 
         if (messagesToSend.isEmpty()) {
@@ -322,6 +368,18 @@ public class Emailer implements EmailerAPI {
         }
     }
 
+    protected void submitExecutorTask(List<SendingMessage> messages) {
+        try {
+            Runnable mailSendTask = new EmailBatchSendTask(messages);
+            mailSendTaskExecutor.execute(mailSendTask);
+        } catch (RejectedExecutionException e) {
+            updateStatuses(Collections.emptyList(), Collections.emptyList(), messages);
+        } catch (Exception e) {
+            log.error("Exception while sending emails: ", e);
+            updateStatuses(Collections.emptyList(), Collections.emptyList(), messages);
+        }
+    }
+
     protected List<SendingMessage> loadEmailsToSend() {
         Date sendTimeoutTime = DateUtils.addSeconds(timeSource.currentTimestamp(), -config.getSendingTimeoutSec());
 
@@ -329,22 +387,35 @@ public class Emailer implements EmailerAPI {
 
         try (Transaction tx = persistence.createTransaction()) {
             EntityManager em = persistence.getEntityManager();
-            TypedQuery<SendingMessage> query = em.createQuery(
-                    "select sm from sys$SendingMessage sm" +
-                            " where sm.status = :statusQueue or (sm.status = :statusSending and sm.updateTs < :time)" +
-                            " order by sm.createTs",
-                    SendingMessage.class
-            );
-            query.setParameter("statusQueue", SendingStatus.QUEUE.getId());
-            query.setParameter("time", sendTimeoutTime);
-            query.setParameter("statusSending", SendingStatus.SENDING.getId());
+            TypedQuery<SendingMessage> query;
+            if (config.getQueueSkipLockedEnabled() && isSkipLockedSupported()) {
+                // lock the rows, so other servers processing the queue at the same time take different messages
+                List<UUID> ids = lockEmailsToSend(em.getConnection(), sendTimeoutTime);
+                if (ids.isEmpty()) {
+                    return emailsToSend;
+                }
+                query = em.createQuery(
+                        "select sm from sys$SendingMessage sm where sm.id in :ids order by sm.createTs",
+                        SendingMessage.class
+                );
+                query.setParameter("ids", ids);
+            } else {
+                query = em.createQuery(
+                        "select sm from sys$SendingMessage sm" +
+                                " where sm.status = :statusQueue or (sm.status = :statusSending and sm.updateTs < :time)" +
+                                " order by sm.createTs",
+                        SendingMessage.class
+                );
+                query.setParameter("statusQueue", SendingStatus.QUEUE.getId());
+                query.setParameter("time", sendTimeoutTime);
+                query.setParameter("statusSending", SendingStatus.SENDING.getId());
+                query.setMaxResults(config.getMessageQueueCapacity());
+            }
 
             View view = metadata.getViewRepository().getView(SendingMessage.class, "sendingMessage.loadFromQueue");
             view.setLoadPartialEntities(true); // because SendingAttachment.content has FetchType.LAZY
             query.setView(view);
 
-            query.setMaxResults(config.getMessageQueueCapacity());
-
             List<SendingMessage> resList = query.getResultList();
 
             for (SendingMessage msg : resList) {
@@ -364,6 +435,45 @@ public class Emailer implements EmailerAPI {
         return emailsToSend;
     }
 
+    /**
+     * Locks queued messages skipping the rows locked by other transactions.
+     *
+     * @return identifiers of the locked messages
+     */
+    protected List<UUID> lockEmailsToSend(Connection connection, Date sendTimeoutTime) {
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        int capacity = config.getMessageQueueCapacity();
+        String sql = "select ID from SYS_SENDING_MESSAGE where DELETE_TS is null" +
+                " and (STATUS = ? or (STATUS = ? and UPDATE_TS < ?)) order by CREATE_TS";
+        if ("postgres".equals(DbmsType.getType())) {
+            sql += " limit " + capacity;
+        }
+        sql += " for update skip locked";
+
+        // Oracle locks rows when they are fetched, so reading stops at the capacity
+        ResultSetHandler<List<UUID>> handler = rs -> {
+            List<UUID> ids = new ArrayList<>();
+            while (ids.size() < capacity && rs.next()) {
+                ids.add((UUID) converter.getJavaObject(rs, 1));
+            }
+            return ids;
+        };
+        try {
+            return new QueryRunner().query(connection, sql,
+                    new Object[]{SendingStatus.QUEUE.getId(), SendingStatus.SENDING.getId(),
+                            converter.getSqlObject(sendTimeoutTime)},
+                    new int[]{Types.INTEGER, Types.INTEGER, converter.getSqlType(Date.class)},
+                    handler);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error locking queued emails", e);
+        }
+    }
+
+    protected boolean isSkipLockedSupported() {
+        String dbmsType = DbmsType.getType();
+        return "postgres".equals(dbmsType) || "oracle".equals(dbmsType);
+    }
+
     @Override
     public String loadContentText(SendingMessage sendingMessage) {
         SendingMessage msg;
@@ -535,6 +645,44 @@ public class Emailer implements EmailerAPI {
         }
     }
 
+    /**
+     * Updates statuses of messages processed by a batch sending task in one transaction.
+     */
+    protected void updateStatuses(List<SendingMessage> sent, List<SendingMessage> notSent,
+                                  List<SendingMessage> toRetry) {
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            Date now = timeSource.currentTimestamp();
+            updateStatus(em, sent, SendingStatus.SENT, now);
+            updateStatus(em, notSent, SendingStatus.NOTSENT, now);
+            updateStatus(em, toRetry, SendingStatus.QUEUE, now);
+            tx.commit();
+        } catch (Exception e) {
+            log.error("Error updating status of {} emails", sent.size() + notSent.size() + toRetry.size(), e);
+        }
+    }
+
+    protected void updateStatus(EntityManager em, List<SendingMessage> messages, SendingStatus status, Date now) {
+        String login = userSessionSource.getUserSession().getUser().getLogin();
+        for (List<SendingMessage> part : Lists.partition(messages, STATUS_UPDATE_BATCH_SIZE)) {
+            List<UUID> ids = part.stream().map(BaseUuidEntity::getId).collect(Collectors.toList());
+            boolean sent = status == SendingStatus.SENT;
+            Query query = em.createQuery("update sys$SendingMessage sm set sm.status = :status," +
+                    " sm.attemptsMade = sm.attemptsMade + 1, sm.updateTs = :updateTs, sm.updatedBy = :updatedBy," +
+                    " sm.version = sm.version + 1" +
+                    (sent ? ", sm.dateSent = :dateSent" : "") +
+                    " where sm.id in :ids");
+            query.setParameter("status", status.getId());
+            query.setParameter("updateTs", now);
+            query.setParameter("updatedBy", login);
+            if (sent) {
+                query.setParameter("dateSent", now);
+            }
+            query.setParameter("ids", ids);
+            query.executeUpdate();
+        }
+    }
+
     protected SendingMessage convertToSendingMessage(String address, String from, String caption, String body, @Nullable List<EmailHeader> headers,
                                                      @Nullable EmailAttachment[] attachments,
                                                      @Nullable Integer attemptsCount, @Nullable Date deadline) {
@@ -615,6 +763,11 @@ public class Emailer implements EmailerAPI {
             }
         } else if (e instanceof AddressException) {
             return false;
+        } else if (e instanceof SendFailedException) {
+            Address[] invalidAddresses = ((SendFailedException) e).getInvalidAddresses();
+            if (e instanceof SMTPAddressFailedException || (invalidAddresses != null && invalidAddresses.length > 0)) {
+                return false;
+            }
         }
         return true;
     }
@@ -700,6 +853,33 @@ public class Emailer implements EmailerAPI {
         }
     }
 
+    protected static class EmailBatchSendTask implements Runnable {
+
+        private List<SendingMessage> sendingMessages;
+        private Logger log = LoggerFactory.getLogger(EmailBatchSendTask.class);
+
+        public EmailBatchSendTask(List<SendingMessage> messages) {
+            sendingMessages = messages;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Authentication authentication = AppBeans.get(Authentication.NAME);
+                Emailer emailer = AppBeans.get(EmailerAPI.NAME);
+
+                authentication.begin(emailer.getEmailerLogin());
+                try {
+                    emailer.sendSendingMessages(sendingMessages);
+                } finally {
+                    authentication.end();
+                }
+            } catch (Exception e) {
+                log.error("Exception while sending emails: ", e);
+            }
+        }
+    }
+
     protected static class MessagePersistingContext {
         public final List<FileDescriptor> files = new ArrayList<>();
 
@@ -187,4 +187,54 @@ public interface EmailerConfig extends Config {
     @Property("cuba.emailerUserLogin")
     @Default("admin")
     String getEmailerUserLogin();
-}
\ No newline at end of file
+
+    /**
+     * If set to true, queued emails are sent in batches over pooled SMTP connections which stay open between
+     * batches, instead of opening a new connection for each email.
+     */
+    @Property("cuba.email.smtpConnectionPoolEnabled")
+    @DefaultBoolean(false)
+    boolean getSmtpConnectionPoolEnabled();
+
+    void setSmtpConnectionPoolEnabled(boolean smtpConnectionPoolEnabled);
+
+    /**
+     * If set to true, the queue is read with {@code select ... for update skip locked} on PostgreSQL and Oracle,
+     * so several servers processing the queue at the same time take different emails. Requires PostgreSQL 9.5
+     * or later.
+     */
+    @Property("cuba.email.queueSkipLockedEnabled")
+    @DefaultBoolean(false)
+    boolean getQueueSkipLockedEnabled();
+
+    /**
+     * Max number of simultaneously open SMTP connections in the pool.
+     */
+    @Property("cuba.email.smtpConnectionPoolSize")
+    @DefaultInt(5)
+    int getSmtpConnectionPoolSize();
+
+    /**
+     * Number of emails sent over a connection, after which the connection is closed. Some SMTP servers limit
+     * the number of emails per session.
+     */
+    @Property("cuba.email.smtpMaxMessagesPerConnection")
+    @DefaultInt(500)
+    int getSmtpMaxMessagesPerConnection();
+
+    /**
+     * Time in seconds after which an unused pooled SMTP connection is closed.
+     */
+    @Property("cuba.email.smtpConnectionIdleTimeoutSec")
+    @DefaultInt(60)
+    int getSmtpConnectionIdleTimeoutSec();
+
+    /**
+     * Number of queued emails sent by one task over one pooled connection.
+     */
+    @Property("cuba.email.sendingBatchSize")
+    @DefaultInt(50)
+    int getSendingBatchSize();
+
+    void setSendingBatchSize(int sendingBatchSize);
+}
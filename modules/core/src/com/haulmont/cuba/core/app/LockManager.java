@@ -22,9 +22,11 @@ import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
+import com.haulmont.cuba.core.entity.BaseEntityInternalAccess;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.LockDescriptor;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.security.entity.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,11 +35,9 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.*;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Component(LockManagerAPI.NAME)
 public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
@@ -73,11 +73,97 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
         }
     }
 
+    /**
+     * A lock held in the map together with its expiration deadline.
+     */
+    private static class LockEntry {
+
+        private final LockKey key;
+        private final LockInfo lockInfo;
+        private final long deadline;
+        private volatile Set<LockEntry> bucket;
+
+        private LockEntry(LockKey key, LockInfo lockInfo, long deadline) {
+            this.key = key;
+            this.lockInfo = lockInfo;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * Hashed timing wheel of lock deadlines. Each bucket holds locks expiring in one tick modulo the wheel size,
+     * so expiring locks requires scanning only the buckets of ticks passed since the previous run. Locks with
+     * deadlines beyond one revolution stay in their bucket until the deadline is reached.
+     */
+    private static class ExpirationWheel {
+
+        private final long tickMs;
+        private final int mask;
+        private final List<Set<LockEntry>> buckets;
+        private long lastTick = -1;
+
+        private ExpirationWheel(long tickMs, int size) {
+            this.tickMs = tickMs;
+            this.mask = size - 1;
+            this.buckets = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                buckets.add(ConcurrentHashMap.newKeySet());
+            }
+        }
+
+        // synchronized with advance(), otherwise the entry could be put into a bucket swept concurrently
+        // and expire one revolution late
+        private synchronized void schedule(LockEntry entry) {
+            // do not put the entry into a bucket which has already been passed
+            long tick = Math.max(entry.deadline / tickMs, lastTick + 1);
+            Set<LockEntry> bucket = buckets.get((int) (tick & mask));
+            entry.bucket = bucket;
+            bucket.add(entry);
+        }
+
+        private void cancel(LockEntry entry) {
+            Set<LockEntry> bucket = entry.bucket;
+            if (bucket != null) {
+                bucket.remove(entry);
+            }
+        }
+
+        private synchronized List<LockEntry> advance(long now) {
+            long nowTick = now / tickMs;
+            long fromTick = lastTick < 0 ? nowTick - mask : lastTick + 1;
+            if (nowTick - fromTick > mask) {
+                fromTick = nowTick - mask;
+            }
+            List<LockEntry> expired = new ArrayList<>();
+            for (long tick = fromTick; tick <= nowTick; tick++) {
+                Iterator<LockEntry> iterator = buckets.get((int) (tick & mask)).iterator();
+                while (iterator.hasNext()) {
+                    LockEntry entry = iterator.next();
+                    if (entry.deadline <= now) {
+                        iterator.remove();
+                        expired.add(entry);
+                    }
+                }
+            }
+            // the current tick is not over yet, so its bucket is scanned again next time
+            lastTick = nowTick - 1;
+            return expired;
+        }
+    }
+
+    private static final long NO_EXPIRATION = Long.MAX_VALUE;
+
     private Logger log = LoggerFactory.getLogger(LockManager.class);
 
     private volatile Map<String, LockDescriptor> config;
 
-    private Map<LockKey, LockInfo> locks = new ConcurrentHashMap<>();
+    private ConcurrentMap<LockKey, LockEntry> locks = new ConcurrentHashMap<>();
+
+    // one-second ticks, the wheel size must be a power of 2
+    private ExpirationWheel expirationWheel = new ExpirationWheel(1000, 512);
+
+    // set when locks must be checked against the lock configuration on the next expiration run
+    private volatile boolean revalidateLocks;
 
     @Inject
     private Persistence persistence;
@@ -88,12 +174,19 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
     @Inject
     private UserSessionSource userSessionSource;
 
+    @Inject
+    private TimeSource timeSource;
+
+    @Inject
+    private ServerConfig serverConfig;
+
     private ClusterManagerAPI clusterManager;
 
     @Inject
     public void setClusterManager(ClusterManagerAPI clusterManager) {
         this.clusterManager = clusterManager;
         this.clusterManager.addListener(LockInfo.class, this);
+        this.clusterManager.registerCodec(new LockInfoCodec());
     }
 
     private Map<String, LockDescriptor> getConfig() {
@@ -122,14 +215,31 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
         return config;
     }
 
+    private long getDeadline(LockDescriptor ld, LockInfo lockInfo) {
+        Integer timeoutSec = ld.getTimeoutSec();
+        if (timeoutSec == null || timeoutSec <= 0)
+            return NO_EXPIRATION;
+        return lockInfo.getSince().getTime() + timeoutSec * 1000L;
+    }
+
+    private LockEntry createEntry(LockKey key, LockInfo lockInfo, @Nullable LockDescriptor ld) {
+        return new LockEntry(key, lockInfo, ld != null ? getDeadline(ld, lockInfo) : NO_EXPIRATION);
+    }
+
+    private void schedule(LockEntry entry) {
+        if (entry.deadline != NO_EXPIRATION) {
+            expirationWheel.schedule(entry);
+        }
+    }
+
     @Override
     public LockInfo lock(String name, String id) {
         LockKey key = new LockKey(name, id);
 
-        LockInfo lockInfo = locks.get(key);
-        if (lockInfo != null) {
-            log.debug("Already locked: " + lockInfo);
-            return lockInfo;
+        LockEntry existing = locks.get(key);
+        if (existing != null) {
+            log.debug("Already locked: " + existing.lockInfo);
+            return existing.lockInfo;
         }
 
         LockDescriptor ld = getConfig().get(name);
@@ -137,11 +247,29 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
             return new LockNotSupported();
         }
 
-        lockInfo = new LockInfo(userSessionSource.getUserSession().getCurrentOrSubstitutedUser(), name, id);
-        locks.put(key, lockInfo);
+        LockInfo lockInfo = new LockInfo(userSessionSource.getUserSession().getCurrentOrSubstitutedUser(), name, id);
+        LockEntry entry = createEntry(key, lockInfo, ld);
+        existing = locks.putIfAbsent(key, entry);
+        if (existing != null) {
+            log.debug("Already locked: " + existing.lockInfo);
+            return existing.lockInfo;
+        }
+        schedule(entry);
         log.debug("Locked " + name + "/" + id);
 
-        clusterManager.send(lockInfo);
+        if (serverConfig.getLockManagerWaitForCluster()) {
+            // wait until all nodes have received the lock, then check that a concurrent lock acquired on
+            // another node has not taken precedence
+            clusterManager.sendSync(lockInfo);
+            LockEntry current = locks.get(key);
+            if (current != null && current != entry) {
+                log.debug("Lock " + name + "/" + id + " has been acquired concurrently on another node: "
+                        + current.lockInfo);
+                return current.lockInfo;
+            }
+        } else {
+            clusterManager.send(lockInfo);
+        }
 
         return null;
     }
@@ -159,8 +287,9 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
 
     @Override
     public void unlock(String name, String id) {
-        LockInfo lockInfo = locks.remove(new LockKey(name, id));
-        if (lockInfo != null) {
+        LockEntry entry = locks.remove(new LockKey(name, id));
+        if (entry != null) {
+            expirationWheel.cancel(entry);
             log.debug("Unlocked " + name + "/" + id);
 
             clusterManager.send(new LockInfo(null, name, id));
@@ -184,33 +313,52 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
             return new LockNotSupported();
         }
 
-        return locks.get(new LockKey(name, id));
+        LockEntry entry = locks.get(new LockKey(name, id));
+        return entry != null ? entry.lockInfo : null;
     }
 
     @Override
     public List<LockInfo> getCurrentLocks() {
-        return new ArrayList<>(locks.values());
+        List<LockInfo> list = new ArrayList<>(locks.size());
+        for (LockEntry entry : locks.values()) {
+            list.add(entry.lockInfo);
+        }
+        return list;
     }
 
     @Override
     public void expireLocks() {
         log.debug("Expiring locks");
-        ArrayList<LockKey> list = new ArrayList<>(locks.keySet());
-        for (LockKey key : list) {
-            LockInfo lockInfo = locks.get(key);
-            if (lockInfo != null) {
-                LockDescriptor ld = getConfig().get(key.name);
-                if (ld == null) {
-                    log.debug("Lock " + key.name + "/" + key.id + " configuration not found, remove it");
-                    locks.remove(key);
-                } else {
-                    Integer timeoutSec = ld.getTimeoutSec();
-                    if (timeoutSec != null && timeoutSec > 0) {
-                        Date since = lockInfo.getSince();
-                        if (since.getTime() + timeoutSec * 1000 < AppBeans.get(TimeSource.class).currentTimestamp().getTime()) {
-                            log.debug("Lock " + key.name + "/" + key.id + " expired");
-                            locks.remove(key);
-                        }
+        if (revalidateLocks) {
+            revalidateLocks = false;
+            revalidate();
+        }
+        for (LockEntry entry : expirationWheel.advance(timeSource.currentTimeMillis())) {
+            if (locks.remove(entry.key, entry)) {
+                log.debug("Lock " + entry.key.name + "/" + entry.key.id + " expired");
+            }
+        }
+    }
+
+    /**
+     * Removes locks which are not configured anymore and recalculates deadlines of the others.
+     */
+    private void revalidate() {
+        Map<String, LockDescriptor> config = getConfig();
+        for (LockEntry entry : locks.values()) {
+            LockDescriptor ld = config.get(entry.key.name);
+            if (ld == null) {
+                log.debug("Lock " + entry.key.name + "/" + entry.key.id + " configuration not found, remove it");
+                if (locks.remove(entry.key, entry)) {
+                    expirationWheel.cancel(entry);
+                }
+            } else {
+                long deadline = getDeadline(ld, entry.lockInfo);
+                if (deadline != entry.deadline) {
+                    LockEntry newEntry = new LockEntry(entry.key, entry.lockInfo, deadline);
+                    if (locks.replace(entry.key, entry, newEntry)) {
+                        expirationWheel.cancel(entry);
+                        schedule(newEntry);
                     }
                 }
             }
@@ -220,24 +368,47 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
     @Override
     public void reloadConfiguration() {
         config = null;
+        revalidateLocks = true;
     }
 
     @Override
     public void receive(LockInfo message) {
         LockKey key = new LockKey(message.getEntityName(), message.getEntityId());
         if (message.getUser() != null) {
-            LockInfo lockInfo = locks.get(key);
-            if (lockInfo == null || lockInfo.getSince().before(message.getSince())) {
-                locks.put(key, message);
+            // do not load the configuration in the receiving thread, deadlines are set on the next expiration run
+            Map<String, LockDescriptor> config = this.config;
+            LockEntry newEntry = createEntry(key, message, config != null ? config.get(key.name) : null);
+            if (config == null) {
+                revalidateLocks = true;
+            }
+            while (true) {
+                LockEntry entry = locks.get(key);
+                if (entry == null) {
+                    if (locks.putIfAbsent(key, newEntry) == null) {
+                        schedule(newEntry);
+                        break;
+                    }
+                } else if (entry.lockInfo.getSince().before(message.getSince())) {
+                    if (locks.replace(key, entry, newEntry)) {
+                        expirationWheel.cancel(entry);
+                        schedule(newEntry);
+                        break;
+                    }
+                } else {
+                    break;
+                }
             }
         } else {
-            locks.remove(key);
+            LockEntry entry = locks.remove(key);
+            if (entry != null) {
+                expirationWheel.cancel(entry);
+            }
         }
     }
 
     @Override
     public byte[] getState() {
-        List<LockInfo> list = new ArrayList<>(locks.values());
+        List<LockInfo> list = getCurrentLocks();
 
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
@@ -269,4 +440,51 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
             receive(lockInfo);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Transfers only the attributes of the user which are displayed with the lock.
+     */
+    public static class LockInfoCodec implements ClusterMessageCodec<LockInfo> {
+
+        @Override
+        public int getTypeId() {
+            return LOCK_INFO_TYPE_ID;
+        }
+
+        @Override
+        public Class<LockInfo> getMessageClass() {
+            return LockInfo.class;
+        }
+
+        @Override
+        public void encode(LockInfo message, DataOutput out) throws IOException {
+            out.writeUTF(message.getEntityName());
+            ClusterMessageCodecs.writeNullableString(out, message.getEntityId());
+            out.writeLong(message.getSince().getTime());
+            User user = message.getUser();
+            out.writeBoolean(user != null);
+            if (user != null) {
+                ClusterMessageCodecs.writeUuid(out, user.getId());
+                ClusterMessageCodecs.writeNullableString(out, user.getLogin());
+                ClusterMessageCodecs.writeNullableString(out, user.getName());
+            }
+        }
+
+        @Override
+        public LockInfo decode(DataInput in) throws IOException {
+            String entityName = in.readUTF();
+            String entityId = ClusterMessageCodecs.readNullableString(in);
+            Date since = new Date(in.readLong());
+            User user = null;
+            if (in.readBoolean()) {
+                user = new User();
+                user.setId(ClusterMessageCodecs.readUuid(in));
+                user.setLogin(ClusterMessageCodecs.readNullableString(in));
+                user.setName(ClusterMessageCodecs.readNullableString(in));
+                BaseEntityInternalAccess.setNew(user, false);
+                BaseEntityInternalAccess.setDetached(user, true);
+            }
+            return new LockInfo(user, entityName, entityId, since);
+        }
+    }
+}
@@ -49,12 +49,15 @@ public class MiddlewareStatisticsAccumulator extends StatisticsAccumulator {
     protected Parameter activeTransactions = new Parameter();
     protected Parameter userSessions = new Parameter();
 
+    protected ServiceMethodStatistics serviceMethodStatistics = new ServiceMethodStatistics();
+
     @Inject
     protected GlobalConfig config;
 
     @Override
     public void gatherParameters() {
         super.gatherParameters();
+        serviceMethodStatistics.rotateWindows();
         try {
             activeTransactions.register(getActiveTransactionsCount());
 
@@ -79,6 +82,14 @@ public class MiddlewareStatisticsAccumulator extends StatisticsAccumulator {
         return config.getWebContextName();
     }
 
+    /**
+     * @return latency statistics of service methods. Recent statistics windows are rotated on each
+     * {@link #gatherParameters()} call.
+     */
+    public ServiceMethodStatistics getServiceMethodStatistics() {
+        return serviceMethodStatistics;
+    }
+
     public void incStartedTransactionsCount() {
         startedTransactionsCount.incrementAndGet();
     }
@@ -212,7 +212,8 @@ public class RdbmsStore implements DataStore {
             // Fetch dynamic attributes
             if (!resultList.isEmpty() && resultList.get(0) instanceof BaseGenericIdEntity && context.isLoadDynamicAttributes()) {
                 dynamicAttributesManagerAPI.fetchDynamicAttributes((List<BaseGenericIdEntity>) resultList,
-                        collectEntityClassesWithDynamicAttributes(context.getView()));
+                        collectEntityClassesWithDynamicAttributes(context.getView()),
+                        serverConfig.getDynamicAttributesColumnarLoading());
             }
 
             if (needToApplyConstraints) {
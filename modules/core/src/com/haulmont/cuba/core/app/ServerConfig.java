@@ -175,6 +175,23 @@ public interface ServerConfig extends Config {
     @DefaultBoolean(false)
     boolean getSyncNewUserSessionReplication();
 
+    /**
+     * If set to true, refreshing a user session sends to the cluster only its identifier and last usage time,
+     * batched with other sessions every {@code cuba.userSessionTouchSendIntervalMs} milliseconds. The whole session
+     * is sent only when it is created or explicitly propagated. Must be the same on all nodes of the cluster.
+     */
+    @Property("cuba.userSessionTouchReplication")
+    @DefaultBoolean(false)
+    boolean getUserSessionTouchReplication();
+
+    /**
+     * @return interval in milliseconds of sending user session touches collected when
+     * {@link #getUserSessionTouchReplication()} is true. Applied on server startup.
+     */
+    @Property("cuba.userSessionTouchSendIntervalMs")
+    @DefaultInt(2000)
+    int getUserSessionTouchSendIntervalMs();
+
     /**
      * If set to false, attribute permissions are not enforced on Middleware. This is appropriate if only server-side
      * clients are used.
@@ -285,4 +302,98 @@ public interface ServerConfig extends Config {
     @Property("cuba.useEntityDataStoreForIdSequence")
     @DefaultBoolean(false)
     boolean getUseEntityDataStoreForIdSequence();
-}
\ No newline at end of file
+
+    /**
+     * @return whether results of JPQL transformations performed before passing a query to ORM are cached
+     */
+    @Property("cuba.queryTransformationCache.enabled")
+    @DefaultBoolean(true)
+    boolean getQueryTransformationCacheEnabled();
+
+    /**
+     * @return maximum number of transformed JPQL queries kept in the cache
+     */
+    @Property("cuba.queryTransformationCache.maxSize")
+    @DefaultInt(1000)
+    int getQueryTransformationCacheMaxSize();
+
+    /**
+     * @return number of rows inserted into SYS_QUERY_RESULT in one JDBC batch
+     */
+    @Property("cuba.queryResults.insertBatchSize")
+    @DefaultInt(500)
+    int getQueryResultsInsertBatchSize();
+
+    /**
+     * @return maximum number of identifiers of previous query results kept in memory instead of
+     * SYS_QUERY_RESULT table. 0 means that results are always stored in the database.
+     * <p>Identifiers are kept on the middleware block which executed the query, so use this only if requests
+     * of a user session are always sent to the same middleware block.
+     */
+    @Property("cuba.queryResults.inMemoryMaxSize")
+    @DefaultInt(0)
+    int getQueryResultsInMemoryMaxSize();
+
+    /**
+     * @return if true, {@code LockManagerAPI.lock()} sends the new lock to other cluster nodes synchronously and
+     * returns a lock acquired concurrently on another node if it has taken precedence. Otherwise (by default),
+     * the lock is sent asynchronously.
+     */
+    @Property("cuba.lockManager.waitForCluster")
+    @DefaultBoolean(false)
+    boolean getLockManagerWaitForCluster();
+
+    /**
+     * @return whether latency statistics of service methods are collected
+     */
+    @Property("cuba.serviceMethodStatistics.enabled")
+    @DefaultBoolean(true)
+    boolean getServiceMethodStatisticsEnabled();
+
+    /**
+     * @return whether statistics of JDBC statements are collected by {@code StatementProfiler}
+     */
+    @Property("cuba.jdbcProfiler.enabled")
+    @DefaultBoolean(false)
+    boolean getJdbcProfilerEnabled();
+
+    /**
+     * @return one of how many query results is wrapped to count fetched rows. 0 disables counting of rows.
+     */
+    @Property("cuba.jdbcProfiler.samplingRate")
+    @DefaultInt(10)
+    int getJdbcProfilerSamplingRate();
+
+    /**
+     * @return execution time in milliseconds after which a statement is logged as slow. 0 disables the log.
+     */
+    @Property("cuba.jdbcProfiler.slowStatementThresholdMs")
+    @DefaultLong(1000)
+    long getJdbcProfilerSlowStatementThresholdMs();
+
+    /**
+     * @return number of executions of the same statement in one transaction after which it is reported
+     * as a possible N+1 problem. 0 disables the check.
+     */
+    @Property("cuba.jdbcProfiler.repeatedStatementThreshold")
+    @DefaultInt(20)
+    int getJdbcProfilerRepeatedStatementThreshold();
+
+    /**
+     * @return whether {@code DataManager.loadList()} fetches dynamic attributes of the loaded entities into compact
+     * columns instead of loading each value as a managed entity. Values are created lazily when accessed.
+     */
+    @Property("cuba.dynamicAttributes.columnarLoading")
+    @Source(type = SourceType.DATABASE)
+    @DefaultBoolean(false)
+    boolean getDynamicAttributesColumnarLoading();
+    void setDynamicAttributesColumnarLoading(boolean value);
+
+    /**
+     * @return maximum number of entities whose dynamic attribute values are loaded by one query
+     * when the columnar loading is used
+     */
+    @Property("cuba.dynamicAttributes.columnarLoadingBatchSize")
+    @DefaultInt(1000)
+    int getDynamicAttributesColumnarLoadingBatchSize();
+}
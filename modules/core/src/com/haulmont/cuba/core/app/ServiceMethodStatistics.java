@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.haulmont.cuba.core.sys.LatencyHistogram;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency statistics of middleware service methods.
+ * <p>
+ * Besides the totals since start, each method keeps a ring of {@link #WINDOWS} histograms. The ring is advanced
+ * by {@link #rotateWindows()}, so recent percentiles are calculated over the last {@code WINDOWS} rotation periods.
+ */
+public class ServiceMethodStatistics {
+
+    public static final int WINDOWS = 12;
+
+    public static class MethodStat {
+
+        protected final String name;
+
+        protected final LongAdder errorCount = new LongAdder();
+        protected final LongAdder inFlightCount = new LongAdder();
+        protected final LongAdder totalTime = new LongAdder();
+        protected final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+
+        protected final LatencyHistogram histogram = new LatencyHistogram();
+        protected final LatencyHistogram[] windows = new LatencyHistogram[WINDOWS];
+        protected volatile int currentWindow;
+
+        public MethodStat(String name) {
+            this.name = name;
+            for (int i = 0; i < WINDOWS; i++) {
+                windows[i] = new LatencyHistogram();
+            }
+        }
+
+        /**
+         * Registers the start of an invocation.
+         *
+         * @return start time to be passed to {@link #finished(long, boolean)}
+         */
+        public long started() {
+            inFlightCount.increment();
+            return System.nanoTime();
+        }
+
+        public void finished(long startTime, boolean success) {
+            long time = System.nanoTime() - startTime;
+            inFlightCount.decrement();
+            if (!success) {
+                errorCount.increment();
+            }
+            totalTime.add(time);
+            maxTime.accumulate(time);
+
+            long micros = TimeUnit.NANOSECONDS.toMicros(time);
+            histogram.record(micros);
+            windows[currentWindow].record(micros);
+        }
+
+        protected void rotate() {
+            int next = (currentWindow + 1) % WINDOWS;
+            windows[next].reset();
+            currentWindow = next;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        public long getErrorCount() {
+            return errorCount.sum();
+        }
+
+        public long getInFlightCount() {
+            return inFlightCount.sum();
+        }
+
+        /**
+         * @return average time of invocation in milliseconds since start
+         */
+        public double getAverageTimeMs() {
+            long count = getCount();
+            return count == 0 ? 0 : totalTime.sum() / 1_000_000.0 / count;
+        }
+
+        /**
+         * @return maximum time of invocation in milliseconds since start
+         */
+        public double getMaxTimeMs() {
+            return maxTime.get() / 1_000_000.0;
+        }
+
+        /**
+         * @return time in milliseconds at the given percentile since start
+         */
+        public double getPercentileMs(double percentile) {
+            return histogram.getPercentile(percentile) / 1000.0;
+        }
+
+        /**
+         * @return histogram of recent invocation times in microseconds, merged from all windows
+         */
+        public LatencyHistogram getRecentHistogram() {
+            LatencyHistogram recent = new LatencyHistogram();
+            for (LatencyHistogram window : windows) {
+                recent.add(window);
+            }
+            return recent;
+        }
+    }
+
+    protected final ConcurrentMap<Method, MethodStat> statsByMethod = new ConcurrentHashMap<>();
+
+    // overloaded methods share the same statistics
+    protected final ConcurrentMap<String, MethodStat> statsByName = new ConcurrentHashMap<>();
+
+    public MethodStat getMethodStat(Method method) {
+        MethodStat stat = statsByMethod.get(method);
+        if (stat == null) {
+            stat = statsByMethod.computeIfAbsent(method, m -> statsByName.computeIfAbsent(
+                    m.getDeclaringClass().getSimpleName() + "." + m.getName(), MethodStat::new));
+        }
+        return stat;
+    }
+
+    public List<MethodStat> getMethodStats() {
+        return new ArrayList<>(statsByName.values());
+    }
+
+    public void rotateWindows() {
+        for (MethodStat stat : statsByName.values()) {
+            stat.rotate();
+        }
+    }
+}
@@ -18,15 +18,20 @@
 package com.haulmont.cuba.core.app.dynamicattributes;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.ClusterMessageCodec;
+import com.haulmont.cuba.core.app.IdempotentClusterMessage;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import org.apache.commons.collections4.CollectionUtils;
@@ -38,7 +43,8 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
-import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.util.*;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
@@ -66,6 +72,9 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
     @Inject
     protected ReferenceToEntitySupport referenceToEntitySupport;
 
+    @Inject
+    protected ServerConfig serverConfig;
+
     protected ClusterManagerAPI clusterManager;
 
     protected ReentrantLock loadCacheLock = new ReentrantLock();
@@ -81,6 +90,7 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
                 doLoadCache(false, false);
             }
         });
+        clusterManager.registerCodec(new ReloadCacheMsgCodec());
     }
 
     @Override
@@ -195,6 +205,12 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
 
     @Override
     public <E extends BaseGenericIdEntity> void fetchDynamicAttributes(List<E> entities, @Nonnull Set<Class> dependentClasses) {
+        fetchDynamicAttributes(entities, dependentClasses, false);
+    }
+
+    @Override
+    public <E extends BaseGenericIdEntity> void fetchDynamicAttributes(List<E> entities, @Nonnull Set<Class> dependentClasses,
+                                                                       boolean readOnly) {
         Set<BaseGenericIdEntity> toProcess = new HashSet<>();
         entities.forEach(entity -> {
             toProcess.add(entity);
@@ -224,7 +240,10 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
             toProcess.forEach(e -> entitiesByType.put(e.getMetaClass().getName(), e));
             entitiesByType.keySet().forEach(entityType -> {
                 MetaClass metaClass = metadata.getExtendedEntities().getOriginalOrThisMetaClass(metadata.getClass(entityType));
-                doFetchDynamicAttributes(metaClass, entitiesByType.get(entityType));
+                Collection<BaseGenericIdEntity> entitiesOfType = entitiesByType.get(entityType);
+                if (!readOnly || !fetchDynamicAttributeColumns(metaClass, entitiesOfType)) {
+                    doFetchDynamicAttributes(metaClass, entitiesOfType);
+                }
             });
             tx.commit();
         }
@@ -351,6 +370,117 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
         }
     }
 
+    /**
+     * Loads values of dynamic attributes into {@link DynamicAttributeValueColumns} by a projection query, without
+     * creating managed entities.
+     *
+     * @return false if the values cannot be loaded this way and should be loaded as entities
+     */
+    protected boolean fetchDynamicAttributeColumns(MetaClass metaClass, Collection<BaseGenericIdEntity> entities) {
+        Map<UUID, CategoryAttribute> attributes = new HashMap<>();
+        for (CategoryAttribute attribute : cache().getAttributesForMetaClass(metaClass)) {
+            if (BooleanUtils.isTrue(attribute.getIsCollection()))
+                return false;
+            attributes.put(attribute.getId(), attribute);
+        }
+
+        List<Object> ids = entities.stream()
+                .map(e -> referenceToEntitySupport.getReferenceId(e))
+                .distinct()
+                .collect(Collectors.toList());
+        DynamicAttributeValueColumns columns = new DynamicAttributeValueColumns(metadata, ids);
+
+        if (!attributes.isEmpty()) {
+            boolean hasUuid = HasUuid.class.isAssignableFrom(metaClass.getJavaClass());
+            String queryString = format("select cav.entity.%s, cav.categoryAttribute.id, cav.id, cav.version, " +
+                            "cav.stringValue, cav.intValue, cav.doubleValue, cav.booleanValue, cav.dateValue, " +
+                            "cav.entityValue.entityId, cav.entityValue.stringEntityId, cav.entityValue.intEntityId, " +
+                            "cav.entityValue.longEntityId, cav.createTs, cav.createdBy, cav.updateTs, cav.updatedBy " +
+                            "from sys$CategoryAttributeValue cav where cav.entity.%s in :ids and cav.parent is null%s",
+                    referenceToEntitySupport.getReferenceIdPropertyName(metaClass),
+                    referenceToEntitySupport.getReferenceIdPropertyName(metaClass),
+                    hasUuid ? "" : " and cav.categoryAttribute.categoryEntityType = :entityType");
+
+            EntityManager em = persistence.getEntityManager();
+            int batchSize = Math.max(1, serverConfig.getDynamicAttributesColumnarLoadingBatchSize());
+            for (List<Object> batchIds : Lists.partition(ids, batchSize)) {
+                Query query = em.createQuery(queryString);
+                query.setParameter("ids", batchIds);
+                if (!hasUuid) {
+                    query.setParameter("entityType", metaClass.getName());
+                }
+                @SuppressWarnings("unchecked")
+                List<Object[]> resultList = query.getResultList();
+                for (Object[] values : resultList) {
+                    CategoryAttribute attribute = attributes.get((UUID) values[1]);
+                    int row = columns.getRow(values[0]);
+                    if (attribute == null) {
+                        log.debug("Attribute {} is not in the cache, loading values of {} as entities", values[1], metaClass);
+                        return false;
+                    }
+                    if (row == -1)
+                        continue;
+
+                    DynamicAttributeValueColumns.Column column = columns.getColumn(attribute);
+                    Object value = attribute.getDataType() == PropertyType.ENTITY ? firstNonNull(values, 9, 13) : firstNonNull(values, 4, 9);
+                    column.set(row, (UUID) values[2], (Integer) values[3], value);
+                    column.setAuditInfo(row, (Date) values[13], (String) values[14], (Date) values[15], (String) values[16]);
+                }
+            }
+            loadEntityValues(columns);
+        }
+
+        for (BaseGenericIdEntity entity : entities) {
+            entity.setDynamicAttributes(columns.createValuesMap(referenceToEntitySupport.getReferenceId(entity)));
+        }
+        return true;
+    }
+
+    @Nullable
+    protected Object firstNonNull(Object[] values, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (values[i] != null)
+                return values[i];
+        }
+        return null;
+    }
+
+    /**
+     * Loads entities referenced by values of attributes of entity type.
+     */
+    @SuppressWarnings("unchecked")
+    protected void loadEntityValues(DynamicAttributeValueColumns columns) {
+        EntityManager em = persistence.getEntityManager();
+        int batchSize = Math.max(1, serverConfig.getDynamicAttributesColumnarLoadingBatchSize());
+        for (DynamicAttributeValueColumns.Column column : columns.getColumns()) {
+            Set<Object> ids = column.getEntityValueIds();
+            if (ids.isEmpty())
+                continue;
+
+            String className = column.getAttribute().getEntityClass();
+            MetaClass metaClass;
+            try {
+                metaClass = metadata.getClass(Class.forName(className));
+            } catch (ClassNotFoundException e) {
+                log.error("Class {} not found", className);
+                continue;
+            }
+
+            String pkName = referenceToEntitySupport.getPrimaryKeyForLoadingEntity(metaClass);
+            Map<Object, BaseGenericIdEntity> idToEntityMap = new HashMap<>();
+            for (List<Object> batchIds : Lists.partition(new ArrayList<>(ids), batchSize)) {
+                List<BaseGenericIdEntity> entitiesValues = em.createQuery(format("select e from %s e where e.%s in :ids", metaClass.getName(), pkName))
+                        .setParameter("ids", batchIds)
+                        .setView(metaClass.getJavaClass(), View.MINIMAL)
+                        .getResultList();
+                for (BaseGenericIdEntity entity : entitiesValues) {
+                    idToEntityMap.put(entity.getId(), entity);
+                }
+            }
+            column.setEntityValues(idToEntityMap);
+        }
+    }
+
     protected void handleAttributeValuesForIds(MetaClass metaClass, List<Object> currentIds, Multimap<Object, CategoryAttributeValue> attributeValuesForEntity) {
         if (CollectionUtils.isNotEmpty(currentIds)) {
             for (CategoryAttributeValue attributeValue : loadAttributeValues(metaClass, currentIds)) {
@@ -494,7 +624,39 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
                 .getResultList();
     }
 
-    private static class ReloadCacheMsg implements Serializable {
+    public static class ReloadCacheMsg implements IdempotentClusterMessage {
         private static final long serialVersionUID = -3116358584797500962L;
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ReloadCacheMsg;
+        }
+
+        @Override
+        public int hashCode() {
+            return ReloadCacheMsg.class.hashCode();
+        }
+    }
+
+    public static class ReloadCacheMsgCodec implements ClusterMessageCodec<ReloadCacheMsg> {
+
+        @Override
+        public int getTypeId() {
+            return RELOAD_DYNAMIC_ATTRIBUTES_TYPE_ID;
+        }
+
+        @Override
+        public Class<ReloadCacheMsg> getMessageClass() {
+            return ReloadCacheMsg.class;
+        }
+
+        @Override
+        public void encode(ReloadCacheMsg message, DataOutput out) {
+        }
+
+        @Override
+        public ReloadCacheMsg decode(DataInput in) {
+            return new ReloadCacheMsg();
+        }
     }
-}
\ No newline at end of file
+}
@@ -61,6 +61,16 @@ public interface DynamicAttributesManagerAPI {
      */
     <E extends BaseGenericIdEntity> void fetchDynamicAttributes(List<E> entities, @Nonnull Set<Class> dependentClasses);
 
+    /**
+     * Fetch dynamic attributes from database for each entity.
+     *
+     * @param readOnly if true, values are loaded into compact columns without creating managed entities, and
+     *                 {@code CategoryAttributeValue} instances are created on first access. Entities having
+     *                 attributes of collection type are loaded as usual.
+     */
+    <E extends BaseGenericIdEntity> void fetchDynamicAttributes(List<E> entities, @Nonnull Set<Class> dependentClasses,
+                                                                boolean readOnly);
+
     /**
      * Store dynamic attributes from the entity to database
      */
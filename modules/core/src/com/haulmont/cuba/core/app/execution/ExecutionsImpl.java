@@ -19,6 +19,8 @@ package com.haulmont.cuba.core.app.execution;
 
 import com.haulmont.cuba.core.app.ClusterListener;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.ClusterMessageCodec;
+import com.haulmont.cuba.core.app.ClusterMessageCodecs;
 import com.haulmont.cuba.core.global.TimeSource;
 import com.haulmont.cuba.core.global.UserSessionSource;
 import com.haulmont.cuba.security.app.UserSessionsAPI;
@@ -29,6 +31,9 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -54,9 +59,10 @@ public class ExecutionsImpl implements Executions {
     @PostConstruct
     public void init() {
         clusterManager.addListener(CancelExecutionMessage.class, new CancelExecutionClusterListener());
+        clusterManager.registerCodec(new CancelExecutionMessageCodec());
     }
 
-    protected static class CancelExecutionMessage implements Serializable {
+    public static class CancelExecutionMessage implements Serializable {
         private static final long serialVersionUID = -615644330444376219L;
 
         protected UUID userSessionId;
@@ -196,4 +202,32 @@ public class ExecutionsImpl implements Executions {
         public void setState(byte[] state) {
         }
     }
+
+    public static class CancelExecutionMessageCodec implements ClusterMessageCodec<CancelExecutionMessage> {
+
+        @Override
+        public int getTypeId() {
+            return CANCEL_EXECUTION_TYPE_ID;
+        }
+
+        @Override
+        public Class<CancelExecutionMessage> getMessageClass() {
+            return CancelExecutionMessage.class;
+        }
+
+        @Override
+        public void encode(CancelExecutionMessage message, DataOutput out) throws IOException {
+            ClusterMessageCodecs.writeUuid(out, message.userSessionId);
+            ClusterMessageCodecs.writeNullableString(out, message.group);
+            ClusterMessageCodecs.writeNullableString(out, message.key);
+        }
+
+        @Override
+        public CancelExecutionMessage decode(DataInput in) throws IOException {
+            UUID userSessionId = ClusterMessageCodecs.readUuid(in);
+            String group = ClusterMessageCodecs.readNullableString(in);
+            String key = ClusterMessageCodecs.readNullableString(in);
+            return new CancelExecutionMessage(userSessionId, group, key);
+        }
+    }
 }
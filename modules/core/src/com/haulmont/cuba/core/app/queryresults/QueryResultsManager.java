@@ -24,6 +24,7 @@ import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
 import com.haulmont.cuba.core.app.DataServiceQueryBuilder;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.QueryHolder;
@@ -34,9 +35,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 /**
@@ -65,7 +69,21 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
     @Inject
     protected Metadata metadata;
 
-    private static final int BATCH_SIZE = 100;
+    @Inject
+    protected ServerConfig serverConfig;
+
+    protected static final String INSERT_SQL = "insert into SYS_QUERY_RESULT (SESSION_ID, QUERY_KEY, %s) values (?, ?, ?)";
+
+    protected static final String DELETE_SQL = "delete from SYS_QUERY_RESULT where SESSION_ID = ? and QUERY_KEY = ?";
+
+    protected static final String DELETE_FOR_SESSION_SQL = "delete from SYS_QUERY_RESULT where SESSION_ID = ?";
+
+    /**
+     * Identifiers of previous query results kept in memory by user session id and query key. A null list means that
+     * the results are stored in the database. The map is local to this middleware block and is not replicated
+     * with user sessions.
+     */
+    protected final ConcurrentMap<UUID, Map<Integer, List>> resultIds = new ConcurrentHashMap<>();
 
     @Override
     public void savePreviousQueryResults(LoadContext loadContext) {
@@ -115,8 +133,55 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
             tx.end();
         }
 
-        delete(queryKey);
-        insert(queryKey, idList);
+        int inMemoryMaxSize = serverConfig.getQueryResultsInMemoryMaxSize();
+        if (inMemoryMaxSize > 0 && idList.size() <= inMemoryMaxSize) {
+            boolean storedInDb = isStoredInDb(queryKey);
+            setResultIds(queryKey, new ArrayList(idList));
+            if (storedInDb) {
+                deleteFromDb(queryKey);
+            }
+        } else {
+            delete(queryKey);
+            insert(queryKey, idList);
+            if (inMemoryMaxSize > 0) {
+                // remember that the results must be deleted from the database if the next ones are kept in memory
+                setResultIds(queryKey, null);
+            }
+        }
+    }
+
+    @Nullable
+    @Override
+    public List getResultIds(UUID userSessionId, int queryKey) {
+        Map<Integer, List> sessionResultIds = resultIds.get(userSessionId);
+        return sessionResultIds == null ? null : sessionResultIds.get(queryKey);
+    }
+
+    protected boolean isStoredInDb(int queryKey) {
+        Map<Integer, List> sessionResultIds = resultIds.get(userSessionSource.getUserSession().getId());
+        return sessionResultIds != null && sessionResultIds.containsKey(queryKey) && sessionResultIds.get(queryKey) == null;
+    }
+
+    /**
+     * Keeps identifiers of query results in memory of this middleware block.
+     *
+     * @param idList identifiers, or null if the results are stored in the database
+     */
+    protected void setResultIds(int queryKey, @Nullable List idList) {
+        UUID userSessionId = userSessionSource.getUserSession().getId();
+        resultIds.computeIfAbsent(userSessionId, id -> Collections.synchronizedMap(new HashMap<>()))
+                .put(queryKey, idList);
+
+        if (idList != null) {
+            log.debug("Keep " + idList.size() + " query results for " + userSessionId + " / " + queryKey + " in memory");
+        }
+    }
+
+    protected void removeResultIds(int queryKey) {
+        Map<Integer, List> sessionResultIds = resultIds.get(userSessionSource.getUserSession().getId());
+        if (sessionResultIds != null) {
+            sessionResultIds.remove(queryKey);
+        }
     }
 
     private boolean resultsAlreadySaved(Integer queryKey, LoadContext.Query query) {
@@ -170,15 +235,19 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
             }
             QueryRunner runner = new QueryRunner();
             try {
-                String userSessionIdStr = converter.getSqlObject(userSessionId).toString(); // assuming that UUID can be passed to query as string in all databases
-                String sql = String.format("insert into SYS_QUERY_RESULT (SESSION_ID, QUERY_KEY, %s) values ('%s', %s, ?)",
-                        columnName, userSessionIdStr, queryKey);
-                int[] paramTypes = new int[] { converter.getSqlType(idFromList.getClass()) };
-                for (int i = 0; i < idList.size(); i += BATCH_SIZE) {
-                    List<UUID> sublist = idList.subList(i, Math.min(i + BATCH_SIZE, idList.size()));
-                    Object[][] params = new Object[sublist.size()][1];
+                String sql = String.format(INSERT_SQL, columnName);
+                Object sqlSessionId = converter.getSqlObject(userSessionId);
+                int[] paramTypes = new int[] {
+                        converter.getSqlType(UUID.class),
+                        converter.getSqlType(Integer.class),
+                        converter.getSqlType(idFromList.getClass())
+                };
+                int batchSize = Math.max(1, serverConfig.getQueryResultsInsertBatchSize());
+                for (int i = 0; i < idList.size(); i += batchSize) {
+                    List sublist = idList.subList(i, Math.min(i + batchSize, idList.size()));
+                    Object[][] params = new Object[sublist.size()][];
                     for (int j = 0; j < sublist.size(); j++) {
-                        params[j][0] = converter.getSqlObject(sublist.get(j));
+                        params[j] = new Object[] { sqlSessionId, queryKey, converter.getSqlObject(sublist.get(j)) };
                     }
                     runner.batch(em.getConnection(), sql, params, paramTypes);
                 }
@@ -195,17 +264,22 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
 
     @Override
     public void delete(int queryKey) {
+        removeResultIds(queryKey);
+        deleteFromDb(queryKey);
+    }
+
+    protected void deleteFromDb(int queryKey) {
         UUID userSessionId = userSessionSource.getUserSession().getId();
         long start = System.currentTimeMillis();
         String logMsg = "Delete query results for " + userSessionId + " / " + queryKey;
         log.debug(logMsg);
 
-        String sql = "delete from SYS_QUERY_RESULT where SESSION_ID = '"
-                + userSessionId + "' and QUERY_KEY = " + queryKey;
-
+        DbTypeConverter converter = persistence.getDbTypeConverter();
         QueryRunner runner = new QueryRunner(persistence.getDataSource());
         try {
-            runner.update(sql);
+            runner.update(DELETE_SQL,
+                    new Object[] { converter.getSqlObject(userSessionId), queryKey },
+                    new int[] { converter.getSqlType(UUID.class), converter.getSqlType(Integer.class) });
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -214,10 +288,14 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
 
     @Override
     public void deleteForCurrentSession() {
+        resultIds.remove(userSessionSource.getUserSession().getId());
+
+        DbTypeConverter converter = persistence.getDbTypeConverter();
         QueryRunner runner = new QueryRunner(persistence.getDataSource());
         try {
-            runner.update("delete from SYS_QUERY_RESULT where SESSION_ID = '"
-                    + userSessionSource.getUserSession().getId() + "'");
+            runner.update(DELETE_FOR_SESSION_SQL,
+                    new Object[] { converter.getSqlObject(userSessionSource.getUserSession().getId()) },
+                    new int[] { converter.getSqlType(UUID.class) });
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -225,7 +303,12 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
 
     @Override
     public void deleteForInactiveSessions() {
-        if (!AppContext.isStarted() || !clusterManager.isMaster()
+        if (!AppContext.isStarted())
+            return;
+
+        resultIds.keySet().removeIf(userSessionId -> userSessions.get(userSessionId) == null);
+
+        if (!clusterManager.isMaster()
                 || !configuration.getConfig(GlobalConfig.class).getAllowQueryFromSelected())
             return;
 
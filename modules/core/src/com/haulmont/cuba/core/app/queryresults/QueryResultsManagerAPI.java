@@ -19,6 +19,7 @@ package com.haulmont.cuba.core.app.queryresults;
 
 import com.haulmont.cuba.core.global.LoadContext;
 
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.UUID;
 
@@ -32,6 +33,15 @@ public interface QueryResultsManagerAPI {
 
     void savePreviousQueryResults(LoadContext loadContext);
 
+    /**
+     * @param userSessionId user session id
+     * @param queryKey      query key
+     * @return identifiers of the previous query results if they are kept in memory, null if they are stored in the
+     * database
+     */
+    @Nullable
+    List getResultIds(UUID userSessionId, int queryKey);
+
     void insert(int queryKey, List idList);
 
     void delete(int queryKey);
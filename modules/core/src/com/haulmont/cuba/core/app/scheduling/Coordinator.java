@@ -43,4 +43,21 @@ public interface Coordinator {
     boolean isLastExecutionFinished(ScheduledTask task, long now);
 
     long getLastFinished(ScheduledTask task);
+
+    /**
+     * Marks the singleton task as started by the given server before running it.
+     *
+     * @return false if the task cannot be started because another server has started it already
+     */
+    default boolean claimTask(ScheduledTask task, long now, String server) {
+        task.setLastStartTime(new Date(now));
+        task.setLastStartServer(server);
+        return true;
+    }
+
+    /**
+     * Invoked when an execution of the task started by this server is finished.
+     */
+    default void registerFinish(ScheduledTask task, long finishTime) {
+    }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.app.scheduling;
+
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.bali.db.ResultSetHandler;
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.entity.ScheduledTask;
+import com.haulmont.cuba.core.sys.persistence.DbTypeConverter;
+import com.haulmont.cuba.core.sys.persistence.DbmsType;
+import org.apache.commons.lang.BooleanUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Implementation of {@link Coordinator} interface which does not lock the task table for the whole scheduling tick.
+ * <p>
+ * Active tasks are read by a single query without locks. A singleton task is claimed right before its start by
+ * updating the last start time in the task row only if it has not been changed by another server since it was read.
+ * On databases supporting {@code FOR UPDATE SKIP LOCKED} the row is locked first, so a server never waits for
+ * another one claiming the same task. The last finish time is kept in the task row too, so no queries to
+ * {@code SYS_SCHEDULED_EXECUTION} are needed.
+ * <p>
+ * To use this implementation, register it in the {@code spring.xml} file of the core module:
+ * <pre>
+ * &lt;bean id="cuba_SchedulingCoordinator" class="com.haulmont.cuba.core.app.scheduling.LeaseBasedCoordinator"/&gt;
+ * </pre>
+ */
+public class LeaseBasedCoordinator implements Coordinator {
+
+    private final Logger log = LoggerFactory.getLogger(LeaseBasedCoordinator.class);
+
+    protected static class ContextImpl implements Context {
+
+        protected List<ScheduledTask> tasks;
+
+        protected ContextImpl(List<ScheduledTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        public List<ScheduledTask> getTasks() {
+            return tasks;
+        }
+    }
+
+    @Inject
+    protected Persistence persistence;
+
+    @Override
+    public Context begin() {
+        log.trace("Read all active tasks from DB");
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            List<ScheduledTask> tasks = em.createQuery("select t from sys$ScheduledTask t where t.active = true",
+                    ScheduledTask.class).getResultList();
+            tx.commit();
+            return new ContextImpl(tasks);
+        }
+    }
+
+    @Override
+    public void end(Context context) {
+    }
+
+    @Override
+    public boolean isLastExecutionFinished(ScheduledTask task, long now) {
+        Date lastFinishTime = task.getLastFinishTime();
+        if (lastFinishTime == null || lastFinishTime.getTime() < task.getLastStart()) {
+            // Execution finish was not registered by some reason, so using timeout value or just return false
+            boolean result = task.getTimeout() != null && task.getLastStart() + task.getTimeout() * 1000L <= now;
+            if (result)
+                log.trace(task + ": considered finished because of timeout");
+            else
+                log.trace(task + ": not finished and not timed out");
+            return result;
+        }
+        log.trace(task + ": finished at " + lastFinishTime.getTime());
+        return true;
+    }
+
+    @Override
+    public long getLastFinished(ScheduledTask task) {
+        return task.getLastFinishTime() == null ? 0 : task.getLastFinishTime().getTime();
+    }
+
+    @Override
+    public boolean claimTask(ScheduledTask task, long now, String server) {
+        Date startTime = new Date(now);
+        boolean claimed;
+        try (Transaction tx = persistence.createTransaction()) {
+            Connection connection = persistence.getEntityManager().getConnection();
+            claimed = (!isSkipLockedSupported() || lockTaskRow(connection, task))
+                    && updateLastStart(connection, task, startTime, server);
+            tx.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Error claiming " + task, e);
+        }
+        if (claimed) {
+            task.setLastStartTime(startTime);
+            task.setLastStartServer(server);
+        } else {
+            log.trace(task + ": claimed by another server");
+        }
+        return claimed;
+    }
+
+    @Override
+    public void registerFinish(ScheduledTask task, long finishTime) {
+        if (!BooleanUtils.isTrue(task.getSingleton()))
+            return;
+
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        try (Transaction tx = persistence.createTransaction()) {
+            new QueryRunner().update(persistence.getEntityManager().getConnection(),
+                    "update SYS_SCHEDULED_TASK set LAST_FINISH_TIME = ? where ID = ?",
+                    new Object[]{converter.getSqlObject(new Date(finishTime)), converter.getSqlObject(task.getId())},
+                    new int[]{converter.getSqlType(Date.class), converter.getSqlType(UUID.class)});
+            tx.commit();
+        } catch (SQLException e) {
+            log.error("Unable to register finish of " + task, e);
+        }
+    }
+
+    /**
+     * @return true if the row has been locked, false if it is locked by another transaction
+     */
+    protected boolean lockTaskRow(Connection connection, ScheduledTask task) throws SQLException {
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        ResultSetHandler<Boolean> handler = rs -> rs.next();
+        return new QueryRunner().query(connection,
+                "select ID from SYS_SCHEDULED_TASK where ID = ? for update skip locked",
+                new Object[]{converter.getSqlObject(task.getId())},
+                new int[]{converter.getSqlType(UUID.class)},
+                handler);
+    }
+
+    /**
+     * Sets the last start time and server if the last start time has not been changed since the task was read.
+     *
+     * @return true if the row has been updated
+     */
+    protected boolean updateLastStart(Connection connection, ScheduledTask task, Date startTime, String server)
+            throws SQLException {
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        int dateType = converter.getSqlType(Date.class);
+        int uuidType = converter.getSqlType(UUID.class);
+        String sql = "update SYS_SCHEDULED_TASK set LAST_START_TIME = ?, LAST_START_SERVER = ? where ID = ? and ";
+        int count;
+        if (task.getLastStartTime() == null) {
+            count = new QueryRunner().update(connection, sql + "LAST_START_TIME is null",
+                    new Object[]{converter.getSqlObject(startTime), server, converter.getSqlObject(task.getId())},
+                    new int[]{dateType, Types.VARCHAR, uuidType});
+        } else {
+            // '<=' tolerates rounding of the stored value by the database
+            count = new QueryRunner().update(connection, sql + "LAST_START_TIME <= ?",
+                    new Object[]{converter.getSqlObject(startTime), server, converter.getSqlObject(task.getId()),
+                            converter.getSqlObject(task.getLastStartTime())},
+                    new int[]{dateType, Types.VARCHAR, uuidType, dateType});
+        }
+        return count == 1;
+    }
+
+    protected boolean isSkipLockedSupported() {
+        String dbmsType = DbmsType.getType();
+        return "postgres".equals(dbmsType) || "oracle".equals(dbmsType);
+    }
+}
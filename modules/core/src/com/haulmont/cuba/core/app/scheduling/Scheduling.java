@@ -139,7 +139,9 @@ public class Scheduling implements SchedulingAPI {
 
     @Override
     public void setFinished(ScheduledTask task) {
-        lastFinishCache.put(task, timeSource.currentTimeMillis());
+        long finishTime = timeSource.currentTimeMillis();
+        lastFinishCache.put(task, finishTime);
+        coordinator.registerFinish(task, finishTime);
     }
 
     @Override
@@ -341,12 +343,13 @@ public class Scheduling implements SchedulingAPI {
             // Check whether the task is finished if the last execution was from another server
             finished = coordinator.isLastExecutionFinished(task, now);
         }
-        if (finished) {
-            task.setLastStartTime(new Date(now));
-            task.setLastStartServer(server);
-            runner.runTask(task, now, getUserSession(task));
-        } else
+        if (!finished) {
             log.trace(task + "\n not finished");
+        } else if (coordinator.claimTask(task, now, server)) {
+            runner.runTask(task, now, getUserSession(task));
+        } else {
+            log.trace(task + "\n started by another server");
+        }
     }
 
     protected void runTask(ScheduledTask task, long time) throws LoginException {
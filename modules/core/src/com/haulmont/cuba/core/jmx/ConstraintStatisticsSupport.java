@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.jmx;
+
+import com.haulmont.cuba.core.sys.ConstraintStatistics;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.Comparator;
+import java.util.List;
+
+@Component("cuba_ConstraintStatisticsSupportMBean")
+public class ConstraintStatisticsSupport implements ConstraintStatisticsSupportMBean {
+
+    @Inject
+    protected ConstraintStatistics constraintStatistics;
+
+    @Override
+    public String printStatistics(int limit) {
+        List<ConstraintStatistics.ConstraintStat> stats = constraintStatistics.getStats();
+        stats.sort(Comparator.comparingDouble(ConstraintStatistics.ConstraintStat::getTotalTimeMs).reversed());
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%10s %10s %8s %12s %10s %10s  %-36s %-20s %s%n",
+                "Count", "Denied", "Errors", "Total ms", "Avg ms", "Max ms", "Id", "Code", "Script"));
+        int count = 0;
+        for (ConstraintStatistics.ConstraintStat stat : stats) {
+            if (limit > 0 && count++ >= limit)
+                break;
+            sb.append(String.format("%10d %10d %8d %12.1f %10.3f %10.2f  %-36s %-20s %s%n",
+                    stat.getCount(), stat.getDeniedCount(), stat.getErrorCount(), stat.getTotalTimeMs(),
+                    stat.getAverageTimeMs(), stat.getMaxTimeMs(), stat.getConstraintId(),
+                    StringUtils.defaultString(stat.getCode()),
+                    stat.getGroovyScript().replaceAll("\\s+", " ")));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void clearStatistics() {
+        constraintStatistics.clear();
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.jmx;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Provides statistics of the number identifiers cache")
+public interface NumberIdCacheSupportMBean {
+
+    @ManagedAttribute(description = "Number of identifiers reserved by one sequence value")
+    int getCacheSize();
+
+    @ManagedAttribute(description = "Number of times a caller had to wait for the sequence")
+    long getWaitCount();
+
+    @ManagedAttribute(description = "Total time in milliseconds callers spent waiting for the sequence")
+    long getWaitTimeMs();
+
+    @ManagedAttribute(description = "Number of blocks of identifiers obtained in background")
+    long getPrefetchCount();
+
+    @ManagedAttribute(description = "Number of failed background requests to the sequence")
+    long getPrefetchErrorCount();
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.jmx;
+
+import com.haulmont.cuba.core.sys.jdbc.StatementProfiler;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.Comparator;
+import java.util.List;
+
+@Component("cuba_StatementProfilerSupportMBean")
+public class StatementProfilerSupport implements StatementProfilerSupportMBean {
+
+    @Inject
+    protected StatementProfiler statementProfiler;
+
+    @Override
+    public boolean isEnabled() {
+        return statementProfiler.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        statementProfiler.setEnabled(enabled);
+    }
+
+    @Override
+    public int getSamplingRate() {
+        return statementProfiler.getSamplingRate();
+    }
+
+    @Override
+    public void setSamplingRate(int samplingRate) {
+        statementProfiler.setSamplingRate(samplingRate);
+    }
+
+    @Override
+    public long getSlowStatementThresholdMs() {
+        return statementProfiler.getSlowStatementThresholdMs();
+    }
+
+    @Override
+    public void setSlowStatementThresholdMs(long thresholdMs) {
+        statementProfiler.setSlowStatementThresholdMs(thresholdMs);
+    }
+
+    @Override
+    public int getRepeatedStatementThreshold() {
+        return statementProfiler.getRepeatedStatementThreshold();
+    }
+
+    @Override
+    public void setRepeatedStatementThreshold(int threshold) {
+        statementProfiler.setRepeatedStatementThreshold(threshold);
+    }
+
+    @Override
+    public String printStatistics(int limit) {
+        List<StatementProfiler.StatementStat> stats = statementProfiler.getStats();
+        stats.sort(Comparator.comparingDouble(StatementProfiler.StatementStat::getTotalTimeMs).reversed());
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%10s %8s %12s %10s %10s %10s %10s %10s %10s  %s%n",
+                "Count", "Errors", "Total ms", "Avg ms", "Max ms", "Avg rows", "Updated", "Avg batch", "Repeated", "SQL"));
+        int count = 0;
+        for (StatementProfiler.StatementStat stat : stats) {
+            if (limit > 0 && count++ >= limit)
+                break;
+            sb.append(String.format("%10d %8d %12.1f %10.2f %10.2f %10.1f %10d %10.1f %10d  %s%n",
+                    stat.getCount(), stat.getErrorCount(), stat.getTotalTimeMs(), stat.getAverageTimeMs(),
+                    stat.getMaxTimeMs(), stat.getAverageFetchedRows(), stat.getUpdatedRows(),
+                    stat.getAverageBatchSize(), stat.getRepeatedInTransactionCount(), stat.getSql()));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void clearStatistics() {
+        statementProfiler.clear();
+    }
+}
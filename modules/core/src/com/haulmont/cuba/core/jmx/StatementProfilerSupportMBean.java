@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.jmx;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Collects statistics of JDBC statements")
+public interface StatementProfilerSupportMBean {
+
+    @ManagedAttribute(description = "Whether statistics of JDBC statements are collected")
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+
+    @ManagedAttribute(description = "One of how many query results is wrapped to count fetched rows")
+    int getSamplingRate();
+    void setSamplingRate(int samplingRate);
+
+    @ManagedAttribute(description = "Execution time in milliseconds after which a statement is logged as slow")
+    long getSlowStatementThresholdMs();
+    void setSlowStatementThresholdMs(long thresholdMs);
+
+    @ManagedAttribute(description = "Number of executions of a statement in one transaction after which it is reported")
+    int getRepeatedStatementThreshold();
+    void setRepeatedStatementThreshold(int threshold);
+
+    @ManagedOperation(description = "Statistics of statements sorted by total execution time")
+    @ManagedOperationParameters({@ManagedOperationParameter(name = "limit", description = "Maximum number of statements")})
+    String printStatistics(int limit);
+
+    @ManagedOperation(description = "Clear collected statistics")
+    void clearStatistics();
+}
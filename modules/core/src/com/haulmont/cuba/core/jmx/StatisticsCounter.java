@@ -18,7 +18,9 @@
 package com.haulmont.cuba.core.jmx;
 
 import com.haulmont.cuba.core.app.MiddlewareStatisticsAccumulator;
+import com.haulmont.cuba.core.app.ServiceMethodStatistics;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.LatencyHistogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,7 +28,10 @@ import org.springframework.stereotype.Component;
 import javax.inject.Inject;
 import javax.management.MBeanServerConnection;
 import javax.management.ObjectName;
+import javax.management.openmbean.*;
 import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -44,6 +49,16 @@ public class StatisticsCounter implements StatisticsCounterMBean {
 
     protected volatile boolean dbConnPoolNotFound;
 
+    protected static final String[] SERVICE_METHOD_STAT_ITEMS = {
+            "name", "count", "errorCount", "inFlightCount", "averageTime", "maxTime",
+            "recentCount", "recentP50", "recentP90", "recentP99"
+    };
+
+    protected static final OpenType<?>[] SERVICE_METHOD_STAT_TYPES = {
+            SimpleType.STRING, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.DOUBLE, SimpleType.DOUBLE,
+            SimpleType.LONG, SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.DOUBLE
+    };
+
     public StatisticsCounter() {
         String name = "CubaDS";
         String jndiName = AppContext.getProperty("cuba.dataSourceJndiName");
@@ -209,4 +224,47 @@ public class StatisticsCounter implements StatisticsCounterMBean {
     public double getAvgThreadCount() {
         return accumulator.getAvgThreadCount();
     }
-}
\ No newline at end of file
+
+    @Override
+    public CompositeData[] getServiceMethodStatistics() {
+        List<ServiceMethodStatistics.MethodStat> stats = getSortedServiceMethodStats();
+        try {
+            CompositeType type = new CompositeType("ServiceMethodStat", "Service method statistics",
+                    SERVICE_METHOD_STAT_ITEMS, SERVICE_METHOD_STAT_ITEMS, SERVICE_METHOD_STAT_TYPES);
+            CompositeData[] result = new CompositeData[stats.size()];
+            for (int i = 0; i < stats.size(); i++) {
+                ServiceMethodStatistics.MethodStat stat = stats.get(i);
+                LatencyHistogram recent = stat.getRecentHistogram();
+                result[i] = new CompositeDataSupport(type, SERVICE_METHOD_STAT_ITEMS, new Object[]{
+                        stat.getName(), stat.getCount(), stat.getErrorCount(), stat.getInFlightCount(),
+                        stat.getAverageTimeMs(), stat.getMaxTimeMs(),
+                        recent.getCount(), recent.getPercentile(50) / 1000.0,
+                        recent.getPercentile(90) / 1000.0, recent.getPercentile(99) / 1000.0
+                });
+            }
+            return result;
+        } catch (OpenDataException e) {
+            throw new RuntimeException("Unable to create service method statistics", e);
+        }
+    }
+
+    @Override
+    public String printServiceMethodStatistics() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-60s %10s %8s %8s %10s %10s %10s %10s %10s %10s%n",
+                "Method", "Count", "Errors", "Active", "Avg ms", "Max ms", "P50 ms", "P90 ms", "P99 ms", "P99.9 ms"));
+        for (ServiceMethodStatistics.MethodStat stat : getSortedServiceMethodStats()) {
+            sb.append(String.format("%-60s %10d %8d %8d %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    stat.getName(), stat.getCount(), stat.getErrorCount(), stat.getInFlightCount(),
+                    stat.getAverageTimeMs(), stat.getMaxTimeMs(), stat.getPercentileMs(50), stat.getPercentileMs(90),
+                    stat.getPercentileMs(99), stat.getPercentileMs(99.9)));
+        }
+        return sb.toString();
+    }
+
+    protected List<ServiceMethodStatistics.MethodStat> getSortedServiceMethodStats() {
+        List<ServiceMethodStatistics.MethodStat> stats = accumulator.getServiceMethodStatistics().getMethodStats();
+        stats.sort(Comparator.comparing(ServiceMethodStatistics.MethodStat::getName));
+        return stats;
+    }
+}
@@ -17,8 +17,11 @@
 
 package com.haulmont.cuba.core.jmx;
 
+import org.springframework.jmx.export.annotation.ManagedOperation;
 import org.springframework.jmx.export.annotation.ManagedResource;
 
+import javax.management.openmbean.CompositeData;
+
 @ManagedResource(description = "Provides various information about middleware performance statistics")
 @SuppressWarnings("unused")
 public interface StatisticsCounterMBean {
@@ -74,4 +77,13 @@ public interface StatisticsCounterMBean {
     double getAvgProcessCpuLoad();
 
     double getAvgThreadCount();
-}
\ No newline at end of file
+
+    /**
+     * Latency statistics of service methods. Times are in milliseconds, "recent" values are calculated for the
+     * last minute.
+     */
+    CompositeData[] getServiceMethodStatistics();
+
+    @ManagedOperation(description = "Latency statistics of service methods")
+    String printServiceMethodStatistics();
+}
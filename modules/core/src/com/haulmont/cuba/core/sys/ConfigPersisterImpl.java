@@ -17,6 +17,7 @@
 package com.haulmont.cuba.core.sys;
 
 import com.haulmont.cuba.core.app.ConfigStorageAPI;
+import com.haulmont.cuba.core.config.ConfigChanges;
 import com.haulmont.cuba.core.config.ConfigPersister;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.global.AppBeans;
@@ -65,6 +66,13 @@ public class ConfigPersisterImpl implements ConfigPersister {
             default:
                 throw new UnsupportedOperationException("Unsupported config source type: " + sourceType);
         }
+        ConfigChanges.propertiesChanged();
+    }
+
+    @Override
+    public boolean isCachingAllowed(SourceType sourceType) {
+        // DB-stored properties are cached by ConfigStorage, which increments the version on invalidation
+        return true;
     }
 
     private ConfigStorageAPI getConfigStorageAPI() {
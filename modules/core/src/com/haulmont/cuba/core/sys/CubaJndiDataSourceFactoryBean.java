@@ -17,16 +17,24 @@
 package com.haulmont.cuba.core.sys;
 
 import com.haulmont.cuba.core.sys.jdbc.ProxyDataSource;
+import com.haulmont.cuba.core.sys.jdbc.StatementProfiler;
 
 import javax.naming.NamingException;
 import javax.sql.DataSource;
 
 public class CubaJndiDataSourceFactoryBean extends CubaJndiObjectFactoryBean {
+
+    protected StatementProfiler statementProfiler;
+
+    public void setStatementProfiler(StatementProfiler statementProfiler) {
+        this.statementProfiler = statementProfiler;
+    }
+
     @Override
     protected Object lookupWithFallback() throws NamingException {
         Object object = super.lookupWithFallback();
         if (object instanceof DataSource) {
-            return new ProxyDataSource((DataSource) object);
+            return new ProxyDataSource((DataSource) object, statementProfiler);
         } else {
             return object;
         }
@@ -22,9 +22,16 @@ import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.TypedQuery;
+import com.haulmont.cuba.core.entity.BaseEntityInternalAccess;
+import com.haulmont.cuba.core.entity.BaseGenericIdEntity;
 import com.haulmont.cuba.core.entity.EmbeddableEntity;
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.persistence.PersistenceImplSupport;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.UnitOfWork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -43,6 +50,11 @@ public class EntityFetcher {
 
     public static final String NAME = "cuba_EntityFetcher";
 
+    /**
+     * Maximum number of identifiers passed to one query when reloading detached instances.
+     */
+    protected static final int RELOAD_BATCH_SIZE = 500;
+
     private Logger log = LoggerFactory.getLogger(EntityFetcher.class);
 
     @Inject
@@ -57,13 +69,16 @@ public class EntityFetcher {
     @Inject
     protected EntityStates entityStates;
 
+    @Inject
+    protected PersistenceImplSupport persistenceImplSupport;
+
     /**
      * Fetch instance by view object.
      */
     public void fetch(Entity instance, View view) {
         if (view == null)
             return;
-        fetch(instance, view, new HashMap<>(), false);
+        fetchGraph(instance, view, false);
     }
 
     /**
@@ -73,7 +88,7 @@ public class EntityFetcher {
         if (viewName == null)
             return;
         View view = viewRepository.getView(instance.getClass(), viewName);
-        fetch(instance, view, new HashMap<>(), false);
+        fetchGraph(instance, view, false);
     }
 
     /**
@@ -86,7 +101,7 @@ public class EntityFetcher {
     public void fetch(Entity instance, View view, boolean optimizeForDetached) {
         if (view == null)
             return;
-        fetch(instance, view, new HashMap<>(), optimizeForDetached);
+        fetchGraph(instance, view, optimizeForDetached);
     }
 
     /**
@@ -100,10 +115,30 @@ public class EntityFetcher {
         if (viewName == null)
             return;
         View view = viewRepository.getView(instance.getClass(), viewName);
-        fetch(instance, view, new HashMap<>(), optimizeForDetached);
+        fetchGraph(instance, view, optimizeForDetached);
     }
 
-    protected void fetch(Entity entity, View view, Map<Instance, Set<View>> visited, boolean optimizeForDetached) {
+    /**
+     * Walks the graph collecting detached references that must be reloaded, then reloads them with one query per
+     * class and chunk of {@link #RELOAD_BATCH_SIZE} identifiers. Reloaded instances are fetched in turn, so the
+     * process is repeated until no detached references are left.
+     */
+    protected void fetchGraph(Entity instance, View view, boolean optimizeForDetached) {
+        Map<Instance, Set<View>> visited = new HashMap<>();
+        List<DetachedReference> detached = new ArrayList<>();
+        fetch(instance, view, visited, optimizeForDetached, detached);
+
+        int queryCount = 0;
+        while (!detached.isEmpty()) {
+            List<DetachedReference> references = detached;
+            detached = new ArrayList<>();
+            queryCount += reloadDetached(references, visited, optimizeForDetached, detached);
+        }
+        if (log.isTraceEnabled()) log.trace("Fetched instance " + instance + ", queries: " + queryCount);
+    }
+
+    protected void fetch(Entity entity, View view, Map<Instance, Set<View>> visited, boolean optimizeForDetached,
+                         List<DetachedReference> detached) {
         Set<View> views = visited.get(entity);
         if (views == null) {
             views = new HashSet<>();
@@ -129,35 +164,151 @@ public class EntityFetcher {
                 if (value instanceof Collection) {
                     for (Object item : ((Collection) value)) {
                         if (item instanceof Entity)
-                            fetch((Entity) item, propertyView, visited, optimizeForDetached);
+                            fetch((Entity) item, propertyView, visited, optimizeForDetached, detached);
                     }
                 } else if (value instanceof Entity) {
                     Entity e = (Entity) value;
                     if (!metaProperty.isReadOnly() && PersistenceHelper.isDetached(value) && !(value instanceof EmbeddableEntity)) {
                         if (!optimizeForDetached || needReloading(e, propertyView)) {
                             if (log.isTraceEnabled()) {
-                                log.trace("Object " + value + " is detached, loading it");
-                            }
-                            String storeName = metadata.getTools().getStoreName(e.getMetaClass());
-                            if (storeName != null) {
-                                try (Transaction tx = persistence.getTransaction(storeName)) {
-                                    EntityManager em = persistence.getEntityManager(storeName);
-                                    //noinspection unchecked
-                                    Entity managed = em.find(e.getClass(), e.getId());
-                                    if (managed != null) { // the instance here can be null if it has been deleted
-                                        entity.setValue(property.getName(), managed);
-                                        fetch(managed, propertyView, visited, optimizeForDetached);
-                                    }
-                                    tx.commit();
-                                }
+                                log.trace("Object " + value + " is detached, it will be reloaded");
                             }
+                            detached.add(new DetachedReference(entity, property.getName(), e, propertyView));
                         }
                     } else {
-                        fetch(e, propertyView, visited, optimizeForDetached);
+                        fetch(e, propertyView, visited, optimizeForDetached, detached);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reloads detached instances, sets managed instances to the referencing attributes and fetches them.
+     *
+     * @param detached list to collect detached references found while fetching the reloaded instances
+     * @return number of executed queries
+     */
+    protected int reloadDetached(List<DetachedReference> references, Map<Instance, Set<View>> visited,
+                                 boolean optimizeForDetached, List<DetachedReference> detached) {
+        Map<MetaClass, Map<Object, List<DetachedReference>>> referencesByClass = new LinkedHashMap<>();
+        for (DetachedReference reference : references) {
+            referencesByClass
+                    .computeIfAbsent(reference.value.getMetaClass(), metaClass -> new LinkedHashMap<>())
+                    .computeIfAbsent(getRealId(reference.value.getId()), id -> new ArrayList<>())
+                    .add(reference);
+        }
+
+        int queryCount = 0;
+        for (Map.Entry<MetaClass, Map<Object, List<DetachedReference>>> entry : referencesByClass.entrySet()) {
+            MetaClass metaClass = entry.getKey();
+            String storeName = metadata.getTools().getStoreName(metaClass);
+            if (storeName == null)
+                continue;
+
+            Map<Object, List<DetachedReference>> referencesById = entry.getValue();
+            try (Transaction tx = persistence.getTransaction(storeName)) {
+                EntityManager em = persistence.getEntityManager(storeName);
+                Map<Object, Entity> instances = new LinkedHashMap<>();
+                for (Map.Entry<Object, List<DetachedReference>> idEntry : referencesById.entrySet()) {
+                    instances.put(idEntry.getKey(), idEntry.getValue().get(0).value);
+                }
+                Map<Object, Entity> loaded = new HashMap<>();
+                queryCount += load(em, metaClass, instances, loaded);
+
+                for (Map.Entry<Object, List<DetachedReference>> idEntry : referencesById.entrySet()) {
+                    Entity managed = loaded.get(idEntry.getKey());
+                    if (managed != null) { // the instance here can be null if it has been deleted
+                        for (DetachedReference reference : idEntry.getValue()) {
+                            reference.owner.setValue(reference.property, managed);
+                            fetch(managed, reference.view, visited, optimizeForDetached, detached);
+                        }
                     }
                 }
+                tx.commit();
             }
         }
+        return queryCount;
+    }
+
+    /**
+     * Loads instances of the given class by identifiers. Instances which are in the persistence context or in the
+     * shared cache are taken from there, the rest are loaded by queries.
+     *
+     * @param detached map of identifiers to detached instances
+     * @param result   map of identifiers to loaded instances
+     * @return number of executed queries
+     */
+    @SuppressWarnings("unchecked")
+    protected int load(EntityManager em, MetaClass metaClass, Map<Object, Entity> detached, Map<Object, Entity> result) {
+        String pkName = metadata.getTools().getPrimaryKeyName(metaClass);
+        if (pkName == null || metadata.getTools().hasCompositePrimaryKey(metaClass)) {
+            for (Object id : detached.keySet()) {
+                Entity managed = em.find(metaClass.getJavaClass(), id);
+                if (managed != null) {
+                    result.put(id, managed);
+                }
+            }
+            return detached.size();
+        }
+
+        List<Object> ids = findLoaded(em, metaClass, detached, result);
+        String queryString = "select e from " + metaClass.getName() + " e where e." + pkName + " in :ids";
+        int queryCount = 0;
+        for (int i = 0; i < ids.size(); i += RELOAD_BATCH_SIZE) {
+            List<Object> chunk = ids.subList(i, Math.min(i + RELOAD_BATCH_SIZE, ids.size()));
+            TypedQuery<Entity> query = em.createQuery(queryString, metaClass.getJavaClass());
+            query.setParameter("ids", chunk);
+            for (Entity managed : query.getResultList()) {
+                result.put(getRealId(managed.getId()), managed);
+            }
+            queryCount++;
+        }
+        return queryCount;
+    }
+
+    /**
+     * Puts to the result the instances which can be obtained without a query: new and loaded instances of the
+     * current persistence context, including not flushed ones, and instances contained in the shared cache.
+     *
+     * @return identifiers of instances which must be loaded from the database
+     */
+    @SuppressWarnings("unchecked")
+    protected List<Object> findLoaded(EntityManager em, MetaClass metaClass, Map<Object, Entity> detached,
+                                      Map<Object, Entity> result) {
+        Map<Object, Entity> contextInstances = new HashMap<>();
+        for (Entity instance : persistenceImplSupport.getInstances(em)) {
+            if (metaClass.equals(instance.getMetaClass())) {
+                Object id = instance.getId() instanceof IdProxy ? ((IdProxy) instance.getId()).get() : instance.getId();
+                if (id != null) {
+                    contextInstances.put(id, instance);
+                }
+            }
+        }
+
+        Session cacheSession = em.getDelegate().unwrap(UnitOfWork.class).getParent();
+        List<Object> ids = new ArrayList<>(detached.size());
+        for (Map.Entry<Object, Entity> entry : detached.entrySet()) {
+            Entity instance = contextInstances.get(entry.getKey());
+            if (instance != null) {
+                if (!(instance instanceof BaseGenericIdEntity)
+                        || !BaseEntityInternalAccess.isRemoved((BaseGenericIdEntity) instance)) {
+                    result.put(entry.getKey(), instance);
+                }
+            } else if (cacheSession.getIdentityMapAccessor().containsObjectInIdentityMap(entry.getValue())) {
+                Entity managed = em.find(metaClass.getJavaClass(), entry.getKey());
+                if (managed != null) {
+                    result.put(entry.getKey(), managed);
+                }
+            } else {
+                ids.add(entry.getKey());
+            }
+        }
+        return ids;
+    }
+
+    protected Object getRealId(Object id) {
+        return id instanceof IdProxy ? ((IdProxy) id).getNN() : id;
     }
 
     protected boolean needReloading(Entity entity, View view) {
@@ -174,4 +325,19 @@ public class EntityFetcher {
         Basic annotation = annotatedElement.getAnnotation(Basic.class);
         return annotation != null && annotation.fetch() == FetchType.LAZY;
     }
+
+    protected static class DetachedReference {
+
+        protected final Entity owner;
+        protected final String property;
+        protected final Entity value;
+        protected final View view;
+
+        protected DetachedReference(Entity owner, String property, Entity value, View view) {
+            this.owner = owner;
+            this.property = property;
+            this.value = value;
+            this.view = view;
+        }
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values, usually latencies in microseconds.
+ * <p>
+ * Values are counted in log-linear buckets: every power of two is divided into {@link #SUB_BUCKETS} buckets, so
+ * the relative error of a reported percentile does not exceed 25%. Recording a value does not allocate memory.
+ */
+public class LatencyHistogram {
+
+    public static final int SUB_BUCKETS = 4;
+
+    protected static final int SUB_BUCKET_BITS = 2;
+
+    /**
+     * Values not less than this are counted in the last bucket.
+     */
+    public static final long MAX_VALUE = 1L << 40;
+
+    protected static final int BUCKET_COUNT = getBucketIndex(MAX_VALUE - 1) + 1;
+
+    protected final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    protected static int getBucketIndex(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return the greatest value counted in the bucket
+     */
+    protected static long getBucketUpperBound(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int exp = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        long width = 1L << (exp - SUB_BUCKET_BITS);
+        return ((long) (SUB_BUCKETS + sub) << (exp - SUB_BUCKET_BITS)) + width - 1;
+    }
+
+    public void record(long value) {
+        buckets.incrementAndGet(getBucketIndex(Math.max(0, Math.min(value, MAX_VALUE - 1))));
+    }
+
+    /**
+     * Adds counts of another histogram to this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.buckets.get(i);
+            if (count != 0) {
+                buckets.addAndGet(i, count);
+            }
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @param percentile percentile from 0 to 100
+     * @return the upper bound of the bucket containing the value at the given percentile, or 0 if no values
+     * were recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return getBucketUpperBound(i);
+        }
+        return getBucketUpperBound(BUCKET_COUNT - 1);
+    }
+}
@@ -67,6 +67,8 @@ public class QueryImpl<T> implements TypedQuery<T> {
     protected EntityFetcher entityFetcher;
     protected QueryCacheManager queryCacheMgr;
     protected QueryTransformerFactory queryTransformerFactory;
+    protected QueryTransformationCache transformationCache;
+    protected QueryTransformationCache.TransformedQuery transformedQuery;
     protected Set<Param> params = new HashSet<>();
     protected LockModeType lockMode;
     protected List<View> views = new ArrayList<>();
@@ -92,6 +94,7 @@ public class QueryImpl<T> implements TypedQuery<T> {
         this.support = AppBeans.get(PersistenceImplSupport.NAME);
         this.queryCacheMgr = AppBeans.get(QueryCacheManager.NAME);
         this.queryTransformerFactory = AppBeans.get(QueryTransformerFactory.NAME);
+        this.transformationCache = AppBeans.get(QueryTransformationCache.NAME);
     }
 
     protected JpaQuery<T> getQuery() {
@@ -191,7 +194,30 @@ public class QueryImpl<T> implements TypedQuery<T> {
     }
 
     protected String transformQueryString() {
-        String result = expandMacros(queryString);
+        String expandedQuery = expandMacros(queryString);
+
+        if (!transformationCache.isEnabled()) {
+            transformedQuery = null;
+            return transformQueryString(expandedQuery);
+        }
+
+        QueryTransformationCache.Key key = new QueryTransformationCache.Key(expandedQuery, getParamsSignature());
+        transformedQuery = transformationCache.get(key);
+        if (transformedQuery != null) {
+            applyCachedParamsTransformation(transformedQuery);
+        } else {
+            Set<String> paramNames = getNamedParamNames();
+            String result = transformQueryString(expandedQuery);
+            paramNames.removeAll(getNamedParamNames());
+
+            transformedQuery = new QueryTransformationCache.TransformedQuery(result, paramNames);
+            transformationCache.put(key, transformedQuery);
+        }
+        return transformedQuery.getQueryString();
+    }
+
+    protected String transformQueryString(String expandedQuery) {
+        String result = expandedQuery;
 
         boolean rebuildParser = false;
         QueryParser parser = queryTransformerFactory.parser(result);
@@ -228,6 +254,60 @@ public class QueryImpl<T> implements TypedQuery<T> {
         return result;
     }
 
+    /**
+     * Builds a string describing the parameter values that affect the result of {@link #replaceParams}.
+     */
+    protected String getParamsSignature() {
+        if (params.isEmpty()) {
+            return "";
+        }
+        List<String> items = new ArrayList<>(params.size());
+        for (Param param : params) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(param.isNamedParam() ? ":" : "?").append(param.name);
+            if (param.value == null) {
+                sb.append("/n");
+            } else if (param.value instanceof String && ((String) param.value).startsWith("(?i)")) {
+                sb.append("/i");
+            } else if (param.value instanceof Collection && ((Collection) param.value).isEmpty()) {
+                sb.append("/e");
+            }
+            items.add(sb.toString());
+        }
+        Collections.sort(items);
+        return String.join(",", items);
+    }
+
+    protected Set<String> getNamedParamNames() {
+        Set<String> names = new HashSet<>();
+        for (Param param : params) {
+            if (param.isNamedParam()) {
+                names.add((String) param.name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Applies to parameters the same changes that were made by {@link #replaceParams} when the cached query
+     * was transformed.
+     */
+    protected void applyCachedParamsTransformation(QueryTransformationCache.TransformedQuery transformedQuery) {
+        Set<String> removedParams = transformedQuery.getRemovedParams();
+        for (Iterator<Param> iterator = params.iterator(); iterator.hasNext(); ) {
+            Param param = iterator.next();
+            if (param.value instanceof String) {
+                String strValue = (String) param.value;
+                if (strValue.startsWith("(?i)")) {
+                    param.value = strValue.substring(4).toLowerCase();
+                }
+            }
+            if (param.isNamedParam() && removedParams.contains(param.name)) {
+                iterator.remove();
+            }
+        }
+    }
+
     protected String expandMacros(String queryStr) {
         String result = queryStr;
         if (macroHandlers != null) {
@@ -593,9 +673,19 @@ public class QueryImpl<T> implements TypedQuery<T> {
         boolean useQueryCache = cacheable && !isNative && queryCacheMgr.isEnabled() && lockMode == null;
         Object result;
         if (useQueryCache) {
-            QueryParser parser = QueryTransformerFactory.createParser(transformedQueryString);
-            String entityName = parser.getEntityName();
-            useQueryCache = parser.isEntitySelect(entityName);
+            String entityName;
+            Set<String> allEntityNames;
+            if (transformedQuery != null) {
+                QueryTransformationCache.ParserFacts parserFacts = transformationCache.getParserFacts(transformedQuery);
+                entityName = parserFacts.getEntityName();
+                allEntityNames = parserFacts.getAllEntityNames();
+                useQueryCache = parserFacts.isEntitySelect();
+            } else {
+                QueryParser parser = QueryTransformerFactory.createParser(transformedQueryString);
+                entityName = parser.getEntityName();
+                allEntityNames = parser.getAllEntityNames();
+                useQueryCache = parser.isEntitySelect(entityName);
+            }
             QueryKey queryKey = null;
             if (useQueryCache) {
                 queryKey = QueryKey.create(transformedQueryString, entityManager.isSoftDeletion(), singleResult, jpaQuery);
@@ -609,7 +699,7 @@ public class QueryImpl<T> implements TypedQuery<T> {
                 result = singleResult ? jpaQuery.getSingleResult() : jpaQuery.getResultList();
             } catch (NoResultException | NonUniqueResultException ex) {
                 if (useQueryCache && singleResult) {
-                    queryCacheMgr.putResultToCache(queryKey, null, entityName, parser.getAllEntityNames(), ex);
+                    queryCacheMgr.putResultToCache(queryKey, null, entityName, allEntityNames, ex);
                 }
                 throw ex;
             }
@@ -617,7 +707,7 @@ public class QueryImpl<T> implements TypedQuery<T> {
             if (useQueryCache) {
                 queryCacheMgr.putResultToCache(queryKey,
                         singleResult ? Collections.singletonList(result) : (List) result,
-                        entityName, parser.getAllEntityNames());
+                        entityName, allEntityNames);
             }
         } else {
             result = singleResult ? jpaQuery.getSingleResult() : jpaQuery.getResultList();
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.haulmont.chile.core.model.Session;
+import com.haulmont.cuba.core.app.ServerConfig;
+import com.haulmont.cuba.core.global.Metadata;
+import com.haulmont.cuba.core.global.QueryParser;
+import com.haulmont.cuba.core.global.QueryTransformerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Caches results of JPQL transformations performed by {@link QueryImpl} before passing a query to EclipseLink.
+ * <p>
+ * The key is the query text with expanded macros plus the signature of parameters that affect the transformation
+ * (case-insensitive, empty collection and null values). The cache is cleared automatically when the metadata
+ * session changes, because the result depends on extended entities.
+ */
+@Component(QueryTransformationCache.NAME)
+public class QueryTransformationCache {
+
+    public static final String NAME = "cuba_QueryTransformationCache";
+
+    private final Logger log = LoggerFactory.getLogger(QueryTransformationCache.class);
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    @Inject
+    protected Metadata metadata;
+
+    @Inject
+    protected QueryTransformerFactory queryTransformerFactory;
+
+    protected Cache<Key, TransformedQuery> data;
+
+    protected volatile Session metadataSession;
+
+    @PostConstruct
+    protected void init() {
+        data = CacheBuilder.newBuilder()
+                .maximumSize(serverConfig.getQueryTransformationCacheMaxSize())
+                .recordStats()
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return serverConfig.getQueryTransformationCacheEnabled();
+    }
+
+    @Nullable
+    public TransformedQuery get(Key key) {
+        checkMetadataSession();
+        return data.getIfPresent(key);
+    }
+
+    public void put(Key key, TransformedQuery transformedQuery) {
+        checkMetadataSession();
+        data.put(key, transformedQuery);
+    }
+
+    public void invalidateAll() {
+        log.debug("Invalidate all transformed queries");
+        data.invalidateAll();
+    }
+
+    public long size() {
+        return data.size();
+    }
+
+    public long getMaxSize() {
+        return serverConfig.getQueryTransformationCacheMaxSize();
+    }
+
+    public CacheStats getStats() {
+        return data.stats();
+    }
+
+    /**
+     * Returns facts about the transformed query string, parsing it only once for all queries with the same key.
+     */
+    public ParserFacts getParserFacts(TransformedQuery transformedQuery) {
+        ParserFacts facts = transformedQuery.parserFacts;
+        if (facts == null) {
+            QueryParser parser = queryTransformerFactory.parser(transformedQuery.getQueryString());
+            facts = new ParserFacts(parser);
+            transformedQuery.parserFacts = facts;
+        }
+        return facts;
+    }
+
+    protected void checkMetadataSession() {
+        Session session = metadata.getSession();
+        if (session != metadataSession) {
+            synchronized (this) {
+                if (session != metadataSession) {
+                    if (metadataSession != null) {
+                        log.info("Metadata has been reloaded, invalidating transformed queries");
+                    }
+                    data.invalidateAll();
+                    metadataSession = session;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cache key: query string with expanded macros and signature of parameters.
+     */
+    public static class Key {
+
+        protected final String queryString;
+        protected final String paramsSignature;
+        protected final int hashCode;
+
+        public Key(String queryString, String paramsSignature) {
+            this.queryString = queryString;
+            this.paramsSignature = paramsSignature;
+            this.hashCode = 31 * queryString.hashCode() + paramsSignature.hashCode();
+        }
+
+        public String getQueryString() {
+            return queryString;
+        }
+
+        public String getParamsSignature() {
+            return paramsSignature;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return hashCode == key.hashCode
+                    && queryString.equals(key.queryString)
+                    && paramsSignature.equals(key.paramsSignature);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return queryString + " [" + paramsSignature + "]";
+        }
+    }
+
+    /**
+     * Result of a JPQL transformation.
+     */
+    public static class TransformedQuery {
+
+        protected final String queryString;
+        protected final Set<String> removedParams;
+        protected volatile ParserFacts parserFacts;
+
+        public TransformedQuery(String queryString, Set<String> removedParams) {
+            this.queryString = queryString;
+            this.removedParams = removedParams.isEmpty() ?
+                    Collections.emptySet() : Collections.unmodifiableSet(removedParams);
+        }
+
+        /**
+         * @return transformed query string
+         */
+        public String getQueryString() {
+            return queryString;
+        }
+
+        /**
+         * @return names of named parameters that were removed from the query by the transformation
+         */
+        public Set<String> getRemovedParams() {
+            return removedParams;
+        }
+    }
+
+    /**
+     * Immutable facts about a transformed query obtained from {@link QueryParser}.
+     */
+    public static class ParserFacts {
+
+        protected final String entityName;
+        protected final boolean entitySelect;
+        protected final Set<String> allEntityNames;
+
+        public ParserFacts(QueryParser parser) {
+            this.entityName = parser.getEntityName();
+            this.entitySelect = parser.isEntitySelect(entityName);
+            this.allEntityNames = Collections.unmodifiableSet(new HashSet<>(parser.getAllEntityNames()));
+        }
+
+        public String getEntityName() {
+            return entityName;
+        }
+
+        public boolean isEntitySelect() {
+            return entitySelect;
+        }
+
+        public Set<String> getAllEntityNames() {
+            return allEntityNames;
+        }
+    }
+}
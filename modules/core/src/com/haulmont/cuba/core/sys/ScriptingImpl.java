@@ -19,6 +19,7 @@ package com.haulmont.cuba.core.sys;
 
 import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.Events;
 import com.haulmont.cuba.core.global.GlobalConfig;
 import com.haulmont.cuba.core.global.Scripting;
 import com.haulmont.cuba.core.sys.javacl.JavaClassLoader;
@@ -32,8 +33,9 @@ public class ScriptingImpl extends AbstractScripting {
     private String[] scriptEngineRoots;
 
     @Inject
-    public ScriptingImpl(JavaClassLoader javaClassLoader, Configuration configuration, SpringBeanLoader springBeanLoader) {
-        super(javaClassLoader, configuration, springBeanLoader);
+    public ScriptingImpl(JavaClassLoader javaClassLoader, Configuration configuration, SpringBeanLoader springBeanLoader,
+                         Events events) {
+        super(javaClassLoader, configuration, springBeanLoader, events);
         scriptEngineRoots = new String[] {
                 configuration.getConfig(GlobalConfig.class).getConfDir(),
                 configuration.getConfig(ServerConfig.class).getDbDir()
@@ -19,6 +19,7 @@ package com.haulmont.cuba.core.sys;
 import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.app.MiddlewareStatisticsAccumulator;
 import com.haulmont.cuba.core.app.ServerConfig;
+import com.haulmont.cuba.core.app.ServiceMethodStatistics;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.global.validation.MethodParametersValidationException;
 import com.haulmont.cuba.core.global.validation.MethodResultValidationException;
@@ -61,6 +62,8 @@ public class ServiceInterceptor {
 
     boolean logInternalServiceInvocation;
 
+    boolean collectMethodStatistics;
+
     public void setUserSessions(UserSessionsAPI userSessions) {
         this.userSessions = userSessions;
     }
@@ -78,10 +81,30 @@ public class ServiceInterceptor {
     }
 
     public void setConfiguration(Configuration configuration) {
-        logInternalServiceInvocation = configuration.getConfig(ServerConfig.class).getLogInternalServiceInvocation();
+        ServerConfig serverConfig = configuration.getConfig(ServerConfig.class);
+        logInternalServiceInvocation = serverConfig.getLogInternalServiceInvocation();
+        collectMethodStatistics = serverConfig.getServiceMethodStatisticsEnabled();
     }
 
     private Object aroundInvoke(ProceedingJoinPoint ctx) throws Throwable {
+        if (!collectMethodStatistics || !(ctx.getSignature() instanceof MethodSignature)) {
+            return invoke(ctx);
+        }
+
+        ServiceMethodStatistics.MethodStat methodStat = statisticsAccumulator.getServiceMethodStatistics()
+                .getMethodStat(((MethodSignature) ctx.getSignature()).getMethod());
+        long startTime = methodStat.started();
+        boolean success = false;
+        try {
+            Object res = invoke(ctx);
+            success = true;
+            return res;
+        } finally {
+            methodStat.finished(startTime, success);
+        }
+    }
+
+    private Object invoke(ProceedingJoinPoint ctx) throws Throwable {
         SecurityContext securityContext = AppContext.getSecurityContextNN();
         boolean internalInvocation = securityContext.incServiceInvocation() > 0;
         try {
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.cuba.core.app.EmailerConfig;
+import com.haulmont.cuba.core.global.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of connected and authenticated SMTP transports of {@link CubaMailSender}.
+ * <p>
+ * A connection is returned to the pool after use and is closed when it has sent
+ * {@code cuba.email.smtpMaxMessagesPerConnection} emails or has not been used for
+ * {@code cuba.email.smtpConnectionIdleTimeoutSec} seconds. If all {@code cuba.email.smtpConnectionPoolSize}
+ * connections are in use, {@link #borrow()} waits for a free one up to the SMTP connection timeout.
+ */
+@Component(SmtpConnectionPool.NAME)
+public class SmtpConnectionPool {
+
+    public static final String NAME = "cuba_SmtpConnectionPool";
+
+    private static final Logger log = LoggerFactory.getLogger(SmtpConnectionPool.class);
+
+    /**
+     * A connection which has not been used for this time is checked by the NOOP command before use.
+     */
+    protected static final long VALIDATION_INTERVAL_MS = 5000;
+
+    public static class Connection {
+        protected final Transport transport;
+        protected int sentMessages;
+        protected long lastUsed;
+
+        protected Connection(Transport transport) {
+            this.transport = transport;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        public void send(MimeMessage message) throws MessagingException {
+            transport.sendMessage(message, message.getAllRecipients());
+            sentMessages++;
+        }
+    }
+
+    protected JavaMailSenderImpl mailSender;
+
+    protected EmailerConfig config;
+
+    // most recently used connections first, guarded by this
+    protected final Deque<Connection> idleConnections = new ArrayDeque<>();
+
+    // guarded by this
+    protected int openConnections;
+
+    protected LongAdder openedConnections = new LongAdder();
+
+    @Resource(name = CubaMailSender.NAME)
+    public void setMailSender(JavaMailSenderImpl mailSender) {
+        this.mailSender = mailSender;
+    }
+
+    @Inject
+    public void setConfiguration(Configuration configuration) {
+        config = configuration.getConfig(EmailerConfig.class);
+    }
+
+    /**
+     * Takes a free connection from the pool or opens a new one. The connection must be returned by
+     * {@link #release(Connection, boolean)}.
+     *
+     * @throws MessagingException if unable to connect or no connection becomes free in time
+     */
+    public Connection borrow() throws MessagingException {
+        long deadline = System.currentTimeMillis() + config.getSmtpConnectionTimeoutSec() * 1000L;
+        while (true) {
+            Connection connection;
+            synchronized (this) {
+                connection = idleConnections.pollFirst();
+                if (connection == null) {
+                    if (openConnections < config.getSmtpConnectionPoolSize()) {
+                        openConnections++;
+                    } else {
+                        waitForConnection(deadline);
+                        continue;
+                    }
+                }
+            }
+            if (connection == null) {
+                try {
+                    return connect();
+                } catch (MessagingException | RuntimeException e) {
+                    connectionClosed();
+                    throw e;
+                }
+            }
+            if (isUsable(connection)) {
+                return connection;
+            }
+            discard(connection);
+        }
+    }
+
+    /**
+     * Returns the connection to the pool.
+     *
+     * @param reusable false if the connection is in an unknown state after an error and must be closed
+     */
+    public void release(Connection connection, boolean reusable) {
+        connection.lastUsed = System.currentTimeMillis();
+        if (reusable && connection.sentMessages < config.getSmtpMaxMessagesPerConnection()) {
+            synchronized (this) {
+                idleConnections.addFirst(connection);
+                notifyAll();
+            }
+        } else {
+            discard(connection);
+        }
+    }
+
+    /**
+     * Closes connections which have not been used for the idle timeout.
+     */
+    public void closeIdleConnections() {
+        long idleSince = System.currentTimeMillis() - config.getSmtpConnectionIdleTimeoutSec() * 1000L;
+        List<Connection> expired = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Connection> it = idleConnections.descendingIterator(); it.hasNext(); ) {
+                Connection connection = it.next();
+                if (connection.lastUsed >= idleSince)
+                    break;
+                it.remove();
+                expired.add(connection);
+            }
+        }
+        for (Connection connection : expired) {
+            discard(connection);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        List<Connection> connections;
+        synchronized (this) {
+            connections = new ArrayList<>(idleConnections);
+            idleConnections.clear();
+        }
+        for (Connection connection : connections) {
+            discard(connection);
+        }
+    }
+
+    /**
+     * @return total number of connections opened by the pool
+     */
+    public long getOpenedConnections() {
+        return openedConnections.sum();
+    }
+
+    public synchronized int getOpenConnections() {
+        return openConnections;
+    }
+
+    public synchronized int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    // called under the pool's monitor
+    protected void waitForConnection(long deadline) throws MessagingException {
+        long timeout = deadline - System.currentTimeMillis();
+        if (timeout <= 0) {
+            throw new MessagingException("No free SMTP connection in the pool");
+        }
+        try {
+            wait(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for SMTP connection");
+        }
+    }
+
+    protected Connection connect() throws MessagingException {
+        Transport transport = mailSender.getSession().getTransport(mailSender.getProtocol());
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        openedConnections.increment();
+        log.debug("Opened SMTP connection to {}:{}", mailSender.getHost(), mailSender.getPort());
+        return new Connection(transport);
+    }
+
+    protected boolean isUsable(Connection connection) {
+        long idleTime = System.currentTimeMillis() - connection.lastUsed;
+        if (idleTime > config.getSmtpConnectionIdleTimeoutSec() * 1000L)
+            return false;
+        return idleTime < VALIDATION_INTERVAL_MS || connection.transport.isConnected();
+    }
+
+    protected void discard(Connection connection) {
+        connectionClosed();
+        try {
+            connection.transport.close();
+        } catch (Exception e) {
+            log.debug("Error closing SMTP connection: {}", e.toString());
+        }
+    }
+
+    protected synchronized void connectionClosed() {
+        openConnections--;
+        notifyAll();
+    }
+}
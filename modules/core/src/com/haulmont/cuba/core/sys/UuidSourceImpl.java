@@ -23,7 +23,12 @@ import org.springframework.stereotype.Component;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Creates random UUIDs. Replaced by {@link TimeOrderedUuidSource} if the {@code cuba.uuidSource.timeOrdered}
+ * application property is {@code true}.
+ */
 @Component(UuidSource.NAME)
+@ConditionalOnAppProperty(property = "cuba.uuidSource.timeOrdered", value = "false", defaultValue = "false")
 public class UuidSourceImpl implements UuidSource {
 
     @Override
@@ -40,15 +40,21 @@ public class ConfigurationImpl implements Configuration, BeanFactoryPostProcesso
 
     protected Map<Class, ConfigHandler> cache = new ConcurrentHashMap<>();
 
+    protected Map<Class, Object> proxies = new ConcurrentHashMap<>();
+
     @Override
     public <T extends Config> T getConfig(Class<T> configInterface) {
-        ConfigHandler handler = cache.get(configInterface);
-        if (handler == null) {
-            handler = new ConfigHandler(new ConfigPersisterImpl(), configInterface);
-            cache.put(configInterface, handler);
+        Object proxy = proxies.get(configInterface);
+        if (proxy == null) {
+            ConfigHandler handler = cache.get(configInterface);
+            if (handler == null) {
+                handler = new ConfigHandler(new ConfigPersisterImpl(), configInterface);
+                cache.put(configInterface, handler);
+            }
+            ClassLoader classLoader = configInterface.getClassLoader();
+            proxy = Proxy.newProxyInstance(classLoader, new Class[]{configInterface}, handler);
+            proxies.put(configInterface, proxy);
         }
-        ClassLoader classLoader = configInterface.getClassLoader();
-        Object proxy = Proxy.newProxyInstance(classLoader, new Class[]{configInterface}, handler);
         return configInterface.cast(proxy);
     }
 
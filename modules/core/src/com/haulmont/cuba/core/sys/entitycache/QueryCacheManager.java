@@ -24,6 +24,8 @@ import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.ClusterMessageCodec;
+import com.haulmont.cuba.core.app.IdempotentClusterMessage;
 import com.haulmont.cuba.core.entity.BaseGenericIdEntity;
 import com.haulmont.cuba.core.global.Metadata;
 import com.haulmont.cuba.core.global.View;
@@ -35,7 +37,9 @@ import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.persistence.MappedSuperclass;
 import javax.persistence.TypedQuery;
-import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -71,6 +75,7 @@ public class QueryCacheManager {
                 }
             }
         });
+        clusterManager.registerCodec(new InvalidateQueryCacheMsgCodec());
     }
 
     /**
@@ -245,7 +250,7 @@ public class QueryCacheManager {
         return newRelatedTypes;
     }
 
-    protected static class InvalidateQueryCacheMsg implements Serializable {
+    public static class InvalidateQueryCacheMsg implements IdempotentClusterMessage {
         private static final long serialVersionUID = -9099037380378341477L;
 
         protected Set<String> typeNames;
@@ -263,5 +268,71 @@ public class QueryCacheManager {
         public InvalidateQueryCacheMsg(QueryKey queryKey) {
             this.queryKey = queryKey;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            InvalidateQueryCacheMsg that = (InvalidateQueryCacheMsg) o;
+            return invalidateAll == that.invalidateAll
+                    && Objects.equals(typeNames, that.typeNames)
+                    && Objects.equals(queryKey, that.queryKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(typeNames, queryKey, invalidateAll);
+        }
+    }
+
+    /**
+     * Encodes messages invalidating by type names. Messages containing query keys with arbitrary parameters
+     * are serialized.
+     */
+    public static class InvalidateQueryCacheMsgCodec implements ClusterMessageCodec<InvalidateQueryCacheMsg> {
+
+        @Override
+        public int getTypeId() {
+            return INVALIDATE_QUERY_CACHE_TYPE_ID;
+        }
+
+        @Override
+        public Class<InvalidateQueryCacheMsg> getMessageClass() {
+            return InvalidateQueryCacheMsg.class;
+        }
+
+        @Override
+        public boolean canEncode(InvalidateQueryCacheMsg message) {
+            return message.queryKey == null;
+        }
+
+        @Override
+        public void encode(InvalidateQueryCacheMsg message, DataOutput out) throws IOException {
+            out.writeBoolean(message.invalidateAll);
+            if (!message.invalidateAll) {
+                out.writeInt(message.typeNames != null ? message.typeNames.size() : -1);
+                if (message.typeNames != null) {
+                    for (String typeName : message.typeNames) {
+                        out.writeUTF(typeName);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public InvalidateQueryCacheMsg decode(DataInput in) throws IOException {
+            if (in.readBoolean()) {
+                return new InvalidateQueryCacheMsg(true);
+            }
+            int size = in.readInt();
+            Set<String> typeNames = null;
+            if (size >= 0) {
+                typeNames = new HashSet<>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    typeNames.add(in.readUTF());
+                }
+            }
+            return new InvalidateQueryCacheMsg(typeNames);
+        }
     }
 }
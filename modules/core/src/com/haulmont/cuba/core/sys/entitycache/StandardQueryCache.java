@@ -18,18 +18,19 @@ package com.haulmont.cuba.core.sys.entitycache;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -38,7 +39,8 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class StandardQueryCache implements QueryCache {
 
     protected Cache<QueryKey, QueryResult> data;
-    protected ConcurrentMap<String, CopyOnWriteArrayList<QueryKey>> typeIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<String, Set<QueryKey>> typeIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<UUID, QueryKey> idIndex = new ConcurrentHashMap<>();
     protected ReadWriteLock lock = new ReentrantReadWriteLock();
 
     @Inject
@@ -48,7 +50,27 @@ public class StandardQueryCache implements QueryCache {
 
     @PostConstruct
     protected void init() {
-        data = CacheBuilder.newBuilder().maximumSize(queryCacheConfig.getQueryCacheMaxSize()).build();
+        data = CacheBuilder.newBuilder()
+                .maximumSize(queryCacheConfig.getQueryCacheMaxSize())
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    /**
+     * Removes the key of an evicted or invalidated entry from the reverse indexes, so they contain live keys only.
+     */
+    protected void onRemoval(RemovalNotification<QueryKey, QueryResult> notification) {
+        QueryKey queryKey = notification.getKey();
+        if (queryKey == null) {
+            return;
+        }
+        // the id belongs to this key instance only, so it is pruned even if an equal key is cached again
+        idIndex.remove(queryKey.getId(), queryKey);
+        if (notification.getCause() == RemovalCause.REPLACED || data.asMap().containsKey(queryKey)) {
+            // the type index holds equal keys once, keep them for the cached entry
+            return;
+        }
+        removeFromTypeIndex(queryKey, notification.getValue());
     }
 
     @Override
@@ -61,30 +83,49 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
+            // drop an equal key stored earlier, so the cache keeps the key whose id is indexed
+            data.invalidate(queryKey);
             data.put(queryKey, queryResult);
+            addToIndex(queryKey, queryResult);
+            if (!data.asMap().containsKey(queryKey)) {
+                // evicted before it has been indexed
+                removeFromIndex(queryKey, queryResult);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
 
+    protected void addToIndex(QueryKey queryKey, QueryResult queryResult) {
+        idIndex.put(queryKey.getId(), queryKey);
+        for (String type : queryResult.getRelatedTypes()) {
+            typeIndex.computeIfAbsent(type, t -> ConcurrentHashMap.newKeySet()).add(queryKey);
+        }
+    }
+
+    protected void removeFromIndex(QueryKey queryKey, @Nullable QueryResult queryResult) {
+        idIndex.remove(queryKey.getId(), queryKey);
+        removeFromTypeIndex(queryKey, queryResult);
+    }
+
+    protected void removeFromTypeIndex(QueryKey queryKey, @Nullable QueryResult queryResult) {
+        if (queryResult != null && queryResult.getRelatedTypes() != null) {
             for (String type : queryResult.getRelatedTypes()) {
-                CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(type);
-                if (keys == null) {
-                    typeIndex.putIfAbsent(type, new CopyOnWriteArrayList<>());
-                    keys = typeIndex.get(type);
+                Set<QueryKey> keys = typeIndex.get(type);
+                if (keys != null) {
+                    keys.remove(queryKey);
                 }
-                keys.add(queryKey);
             }
-        } finally {
-            readLock.unlock();
         }
     }
 
     @Override
     public QueryKey findQueryKeyById(UUID queryId) {
-        Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-        for (QueryKey key : keys) {
-            if (Objects.equals(queryId, key.getId())) {
-                return key;
-            }
+        QueryKey key = idIndex.get(queryId);
+        if (key != null && !data.asMap().containsKey(key)) {
+            return null;
         }
-        return null;
+        return key;
     }
 
     @Override
@@ -104,10 +145,7 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-            if (keys == null) return;
-            log.debug("Invalidate cache for type {}", typeName);
-            Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
+            invalidateType(typeName);
         } finally {
             readLock.unlock();
         }
@@ -118,30 +156,32 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            typeNames.forEach(typeName -> {
-                        CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-                        if (keys == null) return;
-                        log.debug("Invalidate cache for type {}", typeName);
-                        Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
-                    }
-            );
+            typeNames.forEach(this::invalidateType);
         } finally {
             readLock.unlock();
         }
     }
 
+    protected void invalidateType(String typeName) {
+        Set<QueryKey> keys = typeIndex.get(typeName);
+        if (keys == null) return;
+        log.debug("Invalidate cache for type {}", typeName);
+        for (QueryKey key : keys) {
+            // the removal listener prunes the key from the indexes
+            data.invalidate(key);
+        }
+    }
+
     @Override
     public QueryKey invalidate(UUID queryId) {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-            for (QueryKey key : keys) {
-                if (Objects.equals(queryId, key.getId())) {
-                    log.debug("Invalidate query by identifier {}", queryId);
-                    data.invalidate(key);
-                    return key;
-                }
+            QueryKey key = idIndex.get(queryId);
+            if (key != null && data.asMap().containsKey(key)) {
+                log.debug("Invalidate query by identifier {}", queryId);
+                data.invalidate(key);
+                return key;
             }
         } finally {
             readLock.unlock();
@@ -157,6 +197,7 @@ public class StandardQueryCache implements QueryCache {
             log.debug("Invalidate all cache");
             data.invalidateAll();
             typeIndex.clear();
+            idIndex.clear();
         } finally {
             writeLock.unlock();
         }
@@ -30,6 +30,10 @@ public class ProxyCallableStatement extends ProxyPreparedStatement<CallableState
         super(statement, connection);
     }
 
+    public ProxyCallableStatement(CallableStatement statement, Connection connection, String sql) {
+        super(statement, connection, sql);
+    }
+
     @Override
     public void registerOutParameter(int parameterIndex, int sqlType) throws SQLException {
         statement.registerOutParameter(parameterIndex, sqlType);
@@ -16,7 +16,9 @@
 
 package com.haulmont.cuba.core.sys.jdbc;
 
+import javax.annotation.Nullable;
 import java.sql.*;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executor;
@@ -24,8 +26,39 @@ import java.util.concurrent.Executor;
 public class ProxyConnection implements Connection {
     protected Connection connection;
 
+    protected StatementProfiler profiler;
+
+    // numbers of executions of statements in the current transaction, used if the profiler is enabled
+    protected Map<StatementProfiler.StatementStat, int[]> executions;
+
     public ProxyConnection(Connection connection) {
+        this(connection, null);
+    }
+
+    public ProxyConnection(Connection connection, @Nullable StatementProfiler profiler) {
         this.connection = connection;
+        this.profiler = profiler;
+    }
+
+    @Nullable
+    public StatementProfiler getProfiler() {
+        return profiler;
+    }
+
+    protected void registerExecution(StatementProfiler.StatementStat stat) {
+        if (executions == null) {
+            executions = new HashMap<>();
+        }
+        int[] count = executions.computeIfAbsent(stat, k -> new int[1]);
+        count[0]++;
+    }
+
+    protected void finishTransaction() {
+        if (executions != null) {
+            Map<StatementProfiler.StatementStat, int[]> finished = executions;
+            executions = null;
+            profiler.transactionFinished(finished);
+        }
     }
 
     @Override
@@ -35,12 +68,12 @@ public class ProxyConnection implements Connection {
 
     @Override
     public PreparedStatement prepareStatement(String sql) throws SQLException {
-        return new ProxyPreparedStatement<>(connection.prepareStatement(sql), this);
+        return new ProxyPreparedStatement<>(connection.prepareStatement(sql), this, sql);
     }
 
     @Override
     public CallableStatement prepareCall(String sql) throws SQLException {
-        return new ProxyCallableStatement(connection.prepareCall(sql), this);
+        return new ProxyCallableStatement(connection.prepareCall(sql), this, sql);
     }
 
     @Override
@@ -60,17 +93,29 @@ public class ProxyConnection implements Connection {
 
     @Override
     public void commit() throws SQLException {
-        connection.commit();
+        try {
+            connection.commit();
+        } finally {
+            finishTransaction();
+        }
     }
 
     @Override
     public void rollback() throws SQLException {
-        connection.rollback();
+        try {
+            connection.rollback();
+        } finally {
+            finishTransaction();
+        }
     }
 
     @Override
     public void close() throws SQLException {
-        connection.close();
+        try {
+            connection.close();
+        } finally {
+            finishTransaction();
+        }
     }
 
     @Override
@@ -130,12 +175,12 @@ public class ProxyConnection implements Connection {
 
     @Override
     public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
-        return new ProxyPreparedStatement<>(connection.prepareStatement(sql, resultSetType, resultSetConcurrency), this);
+        return new ProxyPreparedStatement<>(connection.prepareStatement(sql, resultSetType, resultSetConcurrency), this, sql);
     }
 
     @Override
     public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
-        return new ProxyCallableStatement(connection.prepareCall(sql, resultSetType, resultSetConcurrency), this);
+        return new ProxyCallableStatement(connection.prepareCall(sql, resultSetType, resultSetConcurrency), this, sql);
     }
 
     @Override
@@ -185,27 +230,27 @@ public class ProxyConnection implements Connection {
 
     @Override
     public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
-        return new ProxyPreparedStatement<>(connection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability), this);
+        return new ProxyPreparedStatement<>(connection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability), this, sql);
     }
 
     @Override
     public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
-        return new ProxyCallableStatement(connection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability), this);
+        return new ProxyCallableStatement(connection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability), this, sql);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
-        return new ProxyPreparedStatement<>(connection.prepareStatement(sql, autoGeneratedKeys), this);
+        return new ProxyPreparedStatement<>(connection.prepareStatement(sql, autoGeneratedKeys), this, sql);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
-        return new ProxyPreparedStatement<>(connection.prepareStatement(sql, columnIndexes), this);
+        return new ProxyPreparedStatement<>(connection.prepareStatement(sql, columnIndexes), this, sql);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
-        return new ProxyPreparedStatement<>(connection.prepareStatement(sql, columnNames), this);
+        return new ProxyPreparedStatement<>(connection.prepareStatement(sql, columnNames), this, sql);
     }
 
     @Override
@@ -16,6 +16,7 @@
 
 package com.haulmont.cuba.core.sys.jdbc;
 
+import javax.annotation.Nullable;
 import javax.sql.DataSource;
 import java.io.PrintWriter;
 import java.sql.Connection;
@@ -26,18 +27,25 @@ import java.util.logging.Logger;
 public class ProxyDataSource implements DataSource {
     protected DataSource dataSource;
 
+    protected StatementProfiler profiler;
+
     public ProxyDataSource(DataSource dataSource) {
+        this(dataSource, null);
+    }
+
+    public ProxyDataSource(DataSource dataSource, @Nullable StatementProfiler profiler) {
         this.dataSource = dataSource;
+        this.profiler = profiler;
     }
 
     @Override
     public Connection getConnection() throws SQLException {
-        return new ProxyConnection(dataSource.getConnection());
+        return new ProxyConnection(dataSource.getConnection(), profiler);
     }
 
     @Override
     public Connection getConnection(String username, String password) throws SQLException {
-        return new ProxyConnection(dataSource.getConnection(username, password));
+        return new ProxyConnection(dataSource.getConnection(username, password), profiler);
     }
 
     @Override
@@ -25,23 +25,30 @@ import java.util.Calendar;
 
 public class ProxyPreparedStatement<T extends PreparedStatement> extends ProxyStatement<T> implements PreparedStatement {
 
+    protected String sql;
+
     public ProxyPreparedStatement(T statement, Connection connection) {
         super(statement, connection);
     }
 
+    public ProxyPreparedStatement(T statement, Connection connection, String sql) {
+        super(statement, connection);
+        this.sql = sql;
+    }
+
     @Override
     public ResultSet executeQuery() throws SQLException {
-        return executeSqlStatement(() -> statement.executeQuery());
+        return executeSqlStatement(sql, () -> statement.executeQuery());
     }
 
     @Override
     public int executeUpdate() throws SQLException {
-        return executeSqlStatement(() -> statement.executeUpdate());
+        return executeSqlStatement(sql, () -> statement.executeUpdate());
     }
 
     @Override
     public boolean execute() throws SQLException {
-        return executeSqlStatement(() -> statement.execute());
+        return executeSqlStatement(sql, () -> statement.execute());
     }
 
     @Override
@@ -303,4 +310,9 @@ public class ProxyPreparedStatement<T extends PreparedStatement> extends ProxySt
     public void setNClob(int parameterIndex, Reader reader) throws SQLException {
         statement.setNClob(parameterIndex, reader);
     }
+
+    @Override
+    protected String getBatchSql() {
+        return sql != null ? sql : super.getBatchSql();
+    }
 }
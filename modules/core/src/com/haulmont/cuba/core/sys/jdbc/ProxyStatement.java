@@ -20,11 +20,14 @@ import com.haulmont.cuba.core.app.execution.ExecutionContextHolder;
 import com.haulmont.cuba.core.app.execution.ExecutionContextImpl;
 import com.haulmont.cuba.core.app.execution.ResourceCanceledException;
 
+import javax.annotation.Nullable;
 import java.sql.*;
 
 public class ProxyStatement<T extends Statement> implements Statement {
     protected T statement;
     protected Connection connection;
+    // SQL of the first statement added to the batch, used for profiling
+    protected String batchSql;
 
     public ProxyStatement(T statement, Connection connection) {
         this.statement = statement;
@@ -33,12 +36,12 @@ public class ProxyStatement<T extends Statement> implements Statement {
 
     @Override
     public ResultSet executeQuery(String sql) throws SQLException {
-        return executeSqlStatement(() -> statement.executeQuery(sql));
+        return executeSqlStatement(sql, () -> statement.executeQuery(sql));
     }
 
     @Override
     public int executeUpdate(String sql) throws SQLException {
-        return executeSqlStatement(() -> statement.executeUpdate(sql));
+        return executeSqlStatement(sql, () -> statement.executeUpdate(sql));
     }
 
     @Override
@@ -103,7 +106,7 @@ public class ProxyStatement<T extends Statement> implements Statement {
 
     @Override
     public boolean execute(String sql) throws SQLException {
-        return executeSqlStatement(() -> statement.execute(sql));
+        return executeSqlStatement(sql, () -> statement.execute(sql));
     }
 
     @Override
@@ -154,16 +157,22 @@ public class ProxyStatement<T extends Statement> implements Statement {
     @Override
     public void addBatch(String sql) throws SQLException {
         statement.addBatch(sql);
+        if (batchSql == null) {
+            batchSql = sql;
+        }
     }
 
     @Override
     public void clearBatch() throws SQLException {
         statement.clearBatch();
+        batchSql = null;
     }
 
     @Override
     public int[] executeBatch() throws SQLException {
-        return executeSqlStatement(() -> statement.executeBatch());
+        String sql = getBatchSql();
+        batchSql = null;
+        return executeSqlStatement(sql, () -> statement.executeBatch());
     }
 
     @Override
@@ -183,32 +192,32 @@ public class ProxyStatement<T extends Statement> implements Statement {
 
     @Override
     public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
-        return executeSqlStatement(() -> statement.executeUpdate(sql, autoGeneratedKeys));
+        return executeSqlStatement(sql, () -> statement.executeUpdate(sql, autoGeneratedKeys));
     }
 
     @Override
     public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
-        return executeSqlStatement(() -> statement.executeUpdate(sql, columnIndexes));
+        return executeSqlStatement(sql, () -> statement.executeUpdate(sql, columnIndexes));
     }
 
     @Override
     public int executeUpdate(String sql, String[] columnNames) throws SQLException {
-        return executeSqlStatement(() -> statement.executeUpdate(sql, columnNames));
+        return executeSqlStatement(sql, () -> statement.executeUpdate(sql, columnNames));
     }
 
     @Override
     public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
-        return executeSqlStatement(() -> statement.execute(sql, autoGeneratedKeys));
+        return executeSqlStatement(sql, () -> statement.execute(sql, autoGeneratedKeys));
     }
 
     @Override
     public boolean execute(String sql, int[] columnIndexes) throws SQLException {
-        return executeSqlStatement(() -> statement.execute(sql, columnIndexes));
+        return executeSqlStatement(sql, () -> statement.execute(sql, columnIndexes));
     }
 
     @Override
     public boolean execute(String sql, String[] columnNames) throws SQLException {
-        return executeSqlStatement(() -> statement.execute(sql, columnNames));
+        return executeSqlStatement(sql, () -> statement.execute(sql, columnNames));
     }
 
     @Override
@@ -251,6 +260,35 @@ public class ProxyStatement<T extends Statement> implements Statement {
         return statement.isWrapperFor(iface);
     }
 
+    @Nullable
+    protected String getBatchSql() {
+        return batchSql;
+    }
+
+    /**
+     * Executes the statement registering it in the {@link StatementProfiler} if profiling is enabled.
+     */
+    protected <V> V executeSqlStatement(@Nullable String sql, SQLCallable<V> callable) throws SQLException {
+        StatementProfiler profiler = connection instanceof ProxyConnection ?
+                ((ProxyConnection) connection).getProfiler() : null;
+        if (profiler == null || !profiler.isEnabled() || sql == null) {
+            return executeSqlStatement(callable);
+        }
+
+        StatementProfiler.StatementStat stat = profiler.getStat(sql);
+        ((ProxyConnection) connection).registerExecution(stat);
+        long start = System.nanoTime();
+        V result;
+        try {
+            result = executeSqlStatement(callable);
+        } catch (SQLException | RuntimeException e) {
+            profiler.failed(stat, System.nanoTime() - start);
+            throw e;
+        }
+        //noinspection unchecked
+        return (V) profiler.executed(stat, sql, System.nanoTime() - start, result);
+    }
+
     protected <V> V executeSqlStatement(SQLCallable<V> callable) throws SQLException {
         ExecutionContextImpl currentWork = (ExecutionContextImpl) ExecutionContextHolder.getCurrentContext();
         if (currentWork == null) {
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.jdbc;
+
+import com.haulmont.cuba.core.app.ServerConfig;
+import com.haulmont.cuba.core.global.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Collects statistics of JDBC statements executed through {@link ProxyDataSource}, grouped by normalized SQL
+ * (literals replaced with {@code ?}, parameter lists of {@code in} collapsed).
+ * <p>
+ * Execution counts and times are registered for every statement. Fetched rows are counted only for a sample of
+ * queries defined by {@code cuba.jdbcProfiler.samplingRate}, because it requires wrapping the result set.
+ * Statements executed more than {@code cuba.jdbcProfiler.repeatedStatementThreshold} times in one transaction
+ * are reported to the log as a possible N+1 problem, statements running longer than
+ * {@code cuba.jdbcProfiler.slowStatementThresholdMs} are reported to the {@code ...StatementProfiler.SlowStatements}
+ * logger.
+ */
+@Component(StatementProfiler.NAME)
+public class StatementProfiler {
+
+    public static final String NAME = "cuba_StatementProfiler";
+
+    private static final Logger log = LoggerFactory.getLogger(StatementProfiler.class);
+
+    private static final Logger slowLog = LoggerFactory.getLogger(StatementProfiler.class.getName() + ".SlowStatements");
+
+    /**
+     * Statements beyond this number are accumulated in a single entry.
+     */
+    protected static final int MAX_STATEMENTS = 5000;
+
+    protected static final String OTHER_STATEMENTS = "<other statements>";
+
+    protected static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    protected static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?\\b");
+    protected static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    protected static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public static class StatementStat {
+
+        protected final String sql;
+
+        protected final LongAdder count = new LongAdder();
+        protected final LongAdder errorCount = new LongAdder();
+        protected final LongAdder totalTime = new LongAdder();
+        protected final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+        protected final LongAdder updatedRows = new LongAdder();
+        protected final LongAdder sampledQueries = new LongAdder();
+        protected final LongAdder sampledRows = new LongAdder();
+        protected final LongAdder batchCount = new LongAdder();
+        protected final LongAdder batchRows = new LongAdder();
+        protected final LongAccumulator maxBatchSize = new LongAccumulator(Math::max, 0);
+        protected final LongAdder repeatedInTransactionCount = new LongAdder();
+
+        public StatementStat(String sql) {
+            this.sql = sql;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getErrorCount() {
+            return errorCount.sum();
+        }
+
+        public double getTotalTimeMs() {
+            return totalTime.sum() / 1_000_000.0;
+        }
+
+        public double getMaxTimeMs() {
+            return maxTime.get() / 1_000_000.0;
+        }
+
+        public double getAverageTimeMs() {
+            long count = getCount();
+            return count == 0 ? 0 : getTotalTimeMs() / count;
+        }
+
+        public long getUpdatedRows() {
+            return updatedRows.sum();
+        }
+
+        /**
+         * @return average number of rows fetched by a query, calculated from sampled executions
+         */
+        public double getAverageFetchedRows() {
+            long sampled = sampledQueries.sum();
+            return sampled == 0 ? 0 : (double) sampledRows.sum() / sampled;
+        }
+
+        public long getBatchCount() {
+            return batchCount.sum();
+        }
+
+        public double getAverageBatchSize() {
+            long batches = getBatchCount();
+            return batches == 0 ? 0 : (double) batchRows.sum() / batches;
+        }
+
+        public long getMaxBatchSize() {
+            return maxBatchSize.get();
+        }
+
+        /**
+         * @return number of transactions where the statement was executed more times than the threshold
+         */
+        public long getRepeatedInTransactionCount() {
+            return repeatedInTransactionCount.sum();
+        }
+    }
+
+    protected volatile boolean enabled;
+
+    protected volatile int samplingRate;
+
+    protected volatile long slowStatementThresholdMs;
+
+    protected volatile int repeatedStatementThreshold;
+
+    protected final ConcurrentMap<String, String> normalizedSqlCache = new ConcurrentHashMap<>();
+
+    protected final ConcurrentMap<String, StatementStat> stats = new ConcurrentHashMap<>();
+
+    @Inject
+    protected void setConfiguration(Configuration configuration) {
+        ServerConfig config = configuration.getConfig(ServerConfig.class);
+        enabled = config.getJdbcProfilerEnabled();
+        samplingRate = config.getJdbcProfilerSamplingRate();
+        slowStatementThresholdMs = config.getJdbcProfilerSlowStatementThresholdMs();
+        repeatedStatementThreshold = config.getJdbcProfilerRepeatedStatementThreshold();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSamplingRate() {
+        return samplingRate;
+    }
+
+    public void setSamplingRate(int samplingRate) {
+        this.samplingRate = samplingRate;
+    }
+
+    public long getSlowStatementThresholdMs() {
+        return slowStatementThresholdMs;
+    }
+
+    public void setSlowStatementThresholdMs(long slowStatementThresholdMs) {
+        this.slowStatementThresholdMs = slowStatementThresholdMs;
+    }
+
+    public int getRepeatedStatementThreshold() {
+        return repeatedStatementThreshold;
+    }
+
+    public void setRepeatedStatementThreshold(int repeatedStatementThreshold) {
+        this.repeatedStatementThreshold = repeatedStatementThreshold;
+    }
+
+    public StatementStat getStat(String sql) {
+        String normalizedSql = normalizedSqlCache.get(sql);
+        if (normalizedSql == null) {
+            normalizedSql = normalize(sql);
+            if (normalizedSqlCache.size() < MAX_STATEMENTS * 2) {
+                normalizedSqlCache.put(sql, normalizedSql);
+            }
+        }
+        StatementStat stat = stats.get(normalizedSql);
+        if (stat == null) {
+            if (stats.size() >= MAX_STATEMENTS) {
+                normalizedSql = OTHER_STATEMENTS;
+            }
+            stat = stats.computeIfAbsent(normalizedSql, StatementStat::new);
+        }
+        return stat;
+    }
+
+    public List<StatementStat> getStats() {
+        return new ArrayList<>(stats.values());
+    }
+
+    public void clear() {
+        stats.clear();
+        normalizedSqlCache.clear();
+    }
+
+    protected String normalize(String sql) {
+        String result = STRING_LITERAL.matcher(sql).replaceAll("?");
+        result = NUMBER_LITERAL.matcher(result).replaceAll("?");
+        result = IN_LIST.matcher(result).replaceAll("IN (...)");
+        return WHITESPACE.matcher(result).replaceAll(" ").trim();
+    }
+
+    /**
+     * Registers an execution of a statement.
+     *
+     * @param result result of the execution: a result set, update count, array of batch update counts or null
+     * @return the result set to be returned to the caller, possibly wrapped to count rows
+     */
+    public Object executed(StatementStat stat, String sql, long time, Object result) {
+        stat.count.increment();
+        stat.totalTime.add(time);
+        stat.maxTime.accumulate(time);
+
+        long timeMs = TimeUnit.NANOSECONDS.toMillis(time);
+        long threshold = slowStatementThresholdMs;
+        if (threshold > 0 && timeMs >= threshold) {
+            slowLog.warn("Slow statement ({} ms): {}", timeMs, sql);
+        }
+
+        if (result instanceof ResultSet) {
+            int rate = samplingRate;
+            if (rate > 0 && (rate == 1 || ThreadLocalRandom.current().nextInt(rate) == 0)) {
+                stat.sampledQueries.increment();
+                return wrapResultSet((ResultSet) result, stat);
+            }
+        } else if (result instanceof Integer) {
+            stat.updatedRows.add(Math.max(0, (Integer) result));
+        } else if (result instanceof int[]) {
+            int[] counts = (int[]) result;
+            stat.batchCount.increment();
+            stat.batchRows.add(counts.length);
+            stat.maxBatchSize.accumulate(counts.length);
+            for (int count : counts) {
+                if (count > 0) {
+                    stat.updatedRows.add(count);
+                }
+            }
+        }
+        return result;
+    }
+
+    public void failed(StatementStat stat, long time) {
+        stat.count.increment();
+        stat.errorCount.increment();
+        stat.totalTime.add(time);
+    }
+
+    /**
+     * Reports statements executed too many times in a finished transaction.
+     *
+     * @param executions numbers of executions of statements in the transaction
+     */
+    public void transactionFinished(Map<StatementStat, int[]> executions) {
+        int threshold = repeatedStatementThreshold;
+        if (threshold <= 0)
+            return;
+        for (Map.Entry<StatementStat, int[]> entry : executions.entrySet()) {
+            int count = entry.getValue()[0];
+            if (count > threshold) {
+                StatementStat stat = entry.getKey();
+                stat.repeatedInTransactionCount.increment();
+                log.warn("Statement executed {} times in one transaction, consider loading the data at once: {}",
+                        count, stat.getSql());
+            }
+        }
+    }
+
+    protected ResultSet wrapResultSet(ResultSet resultSet, StatementStat stat) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class[]{ResultSet.class},
+                new RowCountingHandler(resultSet, stat));
+    }
+
+    protected static class RowCountingHandler implements InvocationHandler {
+
+        protected final ResultSet resultSet;
+        protected final StatementStat stat;
+        protected long rows;
+        protected boolean registered;
+
+        protected RowCountingHandler(ResultSet resultSet, StatementStat stat) {
+            this.resultSet = resultSet;
+            this.stat = stat;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            try {
+                result = method.invoke(resultSet, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            String name = method.getName();
+            if ("next".equals(name)) {
+                if ((Boolean) result) {
+                    rows++;
+                } else {
+                    register();
+                }
+            } else if ("close".equals(name)) {
+                register();
+            }
+            return result;
+        }
+
+        protected void register() {
+            if (!registered) {
+                registered = true;
+                stat.sampledRows.add(rows);
+            }
+        }
+    }
+}
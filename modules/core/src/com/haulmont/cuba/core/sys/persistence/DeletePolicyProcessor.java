@@ -16,13 +16,16 @@
  */
 package com.haulmont.cuba.core.sys.persistence;
 
+import com.google.common.collect.Lists;
 import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
 import com.haulmont.cuba.core.entity.SoftDelete;
 import com.haulmont.cuba.core.entity.annotation.OnDelete;
 import com.haulmont.cuba.core.entity.annotation.OnDeleteInverse;
@@ -37,17 +40,31 @@ import javax.inject.Inject;
 import java.sql.SQLException;
 import java.util.*;
 
+/**
+ * Processes {@link OnDelete} and {@link OnDeleteInverse} policies of soft-deleted entities.
+ * <p>
+ * Entities of the same class can be processed together: in this case each policy property is handled by one query
+ * per chunk of {@link #ID_CHUNK_SIZE} identifiers, and unfetched references are updated in JDBC batches.
+ */
 @Component(DeletePolicyProcessor.NAME)
 @Scope("prototype")
 public class DeletePolicyProcessor {
 
     public static final String NAME = "cuba_DeletePolicyProcessor";
 
+    /**
+     * Maximum number of identifiers passed to one query.
+     */
+    protected static final int ID_CHUNK_SIZE = 500;
+
     private final Logger log = LoggerFactory.getLogger(DeletePolicyProcessor.class);
 
     protected Entity entity;
+    protected List<Entity> entities;
+    protected Map<Object, Entity> entitiesById;
     protected MetaClass metaClass;
     protected String primaryKeyName;
+    protected boolean compositePrimaryKey;
 
     protected EntityManager entityManager;
 
@@ -57,14 +74,39 @@ public class DeletePolicyProcessor {
     @Inject
     protected Metadata metadata;
 
+    /**
+     * @return the first of the processed entities
+     */
     public Entity getEntity() {
         return entity;
     }
 
     public void setEntity(Entity entity) {
-        this.entity = entity;
+        setEntities(Collections.singletonList(entity));
+    }
+
+    public List<Entity> getEntities() {
+        return entities;
+    }
+
+    /**
+     * Sets entities to process. All entities must be instances of the same class.
+     */
+    public void setEntities(List<? extends Entity> entities) {
+        Preconditions.checkNotNullArgument(entities, "entities is null");
+        if (entities.isEmpty())
+            throw new IllegalArgumentException("entities is empty");
+
+        this.entities = new ArrayList<>(entities);
+        this.entity = this.entities.get(0);
         this.metaClass = metadata.getSession().getClass(entity.getClass());
         primaryKeyName = metadata.getTools().getPrimaryKeyName(metaClass);
+        compositePrimaryKey = metadata.getTools().hasCompositePrimaryKey(metaClass);
+
+        entitiesById = new HashMap<>();
+        for (Entity e : this.entities) {
+            entitiesById.put(getRealId(e.getId()), e);
+        }
 
         String storeName = metadata.getTools().getStoreName(metaClass);
         entityManager = persistence.getEntityManager(storeName == null ? Stores.MAIN : storeName);
@@ -137,129 +179,199 @@ public class DeletePolicyProcessor {
                         if (!isCollectionEmpty(property))
                             throw new DeletePolicyException(this.metaClass.getName(), metaClass.getName());
                     } else {
-                        Object value = getReference(entity, property);
-                        if (value != null)
+                        if (!getReferences(property).isEmpty())
                             throw new DeletePolicyException(this.metaClass.getName(), metaClass.getName());
                     }
                     break;
                 case CASCADE:
                     if (property.getRange().getCardinality().isMany()) {
-                        Collection<Entity> value = getCollection(property);
-                        if (value != null && !value.isEmpty()) {
-                            for (Entity e : value) {
-                                entityManager.remove(e);
-                            }
+                        for (Entity e : getCollection(property)) {
+                            entityManager.remove(e);
                         }
                     } else {
-                        Entity value = getReference(entity, property);
-                        if (value != null && checkIfEntityBelongsToMaster(property, value)) {
-                            if (!(value instanceof SoftDelete)) {
-                                if (PersistenceHelper.isLoaded(entity, property.getName())) {
-                                    entity.setValue(property.getName(), null);
-                                    entityManager.remove(value);
+                        List<Entity> notLoadedMasters = new ArrayList<>();
+                        List<Entity> notLoadedReferences = new ArrayList<>();
+                        for (Map.Entry<Entity, Entity> entry : getReferences(property).entrySet()) {
+                            Entity entity = entry.getKey();
+                            Entity value = entry.getValue();
+                            if (checkIfEntityBelongsToMaster(entity, property, value)) {
+                                if (!(value instanceof SoftDelete)) {
+                                    if (PersistenceHelper.isLoaded(entity, property.getName())) {
+                                        entity.setValue(property.getName(), null);
+                                        entityManager.remove(value);
+                                    } else {
+                                        notLoadedMasters.add(entity);
+                                        notLoadedReferences.add(value);
+                                    }
                                 } else {
-                                    hardDeleteNotLoadedReference(entity, property, value);
+                                    entityManager.remove(value);
                                 }
-                            } else {
-                                entityManager.remove(value);
                             }
                         }
+                        if (!notLoadedMasters.isEmpty()) {
+                            hardDeleteNotLoadedReferences(notLoadedMasters, property, notLoadedReferences);
+                        }
                     }
                     break;
                 case UNLINK:
                     if (property.getRange().getCardinality().isMany()) {
                         throw new UnsupportedOperationException("Unable to unlink nested collection items");
                     } else {
-                        setReferenceNull(entity, property);
+                        setReferenceNull(entities, property);
                     }
                     break;
             }
         }
     }
 
-    protected void hardDeleteNotLoadedReference(Entity entity, MetaProperty property, Entity reference) {
-        List<Runnable> list = persistence.getEntityManagerContext().getAttribute(PersistenceImpl.RUN_BEFORE_COMMIT_ATTR);
-        if (list == null) {
-            list = new ArrayList<>();
-            persistence.getEntityManagerContext().setAttribute(PersistenceImpl.RUN_BEFORE_COMMIT_ATTR, list);
-        }
-        list.add(() -> {
+    protected void hardDeleteNotLoadedReferences(List<Entity> masters, MetaProperty property, List<Entity> references) {
+        addBeforeCommitAction(() -> {
             MetadataTools metadataTools = metadata.getTools();
-            QueryRunner queryRunner = new QueryRunner();
             try {
                 String column = metadataTools.getDatabaseColumn(property);
                 if (column != null) { // is null for mapped-by property
                     String updateMasterSql = "update " + metadataTools.getDatabaseTable(metaClass)
                             + " set " + column + " = null where "
                             + metadataTools.getPrimaryKeyName(metaClass) + " = ?";
-                    log.debug("Hard delete unfetched reference: " + updateMasterSql + ", bind: [" + entity.getId() + "]");
-                    queryRunner.update(entityManager.getConnection(), updateMasterSql, persistence.getDbTypeConverter().getSqlObject(entity.getId()));
+                    executeBatch("Hard delete unfetched reference", updateMasterSql, masters);
                 }
 
                 MetaClass refMetaClass = property.getRange().asClass();
                 String deleteRefSql = "delete from " + metadataTools.getDatabaseTable(refMetaClass) + " where "
                         + metadataTools.getPrimaryKeyName(refMetaClass) + " = ?";
-                log.debug("Hard delete unfetched reference: " + deleteRefSql + ", bind: [" + reference.getId() + "]");
-                queryRunner.update(entityManager.getConnection(), deleteRefSql, persistence.getDbTypeConverter().getSqlObject(reference.getId()));
+                executeBatch("Hard delete unfetched reference", deleteRefSql, references);
             } catch (SQLException e) {
-                throw new RuntimeException("Error processing deletion of " + entity, e);
+                throw new RuntimeException("Error processing deletion of " + masters, e);
             }
         });
     }
 
-    protected void setReferenceNull(Entity entity, MetaProperty property) {
-        if (PersistenceHelper.isLoaded(entity, property.getName())) {
-            entity.setValue(property.getName(), null);
-        } else {
-            List<Runnable> list = persistence.getEntityManagerContext().getAttribute(PersistenceImpl.RUN_BEFORE_COMMIT_ATTR);
-            if (list == null) {
-                list = new ArrayList<>();
-                persistence.getEntityManagerContext().setAttribute(PersistenceImpl.RUN_BEFORE_COMMIT_ATTR, list);
+    protected void setReferenceNull(Collection<Entity> entities, MetaProperty property) {
+        List<Entity> notLoaded = new ArrayList<>();
+        for (Entity entity : entities) {
+            if (PersistenceHelper.isLoaded(entity, property.getName())) {
+                entity.setValue(property.getName(), null);
+            } else {
+                notLoaded.add(entity);
             }
-            list.add(() -> {
-                MetadataTools metadataTools = metadata.getTools();
-                MetaClass entityMetaClass = metadata.getClassNN(entity.getClass());
-                while (!entityMetaClass.equals(property.getDomain())) {
-                    MetaClass ancestor = entityMetaClass.getAncestor();
-                    if (ancestor == null)
-                        throw new IllegalStateException("Cannot determine a persistent entity for property " + property);
-                    if (metadataTools.isPersistent(ancestor)) {
-                        entityMetaClass = ancestor;
-                    } else {
-                        break;
-                    }
-                }
+        }
+        if (notLoaded.isEmpty())
+            return;
+
+        addBeforeCommitAction(() -> {
+            Map<MetaClass, List<Entity>> entitiesByMetaClass = new LinkedHashMap<>();
+            for (Entity entity : notLoaded) {
+                entitiesByMetaClass.computeIfAbsent(getPersistentMetaClass(entity, property), k -> new ArrayList<>())
+                        .add(entity);
+            }
+            MetadataTools metadataTools = metadata.getTools();
+            for (Map.Entry<MetaClass, List<Entity>> entry : entitiesByMetaClass.entrySet()) {
+                MetaClass entityMetaClass = entry.getKey();
                 String sql = "update " + metadataTools.getDatabaseTable(entityMetaClass)
                         + " set " + metadataTools.getDatabaseColumn(property) + " = null where "
                         + metadataTools.getPrimaryKeyName(entityMetaClass) + " = ?";
-                QueryRunner queryRunner = new QueryRunner();
                 try {
-                    log.debug("Set reference to null: " + sql + ", bind: [" + entity.getId() + "]");
-                    queryRunner.update(entityManager.getConnection(), sql, persistence.getDbTypeConverter().getSqlObject(entity.getId()));
+                    executeBatch("Set reference to null", sql, entry.getValue());
                 } catch (SQLException e) {
-                    throw new RuntimeException("Error processing deletion of " + entity, e);
+                    throw new RuntimeException("Error processing deletion of " + entry.getValue(), e);
                 }
-            });
+            }
+        });
+    }
+
+    protected MetaClass getPersistentMetaClass(Entity entity, MetaProperty property) {
+        MetadataTools metadataTools = metadata.getTools();
+        MetaClass entityMetaClass = metadata.getClassNN(entity.getClass());
+        while (!entityMetaClass.equals(property.getDomain())) {
+            MetaClass ancestor = entityMetaClass.getAncestor();
+            if (ancestor == null)
+                throw new IllegalStateException("Cannot determine a persistent entity for property " + property);
+            if (metadataTools.isPersistent(ancestor)) {
+                entityMetaClass = ancestor;
+            } else {
+                break;
+            }
+        }
+        return entityMetaClass;
+    }
+
+    protected void addBeforeCommitAction(Runnable action) {
+        List<Runnable> list = persistence.getEntityManagerContext().getAttribute(PersistenceImpl.RUN_BEFORE_COMMIT_ATTR);
+        if (list == null) {
+            list = new ArrayList<>();
+            persistence.getEntityManagerContext().setAttribute(PersistenceImpl.RUN_BEFORE_COMMIT_ATTR, list);
+        }
+        list.add(action);
+    }
+
+    /**
+     * Executes the SQL statement having one parameter for the identifier of each of the given entities.
+     */
+    protected void executeBatch(String description, String sql, List<Entity> entities) throws SQLException {
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        Object[][] params = new Object[entities.size()][];
+        for (int i = 0; i < entities.size(); i++) {
+            params[i] = new Object[]{converter.getSqlObject(entities.get(i).getId())};
+        }
+        if (log.isDebugEnabled()) {
+            List<Object> ids = new ArrayList<>(entities.size());
+            for (Entity entity : entities) {
+                ids.add(entity.getId());
+            }
+            log.debug(description + ": " + sql + ", bind: " + ids);
+        }
+        QueryRunner queryRunner = new QueryRunner();
+        if (params.length == 1) {
+            queryRunner.update(entityManager.getConnection(), sql, params[0]);
+        } else {
+            queryRunner.batch(entityManager.getConnection(), sql, params);
         }
     }
 
-    protected Entity getReference(Entity entity, MetaProperty property) {
-        if (PersistenceHelper.isLoaded(entity, property.getName()))
-            return entity.getValue(property.getName());
-        else {
-            Query query = entityManager.createQuery(
-                    "select e." + property.getName() + " from " + entity.getMetaClass().getName() + " e where e." + primaryKeyName + " = ?1");
-            query.setParameter(1, entity.getId());
-            Object refEntity = query.getFirstResult();
-            return (Entity) refEntity;
+    /**
+     * @return map of processed entities to not null values of the given reference attribute
+     */
+    protected Map<Entity, Entity> getReferences(MetaProperty property) {
+        Map<Entity, Entity> result = new LinkedHashMap<>();
+        List<Entity> notLoaded = new ArrayList<>();
+        for (Entity entity : entities) {
+            if (PersistenceHelper.isLoaded(entity, property.getName())) {
+                Entity value = entity.getValue(property.getName());
+                if (value != null)
+                    result.put(entity, value);
+            } else {
+                notLoaded.add(entity);
+            }
         }
+
+        for (List<Entity> chunk : getChunks(notLoaded)) {
+            if (chunk.size() == 1) {
+                Query query = entityManager.createQuery(
+                        "select e." + property.getName() + " from " + metaClass.getName() + " e where "
+                                + getIdCondition("e." + primaryKeyName, chunk));
+                setIdParameter(query, chunk);
+                Object refEntity = query.getFirstResult();
+                if (refEntity != null)
+                    result.put(chunk.get(0), (Entity) refEntity);
+            } else {
+                Query query = entityManager.createQuery(
+                        "select e." + primaryKeyName + ", e." + property.getName() + " from " + metaClass.getName()
+                                + " e where " + getIdCondition("e." + primaryKeyName, chunk));
+                setIdParameter(query, chunk);
+                List<Object[]> rows = query.getResultList();
+                for (Object[] row : rows) {
+                    result.put(entitiesById.get(row[0]), (Entity) row[1]);
+                }
+            }
+        }
+        return result;
     }
 
-    protected boolean checkIfEntityBelongsToMaster(MetaProperty property, Entity entityToRemove) {
+    protected boolean checkIfEntityBelongsToMaster(Entity master, MetaProperty property, Entity entityToRemove) {
         MetaProperty inverseProperty = property.getInverse();
         if (inverseProperty != null && !inverseProperty.getRange().getCardinality().isMany()) {
-            Entity master = entityToRemove.getValue(inverseProperty.getName());
-            return entity.equals(master);
+            Entity inverseValue = entityToRemove.getValue(inverseProperty.getName());
+            return master.equals(inverseValue);
         } else {
             return true;
         }
@@ -269,65 +381,98 @@ public class DeletePolicyProcessor {
         MetaProperty inverseProperty = property.getInverse();
         if (inverseProperty == null) {
             log.warn("Inverse property not found for property " + property);
-            Collection<Entity> value = entity.getValue(property.getName());
-            return value == null || value.isEmpty();
+            for (Entity entity : entities) {
+                Collection<Entity> value = entity.getValue(property.getName());
+                if (value != null && !value.isEmpty())
+                    return false;
+            }
+            return true;
         }
 
         String invPropName = inverseProperty.getName();
         String collectionPkName = metadata.getTools().getPrimaryKeyName(property.getRange().asClass());
 
-        String qlStr = "select e." + collectionPkName + " from " + property.getRange().asClass().getName() +
-                " e where e." + invPropName + "." + primaryKeyName + " = ?1";
-
-        Query query = entityManager.createQuery(qlStr);
-        query.setParameter(1, entity.getId());
-        query.setMaxResults(1);
-        List<Entity> list = query.getResultList();
+        for (List<Entity> chunk : getChunks(entities)) {
+            String qlStr = "select e." + collectionPkName + " from " + property.getRange().asClass().getName() +
+                    " e where " + getIdCondition("e." + invPropName + "." + primaryKeyName, chunk);
 
-        return list.isEmpty();
+            Query query = entityManager.createQuery(qlStr);
+            setIdParameter(query, chunk);
+            query.setMaxResults(1);
+            List<Entity> list = query.getResultList();
+            if (!list.isEmpty())
+                return false;
+        }
+        return true;
     }
 
     protected Collection<Entity> getCollection(MetaProperty property) {
         MetaProperty inverseProperty = property.getInverse();
         if (inverseProperty == null) {
             log.warn("Inverse property not found for property " + property);
-            Collection<Entity> value = entity.getValue(property.getName());
-            return value == null ? Collections.EMPTY_LIST : value;
+            List<Entity> result = new ArrayList<>();
+            for (Entity entity : entities) {
+                Collection<Entity> value = entity.getValue(property.getName());
+                if (value != null)
+                    result.addAll(value);
+            }
+            return result;
         }
 
         String invPropName = inverseProperty.getName();
-        String qlStr = "select e from " + property.getRange().asClass().getName() + " e where e." + invPropName + "." +
-                primaryKeyName + " = ?1";
-
-        Query query = entityManager.createQuery(qlStr);
-        query.setParameter(1, entity.getId());
-        List<Entity> list = query.getResultList();
+        String masterIdPath = "e." + invPropName + "." + primaryKeyName;
+        List<Entity> result = new ArrayList<>();
+        for (List<Entity> chunk : getChunks(entities)) {
+            if (chunk.size() == 1) {
+                Query query = entityManager.createQuery("select e from " + property.getRange().asClass().getName()
+                        + " e where " + getIdCondition(masterIdPath, chunk));
+                setIdParameter(query, chunk);
+                List<Entity> list = query.getResultList();
+                for (Entity item : list) {
+                    addCollectionItem(result, chunk.get(0), property, invPropName, item);
+                }
+            } else {
+                Query query = entityManager.createQuery("select e, " + masterIdPath + " from "
+                        + property.getRange().asClass().getName() + " e where " + getIdCondition(masterIdPath, chunk));
+                setIdParameter(query, chunk);
+                List<Object[]> rows = query.getResultList();
+                for (Object[] row : rows) {
+                    addCollectionItem(result, entitiesById.get(row[1]), property, invPropName, (Entity) row[0]);
+                }
+            }
+        }
+        return result;
+    }
 
+    protected void addCollectionItem(List<Entity> result, Entity master, MetaProperty property, String invPropName,
+                                     Entity item) {
         // If the property is not loaded, it means it was not modified and further check is not needed
-        if (!PersistenceHelper.isLoaded(entity, property.getName())) {
-            return list;
+        if (!PersistenceHelper.isLoaded(master, property.getName())) {
+            result.add(item);
+            return;
         }
         // Check whether the collection items still belong to the master entity, because they could be changed in the
         // current transaction that did not affect the database yet
-        List<Entity> result = new ArrayList<>(list.size());
-        for (Entity item : list) {
-            Entity master = item.getValue(invPropName);
-            if (entity.equals(master))
-                result.add(item);
-        }
-        return result;
+        Entity itemMaster = item.getValue(invPropName);
+        if (master.equals(itemMaster))
+            result.add(item);
     }
 
     protected boolean referenceExists(String entityName, MetaProperty property) {
-        String template = property.getRange().getCardinality().isMany() ?
-                "select count(e) from %s e join e.%s c where c." + primaryKeyName + "= ?1" :
-                "select count(e) from %s e where e.%s." + primaryKeyName + " = ?1";
-        String qstr = String.format(template, entityName, property.getName());
-        Query query = entityManager.createQuery(qstr);
-        query.setParameter(1, entity.getId());
-        query.setMaxResults(1);
-        Long count = (Long) query.getSingleResult();
-        return count > 0;
+        for (List<Entity> chunk : getChunks(entities)) {
+            String qstr = property.getRange().getCardinality().isMany() ?
+                    String.format("select count(e) from %s e join e.%s c where %s", entityName, property.getName(),
+                            getIdCondition("c." + primaryKeyName, chunk)) :
+                    String.format("select count(e) from %s e where %s", entityName,
+                            getIdCondition("e." + property.getName() + "." + primaryKeyName, chunk));
+            Query query = entityManager.createQuery(qstr);
+            setIdParameter(query, chunk);
+            query.setMaxResults(1);
+            Long count = (Long) query.getSingleResult();
+            if (count > 0)
+                return true;
+        }
+        return false;
     }
 
     protected boolean isPersistent(MetaClass metaClass) {
@@ -335,46 +480,78 @@ public class DeletePolicyProcessor {
     }
 
     protected void cascade(String entityName, MetaProperty property) {
-        String template = property.getRange().getCardinality().isMany() ?
-                "select e from %s e join e.%s c where c." + primaryKeyName + " = ?1" :
-                "select e from %s e where e.%s." + primaryKeyName + " = ?1";
-        String qstr = String.format(template, entityName, property.getName());
-        Query query = entityManager.createQuery(qstr);
-        query.setParameter(1, entity.getId());
-        List<Entity> list = query.getResultList();
-        for (Entity e : list) {
+        for (Entity e : getReferencingEntities(entityName, property)) {
             entityManager.remove(e);
         }
     }
 
     protected void unlink(String entityName, MetaProperty property) {
         if (metadata.getTools().isOwningSide(property)) {
-            String template = property.getRange().getCardinality().isMany() ?
-                    "select e from %s e join e.%s c where c." + primaryKeyName + " = ?1" :
-                    "select e from %s e where e.%s." + primaryKeyName + " = ?1";
-            String qstr = String.format(template, entityName, property.getName());
-            Query query = entityManager.createQuery(qstr);
-            query.setParameter(1, entity.getId());
-            List<Entity> list = query.getResultList();
-            for (Entity e : list) {
-                if (property.getRange().getCardinality().isMany()) {
+            List<Entity> list = getReferencingEntities(entityName, property);
+            if (property.getRange().getCardinality().isMany()) {
+                Set<Entity> removed = new HashSet<>(entities);
+                for (Entity e : list) {
                     Collection collection = e.getValue(property.getName());
                     if (collection != null) {
                         for (Iterator it = collection.iterator(); it.hasNext(); ) {
-                            if (entity.equals(it.next())) {
+                            if (removed.contains(it.next())) {
                                 it.remove();
                             }
                         }
                     }
-                } else {
-                    setReferenceNull(e, property);
                 }
+            } else {
+                setReferenceNull(list, property);
             }
         } else {
             MetaProperty inverseProp = property.getInverse();
             if (inverseProp != null && inverseProp.getDomain().equals(metaClass)) {
-                setReferenceNull(entity, inverseProp);
+                setReferenceNull(entities, inverseProp);
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @return instances of the given entity referencing any of the processed entities by the given property
+     */
+    protected List<Entity> getReferencingEntities(String entityName, MetaProperty property) {
+        Set<Entity> result = new LinkedHashSet<>();
+        for (List<Entity> chunk : getChunks(entities)) {
+            String qstr = property.getRange().getCardinality().isMany() ?
+                    String.format("select e from %s e join e.%s c where %s", entityName, property.getName(),
+                            getIdCondition("c." + primaryKeyName, chunk)) :
+                    String.format("select e from %s e where %s", entityName,
+                            getIdCondition("e." + property.getName() + "." + primaryKeyName, chunk));
+            Query query = entityManager.createQuery(qstr);
+            setIdParameter(query, chunk);
+            List<Entity> list = query.getResultList();
+            result.addAll(list);
+        }
+        return new ArrayList<>(result);
+    }
+
+    protected List<List<Entity>> getChunks(List<Entity> entities) {
+        // composite keys cannot be used in the 'in' condition
+        return Lists.partition(entities, compositePrimaryKey ? 1 : ID_CHUNK_SIZE);
+    }
+
+    protected String getIdCondition(String path, List<Entity> chunk) {
+        return chunk.size() == 1 ? path + " = :id" : path + " in :ids";
+    }
+
+    protected void setIdParameter(Query query, List<Entity> chunk) {
+        if (chunk.size() == 1) {
+            query.setParameter("id", chunk.get(0).getId());
+        } else {
+            List<Object> ids = new ArrayList<>(chunk.size());
+            for (Entity entity : chunk) {
+                ids.add(getRealId(entity.getId()));
+            }
+            query.setParameter("ids", ids);
+        }
+    }
+
+    protected Object getRealId(Object id) {
+        return id instanceof IdProxy ? ((IdProxy) id).getNN() : id;
+    }
+}
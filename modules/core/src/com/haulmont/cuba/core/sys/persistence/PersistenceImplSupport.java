@@ -20,6 +20,7 @@ package com.haulmont.cuba.core.sys.persistence;
 import com.google.common.base.Strings;
 import com.google.common.collect.Sets;
 import com.haulmont.bali.util.StackTrace;
+import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.app.FtsSender;
@@ -213,6 +214,7 @@ public class PersistenceImplSupport implements ApplicationContextAware {
             }
             possiblyChanged = result || possiblyChanged;
         }
+        visitor.afterVisit();
         if (!possiblyChanged)
             return;
 
@@ -250,6 +252,12 @@ public class PersistenceImplSupport implements ApplicationContextAware {
 
     public interface EntityVisitor {
         boolean visit(BaseGenericIdEntity entity);
+
+        /**
+         * Invoked after visiting a set of instances and before looking for instances added or changed as a result.
+         */
+        default void afterVisit() {
+        }
     }
 
     public static class ContainerResourceHolder extends ResourceHolderSupport {
@@ -418,6 +426,9 @@ public class PersistenceImplSupport implements ApplicationContextAware {
 
         private String storeName;
 
+        // soft-deleted instances grouped by class to process their delete policies together
+        private Map<MetaClass, List<Entity>> softDeleted = new LinkedHashMap<>();
+
         public OnCommitEntityVisitor(String storeName) {
             this.storeName = storeName;
         }
@@ -442,7 +453,7 @@ public class PersistenceImplSupport implements ApplicationContextAware {
                 entityListenerManager.fireListener(entity, EntityListenerType.BEFORE_DELETE, storeName);
                 entityLog.registerDelete(entity, true);
                 if ((entity instanceof SoftDelete))
-                    processDeletePolicy(entity);
+                    softDeleted.computeIfAbsent(entity.getMetaClass(), metaClass -> new ArrayList<>()).add(entity);
                 enqueueForFts(entity, FtsChangeType.DELETE);
                 ormCacheSupport.evictMasterEntity(entity, null);
                 return true;
@@ -489,9 +500,20 @@ public class PersistenceImplSupport implements ApplicationContextAware {
             }
         }
 
-        protected void processDeletePolicy(Entity entity) {
+        @Override
+        public void afterVisit() {
+            if (softDeleted.isEmpty())
+                return;
+            Map<MetaClass, List<Entity>> entities = softDeleted;
+            softDeleted = new LinkedHashMap<>();
+            for (List<Entity> list : entities.values()) {
+                processDeletePolicy(list);
+            }
+        }
+
+        protected void processDeletePolicy(List<Entity> entities) {
             DeletePolicyProcessor processor = AppBeans.get(DeletePolicyProcessor.NAME); // prototype
-            processor.setEntity(entity);
+            processor.setEntities(entities);
             processor.process();
         }
     }
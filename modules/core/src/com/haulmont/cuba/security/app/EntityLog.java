@@ -16,6 +16,7 @@
  */
 package com.haulmont.cuba.security.app;
 
+import com.haulmont.bali.db.QueryRunner;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.model.Instance;
@@ -30,19 +31,29 @@ import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.EntityManagerContext;
+import com.haulmont.cuba.core.sys.persistence.DbTypeConverter;
 import com.haulmont.cuba.core.sys.persistence.EntityAttributeChanges;
 import com.haulmont.cuba.security.entity.*;
 import org.apache.commons.lang.BooleanUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import javax.annotation.concurrent.GuardedBy;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
@@ -51,6 +62,10 @@ public class EntityLog implements EntityLogAPI {
 
     private final Logger log = LoggerFactory.getLogger(EntityLog.class);
 
+    protected static final String INSERT_SQL = "insert into SEC_ENTITY_LOG (ID, EVENT_TS, USER_ID, " +
+            "CHANGE_TYPE, ENTITY, ENTITY_ID, STRING_ENTITY_ID, INT_ENTITY_ID, LONG_ENTITY_ID, CHANGES) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     @Inject
     protected TimeSource timeSource;
     @Inject
@@ -81,6 +96,9 @@ public class EntityLog implements EntityLogAPI {
     protected ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     protected ThreadLocal<Boolean> entityLogSwitchedOn = new ThreadLocal<>();
 
+    protected volatile BlockingQueue<EntityLogItem> writeBehindQueue;
+    protected volatile Thread writeBehindThread;
+
     @Inject
     public EntityLog(Configuration configuration) {
         config = configuration.getConfig(EntityLogConfig.class);
@@ -102,33 +120,41 @@ public class EntityLog implements EntityLogAPI {
         List<EntityLogItem> items = context.getAttribute(EntityLog.class.getName());
         if (items == null || items.isEmpty())
             return;
+        context.setAttribute(EntityLog.class.getName(), null);
 
+        Map<Object, List<EntityLogItem>> itemsByEntityId = new LinkedHashMap<>();
         for (EntityLogItem item : items) {
-            List<EntityLogItem> sameEntityList = items.stream()
-                    .filter(entityLogItem -> entityLogItem.getObjectEntityId().equals(item.getObjectEntityId()))
-                    .collect(Collectors.toList());
+            itemsByEntityId.computeIfAbsent(item.getObjectEntityId(), id -> new ArrayList<>()).add(item);
+        }
+
+        List<EntityLogItem> itemsToSave = new ArrayList<>(itemsByEntityId.size());
+        for (List<EntityLogItem> sameEntityList : itemsByEntityId.values()) {
             EntityLogItem itemToSave = sameEntityList.get(0);
             computeChanges(itemToSave, sameEntityList);
-            saveItem(itemToSave);
+            itemsToSave.add(itemToSave);
         }
+        saveItems(itemsToSave);
     }
 
     private void computeChanges(EntityLogItem itemToSave, List<EntityLogItem> sameEntityList) {
-        Set<String> allAttributes = sameEntityList.stream()
-                .flatMap(entityLogItem -> entityLogItem.getAttributes().stream().map(EntityLogAttr::getName))
-                .collect(Collectors.toSet());
-
-        for (String attributeName : allAttributes) {
-            // old value from the first item
-            sameEntityList.get(0).getAttributes().stream()
-                    .filter(entityLogAttr -> entityLogAttr.getName().equals(attributeName))
-                    .findFirst()
-                    .ifPresent(entityLogAttr -> setAttributeOldValue(entityLogAttr, itemToSave));
-            // new value from the last item
-            sameEntityList.get(sameEntityList.size() - 1).getAttributes().stream()
-                    .filter(entityLogAttr -> entityLogAttr.getName().equals(attributeName))
-                    .findFirst()
-                    .ifPresent(entityLogAttr -> setAttributeNewValue(entityLogAttr, itemToSave));
+        // old values are taken from the first item which is itemToSave, new values from the last item
+        EntityLogItem lastItem = sameEntityList.get(sameEntityList.size() - 1);
+        if (lastItem != itemToSave) {
+            Map<String, EntityLogAttr> attributes = new HashMap<>();
+            for (EntityLogAttr attr : itemToSave.getAttributes()) {
+                attributes.put(attr.getName(), attr);
+            }
+            for (EntityLogAttr lastAttr : lastItem.getAttributes()) {
+                EntityLogAttr attr = attributes.get(lastAttr.getName());
+                if (attr == null) {
+                    attr = metadata.create(EntityLogAttr.class);
+                    attr.setName(lastAttr.getName());
+                    itemToSave.getAttributes().add(attr);
+                    attributes.put(attr.getName(), attr);
+                }
+                attr.setValue(lastAttr.getValue());
+                attr.setValueId(lastAttr.getValueId());
+            }
         }
 
         Properties properties = new Properties();
@@ -150,50 +176,170 @@ public class EntityLog implements EntityLogAPI {
         }
 
         if (itemToSave.getType() == EntityLogItem.Type.MODIFY) {
-            sameEntityList.stream()
-                    .filter(entityLogItem -> entityLogItem.getType() == EntityLogItem.Type.CREATE)
-                    .findFirst()
-                    .ifPresent(entityLogItem -> itemToSave.setType(EntityLogItem.Type.CREATE));
+            for (EntityLogItem entityLogItem : sameEntityList) {
+                if (entityLogItem.getType() == EntityLogItem.Type.CREATE) {
+                    itemToSave.setType(EntityLogItem.Type.CREATE);
+                    break;
+                }
+            }
         }
         itemToSave.setChanges(getChanges(properties));
     }
 
-    private void setAttributeOldValue(EntityLogAttr entityLogAttr, EntityLogItem itemToSave) {
-        EntityLogAttr attr = getAttrToSave(entityLogAttr, itemToSave);
-        attr.setOldValue(entityLogAttr.getOldValue());
-        attr.setOldValueId(entityLogAttr.getOldValueId());
+    protected void saveItems(List<EntityLogItem> items) {
+        if (config.getWriteBehindEnabled() && enqueueAfterCommit(items))
+            return;
+
+        List<EntityLogItem> mainStoreItems = new ArrayList<>(items.size());
+        List<EntityLogItem> otherStoreItems = new ArrayList<>();
+        for (EntityLogItem item : items) {
+            String storeName = metadataTools.getStoreName(metadata.getClassNN(item.getEntity()));
+            if (Stores.isMain(storeName)) {
+                mainStoreItems.add(item);
+            } else {
+                otherStoreItems.add(item);
+            }
+        }
+        if (!mainStoreItems.isEmpty()) {
+            writeItems(persistence.getEntityManager().getConnection(), mainStoreItems);
+        }
+        if (!otherStoreItems.isEmpty()) {
+            // Create a new transaction in main DB if we are saving an entity from additional data store
+            writeItemsInNewTransaction(otherStoreItems);
+        }
+    }
+
+    protected void writeItemsInNewTransaction(List<EntityLogItem> items) {
+        try (Transaction tx = persistence.createTransaction()) {
+            writeItems(persistence.getEntityManager().getConnection(), items);
+            tx.commit();
+        }
+    }
+
+    /**
+     * Inserts log records using JDBC batches of {@code cuba.entityLog.insertBatchSize} rows.
+     */
+    protected void writeItems(Connection connection, List<EntityLogItem> items) {
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        int uuidType = converter.getSqlType(UUID.class);
+        int dateType = converter.getSqlType(Date.class);
+        int[] paramTypes = new int[] {
+                uuidType, dateType, uuidType, Types.CHAR, Types.VARCHAR,
+                uuidType, Types.VARCHAR, Types.INTEGER, Types.BIGINT, Types.VARCHAR
+        };
+        int batchSize = Math.max(1, config.getInsertBatchSize());
+        QueryRunner runner = new QueryRunner();
+        try {
+            for (int i = 0; i < items.size(); i += batchSize) {
+                List<EntityLogItem> sublist = items.subList(i, Math.min(i + batchSize, items.size()));
+                Object[][] params = new Object[sublist.size()][];
+                for (int j = 0; j < sublist.size(); j++) {
+                    EntityLogItem item = sublist.get(j);
+                    ReferenceToEntity entityRef = item.getEntityRef();
+                    params[j] = new Object[] {
+                            converter.getSqlObject(item.getId()),
+                            converter.getSqlObject(item.getEventTs()),
+                            item.getUser() != null ? converter.getSqlObject(item.getUser().getId()) : null,
+                            item.getType().getId(),
+                            item.getEntity(),
+                            converter.getSqlObject(entityRef.getEntityId()),
+                            entityRef.getStringEntityId(),
+                            entityRef.getIntEntityId(),
+                            entityRef.getLongEntityId(),
+                            item.getChanges()
+                    };
+                }
+                runner.batch(connection, INSERT_SQL, params, paramTypes);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving entity log items", e);
+        }
+    }
+
+    /**
+     * Schedules the items to be passed to the background writer after the current transaction is committed.
+     *
+     * @return false if the items cannot be queued and must be saved synchronously
+     */
+    protected boolean enqueueAfterCommit(List<EntityLogItem> items) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return false;
+
+        BlockingQueue<EntityLogItem> queue = getWriteBehindQueue();
+        if (queue.remainingCapacity() < items.size())
+            return false;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                List<EntityLogItem> rejected = new ArrayList<>();
+                for (EntityLogItem item : items) {
+                    if (!queue.offer(item))
+                        rejected.add(item);
+                }
+                if (!rejected.isEmpty()) {
+                    log.debug("Entity log queue is full, saving {} items synchronously", rejected.size());
+                    writeItemsInNewTransaction(rejected);
+                }
+            }
+        });
+        return true;
+    }
+
+    protected BlockingQueue<EntityLogItem> getWriteBehindQueue() {
+        BlockingQueue<EntityLogItem> queue = writeBehindQueue;
+        if (queue == null) {
+            synchronized (this) {
+                queue = writeBehindQueue;
+                if (queue == null) {
+                    queue = new ArrayBlockingQueue<>(Math.max(1, config.getWriteBehindQueueCapacity()));
+                    writeBehindQueue = queue;
+                    writeBehindThread = new Thread(this::writeBehind, "EntityLogWriter");
+                    writeBehindThread.setDaemon(true);
+                    writeBehindThread.start();
+                }
+            }
+        }
+        return queue;
     }
 
-    private void setAttributeNewValue(EntityLogAttr entityLogAttr, EntityLogItem itemToSave) {
-        EntityLogAttr attr = getAttrToSave(entityLogAttr, itemToSave);
-        attr.setValue(entityLogAttr.getValue());
-        attr.setValueId(entityLogAttr.getValueId());
+    protected void writeBehind() {
+        BlockingQueue<EntityLogItem> queue = writeBehindQueue;
+        List<EntityLogItem> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, Math.max(1, config.getInsertBatchSize()) - 1);
+            } catch (InterruptedException e) {
+                // save everything left in the queue and stop
+                queue.drainTo(batch);
+                writeBatch(batch);
+                return;
+            }
+            writeBatch(batch);
+            batch.clear();
+        }
     }
 
-    private EntityLogAttr getAttrToSave(EntityLogAttr entityLogAttr, EntityLogItem itemToSave) {
-        EntityLogAttr attr = itemToSave.getAttributes().stream()
-                .filter(a -> a.getName().equals(entityLogAttr.getName()))
-                .findFirst()
-                .orElse(null);
-        if (attr == null) {
-            attr = metadata.create(EntityLogAttr.class);
-            attr.setName(entityLogAttr.getName());
-            itemToSave.getAttributes().add(attr);
+    protected void writeBatch(List<EntityLogItem> batch) {
+        if (batch.isEmpty())
+            return;
+        try {
+            writeItemsInNewTransaction(batch);
+        } catch (Exception e) {
+            log.error("Unable to save {} entity log items", batch.size(), e);
         }
-        return attr;
     }
 
-    private void saveItem(EntityLogItem item) {
-        String storeName = metadataTools.getStoreName(metadata.getClassNN(item.getEntity()));
-        if (Stores.isMain(storeName)) {
-            EntityManager em = persistence.getEntityManager();
-            em.persist(item);
-        } else {
-            // Create a new transaction in main DB if we are saving an entity from additional data store
-            try (Transaction tx = persistence.createTransaction()) {
-                EntityManager em = persistence.getEntityManager();
-                em.persist(item);
-                tx.commit();
+    @PreDestroy
+    protected void stopWriteBehind() {
+        Thread thread = writeBehindThread;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         }
     }
@@ -21,6 +21,7 @@ import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
+import com.haulmont.cuba.core.config.defaults.DefaultInt;
 
 /**
  * {@link com.haulmont.cuba.security.app.EntityLog} configuration parameters
@@ -35,4 +36,30 @@ public interface EntityLogConfig extends Config {
     @DefaultBoolean(true)
     boolean getEnabled();
     void setEnabled(boolean value);
+
+    /**
+     * @return maximum number of log records written to the database in one JDBC batch
+     */
+    @Property("cuba.entityLog.insertBatchSize")
+    @Source(type = SourceType.APP)
+    @DefaultInt(500)
+    int getInsertBatchSize();
+
+    /**
+     * @return Whether log records are written asynchronously after commit of the transaction that produced them.
+     * If false, the records are saved in the same transaction.
+     */
+    @Property("cuba.entityLog.writeBehind.enabled")
+    @Source(type = SourceType.APP)
+    @DefaultBoolean(false)
+    boolean getWriteBehindEnabled();
+
+    /**
+     * @return maximum number of log records waiting for the background writer. When the queue is full,
+     * records are saved synchronously.
+     */
+    @Property("cuba.entityLog.writeBehind.queueCapacity")
+    @Source(type = SourceType.APP)
+    @DefaultInt(10000)
+    int getWriteBehindQueueCapacity();
 }
\ No newline at end of file
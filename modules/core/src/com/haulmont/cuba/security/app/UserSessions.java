@@ -23,6 +23,7 @@ import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.core.global.Metadata;
 import com.haulmont.cuba.core.global.TimeSource;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
 import com.haulmont.cuba.security.entity.SessionAction;
 import com.haulmont.cuba.security.entity.User;
 import com.haulmont.cuba.security.entity.UserSessionEntity;
@@ -84,10 +85,55 @@ public class UserSessions implements UserSessionsAPI {
         }
     }
 
+    /**
+     * Cluster message carrying last usage timestamps of user sessions. Zero timestamp means the session is removed.
+     */
+    public static class UserSessionTouchMessage implements Serializable {
+        private static final long serialVersionUID = 3405946227218924218L;
+
+        // pairs of most and least significant bits of session ids
+        protected final long[] ids;
+        protected final long[] timestamps;
+
+        public UserSessionTouchMessage(Map<UUID, Long> touches) {
+            ids = new long[touches.size() * 2];
+            timestamps = new long[touches.size()];
+            int i = 0;
+            for (Map.Entry<UUID, Long> entry : touches.entrySet()) {
+                ids[i * 2] = entry.getKey().getMostSignificantBits();
+                ids[i * 2 + 1] = entry.getKey().getLeastSignificantBits();
+                timestamps[i] = entry.getValue();
+                i++;
+            }
+        }
+
+        public int size() {
+            return timestamps.length;
+        }
+
+        public UUID getId(int index) {
+            return new UUID(ids[index * 2], ids[index * 2 + 1]);
+        }
+
+        public long getTimestamp(int index) {
+            return timestamps[index];
+        }
+
+        @Override
+        public String toString() {
+            return "UserSessionTouchMessage{size=" + size() + "}";
+        }
+    }
+
+    // written at the beginning of the cluster state instead of the Java serialization stream header
+    protected static final int STATE_FORMAT_MAGIC = 0x43555331;
+
     private Logger log = LoggerFactory.getLogger(UserSessions.class);
 
     protected Map<UUID, UserSessionInfo> cache = new ConcurrentHashMap<>();
 
+    protected Map<UUID, Long> pendingTouches = new ConcurrentHashMap<>();
+
     protected volatile int expirationTimeout = 1800;
 
     protected volatile int sendTimeout = 10;
@@ -150,6 +196,25 @@ public class UserSessions implements UserSessionsAPI {
                     }
                 }
         );
+        this.clusterManager.addListener(
+                UserSessionTouchMessage.class,
+                new ClusterListener<UserSessionTouchMessage>() {
+
+                    @Override
+                    public void receive(UserSessionTouchMessage message) {
+                        receiveTouchMessage(message);
+                    }
+
+                    @Override
+                    public byte[] getState() {
+                        return null;
+                    }
+
+                    @Override
+                    public void setState(byte[] state) {
+                    }
+                }
+        );
     }
 
     protected void receiveClusterMessage(UserSessionInfo message) {
@@ -165,10 +230,56 @@ public class UserSessions implements UserSessionsAPI {
         }
     }
 
+    protected void receiveTouchMessage(UserSessionTouchMessage message) {
+        for (int i = 0; i < message.size(); i++) {
+            UUID id = message.getId(i);
+            long timestamp = message.getTimestamp(i);
+            if (timestamp == 0) {
+                log.debug("Removing session due to cluster message: {}", id);
+                removeSessionInfo(id);
+            } else {
+                UserSessionInfo usi = getSessionInfo(id);
+                if (usi != null && usi.lastUsedTs < timestamp) {
+                    usi.lastUsedTs = timestamp;
+                    putSessionInfo(id, usi);
+                }
+            }
+        }
+    }
+
     protected void receiveClusterState(byte[] state) {
         if (state == null || state.length == 0)
             return;
 
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(state));
+            if (in.readInt() != STATE_FORMAT_MAGIC) {
+                receiveSerializedClusterState(state);
+                return;
+            }
+            int size = in.readInt();
+            long[] since = new long[size];
+            long[] lastUsedTs = new long[size];
+            for (int i = 0; i < size; i++) {
+                since[i] = in.readLong();
+                lastUsedTs[i] = in.readLong();
+            }
+            @SuppressWarnings("unchecked")
+            List<UserSession> sessions = (List<UserSession>) SerializationSupport.getKryoSerialization().deserialize(in);
+            for (int i = 0; i < size; i++) {
+                UserSessionInfo usi = new UserSessionInfo(sessions.get(i), since[i]);
+                usi.lastUsedTs = lastUsedTs[i];
+                receiveClusterMessage(usi);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Error receiving state", e);
+        }
+    }
+
+    /**
+     * Reads the state in the format used before {@link #STATE_FORMAT_MAGIC} was introduced.
+     */
+    protected void receiveSerializedClusterState(byte[] state) {
         ByteArrayInputStream bis = new ByteArrayInputStream(state);
         try {
             ObjectInputStream ois = new ObjectInputStream(bis);
@@ -187,6 +298,33 @@ public class UserSessions implements UserSessionsAPI {
         if (infoList.isEmpty())
             return new byte[0];
 
+        if (!serverConfig.getUserSessionTouchReplication())
+            return sendSerializedClusterState(infoList);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(bos);
+            out.writeInt(STATE_FORMAT_MAGIC);
+            out.writeInt(infoList.size());
+            List<UserSession> sessions = new ArrayList<>(infoList.size());
+            for (UserSessionInfo usi : infoList) {
+                out.writeLong(usi.since);
+                out.writeLong(usi.lastUsedTs);
+                sessions.add(usi.session);
+            }
+            out.flush();
+            SerializationSupport.getKryoSerialization().serialize(sessions, bos);
+        } catch (IOException e) {
+            throw new RuntimeException("Error sending state", e);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Writes the state in the format used before {@link #STATE_FORMAT_MAGIC} was introduced, which is understood
+     * by nodes of previous versions.
+     */
+    protected byte[] sendSerializedClusterState(List<UserSessionInfo> infoList) {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
             ObjectOutputStream oos = new ObjectOutputStream(bos);
@@ -194,6 +332,7 @@ public class UserSessions implements UserSessionsAPI {
             for (UserSessionInfo usi : infoList) {
                 oos.writeObject(usi);
             }
+            oos.flush();
         } catch (IOException e) {
             throw new RuntimeException("Error sending state", e);
         }
@@ -218,8 +357,7 @@ public class UserSessions implements UserSessionsAPI {
         if (usi != null) {
             log.debug("Removed session: {}", usi);
             if (!session.isSystem()) {
-                usi.lastUsedTs = 0;
-                clusterManager.send(usi);
+                sendRemoval(usi);
             }
         }
     }
@@ -282,7 +420,11 @@ public class UserSessions implements UserSessionsAPI {
                 if (propagate && !usi.session.isSystem()) {
                     if (now > (usi.lastSentTs + sendTimeout * 1000)) {
                         usi.lastSentTs = now;
-                        clusterManager.send(usi);
+                        if (serverConfig.getUserSessionTouchReplication()) {
+                            pendingTouches.put(id, now);
+                        } else {
+                            clusterManager.send(usi);
+                        }
                     }
                 }
             }
@@ -361,8 +503,7 @@ public class UserSessions implements UserSessionsAPI {
         if (usi != null) {
             log.debug("Killed session: {}", usi);
 
-            usi.lastUsedTs = 0;
-            clusterManager.send(usi);
+            sendRemoval(usi);
         }
     }
 
@@ -391,6 +532,8 @@ public class UserSessions implements UserSessionsAPI {
                 .filter(info -> !info.session.isSystem() && now > (info.lastUsedTs + expirationTimeout * 1000))
                 .collect(Collectors.toList());
 
+        boolean touchReplication = serverConfig.getUserSessionTouchReplication();
+        Map<UUID, Long> removals = new HashMap<>();
         for (Iterator<UserSessionInfo> it = infoList.iterator(); it.hasNext();) {
             UserSessionInfo usi = it.next();
             log.debug("Removing session due to timeout: {}", usi);
@@ -400,6 +543,42 @@ public class UserSessions implements UserSessionsAPI {
             it.remove();
 
             usi.lastUsedTs = 0;
+            if (touchReplication) {
+                pendingTouches.remove(usi.session.getId());
+                removals.put(usi.session.getId(), 0L);
+            } else {
+                clusterManager.send(usi);
+            }
+        }
+        if (!removals.isEmpty()) {
+            clusterManager.send(new UserSessionTouchMessage(removals));
+        }
+    }
+
+    @Override
+    public void sendTouches() {
+        if (pendingTouches.isEmpty())
+            return;
+
+        Map<UUID, Long> touches = new HashMap<>();
+        for (Map.Entry<UUID, Long> entry : pendingTouches.entrySet()) {
+            if (pendingTouches.remove(entry.getKey(), entry.getValue())) {
+                touches.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!touches.isEmpty()) {
+            log.trace("Sending {} session touches", touches.size());
+            clusterManager.send(new UserSessionTouchMessage(touches));
+        }
+    }
+
+    protected void sendRemoval(UserSessionInfo usi) {
+        usi.lastUsedTs = 0;
+        if (serverConfig.getUserSessionTouchReplication()) {
+            UUID id = usi.session.getId();
+            pendingTouches.remove(id);
+            clusterManager.send(new UserSessionTouchMessage(Collections.singletonMap(id, 0L)));
+        } else {
             clusterManager.send(usi);
         }
     }
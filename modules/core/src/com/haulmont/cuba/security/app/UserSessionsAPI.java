@@ -184,4 +184,11 @@ public interface UserSessionsAPI extends UserSessionFinder {
      * Evict timed out sessions from the cache.
      */
     void processEviction();
+
+    /**
+     * INTERNAL.
+     *
+     * Send last usage timestamps of refreshed sessions to the cluster.
+     */
+    void sendTouches();
 }
\ No newline at end of file
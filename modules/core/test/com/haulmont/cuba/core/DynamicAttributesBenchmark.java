@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core;
+
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesManagerAPI;
+import com.haulmont.cuba.core.app.dynamicattributes.PropertyType;
+import com.haulmont.cuba.core.entity.Category;
+import com.haulmont.cuba.core.entity.CategoryAttribute;
+import com.haulmont.cuba.core.entity.CategoryAttributeValue;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.LoadContext;
+import com.haulmont.cuba.core.global.Metadata;
+import com.haulmont.cuba.security.entity.Group;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares fetching of dynamic attributes as managed entities with the read-only columnar loading.
+ * <p>
+ * Not included in the regular test run, execute it manually. JIT warm-up rounds are performed before measuring.
+ */
+public class DynamicAttributesBenchmark {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private static final int ENTITIES = 5000;
+    private static final int ATTRIBUTES = 15;
+    private static final int WARM_UP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    private DataManager dataManager;
+    private DynamicAttributesManagerAPI dynamicAttributesManager;
+
+    private Category category;
+    private List<CategoryAttribute> attributes = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        dataManager = AppBeans.get(DataManager.class);
+        dynamicAttributesManager = AppBeans.get(DynamicAttributesManagerAPI.class);
+        Metadata metadata = cont.metadata();
+
+        cont.persistence().runInTransaction(em -> {
+            category = metadata.create(Category.class);
+            category.setName("benchmark");
+            category.setEntityType("sec$Group");
+            em.persist(category);
+
+            for (int i = 0; i < ATTRIBUTES; i++) {
+                CategoryAttribute attribute = metadata.create(CategoryAttribute.class);
+                attribute.setName("benchmarkAttribute" + i);
+                attribute.setCode("benchmarkAttribute" + i);
+                attribute.setCategory(category);
+                attribute.setCategoryEntityType("sec$Group");
+                attribute.setDataType(i % 2 == 0 ? PropertyType.STRING : PropertyType.INTEGER);
+                em.persist(attribute);
+                attributes.add(attribute);
+            }
+        });
+
+        for (int n = 0; n < ENTITIES; n += 500) {
+            int from = n;
+            cont.persistence().runInTransaction(em -> {
+                for (int i = from; i < from + 500 && i < ENTITIES; i++) {
+                    Group group = metadata.create(Group.class);
+                    group.setName("benchmark" + i);
+                    em.persist(group);
+
+                    for (CategoryAttribute attribute : attributes) {
+                        CategoryAttributeValue value = metadata.create(CategoryAttributeValue.class);
+                        value.setCategoryAttribute(attribute);
+                        value.setCode(attribute.getCode());
+                        value.setObjectEntityId(group.getId());
+                        value.setValue(attribute.getDataType() == PropertyType.STRING ? "value" + i : (Object) i);
+                        em.persist(value);
+                    }
+                }
+            });
+        }
+
+        dynamicAttributesManager.loadCache();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        QueryRunner runner = new QueryRunner(cont.persistence().getDataSource());
+        runner.update("delete from SYS_ATTR_VALUE");
+        runner.update("delete from SEC_GROUP where NAME like 'benchmark%'");
+        runner.update("delete from SYS_CATEGORY_ATTR where CATEGORY_ID = ?", category.getId().toString());
+        cont.deleteRecord(category);
+        dynamicAttributesManager.loadCache();
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            run(false);
+            run(true);
+        }
+
+        long entitiesTime = 0;
+        long columnsTime = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            entitiesTime += run(false);
+            columnsTime += run(true);
+        }
+
+        System.out.printf("%d entities, %d attributes: entities %d ms, columns %d ms%n",
+                ENTITIES, ATTRIBUTES, entitiesTime / ROUNDS, columnsTime / ROUNDS);
+    }
+
+    private long run(boolean readOnly) {
+        LoadContext<Group> ctx = LoadContext.create(Group.class).setQuery(
+                LoadContext.createQuery("select g from sec$Group g where g.name like 'benchmark%'"));
+        List<Group> groups = dataManager.loadList(ctx);
+
+        long start = System.nanoTime();
+        dynamicAttributesManager.fetchDynamicAttributes(groups, Collections.emptySet(), readOnly);
+        // read all values as a table would do
+        int count = 0;
+        for (Group group : groups) {
+            for (CategoryAttribute attribute : attributes) {
+                if (group.getValue("+" + attribute.getCode()) != null) {
+                    count++;
+                }
+            }
+        }
+        long time = (System.nanoTime() - start) / 1_000_000;
+
+        if (count != ENTITIES * ATTRIBUTES)
+            throw new IllegalStateException("Unexpected number of values: " + count);
+        return time;
+    }
+}
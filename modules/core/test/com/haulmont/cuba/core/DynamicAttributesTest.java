@@ -18,6 +18,7 @@ package com.haulmont.cuba.core;
 
 import com.google.common.collect.Lists;
 import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributeValuesMap;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesManagerAPI;
 import com.haulmont.cuba.core.app.dynamicattributes.PropertyType;
 import com.haulmont.cuba.core.entity.Category;
@@ -30,10 +31,10 @@ import com.haulmont.cuba.security.entity.UserRole;
 import com.haulmont.cuba.testsupport.TestContainer;
 import org.junit.*;
 
+import java.util.Collections;
 import java.util.List;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 public class DynamicAttributesTest {
 
@@ -45,7 +46,7 @@ public class DynamicAttributesTest {
     protected DynamicAttributesManagerAPI dynamicAttributesManagerAPI;
 
     protected Category userCategory, userRoleCategory;
-    protected CategoryAttribute userAttribute, userRoleAttribute, userGroupAttribute, userGroupCollectionAttribute, userIntCollectionAttribute;
+    protected CategoryAttribute userAttribute, userRoleAttribute, userRoleGroupAttribute, userGroupAttribute, userGroupCollectionAttribute, userIntCollectionAttribute;
     protected Group group, group2;
 
     protected User user, user2;
@@ -86,6 +87,15 @@ public class DynamicAttributesTest {
             userRoleAttribute.setDataType(PropertyType.STRING);
             em.persist(userRoleAttribute);
 
+            userRoleGroupAttribute = metadata.create(CategoryAttribute.class);
+            userRoleGroupAttribute.setName("userRoleGroupAttribute");
+            userRoleGroupAttribute.setCode("userRoleGroupAttribute");
+            userRoleGroupAttribute.setCategory(userRoleCategory);
+            userRoleGroupAttribute.setCategoryEntityType("sec$UserRole");
+            userRoleGroupAttribute.setDataType(PropertyType.ENTITY);
+            userRoleGroupAttribute.setEntityClass("com.haulmont.cuba.security.entity.Group");
+            em.persist(userRoleGroupAttribute);
+
             group = metadata.create(Group.class);
             group.setName("group");
             em.persist(group);
@@ -162,6 +172,7 @@ public class DynamicAttributesTest {
 
         userRole = dataManager.load(LoadContext.create(UserRole.class).setId(userRole.getId()).setLoadDynamicAttributes(true));
         userRole.setValue("+userRoleAttribute", "userRole");
+        userRole.setValue("+userRoleGroupAttribute", group2);
         dataManager.commit(userRole);
     }
 
@@ -170,7 +181,7 @@ public class DynamicAttributesTest {
         QueryRunner runner = new QueryRunner(cont.persistence().getDataSource());
         runner.update("delete from SYS_ATTR_VALUE");
         cont.deleteRecord(userRole, role, user, user2, group, group2);
-        cont.deleteRecord(userAttribute, userRoleAttribute, userGroupAttribute, userGroupCollectionAttribute, userIntCollectionAttribute);
+        cont.deleteRecord(userAttribute, userRoleAttribute, userRoleGroupAttribute, userGroupAttribute, userGroupCollectionAttribute, userIntCollectionAttribute);
         cont.deleteRecord(userCategory, userRoleCategory);
     }
 
@@ -253,6 +264,42 @@ public class DynamicAttributesTest {
         assertTrue(intCollection.contains(3));
     }
 
+    @Test
+    public void testReadOnlyLoading() {
+        LoadContext<UserRole> ctx = LoadContext.create(UserRole.class).setQuery(
+                LoadContext.createQuery("select ur from sec$UserRole ur where ur.id = :id").setParameter("id", userRole.getId()));
+        List<UserRole> userRoles = dataManager.loadList(ctx);
+        dynamicAttributesManagerAPI.fetchDynamicAttributes(userRoles, Collections.emptySet(), true);
+
+        UserRole loadedUserRole = userRoles.get(0);
+        assertTrue(loadedUserRole.getDynamicAttributes() instanceof DynamicAttributeValuesMap);
+        assertEquals("userRole", loadedUserRole.getValue("+userRoleAttribute"));
+        assertEquals(group2, loadedUserRole.getValue("+userRoleGroupAttribute"));
+        assertEquals(2, loadedUserRole.getDynamicAttributes().size());
+
+        loadedUserRole.setValue("+userRoleAttribute", "changed");
+        dataManager.commit(loadedUserRole);
+
+        loadedUserRole = dataManager.load(LoadContext.create(UserRole.class).setId(userRole.getId()).setLoadDynamicAttributes(true));
+        assertEquals("changed", loadedUserRole.getValue("+userRoleAttribute"));
+        assertEquals(group2, loadedUserRole.getValue("+userRoleGroupAttribute"));
+    }
+
+    @Test
+    public void testReadOnlyLoadingWithCollectionAttributes() {
+        LoadContext<User> ctx = LoadContext.create(User.class).setQuery(
+                LoadContext.createQuery("select u from sec$User u where u.login like 'user%' order by u.login"));
+        List<User> users = dataManager.loadList(ctx);
+        dynamicAttributesManagerAPI.fetchDynamicAttributes(users, Collections.emptySet(), true);
+
+        User loadedUser = users.get(0);
+        assertFalse(loadedUser.getDynamicAttributes() instanceof DynamicAttributeValuesMap);
+        assertEquals("userName", loadedUser.getValue("+userAttribute"));
+        assertEquals(group, loadedUser.getValue("+userGroupAttribute"));
+        List<Group> groupsCollection = loadedUser.getValue("+userGroupCollectionAttribute");
+        assertEquals(2, groupsCollection.size());
+    }
+
     @Test
     public void testPropertyChangeListener() {
         User loadedUser = dataManager.load(LoadContext.create(User.class).setId(user.getId()).setLoadDynamicAttributes(true));
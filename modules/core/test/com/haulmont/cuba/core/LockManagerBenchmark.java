@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core;
+
+import com.haulmont.cuba.core.app.LockManagerAPI;
+import com.haulmont.cuba.core.entity.LockDescriptor;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Measures throughput of concurrent lock/unlock calls of {@link LockManagerAPI}.
+ * <p>
+ * Not included in the regular test run, execute it manually. JIT warm-up rounds are performed before measuring.
+ */
+public class LockManagerBenchmark {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private static final int THREADS = 16;
+    private static final int KEYS = 64;
+    private static final int ITERATIONS = 200_000;
+    private static final int WARM_UP_ROUNDS = 3;
+
+    private LockManagerAPI lockManager;
+
+    @Before
+    public void setUp() throws Exception {
+        cont.persistence().runInTransaction(em -> {
+            LockDescriptor lockDescriptor = cont.metadata().create(LockDescriptor.class);
+            lockDescriptor.setName("benchmark");
+            lockDescriptor.setTimeoutSec(300);
+            em.persist(lockDescriptor);
+        });
+
+        lockManager = AppBeans.get(LockManagerAPI.class);
+        lockManager.reloadConfiguration();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cont.persistence().runInTransaction(em -> {
+            em.createQuery("delete from sys$LockDescriptor d").executeUpdate();
+        });
+        lockManager.reloadConfiguration();
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+                run(executor);
+            }
+            long start = System.nanoTime();
+            int acquired = run(executor);
+            long time = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.printf("%d threads, %d lock/unlock calls each: %d ms, %d locks acquired%n",
+                    THREADS, ITERATIONS, time, acquired);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int run(ExecutorService executor) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                barrier.await();
+                int acquired = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    String id = String.valueOf((i + offset) % KEYS);
+                    if (lockManager.lock("benchmark", id) == null) {
+                        acquired++;
+                        lockManager.unlock("benchmark", id);
+                    }
+                }
+                return acquired;
+            }));
+        }
+        int acquired = 0;
+        for (Future<Integer> future : futures) {
+            acquired += future.get();
+        }
+        lockManager.expireLocks();
+        return acquired;
+    }
+}
@@ -28,6 +28,13 @@ import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
@@ -45,6 +52,11 @@ public class LockManagerTest {
             lockDescriptor.setName("sys$Server");
             lockDescriptor.setTimeoutSec(300);
             em.persist(lockDescriptor);
+
+            lockDescriptor = cont.metadata().create(LockDescriptor.class);
+            lockDescriptor.setName("testExpiring");
+            lockDescriptor.setTimeoutSec(1);
+            em.persist(lockDescriptor);
         });
 
         lockManager = AppBeans.get(LockManagerAPI.class);
@@ -73,5 +85,49 @@ public class LockManagerTest {
         lockInfo = lockManager.getLockInfo("sys$Server", entity.getId().toString());
         assertNull(lockInfo);
     }
-}
 
+    @Test
+    public void testConcurrentLock() throws Exception {
+        String id = UUID.randomUUID().toString();
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            AtomicInteger acquired = new AtomicInteger();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    if (lockManager.lock("sys$Server", id) == null) {
+                        acquired.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(1, acquired.get());
+        } finally {
+            executor.shutdownNow();
+            lockManager.unlock("sys$Server", id);
+        }
+    }
+
+    @Test
+    public void testExpireLocks() throws Exception {
+        String id = UUID.randomUUID().toString();
+
+        assertNull(lockManager.lock("testExpiring", id));
+        lockManager.expireLocks();
+        assertNotNull(lockManager.getLockInfo("testExpiring", id));
+
+        Thread.sleep(1500);
+        lockManager.expireLocks();
+        assertNull(lockManager.getLockInfo("testExpiring", id));
+
+        assertNull(lockManager.lock("testExpiring", id));
+        lockManager.unlock("testExpiring", id);
+        assertNull(lockManager.getLockInfo("testExpiring", id));
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.cuba.core.entity.*;
+import com.haulmont.cuba.core.entity.annotation.EmbeddedParameters;
+import com.haulmont.cuba.core.global.Metadata;
+import com.haulmont.cuba.core.global.MetadataTools;
+import com.haulmont.cuba.core.global.UuidProvider;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.security.entity.UserRole;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.annotation.PostConstruct;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Compares {@link Metadata#create(Class)} with the reflective instantiation performed on every call, as it was
+ * done before entity factories were introduced.
+ * <p>
+ * Not included in the regular test run, execute it manually. JIT warm-up rounds are performed before measuring.
+ */
+public class MetadataCreateBenchmark {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private static final int ENTITIES = 100_000;
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+
+    private static final Class[] ENTITY_CLASSES = {User.class, UserRole.class, CategoryAttribute.class};
+
+    private Metadata metadata;
+    private MetadataTools tools;
+
+    @Before
+    public void setUp() throws Exception {
+        metadata = cont.metadata();
+        tools = metadata.getTools();
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            run(false);
+            run(true);
+        }
+
+        long reflectiveTime = 0;
+        long factoryTime = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            reflectiveTime += run(false);
+            factoryTime += run(true);
+        }
+
+        System.out.printf("%d entities: reflective %d ms, factories %d ms%n",
+                ENTITIES, reflectiveTime / ROUNDS, factoryTime / ROUNDS);
+    }
+
+    private long run(boolean factories) throws Exception {
+        long start = System.nanoTime();
+        int count = 0;
+        for (int i = 0; i < ENTITIES; i++) {
+            Class entityClass = ENTITY_CLASSES[i % ENTITY_CLASSES.length];
+            Object entity = factories ? metadata.create(entityClass) : createReflectively(entityClass);
+            if (entity != null) {
+                count++;
+            }
+        }
+        long time = (System.nanoTime() - start) / 1_000_000;
+
+        if (count != ENTITIES)
+            throw new IllegalStateException("Unexpected number of entities: " + count);
+        return time;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object createReflectively(Class<?> entityClass) throws Exception {
+        Class<?> extClass = metadata.getExtendedEntities().getEffectiveClass(entityClass);
+        Entity entity = (Entity) extClass.newInstance();
+
+        MetaClass metaClass = metadata.getClassNN(entity.getClass());
+        if (entity instanceof BaseGenericIdEntity) {
+            MetaProperty primaryKeyProperty = tools.getPrimaryKeyProperty(metaClass);
+            if (primaryKeyProperty != null && tools.isEmbedded(primaryKeyProperty)) {
+                ((BaseGenericIdEntity) entity).setId(createReflectively(primaryKeyProperty.getRange().asClass().getJavaClass()));
+            }
+        }
+        if (entity instanceof HasUuid) {
+            ((HasUuid) entity).setUuid(UuidProvider.createUuid());
+        }
+
+        metaClass = metadata.getClassNN(entity.getClass());
+        for (MetaProperty property : metaClass.getProperties()) {
+            if (property.getRange().isClass() && tools.isEmbedded(property)) {
+                EmbeddedParameters embeddedParameters = property.getAnnotatedElement().getAnnotation(EmbeddedParameters.class);
+                if (embeddedParameters != null && !embeddedParameters.nullAllowed()) {
+                    entity.setValue(property.getName(), createReflectively(property.getRange().asClass().getJavaClass()));
+                }
+            }
+        }
+
+        List<Method> postConstructMethods = new ArrayList<>(4);
+        List<String> methodNames = new ArrayList<>(4);
+        Class clazz = entity.getClass();
+        while (clazz != Object.class) {
+            for (Method method : clazz.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(PostConstruct.class) && !methodNames.contains(method.getName())) {
+                    postConstructMethods.add(method);
+                    methodNames.add(method.getName());
+                }
+            }
+            clazz = clazz.getSuperclass();
+        }
+        ListIterator<Method> iterator = postConstructMethods.listIterator(postConstructMethods.size());
+        while (iterator.hasPrevious()) {
+            Method method = iterator.previous();
+            if (!method.isAccessible()) {
+                method.setAccessible(true);
+            }
+            method.invoke(entity);
+        }
+        return entity;
+    }
+}
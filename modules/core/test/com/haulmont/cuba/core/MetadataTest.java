@@ -21,6 +21,7 @@ import com.haulmont.chile.core.model.MetaModel;
 import com.haulmont.chile.core.model.Session;
 import com.haulmont.chile.core.model.utils.PrintUtils;
 import com.haulmont.cuba.core.entity.AbstractNotPersistentEntity;
+import com.haulmont.cuba.core.entity.CategoryAttribute;
 import com.haulmont.cuba.core.entity.Folder;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.LockInfo;
@@ -28,6 +29,8 @@ import com.haulmont.cuba.core.global.Metadata;
 import com.haulmont.cuba.core.global.MetadataTools;
 import com.haulmont.cuba.security.entity.*;
 import com.haulmont.cuba.testmodel.TestNotPersistentEntity;
+import com.haulmont.cuba.testmodel.primary_keys.CompositeKeyEntity;
+import com.haulmont.cuba.testmodel.primary_keys.JoinedLongIdFoo;
 import com.haulmont.cuba.testsupport.TestContainer;
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -122,4 +125,31 @@ public class MetadataTest {
 
         assertTrue(tools.isSystemLevel(metadata.getClassNN(SearchFolder.class)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCreate() throws Exception {
+        // UUID identifier and post-construct methods
+        CategoryAttribute attribute = metadata.create(CategoryAttribute.class);
+        assertNotNull(attribute.getId());
+        assertNotNull(attribute.getDefaultEntity());
+
+        CategoryAttribute attribute2 = metadata.create(CategoryAttribute.class);
+        assertNotEquals(attribute.getId(), attribute2.getId());
+        assertNotSame(attribute.getDefaultEntity(), attribute2.getDefaultEntity());
+
+        // embedded identifier
+        CompositeKeyEntity compositeKeyEntity = metadata.create(CompositeKeyEntity.class);
+        assertNotNull(compositeKeyEntity.getId());
+
+        // identifier generated by the root of JOINED inheritance
+        JoinedLongIdFoo foo1 = metadata.create(JoinedLongIdFoo.class);
+        JoinedLongIdFoo foo2 = (JoinedLongIdFoo) metadata.create(metadata.getClassNN(JoinedLongIdFoo.class));
+        assertNotNull(foo1.getId());
+        assertNotNull(foo2.getId());
+        assertNotEquals(foo1.getId(), foo2.getId());
+
+        // not persistent entity
+        TestNotPersistentEntity notPersistentEntity = metadata.create(TestNotPersistentEntity.class);
+        assertNotNull(notPersistentEntity.getId());
+    }
+}
@@ -20,11 +20,14 @@ package com.haulmont.cuba.core;
 import com.haulmont.bali.db.MapListHandler;
 import com.haulmont.bali.db.QueryRunner;
 import com.haulmont.cuba.core.app.DataService;
+import com.haulmont.cuba.core.app.queryresults.QueryResultsManagerAPI;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.QueryResult;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.LoadContext;
+import com.haulmont.cuba.core.global.UserSessionSource;
 import com.haulmont.cuba.core.global.View;
+import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.security.entity.Group;
 import com.haulmont.cuba.security.entity.User;
 import com.haulmont.cuba.testsupport.TestContainer;
@@ -38,6 +41,8 @@ import java.sql.SQLException;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 @SuppressWarnings("IncorrectCreateEntity")
 public class QueryResultTest {
@@ -218,6 +223,51 @@ public class QueryResultTest {
         assertEquals(5, entities.size());
     }
 
+    @Test
+    public void testQueriesInMemory() throws SQLException {
+        AppContext.setProperty("cuba.queryResults.inMemoryMaxSize", "20");
+        try {
+            DataService dataService = AppBeans.get(DataService.class);
+            LoadContext context;
+            List<Entity> entities;
+
+            LoadContext.Query query1 = new LoadContext.Query("select u from sec$User u where u.email like :email")
+                    .setParameter("email", "%aaa.com");
+
+            context = new LoadContext(User.class).setView(View.LOCAL);
+            LoadContext.Query query2 = context.setQueryString("select u from sec$User u where u.name like :name")
+                    .setParameter("name", "A-%");
+            context.getPrevQueries().add(query1);
+            context.setQueryKey(222);
+
+            entities = dataService.loadList(context);
+            assertEquals(10, entities.size());
+
+            context = new LoadContext(User.class).setView(View.LOCAL);
+            context.setQueryString("select u from sec$User u where u.firstName like :firstName")
+                    .setParameter("firstName", "C-%");
+            context.getPrevQueries().add(query1);
+            context.getPrevQueries().add(query2);
+            context.setQueryKey(222);
+
+            entities = dataService.loadList(context);
+            assertEquals(5, entities.size());
+
+            assertEquals(0, getQueryResults().size());
+
+            QueryResultsManagerAPI queryResultsManager = AppBeans.get(QueryResultsManagerAPI.NAME);
+            UserSessionSource userSessionSource = AppBeans.get(UserSessionSource.NAME);
+            List resultIds = queryResultsManager.getResultIds(userSessionSource.getUserSession().getId(), 222);
+            assertNotNull(resultIds);
+            assertEquals(10, resultIds.size());
+
+            queryResultsManager.deleteForCurrentSession();
+            assertNull(queryResultsManager.getResultIds(userSessionSource.getUserSession().getId(), 222));
+        } finally {
+            AppContext.setProperty("cuba.queryResults.inMemoryMaxSize", null);
+        }
+    }
+
     private List<Map<String, Object>> getQueryResults() throws SQLException {
         QueryRunner queryRunner = new QueryRunner(cont.persistence().getDataSource());
         return queryRunner.query("select * from SYS_QUERY_RESULT", new MapListHandler());
@@ -18,7 +18,9 @@ package com.haulmont.cuba.core;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
+import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.sys.QueryImpl;
+import com.haulmont.cuba.core.sys.QueryTransformationCache;
 import com.haulmont.cuba.security.entity.Group;
 import com.haulmont.cuba.security.entity.Role;
 import com.haulmont.cuba.security.entity.RoleType;
@@ -590,4 +592,36 @@ public class QueryTest {
             tx.end();
         }
     }
-}
+
+    @Test
+    public void testTransformationCache() throws Exception {
+        QueryTransformationCache transformationCache = AppBeans.get(QueryTransformationCache.NAME);
+        transformationCache.invalidateAll();
+        long hitCount = transformationCache.getStats().hitCount();
+
+        for (int i = 0; i < 2; i++) {
+            try (Transaction tx = cont.persistence().createTransaction()) {
+                EntityManager em = cont.persistence().getEntityManager();
+
+                // the same query text with different parameter values must not share the transformation result
+                TypedQuery<User> query = em.createQuery("select u from sec$User u where u.id in :ids", User.class);
+                query.setParameter("ids", Collections.emptyList());
+                assertTrue(query.getResultList().isEmpty());
+
+                query = em.createQuery("select u from sec$User u where u.id in :ids", User.class);
+                query.setParameter("ids", Arrays.asList(userId, user2Id));
+                assertEquals(2, query.getResultList().size());
+
+                query = em.createQuery("select u from sec$User u where u.name like :name", User.class);
+                query.setParameter("name", "(?i)%TESTUSER2%");
+                List<User> list = query.getResultList();
+                assertEquals(1, list.size());
+                assertEquals(user2Id, list.get(0).getId());
+
+                tx.commit();
+            }
+        }
+
+        assertTrue(transformationCache.getStats().hitCount() - hitCount >= 3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core;
+
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.global.UuidSource;
+import com.haulmont.cuba.core.sys.TimeOrderedUuidSource;
+import com.haulmont.cuba.core.sys.UuidSourceImpl;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Compares random and time-ordered UUID primary keys: insert throughput into the test HSQL database and the
+ * number of B-tree leaf pages and page splits of a simulated index.
+ * <p>
+ * Not included in the regular test run, execute it manually. JIT warm-up rounds are performed before measuring.
+ */
+public class UuidSourceBenchmark {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private static final int ROWS = 100_000;
+    private static final int BATCH_SIZE = 1000;
+    private static final int WARM_UP_ROUNDS = 2;
+    private static final int ROUNDS = 3;
+
+    // keys per leaf page of the simulated index
+    private static final int PAGE_CAPACITY = 100;
+
+    private QueryRunner runner;
+
+    @Before
+    public void setUp() throws Exception {
+        runner = new QueryRunner(cont.persistence().getDataSource());
+        runner.update("create table TEST_UUID_BENCHMARK (ID varchar(36) not null, NAME varchar(50), primary key (ID))");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        runner.update("drop table TEST_UUID_BENCHMARK");
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        UuidSource randomSource = new UuidSourceImpl();
+        UuidSource timeOrderedSource = new TimeOrderedUuidSource();
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            insert(randomSource);
+            insert(timeOrderedSource);
+        }
+
+        long randomTime = 0;
+        long timeOrderedTime = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            randomTime += insert(randomSource);
+            timeOrderedTime += insert(timeOrderedSource);
+        }
+
+        System.out.printf("%d rows: random %d rows/s, time-ordered %d rows/s%n",
+                ROWS, ROWS * 1000L * ROUNDS / Math.max(1, randomTime), ROWS * 1000L * ROUNDS / Math.max(1, timeOrderedTime));
+        System.out.println("random: " + simulateIndex(randomSource));
+        System.out.println("time-ordered: " + simulateIndex(timeOrderedSource));
+    }
+
+    private long insert(UuidSource source) throws Exception {
+        runner.update("delete from TEST_UUID_BENCHMARK");
+
+        long start = System.nanoTime();
+        try (Connection connection = cont.persistence().getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "insert into TEST_UUID_BENCHMARK (ID, NAME) values (?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                statement.setString(1, source.createUuid().toString());
+                statement.setString(2, "name" + i);
+                statement.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Inserts keys into a model of B-tree leaf pages. A full page is split in halves, except the rightmost page
+     * which receives keys appended to the end of the index: a new page is started in this case.
+     */
+    private String simulateIndex(UuidSource source) {
+        TreeMap<String, TreeSet<String>> pages = new TreeMap<>();
+        int splits = 0;
+        for (int i = 0; i < ROWS; i++) {
+            String key = source.createUuid().toString();
+            Map.Entry<String, TreeSet<String>> entry = pages.floorEntry(key);
+            if (entry == null) {
+                entry = pages.firstEntry();
+            }
+            if (entry == null) {
+                TreeSet<String> page = new TreeSet<>();
+                page.add(key);
+                pages.put(key, page);
+                continue;
+            }
+
+            TreeSet<String> page = entry.getValue();
+            if (page.size() < PAGE_CAPACITY) {
+                page.add(key);
+                if (key.compareTo(entry.getKey()) < 0) {
+                    pages.remove(entry.getKey());
+                    pages.put(key, page);
+                }
+                continue;
+            }
+
+            splits++;
+            if (entry.getKey().equals(pages.lastKey()) && key.compareTo(page.last()) > 0) {
+                TreeSet<String> newPage = new TreeSet<>();
+                newPage.add(key);
+                pages.put(key, newPage);
+            } else {
+                String middle = page.stream().skip(PAGE_CAPACITY / 2).findFirst().orElseThrow(IllegalStateException::new);
+                TreeSet<String> upper = new TreeSet<>(page.tailSet(middle, true));
+                page.removeAll(upper);
+                pages.put(middle, upper);
+                if (key.compareTo(middle) >= 0) {
+                    upper.add(key);
+                } else {
+                    page.add(key);
+                    if (key.compareTo(entry.getKey()) < 0) {
+                        pages.remove(entry.getKey());
+                        pages.put(key, page);
+                    }
+                }
+            }
+        }
+        return String.format("%d leaf pages, %d splits, %.0f%% average fill",
+                pages.size(), splits, ROWS * 100.0 / pages.size() / PAGE_CAPACITY);
+    }
+}
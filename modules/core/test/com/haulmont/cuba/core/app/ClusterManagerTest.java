@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.jgroups.JChannel;
+import org.junit.After;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ClusterManagerTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private TestClusterManager clusterManager;
+
+    @After
+    public void tearDown() throws Exception {
+        if (clusterManager != null && clusterManager.batchSender != null) {
+            clusterManager.batchSender.interrupt();
+            clusterManager.batchSender.join(1000);
+        }
+        if (clusterManager != null) {
+            clusterManager.executor.shutdown();
+        }
+        AppContext.setProperty("cuba.cluster.messageBatchingEnabled", null);
+        AppContext.setProperty("cuba.cluster.messageBatchWindowMs", null);
+        AppContext.setProperty("cuba.cluster.messageBatchMaxSize", null);
+    }
+
+    @Test
+    public void testFlushOnSize() throws Exception {
+        clusterManager = createClusterManager(60_000, 3);
+
+        clusterManager.send(new TestMessage("1"));
+        clusterManager.send(new TestMessage("2"));
+        clusterManager.send(new TestMessage("3"));
+        clusterManager.send(new TestMessage("4"));
+
+        List<Serializable> batch = clusterManager.batches.poll(5, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals(Arrays.asList(new TestMessage("1"), new TestMessage("2"), new TestMessage("3")), batch);
+
+        // the last message waits for the end of the window
+        assertNull(clusterManager.batches.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testFlushOnTime() throws Exception {
+        clusterManager = createClusterManager(100, 500);
+
+        long start = System.nanoTime();
+        clusterManager.send(new TestMessage("1"));
+        clusterManager.send(new TestMessage("2"));
+
+        List<Serializable> batch = clusterManager.batches.poll(5, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(Arrays.asList(new TestMessage("1"), new TestMessage("2")), batch);
+    }
+
+    @Test
+    public void testIdempotentMessagesAreCoalesced() throws Exception {
+        clusterManager = createClusterManager(200, 500);
+
+        clusterManager.send(new TestIdempotentMessage("a"));
+        clusterManager.send(new TestMessage("1"));
+        clusterManager.send(new TestIdempotentMessage("a"));
+        clusterManager.send(new TestIdempotentMessage("b"));
+        clusterManager.send(new TestMessage("1"));
+        clusterManager.send(new TestIdempotentMessage("a"));
+
+        List<Serializable> batch = clusterManager.batches.poll(5, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals(Arrays.asList(
+                new TestIdempotentMessage("a"),
+                new TestMessage("1"),
+                new TestIdempotentMessage("b"),
+                new TestMessage("1")), batch);
+    }
+
+    @Test
+    public void testRemainingMessagesAreSentOnStop() throws Exception {
+        clusterManager = createClusterManager(60_000, 500);
+
+        clusterManager.send(new TestMessage("1"));
+        clusterManager.send(new TestMessage("2"));
+
+        clusterManager.batchSender.interrupt();
+        clusterManager.batchSender.join(5000);
+        assertFalse(clusterManager.batchSender.isAlive());
+
+        List<Serializable> batch = clusterManager.batches.poll(0, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals(Arrays.asList(new TestMessage("1"), new TestMessage("2")), batch);
+    }
+
+    @Test
+    public void testSyncMessagesAreNotBatched() throws Exception {
+        clusterManager = createClusterManager(60_000, 500);
+
+        clusterManager.sendSync(new TestMessage("1"));
+
+        assertEquals(Collections.singletonList(new TestMessage("1")), clusterManager.batches.poll(0, TimeUnit.SECONDS));
+        assertEquals(1, clusterManager.syncSent);
+    }
+
+    private TestClusterManager createClusterManager(int windowMs, int maxSize) throws Exception {
+        AppContext.setProperty("cuba.cluster.messageBatchingEnabled", "true");
+        AppContext.setProperty("cuba.cluster.messageBatchWindowMs", String.valueOf(windowMs));
+        AppContext.setProperty("cuba.cluster.messageBatchMaxSize", String.valueOf(maxSize));
+
+        TestClusterManager clusterManager = new TestClusterManager();
+        clusterManager.clusterConfig = AppBeans.get(Configuration.class).getConfig(ClusterConfig.class);
+        clusterManager.init();
+        return clusterManager;
+    }
+
+    private static class TestClusterManager extends ClusterManager {
+
+        private final BlockingQueue<List<Serializable>> batches = new LinkedBlockingQueue<>();
+
+        private int syncSent;
+
+        private TestClusterManager() throws Exception {
+            // not connected, used only to pass the checks of a started cluster
+            channel = new JChannel(false);
+        }
+
+        @Override
+        protected byte[] encode(List<Serializable> messages) {
+            batches.add(new ArrayList<>(messages));
+            return new byte[0];
+        }
+
+        @Override
+        protected void sendBytes(byte[] bytes, boolean sync) {
+            if (sync) {
+                syncSent++;
+            }
+        }
+    }
+
+    private static class TestMessage implements Serializable {
+
+        private final String value;
+
+        private TestMessage(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestMessage && value.equals(((TestMessage) o).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "TestMessage{" + value + "}";
+        }
+    }
+
+    private static class TestIdempotentMessage implements IdempotentClusterMessage {
+
+        private final String value;
+
+        private TestIdempotentMessage(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestIdempotentMessage && value.equals(((TestIdempotentMessage) o).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "TestIdempotentMessage{" + value + "}";
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.google.common.collect.Sets;
+import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesManager;
+import com.haulmont.cuba.core.app.execution.ExecutionsImpl;
+import com.haulmont.cuba.core.global.LockInfo;
+import com.haulmont.cuba.core.sys.entitycache.QueryCacheManager;
+import com.haulmont.cuba.security.entity.User;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ClusterMessageCodecsTest {
+
+    public static class TestMessage implements Serializable {
+        protected final UUID id;
+        protected final String name;
+
+        public TestMessage(UUID id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    public static class TestMessageCodec implements ClusterMessageCodec<TestMessage> {
+
+        protected final int typeId;
+
+        public TestMessageCodec(int typeId) {
+            this.typeId = typeId;
+        }
+
+        @Override
+        public int getTypeId() {
+            return typeId;
+        }
+
+        @Override
+        public Class<TestMessage> getMessageClass() {
+            return TestMessage.class;
+        }
+
+        @Override
+        public void encode(TestMessage message, DataOutput out) throws IOException {
+            ClusterMessageCodecs.writeUuid(out, message.id);
+            ClusterMessageCodecs.writeNullableString(out, message.name);
+        }
+
+        @Override
+        public TestMessage decode(DataInput in) throws IOException {
+            return new TestMessage(ClusterMessageCodecs.readUuid(in), ClusterMessageCodecs.readNullableString(in));
+        }
+    }
+
+    @Test
+    public void testEncodeDecode() throws Exception {
+        ClusterMessageCodecs codecs = new ClusterMessageCodecs();
+        codecs.register(new TestMessageCodec(100));
+
+        List<TestMessage> messages = Arrays.asList(
+                new TestMessage(UUID.randomUUID(), "first"),
+                new TestMessage(UUID.randomUUID(), null));
+
+        int[] encodedBytes = new int[1];
+        byte[] bytes = codecs.encode(messages, (message, size, time) -> encodedBytes[0] += size);
+        // magic number, format version, number of messages and two messages of 1 + 1 + 16 + 1 + 2 + 5
+        // and 1 + 1 + 16 + 1 bytes
+        assertEquals(26 + 19, encodedBytes[0]);
+        assertEquals(4 + encodedBytes[0], bytes.length);
+        assertTrue(codecs.isPacket(bytes));
+
+        List<Serializable> received = new ArrayList<>();
+        int[] decodedBytes = new int[1];
+        codecs.decode(bytes, (message, size, time) -> {
+            received.add(message);
+            decodedBytes[0] += size;
+        });
+        assertEquals(encodedBytes[0], decodedBytes[0]);
+        assertEquals(2, received.size());
+        assertEquals(messages.get(0).id, ((TestMessage) received.get(0)).id);
+        assertEquals("first", ((TestMessage) received.get(0)).name);
+        assertEquals(messages.get(1).id, ((TestMessage) received.get(1)).id);
+        assertNull(((TestMessage) received.get(1)).name);
+    }
+
+    @Test
+    public void testUnknownType() throws Exception {
+        ClusterMessageCodecs sender = new ClusterMessageCodecs();
+        sender.register(new TestMessageCodec(100));
+        byte[] bytes = sender.encode(Arrays.asList(
+                new TestMessage(UUID.randomUUID(), "a"),
+                new TestMessage(UUID.randomUUID(), "b")), (message, size, time) -> {});
+
+        List<Serializable> received = new ArrayList<>();
+        new ClusterMessageCodecs().decode(bytes, (message, size, time) -> received.add(message));
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void testDuplicateTypeId() throws Exception {
+        ClusterMessageCodecs codecs = new ClusterMessageCodecs();
+        codecs.register(new TestMessageCodec(100));
+        // registering the same class again is allowed
+        codecs.register(new TestMessageCodec(100));
+
+        try {
+            codecs.register(new ClusterMessageCodec<String>() {
+                @Override
+                public int getTypeId() {
+                    return 100;
+                }
+
+                @Override
+                public Class<String> getMessageClass() {
+                    return String.class;
+                }
+
+                @Override
+                public void encode(String message, DataOutput out) throws IOException {
+                    out.writeUTF(message);
+                }
+
+                @Override
+                public String decode(DataInput in) throws IOException {
+                    return in.readUTF();
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testVarInt() throws Exception {
+        int[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE};
+        int[] sizes = {1, 1, 1, 2, 2, 3, 5};
+        for (int i = 0; i < values.length; i++) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ClusterMessageCodecs.writeVarInt(new DataOutputStream(bos), values[i]);
+            assertEquals(sizes[i], bos.size());
+            assertEquals(sizes[i], ClusterMessageCodecs.getVarIntSize(values[i]));
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bos.toByteArray()));
+            assertEquals(values[i], ClusterMessageCodecs.readVarInt(in));
+        }
+    }
+
+    @Test
+    public void testSerializedMessagesAreNotPackets() throws Exception {
+        ClusterMessageCodecs codecs = new ClusterMessageCodecs();
+        assertFalse(codecs.isPacket(serialize(new TestMessage(UUID.randomUUID(), "a"))));
+        assertFalse(codecs.isPacket(serialize(new ClusterManager.MessageBatch(
+                Arrays.asList(new TestMessage(UUID.randomUUID(), "a"), new TestMessage(UUID.randomUUID(), "b"))))));
+    }
+
+    @Test
+    public void testLockInfoCodec() throws Exception {
+        User user = new User();
+        user.setLogin("admin");
+        user.setName("Administrator");
+        LockInfo lockInfo = new LockInfo(user, "sec$User", UUID.randomUUID().toString(), new Date());
+
+        LockInfo received = roundTrip(new LockManager.LockInfoCodec(), lockInfo);
+        assertEquals(lockInfo.getEntityName(), received.getEntityName());
+        assertEquals(lockInfo.getEntityId(), received.getEntityId());
+        assertEquals(lockInfo.getSince(), received.getSince());
+        assertEquals(user.getId(), received.getUser().getId());
+        assertEquals("admin", received.getUser().getLogin());
+        assertEquals("Administrator", received.getUser().getName());
+
+        LockInfo noUser = roundTrip(new LockManager.LockInfoCodec(), new LockInfo(null, "sec$Role", null, new Date()));
+        assertNull(noUser.getUser());
+        assertNull(noUser.getEntityId());
+        assertEquals("sec$Role", noUser.getEntityName());
+    }
+
+    @Test
+    public void testInvalidateQueryCacheMsgCodec() throws Exception {
+        QueryCacheManager.InvalidateQueryCacheMsgCodec codec = new QueryCacheManager.InvalidateQueryCacheMsgCodec();
+
+        QueryCacheManager.InvalidateQueryCacheMsg byTypes =
+                new QueryCacheManager.InvalidateQueryCacheMsg(Sets.newHashSet("sec$User", "sec$Role"));
+        assertEquals(byTypes, roundTrip(codec, byTypes));
+
+        QueryCacheManager.InvalidateQueryCacheMsg all = new QueryCacheManager.InvalidateQueryCacheMsg(true);
+        assertEquals(all, roundTrip(codec, all));
+
+        QueryCacheManager.InvalidateQueryCacheMsg nullTypes =
+                new QueryCacheManager.InvalidateQueryCacheMsg((Set<String>) null);
+        assertEquals(nullTypes, roundTrip(codec, nullTypes));
+    }
+
+    @Test
+    public void testReloadCacheMsgCodec() throws Exception {
+        DynamicAttributesManager.ReloadCacheMsg message = new DynamicAttributesManager.ReloadCacheMsg();
+        assertEquals(message, roundTrip(new DynamicAttributesManager.ReloadCacheMsgCodec(), message));
+    }
+
+    @Test
+    public void testCancelExecutionMessageCodec() throws Exception {
+        ExecutionsImpl.CancelExecutionMessageCodec codec = new ExecutionsImpl.CancelExecutionMessageCodec();
+        ExecutionsImpl.CancelExecutionMessage message =
+                new ExecutionsImpl.CancelExecutionMessage(UUID.randomUUID(), "reports", null);
+
+        ExecutionsImpl.CancelExecutionMessage received = roundTrip(codec, message);
+        // the decoded message is encoded to the same bytes
+        assertArrayEquals(encode(codec, message), encode(codec, received));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Serializable> T roundTrip(ClusterMessageCodec<T> codec, T message) {
+        ClusterMessageCodecs codecs = new ClusterMessageCodecs();
+        codecs.register(codec);
+        byte[] bytes = codecs.encode(Collections.singletonList(message), (m, size, time) -> {});
+
+        List<Serializable> received = new ArrayList<>();
+        codecs.decode(bytes, (m, size, time) -> received.add(m));
+        assertEquals(1, received.size());
+        assertSame(codec.getMessageClass(), received.get(0).getClass());
+        return (T) received.get(0);
+    }
+
+    private byte[] serialize(Serializable object) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            out.writeObject(object);
+        }
+        return bos.toByteArray();
+    }
+
+    private <T extends Serializable> byte[] encode(ClusterMessageCodec<T> codec, T message) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        codec.encode(message, new DataOutputStream(bos));
+        return bos.toByteArray();
+    }
+}
@@ -22,8 +22,10 @@ import com.haulmont.cuba.core.entity.SendingAttachment;
 import com.haulmont.cuba.core.entity.SendingMessage;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.CubaMailSender;
+import com.haulmont.cuba.core.sys.SmtpConnectionPool;
 import com.haulmont.cuba.testsupport.TestContainer;
 import com.haulmont.cuba.testsupport.TestMailSender;
+import com.haulmont.cuba.testsupport.TestSmtpServer;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.time.DateUtils;
 import org.junit.Before;
@@ -274,6 +276,59 @@ public class EmailerTest {
         assertEquals(2, sendingMsg.getAttemptsCount().intValue());
     }
 
+    @Test
+    public void testPooledSending() throws Exception {
+        try (TestSmtpServer smtpServer = new TestSmtpServer()) {
+            usePooledSending(smtpServer);
+            try {
+                EmailInfo myInfo = new EmailInfo("first@example.com, second@example.com, third@example.com",
+                        "Test", "Test Email Body");
+                List<SendingMessage> messages = emailer.sendEmailAsync(myInfo);
+                assertEquals(3, messages.size());
+
+                emailer.processQueuedEmails();
+
+                assertTrue(testMailSender.isEmpty());
+                assertEquals(3, smtpServer.getMessages().size());
+                // both batches are sent over the same connection
+                assertEquals(1, smtpServer.getConnectionCount());
+
+                for (SendingMessage message : messages) {
+                    SendingMessage sendingMsg = reload(message);
+                    assertEquals(SendingStatus.SENT, sendingMsg.getStatus());
+                    assertEquals(1, sendingMsg.getAttemptsMade().intValue());
+                    assertNotNull(sendingMsg.getDateSent());
+                    assertEquals(emailerConfig.getEmailerUserLogin(), sendingMsg.getUpdatedBy());
+                }
+            } finally {
+                restoreSending();
+            }
+        }
+    }
+
+    @Test
+    public void testPooledSendingRejectedRecipient() throws Exception {
+        try (TestSmtpServer smtpServer = new TestSmtpServer()) {
+            usePooledSending(smtpServer);
+            try {
+                EmailInfo myInfo = new EmailInfo("rejected@example.com, accepted@example.com", "Test", "Test Email Body");
+                List<SendingMessage> messages = emailer.sendEmailAsync(myInfo);
+                assertEquals(2, messages.size());
+
+                emailer.processQueuedEmails();
+
+                assertEquals(1, smtpServer.getMessages().size());
+                assertEquals(Collections.singletonList("accepted@example.com"),
+                        smtpServer.getMessages().get(0).recipients);
+
+                assertEquals(SendingStatus.NOTSENT, reload(messages.get(0)).getStatus());
+                assertEquals(SendingStatus.SENT, reload(messages.get(1)).getStatus());
+            } finally {
+                restoreSending();
+            }
+        }
+    }
+
     @Test
     public void testSentFromSecondAttempt() throws Exception {
         doTestSentFromSecondAttempt(false);
@@ -577,6 +632,21 @@ public class EmailerTest {
     }
 
     /* Utility */
+    private void usePooledSending(TestSmtpServer smtpServer) {
+        emailerConfig.setSmtpHost("localhost");
+        emailerConfig.setSmtpPort(smtpServer.getPort());
+        emailerConfig.setSendingBatchSize(2);
+        emailerConfig.setSmtpConnectionPoolEnabled(true);
+    }
+
+    private void restoreSending() {
+        emailerConfig.setSmtpConnectionPoolEnabled(false);
+        emailerConfig.setSmtpHost("test.host");
+        emailerConfig.setSmtpPort(25);
+        SmtpConnectionPool connectionPool = AppBeans.get(SmtpConnectionPool.NAME);
+        connectionPool.close();
+    }
+
     private Date getDeadlineWhichDoesntMatter() {
         return DateUtils.addHours(timeSource.currentTimestamp(), 2);
     }
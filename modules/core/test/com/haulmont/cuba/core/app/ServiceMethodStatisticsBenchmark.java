@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Measures the overhead of recording service method statistics in {@code ServiceInterceptor}: invocations of
+ * a trivial method are compared with and without recording by one thread per available processor.
+ * <p>
+ * Run the {@code main} method with the test classpath; JIT warm-up rounds are performed before measuring.
+ */
+public class ServiceMethodStatisticsBenchmark {
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int ITERATIONS = 5_000_000;
+    private static final int WARM_UP_ROUNDS = 5;
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        ServiceMethodStatistics statistics = new ServiceMethodStatistics();
+        Method[] methods = {
+                String.class.getMethod("length"),
+                String.class.getMethod("hashCode"),
+                String.class.getMethod("isEmpty")
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+                run(executor, statistics, methods, false);
+                run(executor, statistics, methods, true);
+            }
+
+            long plain = run(executor, statistics, methods, false);
+            long recorded = run(executor, statistics, methods, true);
+            System.out.printf("%d threads, %d invocations each%n", THREADS, ITERATIONS);
+            System.out.printf("without statistics: %d ms%n", plain);
+            System.out.printf("with statistics:    %d ms (%.1f ns per invocation)%n", recorded,
+                    (recorded - plain) * 1_000_000.0 / ITERATIONS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long run(ExecutorService executor, ServiceMethodStatistics statistics, Method[] methods,
+                            boolean record) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(THREADS + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                barrier.await();
+                long sum = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    if (record) {
+                        ServiceMethodStatistics.MethodStat stat = statistics.getMethodStat(methods[i % methods.length]);
+                        long start = stat.started();
+                        sum += invoke(i);
+                        stat.finished(start, true);
+                    } else {
+                        sum += invoke(i);
+                    }
+                }
+                sink += sum;
+                return null;
+            }));
+        }
+        barrier.await();
+        long start = System.nanoTime();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static long invoke(int i) {
+        return Integer.toString(i).length();
+    }
+}
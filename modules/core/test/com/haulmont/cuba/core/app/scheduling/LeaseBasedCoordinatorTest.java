@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.app.scheduling;
+
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.entity.ScheduledTask;
+import com.haulmont.cuba.core.entity.ScheduledTaskDefinedBy;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class LeaseBasedCoordinatorTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private UUID taskId;
+
+    private LeaseBasedCoordinator coordinator;
+
+    @Before
+    public void setUp() throws Exception {
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            EntityManager em = cont.persistence().getEntityManager();
+            ScheduledTask task = cont.metadata().create(ScheduledTask.class);
+            task.setDefinedBy(ScheduledTaskDefinedBy.BEAN);
+            task.setBeanName("cuba_TestBean");
+            task.setMethodName("run");
+            task.setActive(true);
+            task.setSingleton(true);
+            task.setPeriod(10);
+            em.persist(task);
+            taskId = task.getId();
+            tx.commit();
+        }
+
+        coordinator = new LeaseBasedCoordinator();
+        coordinator.persistence = cont.persistence();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cont.deleteRecord("SYS_SCHEDULED_TASK", taskId);
+    }
+
+    @Test
+    public void testClaim() throws Exception {
+        ScheduledTask task1 = findTask();
+        ScheduledTask task2 = findTask();
+        long now = System.currentTimeMillis();
+
+        assertTrue(coordinator.claimTask(task1, now, "server1"));
+        assertEquals(now, task1.getLastStart());
+        // the second server has read the task before it was claimed
+        assertFalse(coordinator.claimTask(task2, now, "server2"));
+
+        ScheduledTask task = findTask();
+        assertEquals("server1", task.getLastStartServer());
+        assertFalse(coordinator.isLastExecutionFinished(task, now));
+
+        coordinator.registerFinish(task, now + 1000);
+
+        task = findTask();
+        assertEquals(now + 1000, coordinator.getLastFinished(task));
+        assertTrue(coordinator.isLastExecutionFinished(task, now + 2000));
+
+        assertTrue(coordinator.claimTask(task, now + 10000, "server2"));
+    }
+
+    private ScheduledTask findTask() {
+        Coordinator.Context context = coordinator.begin();
+        coordinator.end(context);
+        for (ScheduledTask task : context.getTasks()) {
+            if (task.getId().equals(taskId))
+                return task;
+        }
+        throw new IllegalStateException("Task not found");
+    }
+}
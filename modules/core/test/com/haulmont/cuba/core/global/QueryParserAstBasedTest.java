@@ -367,6 +367,20 @@ public class QueryParserAstBasedTest {
         assertFalse(parser.hasJoins());
     }
 
+    @Test
+    public void testHasOrderBy() throws Exception {
+        DomainModel model = prepareDomainModel();
+        QueryParserAstBased parser = new QueryParserAstBased(model,
+                "select u from sec$User u order by u.login"
+        );
+        assertTrue(parser.hasOrderBy());
+
+        parser = new QueryParserAstBased(model,
+                "select u from sec$User u where u.login = 'order by'"
+        );
+        assertFalse(parser.hasOrderBy());
+    }
+
     @Test
     public void testScalarExpressionInSelect() throws Exception {
         DomainModel model = prepareDomainModel();
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.entity.BaseEntityInternalAccess;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.PersistenceHelper;
+import com.haulmont.cuba.core.global.View;
+import com.haulmont.cuba.security.entity.Group;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class EntityFetcherTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private static final UUID GROUP_ID = UUID.fromString("0fa2b1a5-1d68-4d69-9fbd-dff348347f93");
+
+    @Test
+    public void testReloadSharedDetachedReference() throws Exception {
+        Group group;
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            EntityManager em = cont.persistence().getEntityManager();
+            group = em.find(Group.class, GROUP_ID);
+            tx.commit();
+        }
+        assertTrue(PersistenceHelper.isDetached(group));
+
+        User user1 = cont.metadata().create(User.class);
+        user1.setGroup(group);
+        User user2 = cont.metadata().create(User.class);
+        user2.setGroup(group);
+
+        View view = new View(User.class)
+                .addProperty("group", new View(Group.class).addProperty("name"));
+
+        EntityFetcher entityFetcher = AppBeans.get(EntityFetcher.NAME);
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            entityFetcher.fetch(user1, view);
+            entityFetcher.fetch(user2, view);
+
+            assertNotSame(group, user1.getGroup());
+            assertTrue(PersistenceHelper.isManaged(user1.getGroup()));
+            assertEquals(GROUP_ID, user1.getGroup().getId());
+            assertSame(user1.getGroup(), user2.getGroup());
+            tx.commit();
+        }
+    }
+
+    @Test
+    public void testReloadNewInstanceOfSameTransaction() throws Exception {
+        View view = new View(User.class)
+                .addProperty("group", new View(Group.class).addProperty("name"));
+
+        EntityFetcher entityFetcher = AppBeans.get(EntityFetcher.NAME);
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            EntityManager em = cont.persistence().getEntityManager();
+            Group group = cont.metadata().create(Group.class);
+            group.setName("testReloadNewInstanceOfSameTransaction");
+            em.persist(group);
+
+            // detached copy referencing the instance which is not flushed yet
+            Group detachedGroup = cont.metadata().create(Group.class);
+            detachedGroup.setId(group.getId());
+            detachedGroup.setName(group.getName());
+            BaseEntityInternalAccess.setNew(detachedGroup, false);
+            BaseEntityInternalAccess.setDetached(detachedGroup, true);
+
+            User user = cont.metadata().create(User.class);
+            user.setGroup(detachedGroup);
+
+            entityFetcher.fetch(user, view);
+            assertSame(group, user.getGroup());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class StandardQueryCacheTest {
+
+    private StandardQueryCache queryCache;
+
+    @Before
+    public void setUp() throws Exception {
+        queryCache = new StandardQueryCache();
+        queryCache.queryCacheConfig = new QueryCacheConfig() {
+            @Override
+            public boolean getQueryCacheEnabled() {
+                return true;
+            }
+
+            @Override
+            public int getQueryCacheMaxSize() {
+                return 2;
+            }
+        };
+        queryCache.init();
+    }
+
+    @Test
+    public void testEvictionPrunesIndexes() throws Exception {
+        QueryKey key1 = key("select u from sec$User u where u.id = 1");
+        QueryKey key2 = key("select u from sec$User u where u.id = 2");
+        QueryKey key3 = key("select u from sec$User u where u.id = 3");
+
+        queryCache.put(key1, result("sec$User", "sec$Group"));
+        queryCache.put(key2, result("sec$User"));
+        queryCache.put(key3, result("sec$User"));
+
+        assertEquals(2, queryCache.size());
+        assertNull(queryCache.findQueryKeyById(key1.getId()));
+        assertFalse(queryCache.idIndex.containsKey(key1.getId()));
+        assertEquals(2, queryCache.typeIndex.get("sec$User").size());
+        assertTrue(queryCache.typeIndex.get("sec$Group").isEmpty());
+    }
+
+    @Test
+    public void testInvalidateByType() throws Exception {
+        QueryKey key1 = key("select u from sec$User u");
+        QueryKey key2 = key("select g from sec$Group g");
+
+        queryCache.put(key1, result("sec$User"));
+        queryCache.put(key2, result("sec$Group"));
+
+        queryCache.invalidate("sec$User");
+
+        assertNull(queryCache.get(key1));
+        assertNotNull(queryCache.get(key2));
+        assertTrue(queryCache.typeIndex.get("sec$User").isEmpty());
+        assertFalse(queryCache.idIndex.containsKey(key1.getId()));
+
+        queryCache.invalidate(Collections.singleton("sec$Group"));
+        assertEquals(0, queryCache.size());
+        assertTrue(queryCache.idIndex.isEmpty());
+    }
+
+    @Test
+    public void testInvalidateById() throws Exception {
+        QueryKey key = key("select u from sec$User u");
+        queryCache.put(key, result("sec$User"));
+
+        assertSame(key, queryCache.findQueryKeyById(key.getId()));
+        assertSame(key, queryCache.invalidate(key.getId()));
+        assertNull(queryCache.get(key));
+        assertNull(queryCache.invalidate(key.getId()));
+    }
+
+    @Test
+    public void testPutEqualKey() throws Exception {
+        QueryKey key1 = key("select u from sec$User u");
+        QueryKey key2 = key("select u from sec$User u");
+
+        queryCache.put(key1, result("sec$User"));
+        queryCache.put(key2, result("sec$User"));
+
+        assertEquals(1, queryCache.size());
+        assertNull(queryCache.findQueryKeyById(key1.getId()));
+        assertSame(key2, queryCache.findQueryKeyById(key2.getId()));
+        assertEquals(1, queryCache.idIndex.size());
+        assertEquals(1, queryCache.typeIndex.get("sec$User").size());
+    }
+
+    @Test
+    public void testReplacePrunesIdIndex() throws Exception {
+        QueryKey key1 = key("select u from sec$User u");
+        QueryKey key2 = key("select u from sec$User u");
+
+        queryCache.put(key1, result("sec$User"));
+        // a concurrent put replaces the entry without invalidating the equal key first
+        QueryResult result2 = result("sec$User");
+        queryCache.data.put(key2, result2);
+        queryCache.addToIndex(key2, result2);
+
+        assertFalse(queryCache.idIndex.containsKey(key1.getId()));
+        assertSame(key2, queryCache.findQueryKeyById(key2.getId()));
+        assertEquals(1, queryCache.typeIndex.get("sec$User").size());
+    }
+
+    private QueryKey key(String queryString) {
+        return new QueryKey(queryString, 0, 0, true, false, null, null);
+    }
+
+    private QueryResult result(String... relatedTypes) {
+        Set<String> types = Sets.newHashSet(relatedTypes);
+        return new QueryResult(Collections.emptyList(), relatedTypes[0], types);
+    }
+}
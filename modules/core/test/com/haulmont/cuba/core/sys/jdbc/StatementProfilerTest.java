@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.jdbc;
+
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.bali.db.ResultSetHandler;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StatementProfilerTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private StatementProfiler profiler;
+    private boolean enabled;
+    private int samplingRate;
+    private int repeatedStatementThreshold;
+
+    @Before
+    public void setUp() throws Exception {
+        profiler = AppBeans.get(StatementProfiler.NAME);
+        enabled = profiler.isEnabled();
+        samplingRate = profiler.getSamplingRate();
+        repeatedStatementThreshold = profiler.getRepeatedStatementThreshold();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        profiler.setEnabled(enabled);
+        profiler.setSamplingRate(samplingRate);
+        profiler.setRepeatedStatementThreshold(repeatedStatementThreshold);
+        profiler.clear();
+    }
+
+    @Test
+    public void testNormalize() throws Exception {
+        StatementProfiler profiler = new StatementProfiler();
+        assertEquals("select ID from SEC_USER where LOGIN = ? and VERSION > ?",
+                profiler.normalize("select ID from SEC_USER\n  where LOGIN = 'o''neil' and VERSION > 10"));
+        assertEquals("select T1.ID from SEC_USER T1 where T1.ID IN (...)",
+                profiler.normalize("select T1.ID from SEC_USER T1 where T1.ID in (?, ?,?)"));
+        assertEquals("select ID from SEC_USER where ID IN (...)",
+                profiler.normalize("select ID from SEC_USER where ID in (1, -2, 3.5)"));
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        profiler.setEnabled(true);
+        profiler.setSamplingRate(1);
+        profiler.setRepeatedStatementThreshold(20);
+
+        String sql = "select ID from SEC_USER where LOGIN = ?";
+        ResultSetHandler<Object> handler = rs -> rs.next() ? rs.getObject(1) : null;
+
+        cont.persistence().runInTransaction(em -> {
+            Connection connection = em.getConnection();
+            QueryRunner runner = new QueryRunner();
+            try {
+                for (int i = 0; i < 25; i++) {
+                    runner.query(connection, sql, new Object[]{"admin"}, handler);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        StatementProfiler.StatementStat stat = profiler.getStat(sql);
+        assertTrue(stat.getCount() >= 25);
+        assertEquals(1, stat.getRepeatedInTransactionCount());
+        assertEquals(1.0, stat.getAverageFetchedRows(), 0.001);
+    }
+}
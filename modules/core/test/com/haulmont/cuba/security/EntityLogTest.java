@@ -25,6 +25,7 @@ import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.Messages;
+import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.security.app.EntityLogAPI;
 import com.haulmont.cuba.security.entity.*;
 import com.haulmont.cuba.testsupport.TestContainer;
@@ -313,6 +314,41 @@ public class EntityLogTest {
         assertEquals("changed-name@test.com", attr.getOldValue());
     }
 
+    @Test
+    public void testWriteBehind() throws Exception {
+        AppContext.setProperty("cuba.entityLog.writeBehind.enabled", "true");
+        try {
+            Transaction tx = cont.persistence().createTransaction();
+            try {
+                EntityManager em = cont.persistence().getEntityManager();
+
+                Group group = em.find(Group.class, UUID.fromString("0fa2b1a5-1d68-4d69-9fbd-dff348347f93"));
+
+                User user = new User();
+                userId = user.getId();
+                user.setGroup(group);
+                user.setLogin("test");
+                user.setName("test-name");
+                user.setEmail("name@test.com");
+                em.persist(user);
+
+                tx.commit();
+            } finally {
+                tx.end();
+            }
+
+            List<EntityLogItem> items = getEntityLogItems();
+            for (int i = 0; i < 50 && items.isEmpty(); i++) {
+                Thread.sleep(100);
+                items = getEntityLogItems();
+            }
+            assertEquals(1, items.size());
+            assertEquals(EntityLogItem.Type.CREATE, items.get(0).getType());
+        } finally {
+            AppContext.setProperty("cuba.entityLog.writeBehind.enabled", null);
+        }
+    }
+
     private List<EntityLogItem> getEntityLogItems() {
         Transaction tx;
         List<EntityLogItem> items;
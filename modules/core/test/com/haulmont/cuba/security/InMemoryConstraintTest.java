@@ -19,6 +19,7 @@ package com.haulmont.cuba.security;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.ConstraintStatistics;
 import com.haulmont.cuba.security.app.LoginWorker;
 import com.haulmont.cuba.security.entity.*;
 import com.haulmont.cuba.security.global.LoginException;
@@ -33,6 +34,7 @@ import java.util.Locale;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class InMemoryConstraintTest {
 
@@ -306,6 +308,50 @@ public class InMemoryConstraintTest {
     }
 
 
+    @Test
+    public void testConstraintStatistics() throws LoginException {
+        LoginWorker lw = AppBeans.get(LoginWorker.NAME);
+
+        UserSession userSession = lw.login("constraintUser1", passwordEncryption.getPlainHash(PASSWORD), Locale.getDefault());
+        assertNotNull(userSession);
+
+        ConstraintStatistics constraintStatistics = AppBeans.get(ConstraintStatistics.class);
+        constraintStatistics.clear();
+
+        UserSessionSource uss = AppBeans.get(UserSessionSource.class);
+        UserSession savedUserSession = uss.getUserSession();
+        ((TestUserSessionSource) uss).setUserSession(userSession);
+        try {
+            DataManager dataManager = AppBeans.get(DataManager.NAME);
+            dataManager = dataManager.secure();
+            LoadContext<User> loadContext = LoadContext.create(User.class).setView(View.LOCAL);
+            loadContext.setQuery(LoadContext.createQuery("select u from sec$User u where u.login like 'user%'"));
+            List<User> resultList = dataManager.loadList(loadContext);
+            assertEquals(11, resultList.size());
+
+            ConstraintStatistics.ConstraintStat stat = constraintStatistics.getStats().stream()
+                    .filter(s -> s.getConstraintId().equals(constraint1.getId()))
+                    .findFirst()
+                    .orElseThrow(AssertionError::new);
+            assertTrue(stat.getCount() >= USERS_SIZE);
+            assertTrue(stat.getDeniedCount() >= USERS_SIZE - 11);
+            assertEquals(0, stat.getErrorCount());
+        } finally {
+            ((TestUserSessionSource) uss).setUserSession(savedUserSession);
+        }
+    }
+
+    @Test
+    public void testEvaluateConstraintScript() throws Exception {
+        Security security = AppBeans.get(Security.class);
+        User user = cont.metadata().create(User.class);
+        user.setLogin("user3");
+
+        assertEquals(Boolean.TRUE, security.evaluateConstraintScript(user, "{E}.login.startsWith('user3')"));
+        user.setLogin("user4");
+        assertEquals(Boolean.FALSE, security.evaluateConstraintScript(user, "{E}.login.startsWith('user3')"));
+    }
+
 
     @After
     public void tearDown() throws Exception {
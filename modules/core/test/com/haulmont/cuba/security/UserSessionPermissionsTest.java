@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.cuba.security.entity.*;
+import com.haulmont.cuba.security.global.UserSession;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UserSessionPermissionsTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private MetaClass userMetaClass;
+
+    @Before
+    public void setUp() throws Exception {
+        userMetaClass = cont.metadata().getClassNN(User.class);
+    }
+
+    @Test
+    public void testEntityPermissions() throws Exception {
+        UserSession session = createSession(RoleType.STANDARD);
+        session.addPermission(PermissionType.ENTITY_OP, "sec$User:delete", null, 0);
+        session.addPermission(PermissionType.ENTITY_ATTR, "sec$User:password", null, 0);
+        session.addPermission(PermissionType.ENTITY_ATTR, "sec$User:login", null, 1);
+        session.addPermission(PermissionType.ENTITY_ATTR, "sec$User:+dynamicAttribute", null, 0);
+
+        assertTrue(session.isEntityOpPermitted(userMetaClass, EntityOp.READ));
+        assertFalse(session.isEntityOpPermitted(userMetaClass, EntityOp.DELETE));
+
+        assertFalse(session.isEntityAttrPermitted(userMetaClass, "password", EntityAttrAccess.VIEW));
+        assertTrue(session.isEntityAttrPermitted(userMetaClass, "login", EntityAttrAccess.VIEW));
+        assertFalse(session.isEntityAttrPermitted(userMetaClass, "login", EntityAttrAccess.MODIFY));
+        assertTrue(session.isEntityAttrPermitted(userMetaClass, "name", EntityAttrAccess.MODIFY));
+        // not a property of the entity
+        assertFalse(session.isEntityAttrPermitted(userMetaClass, "+dynamicAttribute", EntityAttrAccess.VIEW));
+
+        // compiled permissions are rebuilt after a change, also in copies of the session
+        UserSession copy = new UserSession(session);
+        session.addPermission(PermissionType.ENTITY_OP, "sec$User:delete", null, 1);
+        session.removePermission(PermissionType.ENTITY_ATTR, "sec$User:password");
+        assertTrue(copy.isEntityOpPermitted(userMetaClass, EntityOp.DELETE));
+        assertTrue(copy.isEntityAttrPermitted(userMetaClass, "password", EntityAttrAccess.MODIFY));
+    }
+
+    @Test
+    public void testRoleTypes() throws Exception {
+        UserSession session = createSession(RoleType.READONLY);
+        assertTrue(session.isEntityOpPermitted(userMetaClass, EntityOp.READ));
+        assertFalse(session.isEntityOpPermitted(userMetaClass, EntityOp.UPDATE));
+
+        session = createSession(RoleType.DENYING);
+        session.addPermission(PermissionType.ENTITY_OP, "sec$User:read", null, 1);
+        assertTrue(session.isEntityOpPermitted(userMetaClass, EntityOp.READ));
+        assertFalse(session.isEntityOpPermitted(userMetaClass, EntityOp.CREATE));
+
+        session = createSession(RoleType.SUPER);
+        session.addPermission(PermissionType.ENTITY_ATTR, "sec$User:password", null, 0);
+        assertTrue(session.isEntityAttrPermitted(userMetaClass, "password", EntityAttrAccess.MODIFY));
+    }
+
+    private UserSession createSession(RoleType roleType) {
+        User user = cont.metadata().create(User.class);
+        user.setLogin("test");
+        Role role = cont.metadata().create(Role.class);
+        role.setName("test");
+        role.setType(roleType);
+        return new UserSession(UUID.randomUUID(), user, Collections.singletonList(role), Locale.ENGLISH, false);
+    }
+}
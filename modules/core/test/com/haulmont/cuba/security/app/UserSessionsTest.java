@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.haulmont.cuba.security.app;
+
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.TimeSource;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.security.app.UserSessions.UserSessionInfo;
+import com.haulmont.cuba.security.app.UserSessions.UserSessionTouchMessage;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.security.global.UserSession;
+import com.haulmont.cuba.testsupport.TestClusterManager;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class UserSessionsTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private List<Serializable> sentMessages = new ArrayList<>();
+
+    private long now = 1_500_000_000_000L;
+
+    @After
+    public void tearDown() throws Exception {
+        AppContext.setProperty("cuba.userSessionTouchReplication", null);
+    }
+
+    @Test
+    public void testTouchBatching() throws Exception {
+        AppContext.setProperty("cuba.userSessionTouchReplication", "true");
+        UserSessions userSessions = createUserSessions();
+        UserSession session1 = createSession();
+        UserSession session2 = createSession();
+        userSessions.add(session1);
+        userSessions.add(session2);
+        sentMessages.clear();
+
+        now += 1000;
+        userSessions.getAndRefresh(session1.getId(), true);
+        userSessions.getAndRefresh(session2.getId(), true);
+        now += 1000;
+        userSessions.getAndRefresh(session1.getId(), true);
+        // touches are collected until they are sent
+        assertTrue(sentMessages.isEmpty());
+
+        userSessions.sendTouches();
+        assertEquals(1, sentMessages.size());
+        UserSessionTouchMessage message = (UserSessionTouchMessage) sentMessages.get(0);
+        assertEquals(2, message.size());
+        Map<UUID, Long> touches = new HashMap<>();
+        for (int i = 0; i < message.size(); i++) {
+            touches.put(message.getId(i), message.getTimestamp(i));
+        }
+        assertEquals(Long.valueOf(now), touches.get(session1.getId()));
+        assertEquals(Long.valueOf(now - 1000), touches.get(session2.getId()));
+
+        sentMessages.clear();
+        userSessions.sendTouches();
+        assertTrue(sentMessages.isEmpty());
+
+        // touches are applied by other nodes
+        UserSessions otherNode = createUserSessions();
+        otherNode.receiveClusterMessage(new UserSessionInfo(session1, now - 5000));
+        otherNode.receiveTouchMessage(message);
+        assertEquals(now, otherNode.getSessionInfo(session1.getId()).getLastUsedTs());
+
+        // removal is sent as a touch with zero timestamp
+        userSessions.remove(session1);
+        message = (UserSessionTouchMessage) sentMessages.get(0);
+        assertEquals(0, message.getTimestamp(0));
+        otherNode.receiveTouchMessage(message);
+        assertNull(otherNode.getSessionInfo(session1.getId()));
+    }
+
+    @Test
+    public void testRefreshSendsSessionWithoutTouchReplication() throws Exception {
+        UserSessions userSessions = createUserSessions();
+        UserSession session = createSession();
+        userSessions.add(session);
+        sentMessages.clear();
+
+        now += 1000;
+        userSessions.getAndRefresh(session.getId(), true);
+        assertEquals(1, sentMessages.size());
+        assertTrue(sentMessages.get(0) instanceof UserSessionInfo);
+    }
+
+    @Test
+    public void testClusterState() throws Exception {
+        UserSessions userSessions = createUserSessions();
+        UserSession session = createSession();
+        userSessions.add(session);
+        now += 1000;
+        userSessions.getAndRefresh(session.getId(), false);
+
+        // Java serialization is used unless touch replication is turned on
+        byte[] state = userSessions.sendClusterState();
+        assertEquals((byte) 0xAC, state[0]);
+        assertEquals((byte) 0xED, state[1]);
+        assertState(state, session);
+
+        AppContext.setProperty("cuba.userSessionTouchReplication", "true");
+        state = userSessions.sendClusterState();
+        assertEquals(UserSessions.STATE_FORMAT_MAGIC, (state[0] & 0xFF) << 24 | (state[1] & 0xFF) << 16
+                | (state[2] & 0xFF) << 8 | state[3] & 0xFF);
+        assertState(state, session);
+    }
+
+    @Test
+    public void testLegacyClusterState() throws Exception {
+        UserSession session = createSession();
+        UserSessionInfo usi = new UserSessionInfo(session, now - 1000);
+        usi.lastUsedTs = now;
+
+        // state written by nodes of previous versions
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bos);
+        oos.writeInt(1);
+        oos.writeObject(usi);
+        oos.flush();
+
+        assertState(bos.toByteArray(), session);
+    }
+
+    private void assertState(byte[] state, UserSession session) {
+        UserSessions otherNode = createUserSessions();
+        otherNode.receiveClusterState(state);
+        UserSessionInfo received = otherNode.getSessionInfo(session.getId());
+        assertNotNull(received);
+        assertEquals(session.getUser().getLogin(), received.getSession().getUser().getLogin());
+        assertEquals(now, received.getLastUsedTs());
+    }
+
+    private UserSessions createUserSessions() {
+        UserSessions userSessions = new UserSessions();
+        userSessions.setConfiguration(AppBeans.get(Configuration.class));
+        userSessions.setClusterManager(new TestClusterManager() {
+            @Override
+            public void send(Serializable message) {
+                sentMessages.add(message);
+            }
+        });
+        userSessions.timeSource = new TimeSource() {
+            @Override
+            public Date currentTimestamp() {
+                return new Date(now);
+            }
+
+            @Override
+            public long currentTimeMillis() {
+                return now;
+            }
+        };
+        userSessions.metadata = cont.metadata();
+        userSessions.setSendTimeoutSec(0);
+        return userSessions;
+    }
+
+    private UserSession createSession() {
+        User user = cont.metadata().create(User.class);
+        user.setLogin("test" + user.getId());
+        return new UserSession(UUID.randomUUID(), user, Collections.emptyList(), Locale.ENGLISH, false);
+    }
+}
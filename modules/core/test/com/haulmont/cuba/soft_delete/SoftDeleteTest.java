@@ -234,6 +234,24 @@ public class SoftDeleteTest {
         }
     }
 
+    @Test
+    public void testCascadeForSeveralMasters() {
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            em.remove(em.find(User.class, userId));
+            em.remove(em.find(User.class, user1Id));
+            tx.commit();
+        }
+
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            em.setSoftDeletion(false);
+            assertTrue(em.find(UserRole.class, userRole1Id).isDeleted());
+            assertTrue(em.find(UserRole.class, userRole3Id).isDeleted());
+            tx.commit();
+        }
+    }
+
     @Test
     public void testNormalMode() {
         System.out.println("===================== BEGIN testNormalMode =====================");
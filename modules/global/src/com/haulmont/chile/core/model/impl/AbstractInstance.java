@@ -27,8 +27,6 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class AbstractInstance implements Instance {
 
@@ -36,7 +34,12 @@ public abstract class AbstractInstance implements Instance {
 
     protected transient Collection<WeakReference<PropertyChangeListener>> __propertyChangeListeners;
 
-    private static transient Map<Class, MethodsCache> methodCacheMap = new ConcurrentHashMap<>();
+    private static final ClassValue<MethodsCache> methodCacheMap = new ClassValue<MethodsCache>() {
+        @Override
+        protected MethodsCache computeValue(Class<?> type) {
+            return new MethodsCache(type);
+        }
+    };
 
     protected void propertyChanged(String s, Object prev, Object curr) {
         if (__propertyChangeListeners != null) {
@@ -103,13 +106,7 @@ public abstract class AbstractInstance implements Instance {
     }
 
     protected MethodsCache getMethodsCache() {
-        Class cls = getClass();
-        MethodsCache cache = methodCacheMap.get(cls);
-        if (cache == null) {
-            cache = new MethodsCache(cls);
-            methodCacheMap.put(cls, cache);
-        }
-        return cache;
+        return methodCacheMap.get(getClass());
     }
 
     @Override
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.chile.core.model.utils;
+
+import com.haulmont.chile.core.annotations.NamePattern;
+import com.haulmont.chile.core.datatypes.impl.EnumClass;
+import com.haulmont.chile.core.model.Instance;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Messages;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Renders instance names of a meta-class according to its {@link NamePattern}.
+ * <p>
+ * The pattern is parsed once. A format consisting of {@code %s} placeholders and literal text is split into parts
+ * which are concatenated without {@link String#format}, and a formatting method is invoked through an accessor
+ * created by {@link MethodsCache#getAccessorFactory()}.
+ *
+ * @see InstanceUtils#getInstanceName(Instance)
+ */
+public class InstanceNameRenderer {
+
+    protected final InstanceUtils.NamePatternRec rec;
+
+    /**
+     * Literal strings and indexes of values, or null if the format is applied by {@link String#format}
+     */
+    protected final Object[] formatParts;
+
+    protected volatile MethodAccessor methodAccessor;
+
+    protected static class MethodAccessor {
+        protected final Class<?> type;
+        protected final Function<Object, Object> getter;
+
+        protected MethodAccessor(Class<?> type, Function<Object, Object> getter) {
+            this.type = type;
+            this.getter = getter;
+        }
+    }
+
+    /**
+     * @param rec parsed name pattern, or null if the meta-class doesn't define it
+     */
+    public InstanceNameRenderer(@Nullable InstanceUtils.NamePatternRec rec) {
+        this.rec = rec;
+        this.formatParts = rec != null && rec.methodName == null ? compileFormat(rec.format, rec.fields.length) : null;
+    }
+
+    /**
+     * @return instance name as defined by the name pattern, or {@code toString()} if the pattern is not defined
+     */
+    public String render(Instance instance) {
+        if (rec == null) {
+            return instance.toString();
+        }
+
+        if (rec.methodName != null) {
+            Function<Object, Object> getter = getMethodGetter(instance.getClass());
+            try {
+                return (String) getter.apply(instance);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Error getting instance name", e);
+            }
+        }
+
+        // lazy initialized messages, used only for enum values
+        Messages messages = null;
+
+        Object[] values = new Object[rec.fields.length];
+        for (int i = 0; i < rec.fields.length; i++) {
+            Object value = instance.getValue(rec.fields[i]);
+            if (value == null) {
+                values[i] = "";
+            } else if (value instanceof Instance) {
+                values[i] = InstanceUtils.getInstanceName((Instance) value);
+            } else if (value instanceof EnumClass) {
+                if (messages == null) {
+                    messages = AppBeans.get(Messages.NAME);
+                }
+
+                values[i] = messages.getMessage((Enum) value);
+            } else {
+                values[i] = value;
+            }
+        }
+
+        return format(values);
+    }
+
+    protected String format(Object[] values) {
+        if (formatParts == null) {
+            return String.format(rec.format, values);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (Object part : formatParts) {
+            if (part instanceof Integer) {
+                Object value = values[(Integer) part];
+                if (value instanceof Formattable) {
+                    return String.format(rec.format, values);
+                }
+                sb.append(value);
+            } else {
+                sb.append((String) part);
+            }
+        }
+        return sb.toString();
+    }
+
+    protected Function<Object, Object> getMethodGetter(Class<?> type) {
+        MethodAccessor accessor = methodAccessor;
+        if (accessor == null || accessor.type != type) {
+            Method method;
+            try {
+                method = type.getMethod(rec.methodName);
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException("Error getting instance name", e);
+            }
+            Function<Object, Object> getter = MethodsCache.getAccessorFactory().createGetter(method);
+            if (getter == null) {
+                getter = new ReflectionPropertyAccessorFactory().createGetter(method);
+            }
+            accessor = new MethodAccessor(type, getter);
+            methodAccessor = accessor;
+        }
+        return accessor.getter;
+    }
+
+    /**
+     * Splits a format into literal strings and value indexes.
+     *
+     * @return format parts, or null if the format contains anything but {@code %s} and {@code %%}
+     */
+    @Nullable
+    protected static Object[] compileFormat(String format, int valueCount) {
+        List<Object> parts = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int valueIndex = 0;
+        for (int i = 0; i < format.length(); i++) {
+            char c = format.charAt(i);
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+            if (i + 1 == format.length()) {
+                return null;
+            }
+            char next = format.charAt(++i);
+            if (next == '%') {
+                literal.append('%');
+            } else if (next == 's' && valueIndex < valueCount) {
+                if (literal.length() > 0) {
+                    parts.add(literal.toString());
+                    literal.setLength(0);
+                }
+                parts.add(valueIndex++);
+            } else {
+                return null;
+            }
+        }
+        if (literal.length() > 0) {
+            parts.add(literal.toString());
+        }
+        return parts.toArray();
+    }
+}
@@ -17,23 +17,22 @@
 package com.haulmont.chile.core.model.utils;
 
 import com.haulmont.chile.core.annotations.NamePattern;
-import com.haulmont.chile.core.datatypes.impl.EnumClass;
 import com.haulmont.chile.core.model.Instance;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.impl.AbstractInstance;
+import com.haulmont.chile.core.model.impl.MetaClassImpl;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.DevelopmentException;
-import com.haulmont.cuba.core.global.Messages;
 import com.haulmont.cuba.core.global.MetadataTools;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 
 import javax.annotation.Nullable;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
@@ -45,6 +44,8 @@ public final class InstanceUtils {
 
     private static final Pattern INSTANCE_NAME_SPLIT_PATTERN = Pattern.compile("[,;]");
 
+    private static final ConcurrentMap<MetaClass, InstanceNameRenderer> instanceNameRenderers = new ConcurrentHashMap<>();
+
     private InstanceUtils() {
     }
 
@@ -204,43 +205,35 @@ public final class InstanceUtils {
     public static String getInstanceName(Instance instance) {
         checkNotNullArgument(instance, "instance is null");
 
-        NamePatternRec rec = parseNamePattern(instance.getMetaClass());
-        if (rec == null) {
-            return instance.toString();
-        } else {
-            if (rec.methodName != null) {
-                try {
-                    Method method = instance.getClass().getMethod(rec.methodName);
-                    Object result = method.invoke(instance);
-                    return (String) result;
-                } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
-                    throw new RuntimeException("Error getting instance name", e);
-                }
-            }
+        return getInstanceNameRenderer(instance.getMetaClass()).render(instance);
+    }
 
-            // lazy initialized messages, used only for enum values
-            Messages messages = null;
-
-            Object[] values = new Object[rec.fields.length];
-            for (int i = 0; i < rec.fields.length; i++) {
-                Object value = instance.getValue(rec.fields[i]);
-                if (value == null) {
-                    values[i] = "";
-                } else if (value instanceof Instance) {
-                    values[i] = getInstanceName((Instance) value);
-                } else if (value instanceof EnumClass) {
-                    if (messages == null) {
-                        messages = AppBeans.get(Messages.NAME);
-                    }
-
-                    values[i] = messages.getMessage((Enum)value);
-                } else {
-                    values[i] = value;
-                }
+    /**
+     * Returns the renderer of instance names for the meta-class. Renderers of meta-classes registered in the metadata
+     * session are cached until {@link #clearInstanceNameRenderers()} is invoked.
+     * @param metaClass entity meta-class
+     */
+    public static InstanceNameRenderer getInstanceNameRenderer(MetaClass metaClass) {
+        if (!(metaClass instanceof MetaClassImpl)) {
+            // meta-classes created on the fly are not cached
+            return new InstanceNameRenderer(parseNamePattern(metaClass));
+        }
+        InstanceNameRenderer renderer = instanceNameRenderers.get(metaClass);
+        if (renderer == null) {
+            renderer = new InstanceNameRenderer(parseNamePattern(metaClass));
+            InstanceNameRenderer existing = instanceNameRenderers.putIfAbsent(metaClass, renderer);
+            if (existing != null) {
+                renderer = existing;
             }
-
-            return String.format(rec.format, values);
         }
+        return renderer;
+    }
+
+    /**
+     * Removes cached renderers of instance names. Invoked when metadata is loaded.
+     */
+    public static void clearInstanceNameRenderers() {
+        instanceNameRenderers.clear();
     }
 
     /**
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.chile.core.model.utils;
+
+import org.apache.commons.lang.ClassUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Accessor factory that generates a class implementing {@link Function} or {@link BiConsumer} for each accessor
+ * method using {@link LambdaMetafactory}. After JIT compilation, invocation of such accessor is as fast as a direct
+ * method call.
+ * <p>
+ * Returns null for methods which cannot be linked from the class loader of this factory: non-public methods
+ * or classes, and classes loaded by a child class loader.
+ * <p>
+ * Exceptions thrown by the accessors, including a {@link ClassCastException} for a value of a wrong type, are
+ * wrapped in a {@link RuntimeException} as {@link ReflectionPropertyAccessorFactory} does.
+ */
+public class LambdaPropertyAccessorFactory implements PropertyAccessorFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(LambdaPropertyAccessorFactory.class);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Function<Object, Object> createGetter(Method method) {
+        if (!isSupported(method)) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite callSite = LambdaMetafactory.metafactory(lookup,
+                    "apply",
+                    MethodType.methodType(Function.class),
+                    GETTER_TYPE,
+                    handle,
+                    MethodType.methodType(wrap(method.getReturnType()), method.getDeclaringClass()));
+            Function<Object, Object> getter = (Function<Object, Object>) callSite.getTarget().invokeExact();
+            return object -> {
+                try {
+                    return getter.apply(object);
+                } catch (RuntimeException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        } catch (Throwable e) {
+            log.debug("Unable to create getter for {}: {}", method, e.toString());
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public BiConsumer<Object, Object> createSetter(Method method) {
+        if (!isSupported(method)) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite callSite = LambdaMetafactory.metafactory(lookup,
+                    "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    SETTER_TYPE,
+                    handle,
+                    MethodType.methodType(void.class, method.getDeclaringClass(), wrap(method.getParameterTypes()[0])));
+            BiConsumer<Object, Object> setter = (BiConsumer<Object, Object>) callSite.getTarget().invokeExact();
+            return (object, value) -> {
+                try {
+                    setter.accept(object, value);
+                } catch (RuntimeException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        } catch (Throwable e) {
+            log.debug("Unable to create setter for {}: {}", method, e.toString());
+            return null;
+        }
+    }
+
+    protected boolean isSupported(Method method) {
+        if (!Modifier.isPublic(method.getModifiers())
+                || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            return false;
+        }
+        if (!isVisible(method.getDeclaringClass()) || !isVisible(method.getReturnType())) {
+            return false;
+        }
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (!isVisible(parameterType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generated accessors are defined in the class loader of this factory, so they can only refer to classes
+     * visible from it.
+     */
+    protected boolean isVisible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false, LambdaPropertyAccessorFactory.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    protected Class<?> wrap(Class<?> type) {
+        return type.isPrimitive() && type != void.class ? ClassUtils.primitiveToWrapper(type) : type;
+    }
+}
@@ -19,59 +19,89 @@ package com.haulmont.chile.core.model.utils;
 import org.apache.commons.lang.StringUtils;
 
 import java.lang.reflect.Method;
-import java.lang.reflect.InvocationTargetException;
-import java.util.Map;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
+/**
+ * Getters and setters of a class, invoked by property name.
+ * <p>
+ * Accessors are created by the {@link PropertyAccessorFactory} set by {@link #setAccessorFactory}, by default
+ * {@link LambdaPropertyAccessorFactory}. If the factory cannot create an accessor for a method, the method is
+ * invoked through reflection.
+ */
 public class MethodsCache {
 
-    private final transient Map<String, Method> getters = new HashMap<>();
-    private final transient Map<String, Method> setters = new HashMap<>();
+    private static volatile PropertyAccessorFactory accessorFactory = new LambdaPropertyAccessorFactory();
+
+    private static final PropertyAccessorFactory reflectionAccessorFactory = new ReflectionPropertyAccessorFactory();
+
+    private final transient Map<String, Function<Object, Object>> getters = new HashMap<>();
+    private final transient Map<String, BiConsumer<Object, Object>> setters = new HashMap<>();
 
     public MethodsCache(Class clazz) {
+        this(clazz, accessorFactory);
+    }
+
+    public MethodsCache(Class clazz, PropertyAccessorFactory factory) {
         final Method[] methods = clazz.getMethods();
         for (Method method : methods) {
             String name = method.getName();
             if (name.startsWith("get") && method.getParameterTypes().length == 0) {
                 name = StringUtils.uncapitalize(name.substring(3));
-                method.setAccessible(true);
-                getters.put(name, method);
+                getters.put(name, createGetter(factory, method));
             }
             if (name.startsWith("is") && method.getParameterTypes().length == 0) {
                 name = StringUtils.uncapitalize(name.substring(2));
-                method.setAccessible(true);
-                getters.put(name, method);
+                getters.put(name, createGetter(factory, method));
             } else if (name.startsWith("set") && method.getParameterTypes().length == 1) {
                 name = StringUtils.uncapitalize(name.substring(3));
-                method.setAccessible(true);
-                setters.put(name, method);
+                setters.put(name, createSetter(factory, method));
             }
         }
     }
 
+    /**
+     * @return factory used to create accessors for new instances of {@code MethodsCache}
+     */
+    public static PropertyAccessorFactory getAccessorFactory() {
+        return accessorFactory;
+    }
+
+    /**
+     * Sets the factory used to create accessors for new instances of {@code MethodsCache}.
+     * Does not affect already created instances.
+     */
+    public static void setAccessorFactory(PropertyAccessorFactory factory) {
+        accessorFactory = factory;
+    }
+
+    protected Function<Object, Object> createGetter(PropertyAccessorFactory factory, Method method) {
+        Function<Object, Object> getter = factory.createGetter(method);
+        return getter != null ? getter : reflectionAccessorFactory.createGetter(method);
+    }
+
+    protected BiConsumer<Object, Object> createSetter(PropertyAccessorFactory factory, Method method) {
+        BiConsumer<Object, Object> setter = factory.createSetter(method);
+        return setter != null ? setter : reflectionAccessorFactory.createSetter(method);
+    }
+
     public void invokeSetter(Object object, String property, Object value) {
-        final Method method = setters.get(property);
-        if (method == null) {
+        final BiConsumer<Object, Object> setter = setters.get(property);
+        if (setter == null) {
             throw new IllegalArgumentException(
                     String.format("Can't find setter for property '%s' at %s", property, object.getClass()));
         }
-        try {
-            method.invoke(object, value);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new RuntimeException(e);
-        }
+        setter.accept(object, value);
     }
 
     public Object invokeGetter(Object object, String property) {
-        final Method method = getters.get(property);
-        if (method == null) {
+        final Function<Object, Object> getter = getters.get(property);
+        if (getter == null) {
             throw new IllegalArgumentException(
                     String.format("Can't find getter for property '%s' at %s", property, object.getClass()));
         }
-        try {
-            return method.invoke(object);
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-            throw new RuntimeException(e);
-        }
+        return getter.apply(object);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.chile.core.model.utils;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Creates accessors used by {@link MethodsCache} to invoke getters and setters of instances.
+ * <p>
+ * An implementation may return null if it cannot create an accessor for the given method. In this case
+ * {@link MethodsCache} falls back to reflection.
+ *
+ * @see MethodsCache#setAccessorFactory(PropertyAccessorFactory)
+ */
+public interface PropertyAccessorFactory {
+
+    /**
+     * @param method public getter method without parameters
+     * @return function that accepts an instance and returns the property value, or null if not supported
+     */
+    @Nullable
+    Function<Object, Object> createGetter(Method method);
+
+    /**
+     * @param method public setter method with one parameter
+     * @return function that accepts an instance and a new property value, or null if not supported
+     */
+    @Nullable
+    BiConsumer<Object, Object> createSetter(Method method);
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app.dynamicattributes;
+
+import com.haulmont.cuba.core.entity.BaseEntityInternalAccess;
+import com.haulmont.cuba.core.entity.BaseGenericIdEntity;
+import com.haulmont.cuba.core.entity.CategoryAttribute;
+import com.haulmont.cuba.core.entity.CategoryAttributeValue;
+import com.haulmont.cuba.core.global.Metadata;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Dynamic attribute values of a batch of entities, stored in arrays by attribute. Each entity occupies a row
+ * with the same index in all columns.
+ * <p>
+ * {@link CategoryAttributeValue} instances are created only when a value is requested through the map returned by
+ * {@link #createValuesMap(Object)}. They are detached and contain all local attributes of the stored values.
+ */
+public class DynamicAttributeValueColumns {
+
+    protected final Metadata metadata;
+
+    protected final Object[] entityIds;
+
+    protected final Map<Object, Integer> rows;
+
+    protected final Map<String, Column> columns = new LinkedHashMap<>();
+
+    public class Column {
+
+        protected final CategoryAttribute attribute;
+
+        protected final UUID[] ids = new UUID[entityIds.length];
+        protected final Integer[] versions = new Integer[entityIds.length];
+        protected final Date[] createTs = new Date[entityIds.length];
+        protected final String[] createdBy = new String[entityIds.length];
+        protected final Date[] updateTs = new Date[entityIds.length];
+        protected final String[] updatedBy = new String[entityIds.length];
+        protected final Object[] values = new Object[entityIds.length];
+        // references for attributes of entity type, values contain the referenced entities
+        protected final Object[] entityValueIds;
+
+        protected Column(CategoryAttribute attribute) {
+            this.attribute = attribute;
+            this.entityValueIds = attribute.getDataType() == PropertyType.ENTITY ? new Object[entityIds.length] : null;
+        }
+
+        public CategoryAttribute getAttribute() {
+            return attribute;
+        }
+
+        /**
+         * Stores a value of the attribute.
+         *
+         * @param value value, or identifier of the referenced entity for attributes of entity type
+         */
+        public void set(int row, UUID id, Integer version, Object value) {
+            ids[row] = id;
+            versions[row] = version;
+            if (entityValueIds != null) {
+                entityValueIds[row] = value;
+            } else {
+                values[row] = value;
+            }
+        }
+
+        public void setAuditInfo(int row, Date createTs, String createdBy, Date updateTs, String updatedBy) {
+            this.createTs[row] = createTs;
+            this.createdBy[row] = createdBy;
+            this.updateTs[row] = updateTs;
+            this.updatedBy[row] = updatedBy;
+        }
+
+        /**
+         * @return identifiers of entities referenced by values of an attribute of entity type
+         */
+        public Set<Object> getEntityValueIds() {
+            if (entityValueIds == null)
+                return Collections.emptySet();
+            Set<Object> result = new HashSet<>();
+            for (Object id : entityValueIds) {
+                if (id != null) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Sets entities referenced by values of an attribute of entity type.
+         *
+         * @param entities loaded entities by their reference identifiers
+         */
+        public void setEntityValues(Map<Object, ? extends BaseGenericIdEntity> entities) {
+            if (entityValueIds == null)
+                return;
+            for (int row = 0; row < entityValueIds.length; row++) {
+                if (entityValueIds[row] != null) {
+                    values[row] = entities.get(entityValueIds[row]);
+                }
+            }
+        }
+
+        @Nullable
+        protected CategoryAttributeValue createValue(int row) {
+            if (ids[row] == null)
+                return null;
+
+            CategoryAttributeValue cav = metadata.create(CategoryAttributeValue.class);
+            cav.setId(ids[row]);
+            cav.setVersion(versions[row]);
+            cav.setCreateTs(createTs[row]);
+            cav.setCreatedBy(createdBy[row]);
+            cav.setUpdateTs(updateTs[row]);
+            cav.setUpdatedBy(updatedBy[row]);
+            cav.setCode(attribute.getCode());
+            cav.setCategoryAttribute(attribute);
+            cav.setObjectEntityId(entityIds[row]);
+            if (entityValueIds != null) {
+                cav.setObjectEntityValueId(entityValueIds[row]);
+                cav.setTransientEntityValue((BaseGenericIdEntity) values[row]);
+            } else {
+                cav.setValue(values[row]);
+            }
+            BaseEntityInternalAccess.setNew(cav, false);
+            BaseEntityInternalAccess.setDetached(cav, true);
+            return cav;
+        }
+    }
+
+    /**
+     * @param entityIds reference identifiers of entities, without duplicates
+     */
+    public DynamicAttributeValueColumns(Metadata metadata, List<Object> entityIds) {
+        this.metadata = metadata;
+        this.entityIds = entityIds.toArray();
+        this.rows = new HashMap<>(entityIds.size() * 4 / 3 + 1);
+        for (int i = 0; i < this.entityIds.length; i++) {
+            rows.put(this.entityIds[i], i);
+        }
+    }
+
+    /**
+     * @return row of the entity, or -1 if the entity is not in the batch
+     */
+    public int getRow(Object entityId) {
+        Integer row = rows.get(entityId);
+        return row == null ? -1 : row;
+    }
+
+    public Column getColumn(CategoryAttribute attribute) {
+        Column column = columns.get(attribute.getCode());
+        if (column == null) {
+            column = new Column(attribute);
+            columns.put(attribute.getCode(), column);
+        }
+        return column;
+    }
+
+    public Collection<Column> getColumns() {
+        return columns.values();
+    }
+
+    /**
+     * @return map of dynamic attribute values of the entity to be set to {@link BaseGenericIdEntity#setDynamicAttributes(Map)}
+     */
+    public Map<String, CategoryAttributeValue> createValuesMap(Object entityId) {
+        int row = getRow(entityId);
+        if (row == -1)
+            throw new IllegalArgumentException("Entity " + entityId + " is not in the batch");
+        return new DynamicAttributeValuesMap(this, row);
+    }
+
+    @Nullable
+    protected CategoryAttributeValue createValue(String code, int row) {
+        Column column = columns.get(code);
+        return column == null ? null : column.createValue(row);
+    }
+
+    protected Set<String> getCodes() {
+        return columns.keySet();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app.dynamicattributes;
+
+import com.haulmont.cuba.core.entity.CategoryAttributeValue;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Map of dynamic attribute values of an entity, which creates {@link CategoryAttributeValue} instances from
+ * {@link DynamicAttributeValueColumns} on first access. Iteration, removal and serialization create all values
+ * of the entity at once.
+ */
+public class DynamicAttributeValuesMap extends AbstractMap<String, CategoryAttributeValue> implements Serializable {
+
+    private static final long serialVersionUID = 5235187406934311024L;
+
+    protected final Map<String, CategoryAttributeValue> values = new HashMap<>();
+
+    // null when all values are created
+    protected transient DynamicAttributeValueColumns columns;
+
+    protected transient int row;
+
+    public DynamicAttributeValuesMap() {
+    }
+
+    public DynamicAttributeValuesMap(DynamicAttributeValueColumns columns, int row) {
+        this.columns = columns;
+        this.row = row;
+    }
+
+    @Override
+    public CategoryAttributeValue get(Object key) {
+        if (columns != null && key instanceof String && !values.containsKey(key)) {
+            CategoryAttributeValue value = columns.createValue((String) key, row);
+            if (value != null) {
+                values.put((String) key, value);
+            }
+        }
+        return values.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null || values.containsKey(key);
+    }
+
+    @Override
+    public CategoryAttributeValue put(String key, CategoryAttributeValue value) {
+        CategoryAttributeValue prevValue = get(key);
+        values.put(key, value);
+        return prevValue;
+    }
+
+    @Override
+    public CategoryAttributeValue remove(Object key) {
+        createAll();
+        return values.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        columns = null;
+        values.clear();
+    }
+
+    @Override
+    public Set<Entry<String, CategoryAttributeValue>> entrySet() {
+        createAll();
+        return values.entrySet();
+    }
+
+    protected void createAll() {
+        if (columns != null) {
+            for (String code : columns.getCodes()) {
+                get(code);
+            }
+            columns = null;
+        }
+    }
+
+    protected Object writeReplace() throws ObjectStreamException {
+        createAll();
+        return new HashMap<>(values);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * INTERNAL.
+ * Version of application properties. It is incremented when properties are changed through
+ * {@code AppContext.setProperty()}, config setters or the DB-stored properties storage, and invalidates
+ * values cached by config getters.
+ */
+public final class ConfigChanges {
+
+    private static final AtomicLong version = new AtomicLong();
+
+    private ConfigChanges() {
+    }
+
+    public static long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Invalidates values cached by config getters.
+     */
+    public static void propertiesChanged() {
+        version.incrementAndGet();
+    }
+}
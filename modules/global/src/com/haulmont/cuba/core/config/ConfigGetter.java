@@ -23,10 +23,16 @@ import com.haulmont.cuba.core.config.type.TypeFactory;
 
 import java.lang.reflect.Method;
 import java.util.NoSuchElementException;
+import java.util.UUID;
 
 /**
  * Implementation of configuration getter methods.
- *
+ * <p>
+ * If the persister allows caching for the property source, the value is cached until {@link ConfigChanges#getVersion()}
+ * changes. System properties are cached as well: a system property set directly by {@code System.setProperty()}
+ * rather than through a config setter or {@code AppContext.setProperty()} is picked up after
+ * {@link ConfigChanges#propertiesChanged()}. Values of immutable types are cached after conversion,
+ * values of other types are converted on each call to protect the cached instance from modification.
  */
 public class ConfigGetter extends ConfigAccessorMethod {
     /**
@@ -38,6 +44,24 @@ public class ConfigGetter extends ConfigAccessorMethod {
 
     private TypeFactory factory;
 
+    private final boolean immutableType;
+
+    private volatile CachedValue cachedValue;
+
+    private static class CachedValue {
+        private final ConfigPersister persister;
+        private final long version;
+        private final String str;
+        private final Object value;
+
+        private CachedValue(ConfigPersister persister, long version, String str, Object value) {
+            this.persister = persister;
+            this.version = version;
+            this.str = str;
+            this.value = value;
+        }
+    }
+
     /**
      * Create a new ConfigGetter instance.
      *
@@ -51,6 +75,15 @@ public class ConfigGetter extends ConfigAccessorMethod {
         sourceType = ConfigUtil.getSourceType(configInterface, method);
 //        if (!String.class.equals(method.getReturnType()))
         factory = TypeFactory.getInstance(configInterface, method);
+        immutableType = isImmutable(method.getReturnType());
+    }
+
+    private static boolean isImmutable(Class<?> type) {
+        return type.isPrimitive() || type.isEnum()
+                || String.class.equals(type) || Boolean.class.equals(type) || Character.class.equals(type)
+                || Integer.class.equals(type) || Long.class.equals(type) || Short.class.equals(type)
+                || Byte.class.equals(type) || Double.class.equals(type) || Float.class.equals(type)
+                || Class.class.equals(type) || UUID.class.equals(type);
     }
 
     /**
@@ -64,6 +97,9 @@ public class ConfigGetter extends ConfigAccessorMethod {
         ConfigPersister configuration = handler.getPersister();
         String str;
         if ((args == null) || (args.length == 0)) {
+            if (configuration.isCachingAllowed(sourceType)) {
+                return getCachedValue(configuration);
+            }
             str = getProperty(configuration);
         }
         else {
@@ -79,6 +115,25 @@ public class ConfigGetter extends ConfigAccessorMethod {
             }
             str = getProperty(configuration, defValue);
         }
+        return buildValue(str);
+    }
+
+    private Object getCachedValue(ConfigPersister configuration) {
+        // read the version first, so a concurrent change is not hidden by the cache
+        long version = ConfigChanges.getVersion();
+
+        CachedValue cached = cachedValue;
+        if (cached != null && cached.persister == configuration && cached.version == version) {
+            return immutableType ? cached.value : buildValue(cached.str);
+        }
+
+        String str = getProperty(configuration);
+        Object value = buildValue(str);
+        cachedValue = new CachedValue(configuration, version, str, immutableType ? value : null);
+        return value;
+    }
+
+    private Object buildValue(String str) {
         if (factory == null)
             return str;
         else
@@ -21,6 +21,7 @@ package com.haulmont.cuba.core.config;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.Map;
 
 /**
  * Configuration interface method handler.
@@ -35,6 +36,10 @@ public class ConfigHandler implements InvocationHandler {
      * The configuration interface.
      */
     private final Class<?> configInterface;
+    /**
+     * The method implementations of the configuration interface.
+     */
+    private final Map<Method, ConfigMethod> configMethods;
 
     /**
      * Create a new ConfigHandler instance.
@@ -45,6 +50,7 @@ public class ConfigHandler implements InvocationHandler {
     public ConfigHandler(ConfigPersister persister, Class<?> configInterface) {
         this.persister = persister;
         this.configInterface = configInterface;
+        this.configMethods = ConfigMethods.getMethods(configInterface);
     }
 
     /**
@@ -75,7 +81,10 @@ public class ConfigHandler implements InvocationHandler {
      */
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        ConfigMethod configMethod = ConfigMethods.getInstance(configInterface, method);
+        ConfigMethod configMethod = configMethods.get(method);
+        if (configMethod == null) {
+            configMethod = ConfigMethods.getInstance(configInterface, method);
+        }
         return configMethod.invoke(this, args);
   }
 }
\ No newline at end of file
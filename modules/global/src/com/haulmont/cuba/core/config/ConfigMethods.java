@@ -16,9 +16,9 @@
 
 package com.haulmont.cuba.core.config;
 
-import org.apache.commons.collections4.map.MultiKeyMap;
-
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class ConfigMethods {
     public ConfigMethods() {
@@ -49,9 +49,10 @@ public class ConfigMethods {
     };
 
     /**
-     * A cache of instantiated configuration method implementations.
+     * A cache of instantiated configuration method implementations by configuration interface.
      */
-    private static final MultiKeyMap configMethods = new MultiKeyMap();
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Method, ConfigMethod>> configMethods =
+            new ConcurrentHashMap<>();
 
     /**
      * Get a ConfigMethod implementation appropriate for handling a
@@ -62,13 +63,27 @@ public class ConfigMethods {
      * @param method          The method.
      * @return The method implementation.
      */
-    @SuppressWarnings("unchecked")
-    public static synchronized ConfigMethod getInstance(Class<?> configInterface, Method method) {
-        ConfigMethod configMethod = (ConfigMethod) configMethods.get(configInterface, method);
+    public static ConfigMethod getInstance(Class<?> configInterface, Method method) {
+        ConcurrentMap<Method, ConfigMethod> methods = getMethods(configInterface);
+        ConfigMethod configMethod = methods.get(method);
         if (configMethod == null) {
-            configMethod = newInstance(configInterface, method);
-            configMethods.put(configInterface, method, configMethod);
+            configMethod = methods.computeIfAbsent(method, m -> newInstance(configInterface, m));
         }
         return configMethod;
     }
+
+    /**
+     * Get the table of method implementations of a configuration interface. The table is filled on demand by
+     * {@link #getInstance(Class, Method)} and can be read without locking.
+     *
+     * @param configInterface The configuration interface.
+     * @return The method implementations by methods.
+     */
+    public static ConcurrentMap<Method, ConfigMethod> getMethods(Class<?> configInterface) {
+        ConcurrentMap<Method, ConfigMethod> methods = configMethods.get(configInterface);
+        if (methods == null) {
+            methods = configMethods.computeIfAbsent(configInterface, c -> new ConcurrentHashMap<>());
+        }
+        return methods;
+    }
 }
\ No newline at end of file
@@ -20,4 +20,12 @@ public interface ConfigPersister {
     String getProperty(SourceType sourceType, String name);
 
     void setProperty(SourceType sourceType, String name, String value);
+
+    /**
+     * @return whether values of the given source change only together with {@link ConfigChanges#getVersion()},
+     * so config getters may cache them
+     */
+    default boolean isCachingAllowed(SourceType sourceType) {
+        return false;
+    }
 }
\ No newline at end of file
@@ -132,6 +132,9 @@ public class ScheduledTask extends BaseUuidEntity implements Creatable, Updatabl
     @Column(name = "LAST_START_SERVER")
     protected String lastStartServer;
 
+    @Column(name = "LAST_FINISH_TIME")
+    protected Date lastFinishTime;
+
     @Column(name = "METHOD_PARAMS")
     protected String methodParamsXml;
 
@@ -331,6 +334,14 @@ public class ScheduledTask extends BaseUuidEntity implements Creatable, Updatabl
         this.lastStartServer = lastStartServer;
     }
 
+    public Date getLastFinishTime() {
+        return lastFinishTime;
+    }
+
+    public void setLastFinishTime(Date lastFinishTime) {
+        this.lastFinishTime = lastFinishTime;
+    }
+
     public ScheduledTaskDefinedBy getDefinedBy() {
         return ScheduledTaskDefinedBy.fromId(definedBy);
     }
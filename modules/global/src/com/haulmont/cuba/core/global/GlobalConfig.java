@@ -185,6 +185,28 @@ public interface GlobalConfig extends Config {
     @DefaultInt(100)
     int getNumberIdCacheSize();
 
+    /**
+     * @return whether the next blocks of number identifiers are requested in background before the current block
+     * is exhausted. Prefetching is not used if {@link #getNumberIdCacheSize()} is less than 10.
+     */
+    @Property("cuba.numberIdCache.prefetchEnabled")
+    @DefaultBoolean(false)
+    boolean getNumberIdCachePrefetchEnabled();
+
+    /**
+     * @return percentage of identifiers left in the current block at which the next block is requested in background
+     */
+    @Property("cuba.numberIdCache.prefetchThreshold")
+    @DefaultInt(50)
+    int getNumberIdCachePrefetchThreshold();
+
+    /**
+     * @return maximum number of blocks of number identifiers requested in background at once
+     */
+    @Property("cuba.numberIdCache.maxPrefetchBlocks")
+    @DefaultInt(8)
+    int getNumberIdCacheMaxPrefetchBlocks();
+
     @Property("cuba.anonymousSessionId")
     @Factory(factory = UuidTypeFactory.class)
     UUID getAnonymousSessionId();
@@ -218,4 +240,12 @@ public interface GlobalConfig extends Config {
     @Property("cuba.enableSessionParamsInQueryFilter")
     @DefaultBoolean(true)
     boolean getEnableSessionParamsInQueryFilter();
-}
\ No newline at end of file
+
+    /**
+     * @return whether UUIDs are created by {@link com.haulmont.cuba.core.sys.TimeOrderedUuidSource}, which improves
+     * index locality of UUID primary keys. Takes effect on application start.
+     */
+    @Property("cuba.uuidSource.timeOrdered")
+    @DefaultBoolean(false)
+    boolean getUuidSourceTimeOrdered();
+}
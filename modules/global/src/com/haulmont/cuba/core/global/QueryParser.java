@@ -58,6 +58,11 @@ public interface QueryParser {
      */
     boolean hasJoins();
 
+    /**
+     * Returns true if SELECT query contains ORDER BY clause
+     */
+    boolean hasOrderBy();
+
     /**
      * @return Entity name if not main entity name is returned, otherwise null
      * Example: select u.group from sec$User u -&gt; sec$Group
@@ -166,6 +166,11 @@ public class QueryParserAstBased implements QueryParser {
         return getQueryAnalyzer().hasJoins();
     }
 
+    @Override
+    public boolean hasOrderBy() {
+        return getQueryAnalyzer().hasOrderBy();
+    }
+
     @Override
     public String getEntityNameIfSecondaryReturnedInsteadOfMain() {
         EntityNameAndPath entityNameAndAlias = getEntityNameAndPathIfSecondaryReturnedInsteadOfMain();
@@ -140,6 +140,11 @@ public class QueryParserRegex implements QueryParser {
         return false;
     }
 
+    @Override
+    public boolean hasOrderBy() {
+        return ORDER_BY_PATTERN.matcher(source).find();
+    }
+
     @Override
     public Set<String> getAllEntityNames() {
         Matcher entityNamesMatcher = ENTITY_PATTERN.matcher(source);
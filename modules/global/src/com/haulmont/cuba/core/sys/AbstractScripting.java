@@ -18,9 +18,11 @@
 package com.haulmont.cuba.core.sys;
 
 import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.Events;
 import com.haulmont.cuba.core.global.GlobalConfig;
 import com.haulmont.cuba.core.global.ScriptExecutionPolicy;
 import com.haulmont.cuba.core.global.Scripting;
+import com.haulmont.cuba.core.sys.events.ScriptingCacheClearedEvent;
 import com.haulmont.cuba.core.sys.javacl.JavaClassLoader;
 import groovy.lang.Binding;
 import groovy.lang.GroovyClassLoader;
@@ -69,9 +71,22 @@ public abstract class AbstractScripting implements Scripting {
 
     protected GlobalConfig globalConfig;
 
+    protected Events events;
+
+    /**
+     * @deprecated use {@link #AbstractScripting(JavaClassLoader, Configuration, SpringBeanLoader, Events)},
+     * otherwise {@link ScriptingCacheClearedEvent} is not published
+     */
+    @Deprecated
     public AbstractScripting(JavaClassLoader javaClassLoader, Configuration configuration, SpringBeanLoader springBeanLoader) {
+        this(javaClassLoader, configuration, springBeanLoader, null);
+    }
+
+    public AbstractScripting(JavaClassLoader javaClassLoader, Configuration configuration, SpringBeanLoader springBeanLoader,
+                             Events events) {
         this.javaClassLoader = javaClassLoader;
         this.springBeanLoader = springBeanLoader;
+        this.events = events;
         globalConfig = configuration.getConfig(GlobalConfig.class);
         groovyClassPath = globalConfig.getConfDir() + File.pathSeparator;
 
@@ -231,6 +246,17 @@ public abstract class AbstractScripting implements Scripting {
         return (T) evaluateGroovy(text, binding);
     }
 
+    /**
+     * Compiles Groovy expression into a script class. The expression is compiled the same way as by
+     * {@link #evaluateGroovy(String, Binding)}, but the compiled class is not cached. Instances of the class can be
+     * created concurrently, each with its own binding.
+     * @param text      expression text
+     * @return          compiled script class
+     */
+    public Class<? extends Script> compileGroovy(String text) {
+        return createScript(text).getClass();
+    }
+
     @Override
     public <T> T runGroovyScript(String name, Binding binding) {
         try {
@@ -311,6 +337,9 @@ public abstract class AbstractScripting implements Scripting {
         } catch (NoSuchFieldException | IllegalAccessException e) {
             //ignore the exception
         }
+        if (events != null) {
+            events.publish(new ScriptingCacheClearedEvent(this));
+        }
     }
 
     protected class CubaResourceConnector implements ResourceConnector {
@@ -16,6 +16,7 @@
  */
 package com.haulmont.cuba.core.sys;
 
+import com.haulmont.cuba.core.config.ConfigChanges;
 import com.haulmont.cuba.core.global.Events;
 import com.haulmont.cuba.core.sys.events.AppContextStartedEvent;
 import com.haulmont.cuba.core.sys.events.AppContextStoppedEvent;
@@ -275,6 +276,7 @@ public class AppContext {
         public static void setAppComponents(AppComponents appComponents) {
             AppContext.appComponents = appComponents;
             AppContext.appProperties = new AppProperties(appComponents);
+            ConfigChanges.propertiesChanged();
         }
 
         /**
@@ -20,6 +20,7 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
 import com.haulmont.bali.datastruct.Pair;
+import com.haulmont.cuba.core.config.ConfigChanges;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.text.StrLookup;
 import org.apache.commons.lang.text.StrSubstitutor;
@@ -64,8 +65,30 @@ public class AppProperties {
             new Pair<>("cuba.amazonS3.*", "cuba.amazon.s3.*") // 6.1
     );
 
+    // deprecated properties with exact names, by both names
+    private final Map<String, Pair<String, String>> deprecatedProperties = new HashMap<>();
+
+    // prefixes of deprecated properties defined by patterns
+    private final List<Pair<String, String>> deprecatedPrefixes = new ArrayList<>();
+
+    // resolved pairs of deprecated properties by requested keys, NO_DEPRECATED_PROPERTY if the key is not deprecated
+    private final Map<String, Pair<String, String>> resolvedDeprecatedProperties = new ConcurrentHashMap<>();
+
+    private static final Pair<String, String> NO_DEPRECATED_PROPERTY = new Pair<>(null, null);
+
     public AppProperties(AppComponents appComponents) {
         this.appComponents = appComponents;
+
+        for (Pair<String, String> pair : DEPRECATED_PROPERTIES) {
+            if (pair.getFirst().endsWith("*")) {
+                deprecatedPrefixes.add(new Pair<>(
+                        pair.getFirst().substring(0, pair.getFirst().length() - 1),
+                        pair.getSecond().substring(0, pair.getSecond().length() - 1)));
+            } else {
+                deprecatedProperties.putIfAbsent(pair.getFirst(), pair);
+                deprecatedProperties.putIfAbsent(pair.getSecond(), pair);
+            }
+        }
     }
 
     /**
@@ -95,22 +118,33 @@ public class AppProperties {
             throw new IllegalArgumentException("Null key passed as parameter");
         }
 
-        for (Pair<String, String> pair : DEPRECATED_PROPERTIES) {
-            if (pair.getFirst().endsWith("*")) {
-                String substring1 = pair.getFirst().substring(0, pair.getFirst().length() - 1);
-                String substring2 = pair.getSecond().substring(0, pair.getSecond().length() - 1);
-                if (key.startsWith(substring1)) {
-                    return getDeprecatedProperty(new Pair<>(key, substring2 + key.substring(substring1.length())));
-                }
-                if (key.startsWith(substring2)) {
-                    return getDeprecatedProperty(new Pair<>(substring1 + key.substring(substring2.length()), key));
-                }
+        Pair<String, String> pair = resolvedDeprecatedProperties.get(key);
+        if (pair == null) {
+            pair = resolveDeprecatedProperty(key);
+            resolvedDeprecatedProperties.put(key, pair);
+        }
+        //noinspection ObjectEquality
+        if (pair != NO_DEPRECATED_PROPERTY) {
+            return getDeprecatedProperty(pair);
+        }
+        return getSystemOrAppProperty(key);
+    }
+
+    // exact names are listed before patterns in DEPRECATED_PROPERTIES, so they are checked first
+    private Pair<String, String> resolveDeprecatedProperty(String key) {
+        Pair<String, String> pair = deprecatedProperties.get(key);
+        if (pair != null) {
+            return pair;
+        }
+        for (Pair<String, String> prefixes : deprecatedPrefixes) {
+            if (key.startsWith(prefixes.getFirst())) {
+                return new Pair<>(key, prefixes.getSecond() + key.substring(prefixes.getFirst().length()));
             }
-            if (pair.getFirst().equals(key) || pair.getSecond().equals(key)) {
-                return getDeprecatedProperty(pair);
+            if (key.startsWith(prefixes.getSecond())) {
+                return new Pair<>(prefixes.getFirst() + key.substring(prefixes.getSecond().length()), key);
             }
         }
-        return getSystemOrAppProperty(key);
+        return NO_DEPRECATED_PROPERTY;
     }
 
     private String getDeprecatedProperty(Pair<String, String> pair) {
@@ -215,5 +249,6 @@ public class AppProperties {
             properties.remove(key);
         else
             properties.put(key, value);
+        ConfigChanges.propertiesChanged();
     }
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.cuba.security.global.ConstraintData;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of in-memory evaluation of Groovy scripts of row-level constraints, collected by {@link SecurityImpl}.
+ */
+@Component(ConstraintStatistics.NAME)
+public class ConstraintStatistics {
+
+    public static final String NAME = "cuba_ConstraintStatistics";
+
+    public static class ConstraintStat {
+
+        protected final UUID constraintId;
+
+        protected final String code;
+
+        protected final String groovyScript;
+
+        protected final LongAdder count = new LongAdder();
+        protected final LongAdder deniedCount = new LongAdder();
+        protected final LongAdder errorCount = new LongAdder();
+        protected final LongAdder totalTime = new LongAdder();
+        protected final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+
+        public ConstraintStat(ConstraintData constraint) {
+            this.constraintId = constraint.getId();
+            this.code = constraint.getCode();
+            this.groovyScript = constraint.getGroovyScript();
+        }
+
+        /**
+         * Registers an evaluation of the constraint.
+         *
+         * @param time    evaluation time in nanoseconds
+         * @param result  true if the entity is permitted, false if denied, null if the evaluation failed
+         */
+        public void evaluated(long time, Boolean result) {
+            count.increment();
+            totalTime.add(time);
+            maxTime.accumulate(time);
+            if (result == null) {
+                errorCount.increment();
+            } else if (!result) {
+                deniedCount.increment();
+            }
+        }
+
+        public UUID getConstraintId() {
+            return constraintId;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getGroovyScript() {
+            return groovyScript;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getDeniedCount() {
+            return deniedCount.sum();
+        }
+
+        public long getErrorCount() {
+            return errorCount.sum();
+        }
+
+        public double getTotalTimeMs() {
+            return totalTime.sum() / 1_000_000.0;
+        }
+
+        public double getAverageTimeMs() {
+            long count = getCount();
+            return count == 0 ? 0 : getTotalTimeMs() / count;
+        }
+
+        public double getMaxTimeMs() {
+            return maxTime.get() / 1_000_000.0;
+        }
+    }
+
+    protected final ConcurrentMap<UUID, ConstraintStat> stats = new ConcurrentHashMap<>();
+
+    public ConstraintStat getStat(ConstraintData constraint) {
+        ConstraintStat stat = stats.get(constraint.getId());
+        if (stat == null) {
+            stat = stats.computeIfAbsent(constraint.getId(), id -> new ConstraintStat(constraint));
+        }
+        return stat;
+    }
+
+    public List<ConstraintStat> getStats() {
+        return new ArrayList<>(stats.values());
+    }
+
+    public void clear() {
+        stats.clear();
+    }
+}
@@ -24,6 +24,7 @@ import com.haulmont.chile.core.model.MetaModel;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.Session;
 import com.haulmont.chile.core.model.impl.SessionImpl;
+import com.haulmont.chile.core.model.utils.InstanceUtils;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.entity.annotation.EmbeddedParameters;
 import com.haulmont.cuba.core.global.*;
@@ -40,9 +41,12 @@ import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Component(Metadata.NAME)
 public class MetadataImpl implements Metadata {
@@ -90,6 +94,7 @@ public class MetadataImpl implements Metadata {
         rootPackages = metadataLoader.getRootPackages();
         session = new CachingMetadataSession(metadataLoader.getSession());
         SessionImpl.setSerializationSupportSession(session);
+        InstanceUtils.clearInstanceNameRenderers();
 
         log.info("Metadata initialized in " + (System.currentTimeMillis() - startTime) + "ms");
     }
@@ -119,11 +124,166 @@ public class MetadataImpl implements Metadata {
         return datatypeRegistry;
     }
 
-    protected <T> T __create(Class<T> entityClass) {
+    /**
+     * Instantiates entities of a class. Everything that depends only on the class is resolved when the factory
+     * is built: the constructor, the way of identifier assignment, embedded attributes that must not be null
+     * and {@code @PostConstruct} methods.
+     * <p>
+     * The factory is used through the protected {@code assignIdentifier}, {@code assignUuid}, {@code createEmbedded}
+     * and {@code invokePostConstructMethods} methods of {@code MetadataImpl}, so they can still be overridden.
+     */
+    protected class EntityFactory {
+
+        protected final Class<?> entityClass;
+
+        protected final Constructor<?> constructor;
+
+        protected final MetaClass embeddedIdMetaClass;
+
+        protected final String entityNameForIdGeneration;
+
+        protected final boolean longId;
+
+        protected final boolean integerId;
+
+        protected final boolean hasUuid;
+
+        protected final List<MetaProperty> embeddedProperties = new ArrayList<>(2);
+
+        protected final List<Method> postConstructMethods = new ArrayList<>(4);
+
+        protected EntityFactory(Class<?> extClass) {
+            entityClass = extClass;
+
+            Constructor<?> defaultConstructor;
+            try {
+                defaultConstructor = extClass.getDeclaredConstructor();
+                if (!defaultConstructor.isAccessible()) {
+                    defaultConstructor.setAccessible(true);
+                }
+            } catch (NoSuchMethodException e) {
+                // the factory can still initialize instances passed to the hooks of MetadataImpl
+                defaultConstructor = null;
+            }
+            constructor = defaultConstructor;
+
+            MetaClass metaClass = getClassNN(extClass);
+
+            MetaClass embeddedIdClass = null;
+            String idGenerationName = null;
+            if (BaseGenericIdEntity.class.isAssignableFrom(extClass)) {
+                MetaProperty primaryKeyProperty = tools.getPrimaryKeyProperty(metaClass);
+                if (primaryKeyProperty != null && tools.isEmbedded(primaryKeyProperty)) {
+                    embeddedIdClass = primaryKeyProperty.getRange().asClass();
+                } else if (tools.isPersistent(metaClass)
+                        && (BaseLongIdEntity.class.isAssignableFrom(extClass) || BaseIntegerIdEntity.class.isAssignableFrom(extClass))) {
+                    idGenerationName = getEntityNameForIdGeneration(metaClass);
+                }
+            }
+            embeddedIdMetaClass = embeddedIdClass;
+            entityNameForIdGeneration = idGenerationName;
+            longId = idGenerationName != null && BaseLongIdEntity.class.isAssignableFrom(extClass);
+            integerId = idGenerationName != null && BaseIntegerIdEntity.class.isAssignableFrom(extClass);
+            hasUuid = HasUuid.class.isAssignableFrom(extClass);
+
+            for (MetaProperty property : metaClass.getProperties()) {
+                if (property.getRange().isClass() && tools.isEmbedded(property)) {
+                    EmbeddedParameters embeddedParameters = property.getAnnotatedElement().getAnnotation(EmbeddedParameters.class);
+                    if (embeddedParameters != null && !embeddedParameters.nullAllowed()) {
+                        embeddedProperties.add(property);
+                    }
+                }
+            }
+
+            // methods of superclasses are invoked first, an overridden method is invoked once
+            List<String> methodNames = new ArrayList<>(4);
+            Class clazz = extClass;
+            while (clazz != Object.class) {
+                for (Method method : clazz.getDeclaredMethods()) {
+                    if (method.isAnnotationPresent(PostConstruct.class) && !methodNames.contains(method.getName())) {
+                        if (!method.isAccessible()) {
+                            method.setAccessible(true);
+                        }
+                        postConstructMethods.add(0, method);
+                        methodNames.add(method.getName());
+                    }
+                }
+                clazz = clazz.getSuperclass();
+            }
+        }
+
+        protected Object newInstance() throws InstantiationException, InvocationTargetException, IllegalAccessException {
+            if (constructor == null) {
+                throw new InstantiationException("Entity class " + entityClass.getName() + " has no default constructor");
+            }
+            return constructor.newInstance();
+        }
+
         @SuppressWarnings("unchecked")
-        Class<T> extClass = extendedEntities.getEffectiveClass(entityClass);
+        protected void assignIdentifier(Entity entity) {
+            if (embeddedIdMetaClass != null) {
+                ((BaseGenericIdEntity) entity).setId(MetadataImpl.this.create(embeddedIdMetaClass));
+            } else if (longId) {
+                ((BaseGenericIdEntity<Long>) entity).setId(numberIdSource.createLongId(entityNameForIdGeneration));
+            } else if (integerId) {
+                ((BaseGenericIdEntity<Integer>) entity).setId(numberIdSource.createIntegerId(entityNameForIdGeneration));
+            }
+        }
+
+        protected void assignUuid(Entity entity) {
+            if (hasUuid) {
+                ((HasUuid) entity).setUuid(UuidProvider.createUuid());
+            }
+        }
+
+        protected void createEmbedded(Entity entity) {
+            for (MetaProperty property : embeddedProperties) {
+                entity.setValue(property.getName(), MetadataImpl.this.create(property.getRange().asClass()));
+            }
+        }
+
+        protected void invokePostConstructMethods(Entity entity) throws InvocationTargetException, IllegalAccessException {
+            for (Method method : postConstructMethods) {
+                method.invoke(entity);
+            }
+        }
+    }
+
+    /**
+     * Entity factories built for the current metadata session.
+     */
+    protected static class EntityFactories {
+
+        protected final Session session;
+
+        protected final ConcurrentMap<Class, EntityFactory> factories = new ConcurrentHashMap<>();
+
+        protected EntityFactories(Session session) {
+            this.session = session;
+        }
+    }
+
+    protected volatile EntityFactories entityFactories;
+
+    protected EntityFactory getEntityFactory(Class<?> entityClass) {
+        EntityFactories factories = entityFactories;
+        // factories are rebuilt when metadata is reloaded
+        if (factories == null || factories.session != session) {
+            factories = new EntityFactories(session);
+            entityFactories = factories;
+        }
+        EntityFactory factory = factories.factories.get(entityClass);
+        if (factory == null) {
+            factory = factories.factories.computeIfAbsent(entityClass,
+                    c -> new EntityFactory(extendedEntities.getEffectiveClass(c)));
+        }
+        return factory;
+    }
+
+    protected <T> T __create(Class<T> entityClass) {
         try {
-            T obj = extClass.newInstance();
+            @SuppressWarnings("unchecked")
+            T obj = (T) getEntityFactory(entityClass).newInstance();
             assignIdentifier((Entity) obj);
             assignUuid((Entity) obj);
             createEmbedded((Entity) obj);
@@ -134,26 +294,8 @@ public class MetadataImpl implements Metadata {
         }
     }
 
-    @SuppressWarnings("unchecked")
     protected void assignIdentifier(Entity entity) {
-        if (!(entity instanceof BaseGenericIdEntity))
-            return;
-
-        MetaClass metaClass = getClassNN(entity.getClass());
-
-        MetaProperty primaryKeyProperty = tools.getPrimaryKeyProperty(metaClass);
-        if (primaryKeyProperty != null && tools.isEmbedded(primaryKeyProperty)) {
-            // create an instance of embedded ID
-            Entity key = create(primaryKeyProperty.getRange().asClass());
-            ((BaseGenericIdEntity) entity).setId(key);
-
-        } else if (tools.isPersistent(metaClass)) {
-            if (entity instanceof BaseLongIdEntity) {
-                ((BaseGenericIdEntity<Long>) entity).setId(numberIdSource.createLongId(getEntityNameForIdGeneration(metaClass)));
-            } else if (entity instanceof BaseIntegerIdEntity) {
-                ((BaseGenericIdEntity<Integer>) entity).setId(numberIdSource.createIntegerId(getEntityNameForIdGeneration(metaClass)));
-            }
-        }
+        getEntityFactory(entity.getClass()).assignIdentifier(entity);
     }
 
     protected String getEntityNameForIdGeneration(MetaClass metaClass) {
@@ -170,48 +312,15 @@ public class MetadataImpl implements Metadata {
     }
 
     protected void assignUuid(Entity entity) {
-        if (entity instanceof HasUuid) {
-            ((HasUuid) entity).setUuid(UuidProvider.createUuid());
-        }
+        getEntityFactory(entity.getClass()).assignUuid(entity);
     }
 
     protected void createEmbedded(Entity entity) {
-        MetaClass metaClass = getClassNN(entity.getClass());
-        for (MetaProperty property : metaClass.getProperties()) {
-            if (property.getRange().isClass() && tools.isEmbedded(property)) {
-                EmbeddedParameters embeddedParameters = property.getAnnotatedElement().getAnnotation(EmbeddedParameters.class);
-                if (embeddedParameters != null && !embeddedParameters.nullAllowed()) {
-                    MetaClass embeddableMetaClass = property.getRange().asClass();
-                    Entity embeddableEntity = create(embeddableMetaClass);
-                    entity.setValue(property.getName(), embeddableEntity);
-                }
-            }
-        }
+        getEntityFactory(entity.getClass()).createEmbedded(entity);
     }
 
     protected void invokePostConstructMethods(Entity entity) throws InvocationTargetException, IllegalAccessException {
-        List<Method> postConstructMethods = new ArrayList<>(4);
-        List<String> methodNames = new ArrayList<>(4);
-        Class clazz = entity.getClass();
-        while (clazz != Object.class) {
-            Method[] classMethods = clazz.getDeclaredMethods();
-            for (Method method : classMethods) {
-                if (method.isAnnotationPresent(PostConstruct.class) && !methodNames.contains(method.getName())) {
-                    postConstructMethods.add(method);
-                    methodNames.add(method.getName());
-                }
-            }
-            clazz = clazz.getSuperclass();
-        }
-
-        ListIterator<Method> iterator = postConstructMethods.listIterator(postConstructMethods.size());
-        while (iterator.hasPrevious()) {
-            Method method = iterator.previous();
-            if (!method.isAccessible()) {
-                method.setAccessible(true);
-            }
-            method.invoke(entity);
-        }
+        getEntityFactory(entity.getClass()).invokePostConstructMethods(entity);
     }
 
     @Override
@@ -17,65 +17,231 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.haulmont.cuba.core.global.GlobalConfig;
-
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Caches blocks of identifiers obtained from {@link NumberIdSequence}. Each value returned by the sequence
+ * reserves {@code cuba.numberIdCacheSize} identifiers following it.
+ * <p>
+ * When the number of identifiers left in the current block falls below the threshold defined by
+ * {@code cuba.numberIdCache.prefetchThreshold}, the next blocks are requested in background, so callers normally
+ * switch to a prefetched block without waiting for the sequence. The number of blocks requested at once grows
+ * when callers have to wait and shrinks when identifiers are consumed slowly. Prefetching is enabled by
+ * {@code cuba.numberIdCache.prefetchEnabled} and is not used if {@code cuba.numberIdCacheSize} is less than 10.
+ */
 @Component(NumberIdCache.NAME)
 public class NumberIdCache {
 
     public static final String NAME = "cuba_NumberIdCache";
 
-    protected class Generator {
-        protected AtomicLong counter;
-        protected long sequenceValue;
+    private static final Logger log = LoggerFactory.getLogger(NumberIdCache.class);
+
+    /**
+     * If a block lasts longer than this, the number of prefetched blocks is decreased.
+     */
+    protected static final long SLOW_CONSUMPTION_MS = 60_000;
+
+    /**
+     * Prefetching is not used for smaller blocks, as it would request the sequence in background for almost
+     * every identifier.
+     */
+    protected static final int MIN_PREFETCH_CACHE_SIZE = 10;
+
+    protected static class Block {
+        protected final long last;
+        protected final AtomicLong counter;
 
-        protected Generator(String entityName, NumberIdSequence sequence) {
-            sequenceValue = sequence.createLongId(entityName);
+        protected Block(long sequenceValue, int size) {
             counter = new AtomicLong(sequenceValue);
+            last = sequenceValue + size;
         }
 
         protected long getNext() {
             long next = counter.incrementAndGet();
-            if (next > sequenceValue + cacheSize)
+            if (next > last)
                 return -1;
             return next;
         }
+
+        protected long getRemaining() {
+            return Math.max(0, last - counter.get());
+        }
+    }
+
+    protected static final Block EMPTY_BLOCK = new Block(0, 0);
+
+    protected class Generator {
+        protected final String entityName;
+        protected volatile Block current = EMPTY_BLOCK;
+        protected final Queue<Block> reserve = new ConcurrentLinkedQueue<>();
+        protected final AtomicBoolean prefetching = new AtomicBoolean();
+        protected volatile int prefetchBlocks = 1;
+        protected long blockStartTime;
+
+        protected Generator(String entityName) {
+            this.entityName = entityName;
+        }
+
+        protected long getNext(NumberIdSequence sequence) {
+            while (true) {
+                Block block = current;
+                long next = block.getNext();
+                if (next != -1) {
+                    if (prefetchEnabled
+                            && block.getRemaining() < prefetchThreshold
+                            && reserve.isEmpty()) {
+                        schedulePrefetch(this, sequence);
+                    }
+                    return next;
+                }
+                synchronized (this) {
+                    if (current == block) {
+                        current = nextBlock(sequence);
+                    }
+                }
+            }
+        }
+
+        // called under the generator's monitor
+        protected Block nextBlock(NumberIdSequence sequence) {
+            long now = System.currentTimeMillis();
+            boolean slow = blockStartTime > 0 && now - blockStartTime > SLOW_CONSUMPTION_MS;
+            blockStartTime = now;
+
+            Block block = reserve.poll();
+            if (block != null) {
+                if (slow && prefetchBlocks > 1) {
+                    prefetchBlocks = prefetchBlocks / 2;
+                }
+                return block;
+            }
+
+            if (prefetchEnabled && current != EMPTY_BLOCK && !slow) {
+                prefetchBlocks = Math.min(prefetchBlocks * 2, maxPrefetchBlocks);
+            }
+
+            long start = System.nanoTime();
+            try {
+                return new Block(sequence.createLongId(entityName), cacheSize);
+            } finally {
+                waitCount.increment();
+                waitTime.add(System.nanoTime() - start);
+            }
+        }
     }
 
     protected ConcurrentMap<String, Generator> cache = new ConcurrentHashMap<>();
 
     protected int cacheSize;
 
+    protected boolean prefetchEnabled;
+
+    protected int prefetchThreshold;
+
+    protected int maxPrefetchBlocks;
+
+    protected ExecutorService prefetchExecutor = Executors.newFixedThreadPool(2,
+            new ThreadFactoryBuilder().setNameFormat("NumberIdCachePrefetch-%d").setDaemon(true).build());
+
+    protected LongAdder waitCount = new LongAdder();
+    protected LongAdder waitTime = new LongAdder();
+    protected LongAdder prefetchCount = new LongAdder();
+    protected LongAdder prefetchErrorCount = new LongAdder();
+
     @Inject
     protected void setConfig(GlobalConfig config) {
         cacheSize = config.getNumberIdCacheSize();
+        prefetchEnabled = config.getNumberIdCachePrefetchEnabled() && cacheSize >= MIN_PREFETCH_CACHE_SIZE;
+        prefetchThreshold = Math.max(1, cacheSize * config.getNumberIdCachePrefetchThreshold() / 100);
+        maxPrefetchBlocks = Math.max(1, config.getNumberIdCacheMaxPrefetchBlocks());
+    }
+
+    @PreDestroy
+    protected void shutdown() {
+        prefetchExecutor.shutdownNow();
     }
 
     public Long createLongId(String entityName, NumberIdSequence sequence) {
-        Generator gen = getGenerator(entityName, sequence);
-        long next = gen.getNext();
-        if (next == -1) {
-            cache.remove(entityName);
-            gen = getGenerator(entityName, sequence);
-            next = gen.getNext();
-        }
-        return next;
+        return getGenerator(entityName).getNext(sequence);
     }
 
-    protected Generator getGenerator(String entityName, NumberIdSequence sequence) {
+    protected Generator getGenerator(String entityName) {
         Generator gen = cache.get(entityName);
         if (gen == null) {
-            gen = new Generator(entityName, sequence);
-            Generator existingGen = cache.putIfAbsent(entityName, gen);
-            if (existingGen != null) {
-                gen = existingGen;
-            }
+            gen = cache.computeIfAbsent(entityName, Generator::new);
         }
         return gen;
     }
-}
\ No newline at end of file
+
+    protected void schedulePrefetch(Generator gen, NumberIdSequence sequence) {
+        if (!gen.prefetching.compareAndSet(false, true))
+            return;
+        try {
+            prefetchExecutor.execute(new SecurityContextAwareRunnable(() -> prefetch(gen, sequence)));
+        } catch (RejectedExecutionException e) {
+            gen.prefetching.set(false);
+        }
+    }
+
+    protected void prefetch(Generator gen, NumberIdSequence sequence) {
+        try {
+            int count = gen.prefetchBlocks;
+            for (int i = 0; i < count; i++) {
+                gen.reserve.add(new Block(sequence.createLongId(gen.entityName), cacheSize));
+                prefetchCount.increment();
+            }
+        } catch (Exception e) {
+            prefetchErrorCount.increment();
+            log.warn("Unable to prefetch identifiers for {}: {}", gen.entityName, e.toString());
+        } finally {
+            gen.prefetching.set(false);
+        }
+    }
+
+    /**
+     * @return number of identifiers reserved by one sequence value
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @return number of times a caller had to wait for the sequence because no prefetched block was available
+     */
+    public long getWaitCount() {
+        return waitCount.sum();
+    }
+
+    /**
+     * @return total time in milliseconds callers spent waiting for the sequence
+     */
+    public long getWaitTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(waitTime.sum());
+    }
+
+    /**
+     * @return number of blocks obtained in background
+     */
+    public long getPrefetchCount() {
+        return prefetchCount.sum();
+    }
+
+    /**
+     * @return number of failed background requests to the sequence
+     */
+    public long getPrefetchErrorCount() {
+        return prefetchErrorCount.sum();
+    }
+}
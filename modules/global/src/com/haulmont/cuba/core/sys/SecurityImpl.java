@@ -17,6 +17,8 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.datatypes.impl.EnumClass;
@@ -24,18 +26,24 @@ import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.events.ScriptingCacheClearedEvent;
 import com.haulmont.cuba.security.entity.ConstraintOperationType;
 import com.haulmont.cuba.security.entity.EntityAttrAccess;
 import com.haulmont.cuba.security.entity.EntityOp;
 import com.haulmont.cuba.security.entity.PermissionType;
 import com.haulmont.cuba.security.global.ConstraintData;
 import com.haulmont.cuba.security.global.UserSession;
+import groovy.lang.Binding;
+import groovy.lang.Script;
 import org.apache.commons.lang.StringUtils;
+import org.codehaus.groovy.runtime.InvokerHelper;
 import org.codehaus.groovy.runtime.MethodClosure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.text.ParseException;
 import java.util.*;
@@ -66,6 +74,20 @@ public class SecurityImpl implements Security {
     @Inject
     protected Scripting scripting;
 
+    @Inject
+    protected ConstraintStatistics constraintStatistics;
+
+    protected static final String ENTITY_VARIABLE = "__entity__";
+
+    /**
+     * Maximum number of compiled constraint scripts. The least recently used scripts are evicted.
+     */
+    protected static final int MAX_COMPILED_CONSTRAINTS = 1000;
+
+    protected final Cache<String, CompiledConstraint> compiledConstraints = CacheBuilder.newBuilder()
+            .maximumSize(MAX_COMPILED_CONSTRAINTS)
+            .build();
+
     @Override
     public boolean isScreenPermitted(String windowAlias) {
         return userSessionSource.getUserSession().isScreenPermitted(windowAlias);
@@ -205,43 +227,212 @@ public class SecurityImpl implements Security {
     }
 
     protected boolean isPermitted(Entity entity, Predicate<ConstraintData> predicate) {
-        List<ConstraintData> constraints = getConstraints(entity.getMetaClass(), predicate);
-        for (ConstraintData constraint : constraints) {
-            if (!isPermitted(entity, constraint)) {
-                return false;
-            }
-        }
-        return true;
+        return createConstraintChecker(predicate).isPermitted(entity);
     }
 
     protected boolean isPermitted(Entity entity, ConstraintData constraint) {
-        String metaClassName = entity.getMetaClass().getName();
-        String groovyScript = constraint.getGroovyScript();
-        if (constraint.getCheckType().memory() && StringUtils.isNotBlank(groovyScript)) {
-            try {
-                Object o = evaluateConstraintScript(entity, groovyScript);
-                if (Boolean.FALSE.equals(o)) {
-                    log.trace("Entity does not match security constraint. Entity class [{}]. Entity [{}]. Constraint [{}].",
-                            metaClassName, entity.getId(), constraint.getCheckType());
+        return createConstraintChecker(c -> c == constraint).isPermitted(entity, constraint);
+    }
+
+    /**
+     * Creates a checker of in-memory constraints selected by the predicate. The checker should be used to check
+     * a collection of entities or a graph of loaded entities in one thread: applicable constraints of each entity
+     * class are resolved and the scripts are instantiated only once per checker.
+     */
+    protected ConstraintChecker createConstraintChecker(Predicate<ConstraintData> predicate) {
+        return new ConstraintChecker(predicate);
+    }
+
+    /**
+     * Checks entities against in-memory constraints selected by a predicate. Not thread-safe.
+     */
+    protected class ConstraintChecker {
+
+        protected final Predicate<ConstraintData> predicate;
+
+        protected final Map<MetaClass, List<ConstraintData>> constraintsByMetaClass = new HashMap<>();
+
+        protected final Map<ConstraintData, ConstraintEvaluator> evaluators = new HashMap<>();
+
+        protected Map<String, Object> context;
+
+        protected ConstraintChecker(Predicate<ConstraintData> predicate) {
+            this.predicate = predicate;
+        }
+
+        public boolean isPermitted(Entity entity) {
+            List<ConstraintData> constraints = constraintsByMetaClass.computeIfAbsent(entity.getMetaClass(),
+                    metaClass -> getConstraints(metaClass, predicate));
+            for (ConstraintData constraint : constraints) {
+                if (!isPermitted(entity, constraint)) {
                     return false;
                 }
-            } catch (Exception e) {
-                log.error("An error occurred while applying constraint's Groovy script. The entity has been filtered out." +
-                        "Entity class [{}]. Entity [{}].", metaClassName, entity.getId(), e);
-                return false;
             }
+            return true;
+        }
+
+        protected boolean isPermitted(Entity entity, ConstraintData constraint) {
+            String metaClassName = entity.getMetaClass().getName();
+            String groovyScript = constraint.getGroovyScript();
+            if (constraint.getCheckType().memory() && StringUtils.isNotBlank(groovyScript)) {
+                ConstraintStatistics.ConstraintStat stat = constraintStatistics.getStat(constraint);
+                long start = System.nanoTime();
+                try {
+                    Object o = getEvaluator(constraint).evaluate(entity);
+                    if (Boolean.FALSE.equals(o)) {
+                        stat.evaluated(System.nanoTime() - start, false);
+                        log.trace("Entity does not match security constraint. Entity class [{}]. Entity [{}]. Constraint [{}].",
+                                metaClassName, entity.getId(), constraint.getCheckType());
+                        return false;
+                    }
+                    stat.evaluated(System.nanoTime() - start, true);
+                } catch (Exception e) {
+                    stat.evaluated(System.nanoTime() - start, null);
+                    // the script instance could be left in an inconsistent state
+                    evaluators.remove(constraint);
+                    log.error("An error occurred while applying constraint's Groovy script. The entity has been filtered out." +
+                            "Entity class [{}]. Entity [{}].", metaClassName, entity.getId(), e);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        protected ConstraintEvaluator getEvaluator(ConstraintData constraint) {
+            ConstraintEvaluator evaluator = evaluators.get(constraint);
+            if (evaluator == null) {
+                if (context == null) {
+                    context = createConstraintContext();
+                }
+                evaluator = createEvaluator(getCompiledConstraint(constraint.getGroovyScript()), context);
+                evaluators.put(constraint, evaluator);
+            }
+            return evaluator;
         }
-        return true;
     }
 
-    @Override
-    public Object evaluateConstraintScript(Entity entity, String groovyScript) {
+    /**
+     * Groovy script of a constraint compiled once and shared by all threads.
+     */
+    protected static class CompiledConstraint {
+
+        protected final String text;
+
+        protected final Class<? extends Script> scriptClass;
+
+        /**
+         * @param text        script text with the entity variable substituted
+         * @param scriptClass compiled script, or null if the {@link Scripting} implementation cannot compile scripts
+         */
+        protected CompiledConstraint(String text, @Nullable Class<? extends Script> scriptClass) {
+            this.text = text;
+            this.scriptClass = scriptClass;
+        }
+
+        /**
+         * @param context variables available to the script besides the entity
+         * @return evaluator to be used in one thread
+         */
+        protected ConstraintEvaluator createEvaluator(Map<String, Object> context) {
+            return new ConstraintEvaluator(InvokerHelper.createScript(scriptClass, new Binding()), context);
+        }
+    }
+
+    /**
+     * Instance of a constraint script, evaluated for each entity in turn. Each evaluation gets a new binding,
+     * so variables assigned by the script are not visible to evaluations for other entities.
+     */
+    protected static class ConstraintEvaluator {
+
+        protected final Script script;
+
+        protected final Map<String, Object> context;
+
+        protected ConstraintEvaluator(@Nullable Script script, Map<String, Object> context) {
+            this.script = script;
+            this.context = context;
+        }
+
+        protected Object evaluate(Entity entity) {
+            Map<String, Object> variables = new HashMap<>(context);
+            variables.put(ENTITY_VARIABLE, entity);
+            script.setBinding(new Binding(variables));
+            try {
+                return script.run();
+            } finally {
+                script.setBinding(new Binding());
+            }
+        }
+    }
+
+    /**
+     * Evaluates a constraint script through {@link Scripting#evaluateGroovy(String, Map)}. Used if the
+     * {@code Scripting} implementation does not extend {@link AbstractScripting} and cannot compile scripts.
+     */
+    protected class ScriptingConstraintEvaluator extends ConstraintEvaluator {
+
+        protected final String text;
+
+        protected ScriptingConstraintEvaluator(String text, Map<String, Object> context) {
+            super(null, context);
+            this.text = text;
+        }
+
+        @Override
+        protected Object evaluate(Entity entity) {
+            Map<String, Object> variables = new HashMap<>(context);
+            variables.put(ENTITY_VARIABLE, entity);
+            return scripting.evaluateGroovy(text, variables);
+        }
+    }
+
+    protected ConstraintEvaluator createEvaluator(CompiledConstraint compiledConstraint, Map<String, Object> context) {
+        if (compiledConstraint.scriptClass == null) {
+            return new ScriptingConstraintEvaluator(compiledConstraint.text, context);
+        }
+        return compiledConstraint.createEvaluator(context);
+    }
+
+    protected CompiledConstraint getCompiledConstraint(String groovyScript) {
+        CompiledConstraint compiledConstraint = compiledConstraints.getIfPresent(groovyScript);
+        if (compiledConstraint == null) {
+            compiledConstraint = compileConstraint(groovyScript);
+            compiledConstraints.put(groovyScript, compiledConstraint);
+        }
+        return compiledConstraint;
+    }
+
+    protected CompiledConstraint compileConstraint(String groovyScript) {
+        String text = groovyScript.replace("{E}", ENTITY_VARIABLE);
+        if (scripting instanceof AbstractScripting) {
+            return new CompiledConstraint(text, ((AbstractScripting) scripting).compileGroovy(text));
+        }
+        return new CompiledConstraint(text, null);
+    }
+
+    /**
+     * Compiled scripts refer to classes loaded by the Groovy class loader, so they are discarded together with
+     * the scripting cache.
+     */
+    @EventListener(ScriptingCacheClearedEvent.class)
+    protected void clearCompiledConstraints() {
+        compiledConstraints.invalidateAll();
+    }
+
+    protected Map<String, Object> createConstraintContext() {
         Map<String, Object> context = new HashMap<>();
-        context.put("__entity__", entity);
         context.put("parse", new MethodClosure(this, "parseValue"));
         context.put("userSession", userSessionSource.getUserSession());
         fillGroovyConstraintsContext(context);
-        return scripting.evaluateGroovy(groovyScript.replace("{E}", "__entity__"), context);
+        return context;
+    }
+
+    @Override
+    public Object evaluateConstraintScript(Entity entity, String groovyScript) {
+        // the script can be an arbitrary text entered in the constraint editor, so it is not compiled into the cache
+        Map<String, Object> context = createConstraintContext();
+        context.put(ENTITY_VARIABLE, entity);
+        return scripting.evaluateGroovy(groovyScript.replace("{E}", ENTITY_VARIABLE), context);
     }
 
     /**
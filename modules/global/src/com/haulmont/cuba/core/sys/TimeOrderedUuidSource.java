@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.cuba.core.global.UuidSource;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates UUIDs that grow with time, so new primary keys are inserted at the end of indexes instead of random
+ * positions. Used when the {@code cuba.uuidSource.timeOrdered} application property is {@code true}.
+ * <p>
+ * The layout follows UUID version 7: the 48 most significant bits contain the Unix time in milliseconds, followed
+ * by the version, a 12-bit counter, the variant and 62 random bits. The counter makes UUIDs created by this source
+ * strictly increasing within the JVM, even if the system clock goes back. UUIDs created concurrently in different
+ * JVMs are ordered up to a millisecond.
+ * <p>
+ * UUIDs are ordered by their string representation and by unsigned byte comparison, as PostgreSQL {@code uuid} and
+ * character columns do. Microsoft SQL Server compares {@code uniqueidentifier} values starting from the last bytes,
+ * so this source does not improve index locality there.
+ */
+@Component(UuidSource.NAME)
+@ConditionalOnAppProperty(property = "cuba.uuidSource.timeOrdered", value = "true")
+public class TimeOrderedUuidSource implements UuidSource {
+
+    protected static final int COUNTER_BITS = 12;
+
+    protected static final long VERSION = 7L << COUNTER_BITS;
+
+    protected static final long VARIANT = 0x8000000000000000L;
+
+    protected static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+    // time in milliseconds shifted by COUNTER_BITS plus counter of UUIDs created in the millisecond
+    protected final AtomicLong lastTimestamp = new AtomicLong();
+
+    @Override
+    public UUID createUuid() {
+        long timestamp = nextTimestamp(currentTimeMillis());
+        long mostSigBits = (timestamp >>> COUNTER_BITS) << (COUNTER_BITS + 4)
+                | VERSION
+                | timestamp & ((1L << COUNTER_BITS) - 1);
+        long leastSigBits = VARIANT | ThreadLocalRandom.current().nextLong() & RANDOM_MASK;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * @return the next timestamp, greater than all previously returned. When the counter of the current millisecond
+     * is exhausted, it overflows into the time part.
+     */
+    protected long nextTimestamp(long timeMillis) {
+        long timestamp = timeMillis << COUNTER_BITS;
+        while (true) {
+            long last = lastTimestamp.get();
+            long next = timestamp > last ? timestamp : last + 1;
+            if (lastTimestamp.compareAndSet(last, next))
+                return next;
+        }
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * @return time in milliseconds when the UUID was created by this source
+     */
+    public static long getTimeMillis(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> (COUNTER_BITS + 4);
+    }
+}
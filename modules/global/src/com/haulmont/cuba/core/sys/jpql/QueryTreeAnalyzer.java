@@ -199,6 +199,10 @@ public class QueryTreeAnalyzer {
         return nodesFinder.getFoundNodes();
     }
 
+    public boolean hasOrderBy() {
+        return tree.getFirstChildWithType(JPA2Lexer.T_ORDER_BY) != null;
+    }
+
     public boolean hasJoins() {
         CommonTree sourceNode = (CommonTree) tree.getFirstChildWithType(JPA2Lexer.T_SOURCES);
         List<SelectionSourceNode> selectionSourceNodes = getChildrenByClass(sourceNode, SelectionSourceNode.class);
@@ -17,6 +17,7 @@
 package com.haulmont.cuba.security.global;
 
 import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.sys.UserInvocationContext;
 import com.haulmont.cuba.security.entity.*;
 
@@ -26,6 +27,7 @@ import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -40,6 +42,11 @@ public class UserSession implements Serializable {
 
     private static final long serialVersionUID = -8248326616891177382L;
 
+    /**
+     * Marks absence of a permission in {@link EntityPermissions}.
+     */
+    protected static final int NO_VALUE = Integer.MIN_VALUE;
+
     protected UUID id;
     protected User user;
     protected User substitutedUser;
@@ -58,6 +65,9 @@ public class UserSession implements Serializable {
 
     protected transient Map<String, Object> localAttributes;
 
+    // compiled entity permissions, shared with copies of the session like the permission maps
+    protected transient volatile ConcurrentMap<MetaClass, EntityPermissions> entityPermissions;
+
     /**
      * INTERNAL
      * Used only for kryo serialization
@@ -116,6 +126,7 @@ public class UserSession implements Serializable {
         locale = src.locale;
         timeZone = src.timeZone;
         permissions = src.permissions;
+        entityPermissions = src.getEntityPermissions();
         constraints = src.constraints;
         attributes = src.attributes;
         roleTypes = src.roleTypes;
@@ -264,6 +275,7 @@ public class UserSession implements Serializable {
             permissions[type.ordinal()].put(target, value);
             if (extTarget != null)
                 permissions[type.ordinal()].put(extTarget, value);
+            permissionsChanged(type);
         }
     }
 
@@ -272,6 +284,7 @@ public class UserSession implements Serializable {
      */
     public void removePermission(PermissionType type, String target) {
         permissions[type.ordinal()].remove(target);
+        permissionsChanged(type);
     }
 
     /**
@@ -299,17 +312,26 @@ public class UserSession implements Serializable {
      * Check user permission for the entity operation
      */
     public boolean isEntityOpPermitted(MetaClass metaClass, EntityOp entityOp) {
-        return isPermitted(PermissionType.ENTITY_OP,
-                metaClass.getName() + Permission.TARGET_PATH_DELIMETER + entityOp.getId());
+        if (roleTypes.contains(RoleType.SUPER))
+            return true;
+        int v = getEntityPermissions(metaClass).opValues[entityOp.ordinal()];
+        return v == NO_VALUE || v >= 1;
     }
 
     /**
      * Check user permission for the entity attribute
      */
     public boolean isEntityAttrPermitted(MetaClass metaClass, String property, EntityAttrAccess access) {
-        return isPermitted(PermissionType.ENTITY_ATTR,
-                metaClass.getName() + Permission.TARGET_PATH_DELIMETER + property,
-                access.getId());
+        if (roleTypes.contains(RoleType.SUPER))
+            return true;
+        Integer v = getEntityPermissions(metaClass).attrValues.get(property);
+        if (v == null) {
+            // not a property of the entity, e.g. a dynamic attribute
+            return isPermitted(PermissionType.ENTITY_ATTR,
+                    metaClass.getName() + Permission.TARGET_PATH_DELIMETER + property,
+                    access.getId());
+        }
+        return v == NO_VALUE || v >= access.getId();
     }
 
     /**
@@ -356,6 +378,13 @@ public class UserSession implements Serializable {
         // If we have super-role no need to check anything
         if (roleTypes.contains(RoleType.SUPER))
             return true;
+        Integer v = getEffectivePermissionValue(type, target);
+        // Return true if no value set for this target, or if the value is more than requested
+        return v == null || v >= value;
+    }
+
+    @Nullable
+    protected Integer getEffectivePermissionValue(PermissionType type, String target) {
         // Get permission value assigned by the set of permissions
         Integer v = permissions[type.ordinal()].get(target);
         // Get permission value assigned by non-standard roles
@@ -365,8 +394,50 @@ public class UserSession implements Serializable {
                 v = v1;
             }
         }
-        // Return true if no value set for this target, or if the value is more than requested
-        return v == null || v >= value;
+        return v;
+    }
+
+    protected ConcurrentMap<MetaClass, EntityPermissions> getEntityPermissions() {
+        ConcurrentMap<MetaClass, EntityPermissions> map = entityPermissions;
+        if (map == null) {
+            map = new ConcurrentHashMap<>();
+            entityPermissions = map;
+        }
+        return map;
+    }
+
+    protected EntityPermissions getEntityPermissions(MetaClass metaClass) {
+        ConcurrentMap<MetaClass, EntityPermissions> map = getEntityPermissions();
+        EntityPermissions result = map.get(metaClass);
+        if (result == null) {
+            result = map.computeIfAbsent(metaClass, this::compileEntityPermissions);
+        }
+        return result;
+    }
+
+    protected EntityPermissions compileEntityPermissions(MetaClass metaClass) {
+        String prefix = metaClass.getName() + Permission.TARGET_PATH_DELIMETER;
+
+        EntityOp[] entityOps = EntityOp.values();
+        int[] opValues = new int[entityOps.length];
+        for (EntityOp entityOp : entityOps) {
+            Integer v = getEffectivePermissionValue(PermissionType.ENTITY_OP, prefix + entityOp.getId());
+            opValues[entityOp.ordinal()] = v == null ? NO_VALUE : v;
+        }
+
+        Collection<MetaProperty> properties = metaClass.getProperties();
+        Map<String, Integer> attrValues = new HashMap<>(properties.size() * 4 / 3 + 1);
+        for (MetaProperty property : properties) {
+            Integer v = getEffectivePermissionValue(PermissionType.ENTITY_ATTR, prefix + property.getName());
+            attrValues.put(property.getName(), v == null ? NO_VALUE : v);
+        }
+        return new EntityPermissions(opValues, attrValues);
+    }
+
+    protected void permissionsChanged(PermissionType type) {
+        if (type == PermissionType.ENTITY_OP || type == PermissionType.ENTITY_ATTR) {
+            getEntityPermissions().clear();
+        }
     }
 
     /**
@@ -541,4 +612,22 @@ public class UserSession implements Serializable {
                 + user.getLogin() + (substitutedUser == null ? "" : " / " + substitutedUser.getLogin())
                 + "]";
     }
+
+    /**
+     * Entity operation and attribute permissions of an entity, compiled from the permission maps on first check.
+     * Values include the values defined by role types.
+     */
+    protected static class EntityPermissions {
+
+        // permission values by EntityOp ordinals
+        protected final int[] opValues;
+
+        // permission values by names of properties of the entity
+        protected final Map<String, Integer> attrValues;
+
+        protected EntityPermissions(int[] opValues, Map<String, Integer> attrValues) {
+            this.opValues = opValues;
+            this.attrValues = attrValues;
+        }
+    }
 }
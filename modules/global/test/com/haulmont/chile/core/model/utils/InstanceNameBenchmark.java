@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.chile.core.model.utils;
+
+import com.haulmont.chile.core.model.MetaClass;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures rendering of 100k instance names with the cached {@link InstanceNameRenderer} and with a renderer
+ * created for each instance, as it was before the renderers were cached.
+ * <p>
+ * Run the {@code main} method with the test classpath; JIT warm-up iterations are performed before measuring.
+ */
+public class InstanceNameBenchmark {
+
+    private static final int INSTANCES = 100_000;
+    private static final int WARM_UP_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        MetaClass refMetaClass = InstanceNameRendererTest.createMetaClass("test$Ref", "%s|name");
+        MetaClass metaClass = InstanceNameRendererTest.createMetaClass("test$Instance", "%s (%s) %s|name,code,ref");
+
+        List<InstanceNameRendererTest.TestInstance> instances = new ArrayList<>(INSTANCES);
+        for (int i = 0; i < INSTANCES; i++) {
+            InstanceNameRendererTest.TestInstance ref =
+                    new InstanceNameRendererTest.TestInstance(refMetaClass, "ref" + i % 100, null, null);
+            instances.add(new InstanceNameRendererTest.TestInstance(metaClass, "name" + i, i, ref));
+        }
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            runUncached(instances);
+            runCached(instances);
+        }
+
+        System.out.printf("uncached: %d ms%n", runUncached(instances));
+        System.out.printf("cached:   %d ms%n", runCached(instances));
+    }
+
+    private static long runCached(List<InstanceNameRendererTest.TestInstance> instances) {
+        long start = System.nanoTime();
+        long length = 0;
+        for (InstanceNameRendererTest.TestInstance instance : instances) {
+            length += InstanceUtils.getInstanceName(instance).length();
+        }
+        return finish(start, length);
+    }
+
+    private static long runUncached(List<InstanceNameRendererTest.TestInstance> instances) {
+        long start = System.nanoTime();
+        long length = 0;
+        for (InstanceNameRendererTest.TestInstance instance : instances) {
+            InstanceUtils.clearInstanceNameRenderers();
+            length += InstanceUtils.getInstanceName(instance).length();
+        }
+        return finish(start, length);
+    }
+
+    private static long finish(long start, long length) {
+        long time = (System.nanoTime() - start) / 1_000_000;
+        if (length == 0) {
+            System.out.println("unexpected");
+        }
+        return time;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.chile.core.model.utils;
+
+import com.haulmont.chile.core.annotations.NamePattern;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.impl.AbstractInstance;
+import com.haulmont.chile.core.model.impl.MetaClassImpl;
+import com.haulmont.chile.core.model.impl.MetaModelImpl;
+import com.haulmont.chile.core.model.impl.SessionImpl;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class InstanceNameRendererTest {
+
+    @Test
+    public void testCompileFormat() throws Exception {
+        assertArrayEquals(new Object[]{0, " (", 1, ")"}, InstanceNameRenderer.compileFormat("%s (%s)", 2));
+        assertArrayEquals(new Object[]{"100% ", 0}, InstanceNameRenderer.compileFormat("100%% %s", 1));
+        assertNull(InstanceNameRenderer.compileFormat("%d", 1));
+        assertNull(InstanceNameRenderer.compileFormat("%1$s", 1));
+        assertNull(InstanceNameRenderer.compileFormat("%s %s", 1));
+        assertNull(InstanceNameRenderer.compileFormat("%s%", 1));
+    }
+
+    @Test
+    public void testFormatPattern() throws Exception {
+        MetaClass refMetaClass = createMetaClass("test$Ref", "%s|name");
+        TestInstance ref = new TestInstance(refMetaClass, "ref", null, null);
+
+        MetaClass metaClass = createMetaClass("test$Instance", "%s [%s] %s|name,code,ref");
+        TestInstance instance = new TestInstance(metaClass, "name", 10, ref);
+
+        assertEquals("name [10] ref", InstanceUtils.getInstanceName(instance));
+
+        instance.name = null;
+        instance.ref = null;
+        assertEquals(" [10] ", InstanceUtils.getInstanceName(instance));
+
+        MetaClass fallbackMetaClass = createMetaClass("test$Fallback", "%s: %05d|name,code");
+        assertEquals("name: 00010", InstanceUtils.getInstanceName(new TestInstance(fallbackMetaClass, "name", 10, null)));
+    }
+
+    @Test
+    public void testMethodPattern() throws Exception {
+        MetaClass metaClass = createMetaClass("test$Method", "#formatName|name,code");
+        TestInstance instance = new TestInstance(metaClass, "name", 10, null);
+
+        assertEquals("name-10", InstanceUtils.getInstanceName(instance));
+    }
+
+    @Test
+    public void testNoPattern() throws Exception {
+        MetaClass metaClass = createMetaClass("test$NoPattern", null);
+        TestInstance instance = new TestInstance(metaClass, "name", 10, null);
+
+        assertEquals(instance.toString(), InstanceUtils.getInstanceName(instance));
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        MetaClass metaClass = createMetaClass("test$Cached", "%s|name");
+
+        InstanceNameRenderer renderer = InstanceUtils.getInstanceNameRenderer(metaClass);
+        assertSame(renderer, InstanceUtils.getInstanceNameRenderer(metaClass));
+
+        InstanceUtils.clearInstanceNameRenderers();
+        assertNotSame(renderer, InstanceUtils.getInstanceNameRenderer(metaClass));
+    }
+
+    static MetaClass createMetaClass(String name, String namePattern) {
+        MetaClassImpl metaClass = new MetaClassImpl(new MetaModelImpl(new SessionImpl(), name), name);
+        if (namePattern != null) {
+            metaClass.getAnnotations().put(NamePattern.class.getName(), Collections.singletonMap("value", namePattern));
+        }
+        return metaClass;
+    }
+
+    public static class TestInstance extends AbstractInstance {
+
+        private final MetaClass metaClass;
+
+        private String name;
+        private Integer code;
+        private TestInstance ref;
+
+        public TestInstance(MetaClass metaClass, String name, Integer code, TestInstance ref) {
+            this.metaClass = metaClass;
+            this.name = name;
+            this.code = code;
+            this.ref = ref;
+        }
+
+        @Override
+        public MetaClass getMetaClass() {
+            return metaClass;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Integer getCode() {
+            return code;
+        }
+
+        public TestInstance getRef() {
+            return ref;
+        }
+
+        public String formatName() {
+            return name + "-" + code;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.chile.core.model.utils;
+
+/**
+ * Compares the performance of property access through {@link MethodsCache} with different accessor factories.
+ * <p>
+ * Run the {@code main} method with the test classpath; JIT warm-up iterations are performed before measuring.
+ */
+public class MethodsCacheBenchmark {
+
+    private static final int ITERATIONS = 10_000_000;
+    private static final int WARM_UP_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        MethodsCache reflection = new MethodsCache(MethodsCacheTest.TestBean.class, new ReflectionPropertyAccessorFactory());
+        MethodsCache lambda = new MethodsCache(MethodsCacheTest.TestBean.class, new LambdaPropertyAccessorFactory());
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            run(reflection);
+            run(lambda);
+        }
+
+        System.out.printf("reflection: %d ms%n", run(reflection));
+        System.out.printf("lambda:     %d ms%n", run(lambda));
+    }
+
+    private static long run(MethodsCache methodsCache) {
+        MethodsCacheTest.TestBean bean = new MethodsCacheTest.TestBean();
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            methodsCache.invokeSetter(bean, "count", i);
+            sum += (Integer) methodsCache.invokeGetter(bean, "count");
+            methodsCache.invokeSetter(bean, "name", "name");
+            if (methodsCache.invokeGetter(bean, "name") == null) {
+                sum--;
+            }
+        }
+        long time = (System.nanoTime() - start) / 1_000_000;
+        if (sum == 0) {
+            System.out.println("unexpected");
+        }
+        return time;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.chile.core.model.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MethodsCacheTest {
+
+    @Test
+    public void testLambdaAccessors() throws Exception {
+        checkAccessors(new MethodsCache(TestBean.class, new LambdaPropertyAccessorFactory()));
+
+        LambdaPropertyAccessorFactory factory = new LambdaPropertyAccessorFactory();
+        assertNotNull(factory.createGetter(TestBean.class.getMethod("getName")));
+        assertNotNull(factory.createGetter(TestBean.class.getMethod("getCount")));
+        assertNotNull(factory.createSetter(TestBean.class.getMethod("setActive", boolean.class)));
+    }
+
+    @Test
+    public void testReflectionAccessors() throws Exception {
+        checkAccessors(new MethodsCache(TestBean.class, new ReflectionPropertyAccessorFactory()));
+    }
+
+    @Test
+    public void testFallbackToReflection() throws Exception {
+        LambdaPropertyAccessorFactory factory = new LambdaPropertyAccessorFactory();
+        assertNull(factory.createGetter(HiddenBean.class.getMethod("getValue")));
+
+        MethodsCache methodsCache = new MethodsCache(HiddenBean.class, factory);
+        HiddenBean bean = new HiddenBean();
+        methodsCache.invokeSetter(bean, "value", "abc");
+        assertEquals("abc", methodsCache.invokeGetter(bean, "value"));
+    }
+
+    @Test
+    public void testMissingAccessor() throws Exception {
+        MethodsCache methodsCache = new MethodsCache(TestBean.class);
+        try {
+            methodsCache.invokeGetter(new TestBean(), "unknown");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+        try {
+            methodsCache.invokeSetter(new TestBean(), "unknown", 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+    private void checkAccessors(MethodsCache methodsCache) {
+        TestBean bean = new TestBean();
+
+        methodsCache.invokeSetter(bean, "name", "test");
+        assertEquals("test", bean.getName());
+        assertEquals("test", methodsCache.invokeGetter(bean, "name"));
+
+        methodsCache.invokeSetter(bean, "count", 10);
+        assertEquals(10, bean.getCount());
+        assertEquals(10, methodsCache.invokeGetter(bean, "count"));
+
+        methodsCache.invokeSetter(bean, "active", true);
+        assertTrue(bean.isActive());
+        assertEquals(Boolean.TRUE, methodsCache.invokeGetter(bean, "active"));
+
+        methodsCache.invokeSetter(bean, "amount", 1.5);
+        assertEquals(Double.valueOf(1.5), bean.getAmount());
+        methodsCache.invokeSetter(bean, "amount", null);
+        assertNull(methodsCache.invokeGetter(bean, "amount"));
+
+        checkWrapped(() -> methodsCache.invokeSetter(bean, "count", "abc"));
+        checkWrapped(() -> methodsCache.invokeSetter(bean, "count", null));
+        checkWrapped(() -> methodsCache.invokeGetter(new HiddenBean(), "name"));
+    }
+
+    private void checkWrapped(Runnable runnable) {
+        try {
+            runnable.run();
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals(RuntimeException.class, e.getClass());
+            assertNotNull(e.getCause());
+        }
+    }
+
+    public static class TestBean {
+        private String name;
+        private int count;
+        private boolean active;
+        private Double amount;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public Double getAmount() {
+            return amount;
+        }
+
+        public TestBean setAmount(Double amount) {
+            this.amount = amount;
+            return this;
+        }
+    }
+
+    static class HiddenBean {
+        private String value;
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+    }
+}
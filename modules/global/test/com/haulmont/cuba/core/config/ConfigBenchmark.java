@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.config;
+
+import com.haulmont.cuba.core.config.ConfigGetterTest.TestConfig;
+import com.haulmont.cuba.core.config.ConfigGetterTest.TestPersister;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Measures throughput of concurrent reads of config properties with and without caching of values in getters.
+ * <p>
+ * Run the {@code main} method with the test classpath; JIT warm-up rounds are performed before measuring.
+ */
+public class ConfigBenchmark {
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int ITERATIONS = 1_000_000;
+    private static final int WARM_UP_ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (boolean cachingAllowed : new boolean[]{false, true}) {
+                TestPersister persister = new TestPersister(cachingAllowed);
+                persister.setProperty(SourceType.APP, "cuba.test.configGetter.intProp", "10");
+                TestConfig config = (TestConfig) Proxy.newProxyInstance(ConfigBenchmark.class.getClassLoader(),
+                        new Class[]{TestConfig.class}, new ConfigHandler(persister, TestConfig.class));
+
+                for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+                    run(executor, config);
+                }
+                long start = System.nanoTime();
+                run(executor, config);
+                long time = (System.nanoTime() - start) / 1_000_000;
+
+                System.out.printf("caching %s: %d threads, %d reads each: %d ms%n",
+                        cachingAllowed ? "allowed" : "disabled", THREADS, ITERATIONS, time);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void run(ExecutorService executor, TestConfig config) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                barrier.await();
+                long sum = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    sum += config.getIntProp();
+                }
+                return sum;
+            }));
+        }
+        for (Future<Long> future : futures) {
+            future.get();
+        }
+    }
+}
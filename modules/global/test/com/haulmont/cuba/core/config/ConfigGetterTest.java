@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.config;
+
+import com.haulmont.cuba.core.config.defaults.DefaultInt;
+import com.haulmont.cuba.core.config.defaults.DefaultString;
+import com.haulmont.cuba.core.config.type.Factory;
+import com.haulmont.cuba.core.config.type.StringListTypeFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConfigGetterTest {
+
+    @Source(type = SourceType.APP)
+    public interface TestConfig extends Config {
+
+        @Property("cuba.test.configGetter.intProp")
+        @DefaultInt(1)
+        int getIntProp();
+
+        void setIntProp(int value);
+
+        @Property("cuba.test.configGetter.stringProp")
+        @DefaultString("def")
+        String getStringProp();
+
+        @Property("cuba.test.configGetter.listProp")
+        @Factory(factory = StringListTypeFactory.class)
+        List<String> getListProp();
+    }
+
+    public static class TestPersister implements ConfigPersister {
+
+        private final Map<String, String> properties = new HashMap<>();
+        private final boolean cachingAllowed;
+        private int readCount;
+
+        public TestPersister(boolean cachingAllowed) {
+            this.cachingAllowed = cachingAllowed;
+        }
+
+        @Override
+        public String getProperty(SourceType sourceType, String name) {
+            readCount++;
+            return properties.get(name);
+        }
+
+        @Override
+        public void setProperty(SourceType sourceType, String name, String value) {
+            properties.put(name, value);
+            ConfigChanges.propertiesChanged();
+        }
+
+        @Override
+        public boolean isCachingAllowed(SourceType sourceType) {
+            return cachingAllowed;
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        System.clearProperty("cuba.test.configGetter.stringProp");
+    }
+
+    private TestConfig createConfig(ConfigPersister persister) {
+        return (TestConfig) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{TestConfig.class},
+                new ConfigHandler(persister, TestConfig.class));
+    }
+
+    @Test
+    public void testCachedValue() throws Exception {
+        TestPersister persister = new TestPersister(true);
+        TestConfig config = createConfig(persister);
+
+        assertEquals(1, config.getIntProp());
+        assertEquals(1, config.getIntProp());
+        assertEquals(1, persister.readCount);
+
+        config.setIntProp(2);
+        assertEquals(2, config.getIntProp());
+        assertEquals(2, config.getIntProp());
+        assertEquals(2, persister.readCount);
+
+        persister.properties.put("cuba.test.configGetter.intProp", "3");
+        ConfigChanges.propertiesChanged();
+        assertEquals(3, config.getIntProp());
+    }
+
+    @Test
+    public void testSystemPropertyChange() throws Exception {
+        TestPersister persister = new TestPersister(true);
+        TestConfig config = createConfig(persister);
+
+        assertEquals("def", config.getStringProp());
+
+        System.setProperty("cuba.test.configGetter.stringProp", "sys");
+        persister.properties.put("cuba.test.configGetter.stringProp", "sys");
+        // system properties are cached until the properties version changes
+        assertEquals("def", config.getStringProp());
+        assertEquals(1, persister.readCount);
+
+        ConfigChanges.propertiesChanged();
+        assertEquals("sys", config.getStringProp());
+        assertEquals(2, persister.readCount);
+    }
+
+    @Test
+    public void testNotCachedValue() throws Exception {
+        TestPersister persister = new TestPersister(false);
+        TestConfig config = createConfig(persister);
+
+        assertEquals(1, config.getIntProp());
+        assertEquals(1, config.getIntProp());
+        assertEquals(2, persister.readCount);
+    }
+
+    @Test
+    public void testMutableValue() throws Exception {
+        TestPersister persister = new TestPersister(true);
+        persister.properties.put("cuba.test.configGetter.listProp", "a|b");
+        TestConfig config = createConfig(persister);
+
+        List<String> list = config.getListProp();
+        assertEquals(2, list.size());
+        list.clear();
+
+        // converted again, but read from the cache
+        assertEquals(2, config.getListProp().size());
+        assertEquals(1, persister.readCount);
+    }
+}
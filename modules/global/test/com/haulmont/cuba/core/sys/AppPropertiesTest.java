@@ -88,6 +88,24 @@ public class AppPropertiesTest {
                 appProperties.getPropertyNames());
     }
 
+    @Test
+    public void testDeprecatedProperties() throws Exception {
+        appProperties.setProperty("cuba.connectionUrlList", "url1");
+        assertEquals("url1", appProperties.getProperty("cuba.connectionUrl"));
+        assertEquals("url1", appProperties.getProperty("cuba.connectionUrlList"));
+
+        // the second name has priority
+        appProperties.setProperty("cuba.connectionUrl", "url2");
+        assertEquals("url2", appProperties.getProperty("cuba.connectionUrlList"));
+
+        appProperties.setProperty("fts.enabled", "true");
+        assertEquals("true", appProperties.getProperty("cuba.fts.enabled"));
+        assertEquals("true", appProperties.getProperty("fts.enabled"));
+
+        appProperties.setProperty("reporting.parameterPrototypeQueryLimit", "10");
+        assertEquals("10", appProperties.getProperty("reporting.parameterPrototype.queryLimit"));
+    }
+
     @Test
     public void testEmptyStringSubstitution() {
         AppProperties appProperties = new AppProperties(new AppComponents("test"));
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.cuba.core.global.GlobalConfig;
+import mockit.Mock;
+import mockit.MockUp;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class NumberIdCacheTest {
+
+    private static final int CACHE_SIZE = 10;
+
+    private NumberIdCache cache;
+
+    private TestSequence sequence;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new NumberIdCache();
+        cache.cacheSize = CACHE_SIZE;
+        cache.prefetchEnabled = true;
+        cache.prefetchThreshold = CACHE_SIZE / 2;
+        cache.maxPrefetchBlocks = 4;
+        sequence = new TestSequence();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.shutdown();
+    }
+
+    @Test
+    public void testSequentialIds() throws Exception {
+        cache.prefetchEnabled = false;
+        for (long i = 1; i <= CACHE_SIZE * 3; i++) {
+            assertEquals(i, (long) cache.createLongId("test$Entity", sequence));
+        }
+        assertEquals(3, sequence.calls.get());
+        assertEquals(3, cache.getWaitCount());
+    }
+
+    @Test
+    public void testConcurrentIdsAreUniqueAndBlocksAreNotLost() throws Exception {
+        int threads = 8;
+        int idsPerThread = 1000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            Future<?>[] futures = new Future[threads];
+            for (int t = 0; t < threads; t++) {
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < idsPerThread; i++) {
+                        assertTrue(ids.add(cache.createLongId("test$Entity", sequence)));
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int total = threads * idsPerThread;
+        assertEquals(total, ids.size());
+
+        NumberIdCache.Generator gen = cache.getGenerator("test$Entity");
+        long unused = gen.current.getRemaining();
+        for (NumberIdCache.Block block : gen.reserve) {
+            unused += block.getRemaining();
+        }
+        // a background request may still be running
+        assertTrue(sequence.calls.get() * CACHE_SIZE - total - unused <= cache.maxPrefetchBlocks * CACHE_SIZE);
+    }
+
+    @Test
+    public void testPrefetchFailureFallsBackToCaller() throws Exception {
+        sequence.failAfter = 1;
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            cache.createLongId("test$Entity", sequence);
+        }
+        waitForPrefetch();
+        sequence.failAfter = Long.MAX_VALUE;
+
+        assertEquals(CACHE_SIZE + 1, (long) cache.createLongId("test$Entity", sequence));
+        assertTrue(cache.getPrefetchErrorCount() > 0);
+    }
+
+    @Test
+    public void testNoPrefetchForSmallCache() throws Exception {
+        NumberIdCache smallCache = new NumberIdCache();
+        smallCache.setConfig(createConfig(1, true));
+        assertFalse(smallCache.prefetchEnabled);
+        smallCache.shutdown();
+
+        NumberIdCache largeCache = new NumberIdCache();
+        largeCache.setConfig(createConfig(100, true));
+        assertTrue(largeCache.prefetchEnabled);
+        largeCache.shutdown();
+    }
+
+    private GlobalConfig createConfig(int cacheSize, boolean prefetchEnabled) {
+        return new MockUp<GlobalConfig>() {
+            @Mock
+            int getNumberIdCacheSize() {
+                return cacheSize;
+            }
+
+            @Mock
+            boolean getNumberIdCachePrefetchEnabled() {
+                return prefetchEnabled;
+            }
+
+            @Mock
+            int getNumberIdCachePrefetchThreshold() {
+                return 50;
+            }
+
+            @Mock
+            int getNumberIdCacheMaxPrefetchBlocks() {
+                return 4;
+            }
+        }.getMockInstance();
+    }
+
+    private void waitForPrefetch() throws InterruptedException {
+        NumberIdCache.Generator gen = cache.getGenerator("test$Entity");
+        for (int i = 0; i < 100 && gen.prefetching.get(); i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static class TestSequence implements NumberIdSequence {
+
+        private final AtomicLong value = new AtomicLong();
+        private final AtomicLong calls = new AtomicLong();
+        private volatile long failAfter = Long.MAX_VALUE;
+
+        @Override
+        public Long createLongId(String entityName) {
+            if (calls.get() >= failAfter)
+                throw new IllegalStateException("Sequence is not available");
+            calls.incrementAndGet();
+            return value.getAndAdd(CACHE_SIZE);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.cuba.core.global.Scripting;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.Script;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SecurityImplTest {
+
+    private TestSecurityImpl security;
+
+    @Before
+    public void setUp() throws Exception {
+        security = new TestSecurityImpl();
+    }
+
+    @Test
+    public void testCompiledConstraintIsCached() throws Exception {
+        SecurityImpl.CompiledConstraint compiled = security.getCompiledConstraint("true");
+        assertSame(compiled, security.getCompiledConstraint("true"));
+        assertEquals(1, security.compileCount);
+
+        security.clearCompiledConstraints();
+        assertNotSame(compiled, security.getCompiledConstraint("true"));
+        assertEquals(2, security.compileCount);
+    }
+
+    @Test
+    public void testEvaluationsDoNotShareVariables() throws Exception {
+        SecurityImpl.ConstraintEvaluator evaluator = security
+                .getCompiledConstraint("if (binding.hasVariable('seen')) return false; seen = true; return value")
+                .createEvaluator(Collections.singletonMap("value", true));
+
+        assertEquals(true, evaluator.evaluate(null));
+        assertEquals(true, evaluator.evaluate(null));
+    }
+
+    @Test
+    public void testEvaluationWithoutCompilation() throws Exception {
+        // a Scripting implementation which does not extend AbstractScripting
+        security.scripting = (Scripting) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Scripting.class},
+                (proxy, method, args) -> ((Map) args[1]).get(args[0]));
+
+        SecurityImpl.ConstraintEvaluator evaluator = security.createEvaluator(
+                new SecurityImpl.CompiledConstraint("value", null), Collections.singletonMap("value", true));
+        assertTrue(evaluator instanceof SecurityImpl.ScriptingConstraintEvaluator);
+        assertEquals(true, evaluator.evaluate(null));
+    }
+
+    private static class TestSecurityImpl extends SecurityImpl {
+
+        private final GroovyClassLoader classLoader = new GroovyClassLoader();
+
+        private int compileCount;
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected CompiledConstraint compileConstraint(String groovyScript) {
+            compileCount++;
+            return new CompiledConstraint(groovyScript, (Class<? extends Script>) classLoader.parseClass(groovyScript));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class TimeOrderedUuidSourceTest {
+
+    private TestUuidSource source;
+
+    @Before
+    public void setUp() throws Exception {
+        source = new TestUuidSource();
+    }
+
+    @Test
+    public void testFormat() throws Exception {
+        source.time = 1_500_000_000_000L;
+        UUID uuid = source.createUuid();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(source.time, TimeOrderedUuidSource.getTimeMillis(uuid));
+        assertEquals(uuid, UUID.fromString(uuid.toString()));
+    }
+
+    @Test
+    public void testOrder() throws Exception {
+        source.time = 1_500_000_000_000L;
+        List<String> strings = new ArrayList<>();
+        UUID prev = null;
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 100 == 0) {
+                source.time++;
+            }
+            UUID uuid = source.createUuid();
+            if (prev != null) {
+                assertTrue(uuid.getMostSignificantBits() > prev.getMostSignificantBits());
+            }
+            strings.add(uuid.toString());
+            prev = uuid;
+        }
+
+        List<String> sorted = new ArrayList<>(strings);
+        Collections.sort(sorted);
+        assertEquals(strings, sorted);
+    }
+
+    @Test
+    public void testClockGoesBack() throws Exception {
+        source.time = 1_500_000_000_000L;
+        UUID uuid1 = source.createUuid();
+        source.time -= 1000;
+        UUID uuid2 = source.createUuid();
+
+        assertTrue(uuid2.toString().compareTo(uuid1.toString()) > 0);
+        assertEquals(1_500_000_000_000L, TimeOrderedUuidSource.getTimeMillis(uuid2));
+    }
+
+    @Test
+    public void testCounterOverflow() throws Exception {
+        source.time = 1_500_000_000_000L;
+        UUID last = null;
+        for (int i = 0; i <= 4096; i++) {
+            last = source.createUuid();
+        }
+        assertEquals(source.time + 1, TimeOrderedUuidSource.getTimeMillis(last));
+        assertEquals(7, last.version());
+    }
+
+    @Test
+    public void testConcurrentCreation() throws Exception {
+        TimeOrderedUuidSource source = new TimeOrderedUuidSource();
+        int threads = 4;
+        int count = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<UUID>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    List<UUID> list = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        list.add(source.createUuid());
+                    }
+                    return list;
+                }));
+            }
+            Set<Long> timestamps = new HashSet<>();
+            for (Future<List<UUID>> future : futures) {
+                for (UUID uuid : future.get()) {
+                    assertTrue(timestamps.add(uuid.getMostSignificantBits()));
+                }
+            }
+            assertEquals(threads * count, timestamps.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static class TestUuidSource extends TimeOrderedUuidSource {
+
+        private long time;
+
+        @Override
+        protected long currentTimeMillis() {
+            return time;
+        }
+    }
+}
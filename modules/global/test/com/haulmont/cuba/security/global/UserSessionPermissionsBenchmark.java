@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.global;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.impl.MetaClassImpl;
+import com.haulmont.chile.core.model.impl.MetaModelImpl;
+import com.haulmont.chile.core.model.impl.MetaPropertyImpl;
+import com.haulmont.chile.core.model.impl.SessionImpl;
+import com.haulmont.cuba.security.entity.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Compares 100k checks of entity attribute permissions through the compiled entity permissions of
+ * {@link UserSession} with the lookup by a concatenated target string.
+ * <p>
+ * Run the {@code main} method with the test classpath; JIT warm-up iterations are performed before measuring.
+ */
+public class UserSessionPermissionsBenchmark {
+
+    private static final int CHECKS = 100_000;
+    private static final int PROPERTIES = 30;
+    private static final int WARM_UP_ROUNDS = 10;
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        MetaClassImpl metaClass = new MetaClassImpl(new MetaModelImpl(new SessionImpl(), "test"), "test$Entity");
+        List<String> properties = new ArrayList<>();
+        for (int i = 0; i < PROPERTIES; i++) {
+            properties.add(new MetaPropertyImpl(metaClass, "property" + i).getName());
+        }
+
+        User user = new User();
+        user.setLogin("benchmark");
+        Role role = new Role();
+        role.setName("benchmark");
+        role.setType(RoleType.STANDARD);
+        UserSession session = new UserSession(UUID.randomUUID(), user, Collections.singletonList(role), Locale.ENGLISH, false);
+        for (int i = 0; i < properties.size(); i += 2) {
+            session.addPermission(PermissionType.ENTITY_ATTR,
+                    metaClass.getName() + Permission.TARGET_PATH_DELIMETER + properties.get(i), null, 1);
+        }
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            runStrings(session, metaClass, properties);
+            runCompiled(session, metaClass, properties);
+        }
+
+        long stringTime = 0;
+        long compiledTime = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            stringTime += runStrings(session, metaClass, properties);
+            compiledTime += runCompiled(session, metaClass, properties);
+        }
+
+        System.out.printf("%d attribute checks: string targets %d us, compiled %d us%n",
+                CHECKS, stringTime / ROUNDS / 1000, compiledTime / ROUNDS / 1000);
+    }
+
+    private static long runStrings(UserSession session, MetaClass metaClass, List<String> properties) {
+        int permitted = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < CHECKS; i++) {
+            String target = metaClass.getName() + Permission.TARGET_PATH_DELIMETER + properties.get(i % PROPERTIES);
+            if (session.isPermitted(PermissionType.ENTITY_ATTR, target, EntityAttrAccess.MODIFY.getId())) {
+                permitted++;
+            }
+        }
+        return finish(start, permitted);
+    }
+
+    private static long runCompiled(UserSession session, MetaClass metaClass, List<String> properties) {
+        int permitted = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < CHECKS; i++) {
+            if (session.isEntityAttrPermitted(metaClass, properties.get(i % PROPERTIES), EntityAttrAccess.MODIFY)) {
+                permitted++;
+            }
+        }
+        return finish(start, permitted);
+    }
+
+    private static long finish(long start, int permitted) {
+        long time = System.nanoTime() - start;
+        // half of the attributes are read-only, both ways must give the same results
+        if (permitted != CHECKS / 2) {
+            throw new IllegalStateException("Unexpected number of permitted checks: " + permitted);
+        }
+        return time;
+    }
+}
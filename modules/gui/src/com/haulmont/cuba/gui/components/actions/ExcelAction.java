@@ -16,14 +16,17 @@
  */
 package com.haulmont.cuba.gui.components.actions;
 
+import com.haulmont.cuba.client.ClientConfig;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.gui.AppConfig;
 import com.haulmont.cuba.gui.components.*;
 import com.haulmont.cuba.gui.components.DialogAction.Type;
 import com.haulmont.cuba.gui.components.Frame.MessageType;
 import com.haulmont.cuba.gui.export.ExcelExporter;
 import com.haulmont.cuba.gui.export.ExportDisplay;
+import com.haulmont.cuba.gui.export.StreamingExcelExporter;
 import com.haulmont.cuba.gui.icons.CubaIcon;
 import com.haulmont.cuba.gui.icons.Icons;
 import org.springframework.context.annotation.Scope;
@@ -211,7 +214,7 @@ public class ExcelAction extends BaseAction implements Action.HasBeforeActionPer
      * Export via {@link ExcelExporter}.
      */
     protected void export(ExportMode exportMode) {
-        ExcelExporter exporter = new ExcelExporter();
+        ExcelExporter exporter = createExporter();
         if (listComponent instanceof Table) {
             Table<Entity> table = (Table<Entity>) listComponent;
             exporter.exportTable(table, table.getNotCollapsedColumns(), false, display, null, fileName, exportMode);
@@ -226,6 +229,18 @@ public class ExcelAction extends BaseAction implements Action.HasBeforeActionPer
         }
     }
 
+    /**
+     * @return {@link StreamingExcelExporter} if {@code cuba.gui.excelExport.streaming} is set, {@link ExcelExporter}
+     * otherwise
+     */
+    protected ExcelExporter createExporter() {
+        Configuration configuration = AppBeans.get(Configuration.NAME);
+        if (configuration.getConfig(ClientConfig.class).getExcelExportStreaming()) {
+            return new StreamingExcelExporter();
+        }
+        return new ExcelExporter();
+    }
+
     @Override
     public BeforeActionPerformedHandler getBeforeActionPerformedHandler() {
         return beforeActionPerformedHandler;
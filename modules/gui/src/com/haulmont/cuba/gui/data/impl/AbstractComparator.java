@@ -23,17 +23,45 @@ import com.haulmont.cuba.client.sys.PersistenceManagerClient;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.Metadata;
 
-import java.util.Collection;
-import java.util.Comparator;
+import java.util.*;
+import java.util.function.Function;
 
 public abstract class AbstractComparator<T> implements Comparator<T> {
 
+    /**
+     * Lists larger than this are sorted by {@link #sortByKeys(List, Function)} in parallel.
+     */
+    public static final int PARALLEL_SORT_THRESHOLD = 8192;
+
     protected boolean asc;
 
     protected int nullsLast;
 
     protected Metadata metadata;
 
+    protected Map<Class, Collection<MetaProperty>> namePatternPropertiesCache = new HashMap<>();
+
+    /**
+     * Sort key of an instance having name pattern properties.
+     */
+    protected static class InstanceKey {
+        protected final Object[] values;
+
+        protected InstanceKey(Object[] values) {
+            this.values = values;
+        }
+    }
+
+    protected static class SortEntry<E> {
+        protected final Object key;
+        protected final E item;
+
+        protected SortEntry(Object key, E item) {
+            this.key = key;
+            this.item = item;
+        }
+    }
+
     protected AbstractComparator(boolean asc) {
         this.asc = asc;
         nullsLast = AppBeans.get(PersistenceManagerClient.NAME, PersistenceManagerClient.class).isNullsLastSorting() ?
@@ -78,4 +106,100 @@ public abstract class AbstractComparator<T> implements Comparator<T> {
         }
         return c;
     }
+
+    /**
+     * Sorts the list in place. The value of each item is obtained and converted to a sort key once, so this is
+     * much faster than sorting with a comparator which obtains and compares values on each comparison.
+     *
+     * @param items          list to sort
+     * @param valueExtractor function returning the value to sort the item by
+     */
+    @SuppressWarnings("unchecked")
+    protected <E> void sortByKeys(List<E> items, Function<E, Object> valueExtractor) {
+        int size = items.size();
+        if (size < 2) {
+            return;
+        }
+
+        SortEntry<E>[] entries = new SortEntry[size];
+        int i = 0;
+        for (E item : items) {
+            entries[i++] = new SortEntry<>(getSortKey(valueExtractor.apply(item)), item);
+        }
+
+        Comparator<SortEntry<E>> comparator = (e1, e2) -> compareKeys(e1.key, e2.key);
+        if (size > PARALLEL_SORT_THRESHOLD) {
+            Arrays.parallelSort(entries, comparator);
+        } else {
+            Arrays.sort(entries, comparator);
+        }
+
+        ListIterator<E> iterator = items.listIterator();
+        for (SortEntry<E> entry : entries) {
+            iterator.next();
+            iterator.set(entry.item);
+        }
+    }
+
+    /**
+     * Converts a value to the key which is ordered by {@link #compareKeys(Object, Object)} in the same way as the
+     * value is ordered by {@link #compareAsc(Object, Object)}.
+     */
+    protected Object getSortKey(Object value) {
+        if (value instanceof String) {
+            return foldCase((String) value);
+        }
+        if (value instanceof Comparable || !(value instanceof Instance)) {
+            return value;
+        }
+
+        Instance instance = (Instance) value;
+        Collection<MetaProperty> namePatternProperties = namePatternPropertiesCache.computeIfAbsent(instance.getClass(),
+                aClass -> metadata.getTools().getNamePatternProperties(metadata.getClassNN(aClass), true));
+        if (namePatternProperties.isEmpty()) {
+            return foldCase(instance.getInstanceName());
+        }
+
+        Object[] values = new Object[namePatternProperties.size()];
+        int i = 0;
+        for (MetaProperty property : namePatternProperties) {
+            values[i++] = getSortKey(instance.getValue(property.getName()));
+        }
+        return new InstanceKey(values);
+    }
+
+    /**
+     * Returns a string whose natural ordering is the same as the case-insensitive ordering of the source string.
+     */
+    protected String foldCase(String str) {
+        if (str == null) {
+            return null;
+        }
+        char[] chars = str.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    protected int compareKeys(Object k1, Object k2) {
+        int c = compareKeysAsc(k1, k2);
+        return asc ? c : -c;
+    }
+
+    protected int compareKeysAsc(Object k1, Object k2) {
+        if (k1 instanceof String && k2 instanceof String) {
+            return ((String) k1).compareTo((String) k2);
+        }
+        if (k1 instanceof InstanceKey && k2 instanceof InstanceKey) {
+            Object[] values1 = ((InstanceKey) k1).values;
+            Object[] values2 = ((InstanceKey) k2).values;
+            int c = 0;
+            for (int i = 0; i < values1.length && i < values2.length && c == 0; i++) {
+                c = compareKeysAsc(values1[i], values2[i]);
+            }
+            return c;
+        }
+        return compareAsc(k1, k2);
+    }
 }
\ No newline at end of file
@@ -277,7 +277,12 @@ public class CollectionDatasourceImpl<T extends Entity<K>, K>
     protected void doSort() {
         @SuppressWarnings("unchecked")
         List<T> list = new ArrayList<>(data.values());
-        list.sort(createEntityComparator());
+        Comparator<T> comparator = createEntityComparator();
+        if (comparator instanceof EntityComparator) {
+            ((EntityComparator<T>) comparator).sort(list);
+        } else {
+            list.sort(comparator);
+        }
         data.clear();
         for (T t : list) {
             data.put(t.getId(), t);
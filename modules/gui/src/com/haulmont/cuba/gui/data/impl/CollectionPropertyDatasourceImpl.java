@@ -884,8 +884,8 @@ public class CollectionPropertyDatasourceImpl<T extends Entity<K>, K>
         if (collection == null)
             return;
 
-        List<T> list = new LinkedList<>(collection);
-        list.sort(createEntityComparator());
+        List<T> list = new ArrayList<>(collection);
+        createEntityComparator().sort(list);
         collection.clear();
         collection.addAll(list);
     }
@@ -22,6 +22,8 @@ import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.gui.data.CollectionDatasource;
 
+import java.util.List;
+
 public class EntityByIdComparator<T extends Entity<K>, K> extends AbstractComparator<K> {
     private MetaPropertyPath propertyPath;
     private MetaProperty property;
@@ -44,6 +46,14 @@ public class EntityByIdComparator<T extends Entity<K>, K> extends AbstractCompar
         return __compare(o1, o2);
     }
 
+    /**
+     * Sorts the list of identifiers in place in the order defined by this comparator. Sort keys are extracted from
+     * each entity only once, so this is faster than {@code ids.sort(comparator)}.
+     */
+    public void sort(List<K> ids) {
+        sortByKeys(ids, id -> getValue(datasource.getItem(id)));
+    }
+
     private Object getValue(Instance instance) {
         Object value;
         if (property != null) {
@@ -176,11 +176,12 @@ public abstract class GroupDelegate<T extends Entity<K>, K> {
                     }
                 }
             } else {
+                final EntityByIdComparator<T, K> comparator = new EntityByIdComparator<>(propertyPath, datasource, asc);
                 final Set<GroupInfo> groups = parents.keySet();
                 for (final GroupInfo groupInfo : groups) {
                     List<K> items = groupItems.get(groupInfo);
                     if (items != null) {
-                        items.sort(new EntityByIdComparator<>(propertyPath, datasource, asc));
+                        comparator.sort(items);
                     }
                 }
             }
@@ -41,19 +41,19 @@ public class ExcelAutoColumnSizer
     /** Graphics context used for obtaining FontMetrics objects */
     private Graphics2D graphics = null;
 
-    /** Maps a Short (HSSF font index) to a FontMetrics object */
+    /** Maps a Short (POI font index) to a FontMetrics object */
     private Map fontMetrics = new HashMap();
 
     private short currentWidth = WIDTH_MIN;
 
-    private FontMetrics getFontMetrics(HSSFFont hf){
+    private FontMetrics getFontMetrics(org.apache.poi.ss.usermodel.Font hf){
         FontMetrics fm;
         Short pFont = new Short(hf.getIndex());
 
         fm = (FontMetrics) fontMetrics.get(pFont);
         if (fm == null) {
             int style;
-            if((hf.getBoldweight() == HSSFFont.BOLDWEIGHT_BOLD) || hf.getItalic()) { style = 0; if(hf.getBoldweight() == HSSFFont.BOLDWEIGHT_BOLD) style ^= Font.BOLD; if(hf.getItalic()) style ^= Font.ITALIC; } else { style = Font.PLAIN; }
+            if(hf.getBold() || hf.getItalic()) { style = 0; if(hf.getBold()) style ^= Font.BOLD; if(hf.getItalic()) style ^= Font.ITALIC; } else { style = Font.PLAIN; }
             Font f = new java.awt.Font(hf.getFontName(), style, hf.getFontHeightInPoints());
 
             if (graphics == null) {
@@ -94,6 +94,10 @@ public class ExcelAutoColumnSizer
     }
 
     public void notifyCellValue(String val, HSSFFont font) {
+        notifyCellValue(val, (org.apache.poi.ss.usermodel.Font) font);
+    }
+
+    public void notifyCellValue(String val, org.apache.poi.ss.usermodel.Font font) {
         if (val == null || val.length() == 0) return;
         if (font == null) throw new IllegalArgumentException("font is null");
 
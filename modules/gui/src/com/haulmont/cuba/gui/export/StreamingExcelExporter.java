@@ -0,0 +1,547 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.gui.export;
+
+import com.haulmont.chile.core.datatypes.Datatype;
+import com.haulmont.chile.core.datatypes.Datatypes;
+import com.haulmont.chile.core.datatypes.impl.EnumClass;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.chile.core.model.utils.InstanceUtils;
+import com.haulmont.cuba.client.ClientConfig;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
+import com.haulmont.cuba.core.entity.annotation.IgnoreUserTimeZone;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.gui.components.*;
+import com.haulmont.cuba.gui.data.CollectionDatasource;
+import com.haulmont.cuba.gui.data.GroupDatasource;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.util.LocaleUtil;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.dom4j.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Exports a table or a data grid to XLSX. Only a small window of rows is kept in memory, other rows are flushed
+ * to a temporary file as the export proceeds.
+ * <p>
+ * If the datasource contains a single page of query results, all entities matching the query are loaded from the
+ * database in chunks of {@link #getPageSize()} rows, and the aggregation row is not exported. Grouped and tree tables
+ * and selected rows are exported to XLS by {@link ExcelExporter}.
+ */
+public class StreamingExcelExporter extends ExcelExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingExcelExporter.class);
+
+    /**
+     * Number of rows kept in memory by the streaming workbook.
+     */
+    protected static final int ROW_ACCESS_WINDOW_SIZE = 100;
+
+    protected SXSSFWorkbook streamingWb;
+
+    protected SXSSFSheet streamingSheet;
+
+    protected Font streamingStdFont;
+
+    protected Font streamingBoldFont;
+
+    protected CellStyle timeCellStyle;
+
+    protected CellStyle dateCellStyle;
+
+    protected CellStyle dateTimeCellStyle;
+
+    protected CellStyle integerCellStyle;
+
+    protected CellStyle doubleCellStyle;
+
+    protected DataManager dataManager;
+
+    protected Messages messages;
+
+    protected MetadataTools metadataTools;
+
+    protected UserSessionSource userSessionSource;
+
+    protected GlobalConfig globalConfig;
+
+    protected String trueString;
+
+    protected String falseString;
+
+    protected int pageSize;
+
+    public StreamingExcelExporter() {
+        dataManager = AppBeans.get(DataManager.NAME);
+        messages = AppBeans.get(Messages.NAME);
+        metadataTools = AppBeans.get(MetadataTools.NAME);
+        userSessionSource = AppBeans.get(UserSessionSource.NAME);
+
+        Configuration configuration = AppBeans.get(Configuration.NAME);
+        globalConfig = configuration.getConfig(GlobalConfig.class);
+        pageSize = configuration.getConfig(ClientConfig.class).getExcelExportPageSize();
+
+        trueString = messages.getMessage(getClass(), "excelExporter.true");
+        falseString = messages.getMessage(getClass(), "excelExporter.false");
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @param pageSize number of rows loaded from the database at once
+     */
+    public void setPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void exportTable(Table<Entity> table, List<Table.Column> columns, Boolean exportExpanded,
+                            ExportDisplay display, List<String> filterDescription, String fileName, ExportMode exportMode) {
+        CollectionDatasource datasource = table.getDatasource();
+        if ((exportMode == ExportMode.SELECTED_ROWS && !table.getSelected().isEmpty())
+                || table instanceof TreeTable
+                || (table instanceof GroupTable && datasource instanceof GroupDatasource
+                        && ((GroupDatasource) datasource).hasGroups())) {
+            super.exportTable(table, columns, exportExpanded, display, filterDescription, fileName, exportMode);
+            return;
+        }
+
+        if (display == null) {
+            throw new IllegalArgumentException("ExportDisplay is null");
+        }
+
+        List<String> captions = new ArrayList<>(columns.size());
+        for (Table.Column column : columns) {
+            captions.add(column.getCaption());
+        }
+
+        createStreamingWorkbook();
+        try {
+            int r = createHeader(filterDescription, captions);
+
+            LoadContext<Entity> loadContext = createPagedLoadContext(datasource);
+            if (loadContext == null) {
+                if (table.isAggregatable()) {
+                    createAggregationRow(table, columns, ++r);
+                }
+                for (Object itemId : datasource.getItemIds()) {
+                    if (!checkRowLimit(r + 1)) {
+                        break;
+                    }
+                    createTableRow(table, columns, ++r, (Entity) datasource.getItem(itemId));
+                }
+            } else {
+                int firstResult = 0;
+                List<Entity> page;
+                do {
+                    page = loadPage(loadContext, firstResult);
+                    for (Entity entity : page) {
+                        if (!checkRowLimit(r + 1)) {
+                            break;
+                        }
+                        createTableRow(table, columns, ++r, entity);
+                    }
+                    firstResult += page.size();
+                } while (page.size() == pageSize && r < SpreadsheetVersion.EXCEL2007.getLastRowIndex());
+            }
+
+            showStreamingWorkbook(display, getFileName(fileName, datasource));
+        } finally {
+            streamingWb.dispose();
+        }
+    }
+
+    @Override
+    public void exportDataGrid(DataGrid<Entity> dataGrid, List<DataGrid.Column> columns, ExportDisplay display,
+                               List<String> filterDescription, String fileName, ExportMode exportMode) {
+        if (exportMode == ExportMode.SELECTED_ROWS && !dataGrid.getSelected().isEmpty()) {
+            super.exportDataGrid(dataGrid, columns, display, filterDescription, fileName, exportMode);
+            return;
+        }
+
+        if (display == null) {
+            throw new IllegalArgumentException("ExportDisplay is null");
+        }
+
+        List<String> captions = new ArrayList<>(columns.size());
+        for (DataGrid.Column column : columns) {
+            captions.add(column.getCaption());
+        }
+
+        createStreamingWorkbook();
+        try {
+            int r = createHeader(filterDescription, captions);
+
+            CollectionDatasource datasource = dataGrid.getDatasource();
+            LoadContext<Entity> loadContext = createPagedLoadContext(datasource);
+            if (loadContext == null) {
+                for (Object itemId : datasource.getItemIds()) {
+                    if (!checkRowLimit(r + 1)) {
+                        break;
+                    }
+                    createDataGridRow(dataGrid, columns, ++r, (Entity) datasource.getItem(itemId));
+                }
+            } else {
+                int firstResult = 0;
+                List<Entity> page;
+                do {
+                    page = loadPage(loadContext, firstResult);
+                    for (Entity entity : page) {
+                        if (!checkRowLimit(r + 1)) {
+                            break;
+                        }
+                        createDataGridRow(dataGrid, columns, ++r, entity);
+                    }
+                    firstResult += page.size();
+                } while (page.size() == pageSize && r < SpreadsheetVersion.EXCEL2007.getLastRowIndex());
+            }
+
+            showStreamingWorkbook(display, getFileName(fileName, datasource));
+        } finally {
+            streamingWb.dispose();
+        }
+    }
+
+    protected void createStreamingWorkbook() {
+        streamingWb = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
+        streamingSheet = streamingWb.createSheet("Export");
+
+        streamingStdFont = streamingWb.createFont();
+        streamingBoldFont = streamingWb.createFont();
+        streamingBoldFont.setBold(true);
+
+        timeCellStyle = createCellStyle("h:mm");
+        dateCellStyle = createCellStyle("m/d/yy");
+        dateTimeCellStyle = createCellStyle("m/d/yy h:mm");
+        integerCellStyle = createCellStyle("#,##0");
+        doubleCellStyle = createCellStyle("#,##0.00");
+    }
+
+    protected CellStyle createCellStyle(String format) {
+        CellStyle cellStyle = streamingWb.createCellStyle();
+        cellStyle.setDataFormat((short) BuiltinFormats.getBuiltinFormat(format));
+        return cellStyle;
+    }
+
+    /**
+     * Creates rows of the filter description and the header row.
+     *
+     * @return number of the header row
+     */
+    protected int createHeader(@Nullable List<String> filterDescription, List<String> captions) {
+        int r = 0;
+        if (filterDescription != null) {
+            for (r = 0; r < filterDescription.size(); r++) {
+                String line = filterDescription.get(r);
+                Row row = streamingSheet.createRow(r);
+                if (r == 0) {
+                    XSSFRichTextString richTextFilterName = new XSSFRichTextString(line);
+                    richTextFilterName.applyFont(streamingBoldFont);
+                    row.createCell(0).setCellValue(richTextFilterName);
+                } else {
+                    row.createCell(0).setCellValue(line);
+                }
+            }
+            r++;
+        }
+        Row row = streamingSheet.createRow(r);
+        createAutoColumnSizers(captions.size());
+
+        float maxHeight = streamingSheet.getDefaultRowHeightInPoints();
+
+        CellStyle headerCellStyle = streamingWb.createCellStyle();
+        headerCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
+        for (String caption : captions) {
+            int countOfReturnSymbols = StringUtils.countMatches(caption, "\n");
+            if (countOfReturnSymbols > 0) {
+                maxHeight = Math.max(maxHeight, (countOfReturnSymbols + 1) * streamingSheet.getDefaultRowHeightInPoints());
+                headerCellStyle.setWrapText(true);
+            }
+        }
+        row.setHeightInPoints(maxHeight);
+
+        for (int c = 0; c < captions.size(); c++) {
+            String caption = captions.get(c);
+
+            Cell cell = row.createCell(c);
+            XSSFRichTextString richTextString = new XSSFRichTextString(caption);
+            richTextString.applyFont(streamingBoldFont);
+            cell.setCellValue(richTextString);
+
+            ExcelAutoColumnSizer sizer = new ExcelAutoColumnSizer();
+            sizer.notifyCellValue(caption, streamingBoldFont);
+            sizers[c] = sizer;
+
+            cell.setCellStyle(headerCellStyle);
+        }
+        return r;
+    }
+
+    protected void createAggregationRow(Table table, List<Table.Column> columns, int rowNumber) {
+        Row row = streamingSheet.createRow(rowNumber);
+        Map<Object, Object> results = table.getAggregationResults();
+        for (int c = 0; c < columns.size(); c++) {
+            AggregationInfo agr = columns.get(c).getAggregation();
+            if (agr != null) {
+                Object aggregationResult = results.get(agr.getPropertyPath());
+                if (aggregationResult != null) {
+                    formatCell(row.createCell(c), aggregationResult, null, c, rowNumber);
+                }
+            }
+        }
+    }
+
+    protected void createTableRow(Table table, List<Table.Column> columns, int rowNumber, Entity instance) {
+        Row row = streamingSheet.createRow(rowNumber);
+        for (int c = 0; c < columns.size(); c++) {
+            Table.Column column = columns.get(c);
+            Object cellValue = null;
+
+            MetaPropertyPath propertyPath = null;
+            Table.Printable printable = table.getPrintable(column);
+            if (printable != null) {
+                cellValue = printable.getValue(instance);
+                if (column.getId() instanceof MetaPropertyPath) {
+                    propertyPath = (MetaPropertyPath) column.getId();
+                }
+            } else if (column.getId() instanceof MetaPropertyPath) {
+                propertyPath = (MetaPropertyPath) column.getId();
+
+                Element xmlDescriptor = column.getXmlDescriptor();
+                if (xmlDescriptor != null && StringUtils.isNotEmpty(xmlDescriptor.attributeValue("captionProperty"))) {
+                    cellValue = InstanceUtils.getValueEx(instance, xmlDescriptor.attributeValue("captionProperty"));
+                } else {
+                    cellValue = InstanceUtils.getValueEx(instance, propertyPath.getPath());
+                }
+                if (column.getFormatter() != null)
+                    cellValue = column.getFormatter().format(cellValue);
+            }
+
+            formatCell(row.createCell(c), cellValue, propertyPath, c, rowNumber);
+        }
+    }
+
+    protected void createDataGridRow(DataGrid dataGrid, List<DataGrid.Column> columns, int rowNumber, Entity instance) {
+        Row row = streamingSheet.createRow(rowNumber);
+        for (int c = 0; c < columns.size(); c++) {
+            DataGrid.Column column = columns.get(c);
+            Object cellValue;
+
+            MetaPropertyPath propertyPath = column.getPropertyPath();
+            if (propertyPath != null) {
+                cellValue = InstanceUtils.getValueEx(instance, propertyPath.getPath());
+                if (column.getFormatter() != null) {
+                    cellValue = column.getFormatter().format(cellValue);
+                }
+            } else {
+                DataGrid.ColumnGenerator generator = dataGrid.getColumnGenerator(column.getId());
+                DataGrid.ColumnGeneratorEvent event =
+                        new DataGrid.ColumnGeneratorEvent(dataGrid, instance, column.getId());
+                cellValue = generator.getValue(event);
+            }
+
+            formatCell(row.createCell(c), cellValue, propertyPath, c, rowNumber);
+        }
+    }
+
+    protected void formatCell(Cell cell, @Nullable Object cellValue, @Nullable MetaPropertyPath metaPropertyPath,
+                              int column, int rowNumber) {
+        if (cellValue == null) {
+            return;
+        }
+        if (cellValue instanceof IdProxy) {
+            cellValue = ((IdProxy) cellValue).get();
+        }
+
+        String str;
+        if (cellValue instanceof Number) {
+            Number n = (Number) cellValue;
+            Datatype datatype = Datatypes.getNN(n.getClass());
+            str = datatype.format(n);
+            if (n instanceof Integer || n instanceof Long || n instanceof Byte || n instanceof Short) {
+                cell.setCellValue(n.longValue());
+                cell.setCellStyle(integerCellStyle);
+            } else {
+                cell.setCellValue(n.doubleValue());
+                cell.setCellStyle(doubleCellStyle);
+            }
+        } else if (cellValue instanceof Date) {
+            Date date = (Date) cellValue;
+            Class javaClass = null;
+            TimeZone timeZone = null;
+            if (metaPropertyPath != null) {
+                MetaProperty metaProperty = metaPropertyPath.getMetaProperty();
+                if (metaProperty.getRange().isDatatype()) {
+                    javaClass = metaProperty.getRange().asDatatype().getJavaClass();
+                }
+                Boolean ignoreUserTimeZone = metadataTools.getMetaAnnotationValue(metaProperty, IgnoreUserTimeZone.class);
+                if (Objects.equals(Date.class, javaClass) && !Boolean.TRUE.equals(ignoreUserTimeZone)) {
+                    timeZone = userSessionSource.getUserSession().getTimeZone();
+                }
+            }
+            if (timeZone != null) {
+                TimeZone currentTimeZone = LocaleUtil.getUserTimeZone();
+                try {
+                    LocaleUtil.setUserTimeZone(timeZone);
+                    cell.setCellValue(date);
+                } finally {
+                    if (Objects.equals(currentTimeZone, TimeZone.getDefault())) {
+                        LocaleUtil.resetUserTimeZone();
+                    } else {
+                        LocaleUtil.setUserTimeZone(currentTimeZone);
+                    }
+                }
+            } else {
+                cell.setCellValue(date);
+            }
+
+            if (Objects.equals(java.sql.Time.class, javaClass)) {
+                cell.setCellStyle(timeCellStyle);
+            } else if (Objects.equals(java.sql.Date.class, javaClass)) {
+                cell.setCellStyle(dateCellStyle);
+            } else {
+                cell.setCellStyle(dateTimeCellStyle);
+            }
+            str = Datatypes.getNN(Date.class).format(date);
+        } else {
+            if (cellValue instanceof Boolean) {
+                str = (Boolean) cellValue ? trueString : falseString;
+            } else if (cellValue instanceof EnumClass) {
+                String nameKey = cellValue.getClass().getSimpleName() + "." + cellValue.toString();
+                str = messages.getMessage(cellValue.getClass(), nameKey);
+            } else if (cellValue instanceof Entity) {
+                str = ((Entity) cellValue).getInstanceName();
+            } else if (cellValue instanceof Collection) {
+                str = "";
+            } else {
+                str = cellValue.toString();
+            }
+            cell.setCellValue(str);
+        }
+
+        if (sizers[column].isNotificationRequired(rowNumber)) {
+            sizers[column].notifyCellValue(str, streamingStdFont);
+        }
+    }
+
+    /**
+     * Creates a context for loading all entities of the datasource's query page by page.
+     *
+     * @return load context or null if the datasource items should be exported
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    protected LoadContext<Entity> createPagedLoadContext(CollectionDatasource datasource) {
+        if (!(datasource instanceof CollectionDatasource.SupportsPaging)
+                || datasource.getMaxResults() <= 0
+                || datasource.isModified()) {
+            return null;
+        }
+        if (((CollectionDatasource.SupportsPaging) datasource).getFirstResult() == 0
+                && datasource.size() < datasource.getMaxResults()) {
+            // the datasource already contains all rows
+            return null;
+        }
+
+        LoadContext<Entity> context;
+        try {
+            context = datasource.getCompiledLoadContext();
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+        if (context == null || context.getQuery() == null) {
+            return null;
+        }
+
+        // pages must be loaded in a stable order
+        LoadContext.Query query = context.getQuery();
+        String pkName = metadataTools.getPrimaryKeyName(datasource.getMetaClass());
+        if (pkName != null && !QueryTransformerFactory.createParser(query.getQueryString()).hasOrderBy()) {
+            QueryTransformer transformer = QueryTransformerFactory.createTransformer(query.getQueryString());
+            transformer.replaceOrderBy(false, pkName);
+            query.setQueryString(transformer.getResult());
+        }
+        return context;
+    }
+
+    protected List<Entity> loadPage(LoadContext<Entity> context, int firstResult) {
+        context.getQuery().setFirstResult(firstResult);
+        context.getQuery().setMaxResults(pageSize);
+        return dataManager.loadList(context);
+    }
+
+    protected boolean checkRowLimit(int rowNumber) {
+        if (rowNumber > SpreadsheetVersion.EXCEL2007.getLastRowIndex()) {
+            log.warn("Export is truncated to {} rows", SpreadsheetVersion.EXCEL2007.getMaxRows());
+            return false;
+        }
+        return true;
+    }
+
+    protected String getFileName(@Nullable String fileName, CollectionDatasource datasource) {
+        if (fileName == null) {
+            MessageTools messageTools = AppBeans.get(MessageTools.NAME);
+            fileName = messageTools.getEntityCaption(datasource.getMetaClass());
+        }
+        return fileName;
+    }
+
+    protected void showStreamingWorkbook(ExportDisplay display, String fileName) {
+        for (int c = 0; c < sizers.length; c++) {
+            streamingSheet.setColumnWidth(c, sizers[c].getWidth() * COL_WIDTH_MAGIC);
+        }
+
+        File file = null;
+        try {
+            file = File.createTempFile("export", ".xlsx", new File(globalConfig.getTempDir()));
+            try (OutputStream out = new FileOutputStream(file)) {
+                streamingWb.write(out);
+            }
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(file);
+            throw new RuntimeException("Unable to write exported workbook", e);
+        }
+
+        try {
+            display.show(new TempFileDataProvider(file), fileName + ".xlsx", ExportFormat.XLSX);
+        } catch (RuntimeException e) {
+            // the stream has not been opened, so the provider will not delete the file
+            FileUtils.deleteQuietly(file);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.data.impl;
+
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.cuba.client.sys.PersistenceManagerClient;
+import com.haulmont.cuba.client.testsupport.CubaClientTestCase;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.gui.data.impl.testmodel1.TestDetailEntity;
+import com.haulmont.cuba.gui.data.impl.testmodel1.TestMasterEntity;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class EntityComparatorTest extends CubaClientTestCase {
+
+    @Mocked
+    protected PersistenceManagerClient persistenceManager;
+
+    @Before
+    public void setUp() throws Exception {
+        addEntityPackage("com.haulmont.cuba");
+        setupInfrastructure();
+
+        new NonStrictExpectations() {
+            {
+                persistenceManager.isNullsLastSorting(); result = false;
+                AppBeans.get(PersistenceManagerClient.NAME, PersistenceManagerClient.class); result = persistenceManager;
+            }
+        };
+    }
+
+    @Test
+    public void testSortByString() throws Exception {
+        List<TestDetailEntity> entities = createEntities(100);
+        MetaPropertyPath propertyPath = metadata.getClassNN(TestDetailEntity.class).getPropertyPath("detailName");
+
+        assertSameOrder(entities, propertyPath, true);
+        assertSameOrder(entities, propertyPath, false);
+    }
+
+    @Test
+    public void testSortByReference() throws Exception {
+        List<TestDetailEntity> entities = createEntities(100);
+        MetaPropertyPath propertyPath = metadata.getClassNN(TestDetailEntity.class).getPropertyPath("master.masterName");
+
+        assertSameOrder(entities, propertyPath, true);
+        assertSameOrder(entities, propertyPath, false);
+    }
+
+    @Test
+    public void testParallelSort() throws Exception {
+        List<TestDetailEntity> entities = createEntities(AbstractComparator.PARALLEL_SORT_THRESHOLD * 2);
+        MetaPropertyPath propertyPath = metadata.getClassNN(TestDetailEntity.class).getPropertyPath("detailName");
+
+        assertSameOrder(entities, propertyPath, true);
+    }
+
+    protected void assertSameOrder(List<TestDetailEntity> entities, MetaPropertyPath propertyPath, boolean asc) {
+        List<TestDetailEntity> expected = new ArrayList<>(entities);
+        expected.sort(new EntityComparator<>(propertyPath, asc));
+
+        List<TestDetailEntity> actual = new ArrayList<>(entities);
+        new EntityComparator<TestDetailEntity>(propertyPath, asc).sort(actual);
+
+        assertEquals(expected, actual);
+    }
+
+    protected List<TestDetailEntity> createEntities(int count) {
+        String[] names = {"alpha", "Alpha", "ALPHA", "beta", "Beta", "gamma", "\u00c4rger", "\u00e4rger", "z", "", null};
+        Random random = new Random(1);
+
+        List<TestMasterEntity> masters = new ArrayList<>();
+        for (String name : names) {
+            TestMasterEntity master = new TestMasterEntity();
+            master.setMasterName(name);
+            masters.add(master);
+        }
+
+        List<TestDetailEntity> entities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TestDetailEntity entity = new TestDetailEntity();
+            entity.setDetailName(names[random.nextInt(names.length)]);
+            if (i % 10 != 0) {
+                entity.setMaster(masters.get(random.nextInt(masters.size())));
+            }
+            entities.add(entity);
+        }
+        return entities;
+    }
+}
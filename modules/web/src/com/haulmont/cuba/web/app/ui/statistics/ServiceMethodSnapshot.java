@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.web.app.ui.statistics;
+
+import com.haulmont.chile.core.annotations.MetaClass;
+import com.haulmont.chile.core.annotations.MetaProperty;
+import com.haulmont.cuba.core.entity.BaseUuidEntity;
+import com.haulmont.cuba.core.entity.annotation.SystemLevel;
+
+@MetaClass(name = "stat$ServiceMethodSnapshot")
+@SystemLevel
+public class ServiceMethodSnapshot extends BaseUuidEntity {
+
+    @MetaProperty
+    private String name;
+
+    @MetaProperty
+    private Long count;
+
+    @MetaProperty
+    private Long errorCount;
+
+    @MetaProperty
+    private Long inFlightCount;
+
+    @MetaProperty
+    private Double averageTime;
+
+    @MetaProperty
+    private Double maxTime;
+
+    @MetaProperty
+    private Long recentCount;
+
+    @MetaProperty
+    private Double recentP50;
+
+    @MetaProperty
+    private Double recentP90;
+
+    @MetaProperty
+    private Double recentP99;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getCount() {
+        return count;
+    }
+
+    public void setCount(Long count) {
+        this.count = count;
+    }
+
+    public Long getErrorCount() {
+        return errorCount;
+    }
+
+    public void setErrorCount(Long errorCount) {
+        this.errorCount = errorCount;
+    }
+
+    public Long getInFlightCount() {
+        return inFlightCount;
+    }
+
+    public void setInFlightCount(Long inFlightCount) {
+        this.inFlightCount = inFlightCount;
+    }
+
+    public Double getAverageTime() {
+        return averageTime;
+    }
+
+    public void setAverageTime(Double averageTime) {
+        this.averageTime = averageTime;
+    }
+
+    public Double getMaxTime() {
+        return maxTime;
+    }
+
+    public void setMaxTime(Double maxTime) {
+        this.maxTime = maxTime;
+    }
+
+    public Long getRecentCount() {
+        return recentCount;
+    }
+
+    public void setRecentCount(Long recentCount) {
+        this.recentCount = recentCount;
+    }
+
+    public Double getRecentP50() {
+        return recentP50;
+    }
+
+    public void setRecentP50(Double recentP50) {
+        this.recentP50 = recentP50;
+    }
+
+    public Double getRecentP90() {
+        return recentP90;
+    }
+
+    public void setRecentP90(Double recentP90) {
+        this.recentP90 = recentP90;
+    }
+
+    public Double getRecentP99() {
+        return recentP99;
+    }
+
+    public void setRecentP99(Double recentP99) {
+        this.recentP99 = recentP99;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.web.app.ui.statistics;
+
+import com.haulmont.cuba.core.entity.JmxInstance;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.gui.data.impl.CollectionDatasourceImpl;
+import com.haulmont.cuba.web.jmx.JmxControlAPI;
+import com.haulmont.cuba.web.jmx.entity.ManagedBeanAttribute;
+import com.haulmont.cuba.web.jmx.entity.ManagedBeanInfo;
+
+import javax.management.openmbean.CompositeData;
+import java.util.*;
+
+public class ServiceMethodsDatasource extends CollectionDatasourceImpl<ServiceMethodSnapshot, UUID> {
+
+    protected JmxControlAPI jmxControlAPI;
+
+    private Map<String, ServiceMethodSnapshot> name2Method = new HashMap<>();
+
+    public ServiceMethodsDatasource() {
+        jmxControlAPI = AppBeans.get(JmxControlAPI.class);
+    }
+
+    @Override
+    protected void loadData(Map<String, Object> params) {
+        JmxInstance node = (JmxInstance) params.get("node");
+        String coreAppName = (String) params.get("coreAppName");
+
+        ManagedBeanInfo bean = jmxControlAPI.getManagedBean(node, coreAppName + ".cuba:type=StatisticsCounter");
+        if (bean == null)
+            return;
+        ManagedBeanAttribute attr = jmxControlAPI.loadAttribute(bean, "ServiceMethodStatistics");
+        if (attr == null)
+            return;
+        jmxControlAPI.loadAttributeValue(attr);
+        CompositeData[] stats = (CompositeData[]) attr.getValue();
+        if (stats == null)
+            return;
+
+        for (CompositeData stat : stats) {
+            ServiceMethodSnapshot item = getServiceMethodSnapshot((String) stat.get("name"));
+            item.setCount((Long) stat.get("count"));
+            item.setErrorCount((Long) stat.get("errorCount"));
+            item.setInFlightCount((Long) stat.get("inFlightCount"));
+            item.setAverageTime((Double) stat.get("averageTime"));
+            item.setMaxTime((Double) stat.get("maxTime"));
+            item.setRecentCount((Long) stat.get("recentCount"));
+            item.setRecentP50((Double) stat.get("recentP50"));
+            item.setRecentP90((Double) stat.get("recentP90"));
+            item.setRecentP99((Double) stat.get("recentP99"));
+        }
+    }
+
+    protected ServiceMethodSnapshot getServiceMethodSnapshot(String name) {
+        ServiceMethodSnapshot res = name2Method.get(name);
+        if (res == null) {
+            res = new ServiceMethodSnapshot();
+            res.setName(name);
+            name2Method.put(name, res);
+
+            data.put(res.getId(), res);
+            attachListener(res);
+        }
+        return res;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        name2Method.clear();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2008-2017 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.web.app.ui.statistics;
+
+import com.haulmont.cuba.core.entity.JmxInstance;
+import com.haulmont.cuba.gui.components.AbstractWindow;
+import com.haulmont.cuba.gui.components.Formatter;
+import com.haulmont.cuba.gui.components.Table;
+import com.haulmont.cuba.gui.components.Timer;
+
+import javax.inject.Inject;
+import java.util.Map;
+
+public class ServiceMethodsMonitoringWindow extends AbstractWindow {
+
+    @Inject
+    protected ServiceMethodsDatasource serviceMethodsDs;
+
+    @Inject
+    protected Table serviceMethodsTable;
+
+    @Override
+    public void init(Map<String, Object> params) {
+        serviceMethodsDs.refresh(params);
+
+        JmxInstance node = (JmxInstance) params.get("node");
+        setCaption(formatMessage("serviceMethodsMonitoring.caption", node.getNodeName()));
+
+        MillisecondsFormatter formatter = new MillisecondsFormatter();
+        for (String columnId : new String[]{"averageTime", "maxTime", "recentP50", "recentP90", "recentP99"}) {
+            serviceMethodsTable.getColumn(columnId).setFormatter(formatter);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public void onRefresh(Timer timer) {
+        serviceMethodsDs.refresh();
+    }
+
+    protected static class MillisecondsFormatter implements Formatter {
+        @Override
+        public String format(Object value) {
+            String res = null;
+            if (value instanceof Double) {
+                res = String.format("%.2f ms", (double) value);
+            }
+            return res != null ? res : (value != null ? value.toString() : null);
+        }
+    }
+}
@@ -366,6 +366,10 @@ public class StatisticsDatasource extends GroupDatasourceImpl<PerformanceParamet
         prevMiddlewareSpringScheduledTasksCount = count;
     }
 
+    public String getCoreAppName() {
+        return coreAppName;
+    }
+
     protected String getCoreAppName(ClientConfig config) {
         List<String> list = config.getConnectionUrlList();
         if (list.isEmpty())
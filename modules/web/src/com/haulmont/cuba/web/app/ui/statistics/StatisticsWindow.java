@@ -144,4 +144,10 @@ public class StatisticsWindow extends AbstractWindow {
         openWindow("threadsMonitoringWindow", OpenType.NEW_TAB,
                 ParamsMap.of("node", jmxConnectionField.<JmxInstance>getValue()));
     }
+
+    public void onMonitorServiceMethods() {
+        openWindow("serviceMethodsMonitoringWindow", OpenType.NEW_TAB,
+                ParamsMap.of("node", jmxConnectionField.<JmxInstance>getValue(),
+                        "coreAppName", ((StatisticsDatasource) statisticsDs).getCoreAppName()));
+    }
 }
\ No newline at end of file